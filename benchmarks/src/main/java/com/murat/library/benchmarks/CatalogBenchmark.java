@@ -0,0 +1,121 @@
+package com.murat.library.benchmarks;
+import com.murat.library.LibraryManager;
+import com.murat.library.utils.LibraryUtils;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Lookups and filters over catalogs of increasing size.
+ * <p>
+ * Each invocation looks up the next of a fixed set of existing titles,
+ * codes and authors, so results are not skewed by one lucky key. The
+ * {@link LibraryUtils} benchmarks include formatting the matches, as the
+ * console does; their output is discarded. The 10 million book catalog
+ * needs a heap of about 8 GB ({@code -jvmArgs -Xmx8g}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogBenchmark {
+
+    /** Number of keys cycled through by the lookups; a power of two. */
+    private static final int KEYS = 1024;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private LibraryManager manager;
+    private final String[] titles = new String[KEYS];
+    private final String[] codes = new String[KEYS];
+    private final String[] authors = new String[KEYS];
+    private final String[] categories = new String[KEYS];
+    private int next;
+    private PrintStream console;
+
+    @Setup(Level.Trial)
+    public void buildCatalog() {
+        manager = Catalogs.build(size, 42);
+        var books = manager.getCatalog();
+        for (int i = 0; i < KEYS; i++) {
+            var book = books.get((int) ((long) i * books.size() / KEYS));
+            titles[i] = book.getTitle();
+            codes[i] = book.getLibraryCode();
+            authors[i] = book.getAuthor();
+            categories[i] = book.getCategory();
+        }
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void restoreConsole() {
+        System.setOut(console);
+    }
+
+    private int nextKey() {
+        return next++ & (KEYS - 1);
+    }
+
+    @Benchmark
+    public Object findBookByCode() {
+        return manager.findBookByCode(codes[nextKey()]);
+    }
+
+    @Benchmark
+    public Object findBookByTitle() {
+        return manager.findBookByTitle(titles[nextKey()]);
+    }
+
+    @Benchmark
+    public Object findBooksByAuthor() {
+        return manager.findBooksByAuthor(authors[nextKey()]);
+    }
+
+    @Benchmark
+    public Object findBooksByCategory() {
+        return manager.findBooksByCategory(categories[nextKey()]);
+    }
+
+    @Benchmark
+    public Object advancedSearch() {
+        int key = nextKey();
+        return manager.advancedSearch(authors[key], categories[key], 600);
+    }
+
+    @Benchmark
+    public void utilsFilterByAuthor(Blackhole blackhole) {
+        LibraryUtils.filterByAuthor(manager, authors[nextKey()]);
+        blackhole.consume(next);
+    }
+
+    @Benchmark
+    public void utilsFilterByCategory(Blackhole blackhole) {
+        LibraryUtils.filterByCategory(manager, categories[nextKey()]);
+        blackhole.consume(next);
+    }
+
+    @Benchmark
+    public void utilsAdvancedSearch(Blackhole blackhole) {
+        int key = nextKey();
+        LibraryUtils.advancedSearch(manager, authors[key], categories[key], 600);
+        blackhole.consume(next);
+    }
+}
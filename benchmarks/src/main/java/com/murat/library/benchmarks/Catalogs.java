@@ -0,0 +1,43 @@
+package com.murat.library.benchmarks;
+import com.murat.library.LibraryManager;
+import com.murat.library.generator.CatalogGenerator;
+import java.time.LocalDate;
+
+/**
+ * Builds reproducible catalogs for the benchmarks with a {@link CatalogGenerator}:
+ * the same size and seed always give the same books, with Zipf-distributed
+ * authors and categories as in a real library.
+ */
+final class Catalogs {
+
+    /** The day the generated loans are dated around, fixed so catalogs do not change from day to day. */
+    private static final LocalDate TODAY = LocalDate.of(2026, 1, 1);
+
+    private Catalogs() {
+    }
+
+    /**
+     * Returns a generator for a catalog of the given size, with about ten
+     * books per author.
+     *
+     * @param size the number of books
+     * @param seed the random seed
+     * @return the generator
+     */
+    static CatalogGenerator generator(int size, long seed) {
+        return new CatalogGenerator(seed, Math.max(16, size / 10), TODAY);
+    }
+
+    /**
+     * Creates a manager holding a catalog of the given size.
+     *
+     * @param size the number of books
+     * @param seed the random seed
+     * @return the manager
+     */
+    static LibraryManager build(int size, long seed) {
+        LibraryManager manager = new LibraryManager();
+        generator(size, seed).addTo(manager, size);
+        return manager;
+    }
+}
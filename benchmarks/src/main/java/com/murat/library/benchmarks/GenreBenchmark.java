@@ -0,0 +1,85 @@
+package com.murat.library.benchmarks;
+import com.murat.library.Book;
+import com.murat.library.genres.BiographyBook;
+import com.murat.library.genres.DetectiveBook;
+import com.murat.library.genres.FantasyBook;
+import com.murat.library.genres.Genre;
+import com.murat.library.genres.HistoricalBook;
+import com.murat.library.genres.HorrorBook;
+import com.murat.library.genres.RomanceBook;
+import com.murat.library.genres.ScienceFictionBook;
+import com.murat.library.utils.LibraryCodeGenerator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Construction of each genre, which validates every field and generates the
+ * library code, and code generation on its own. None of these depend on the
+ * size of a catalog, so they run once rather than per catalog size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenreBenchmark {
+
+    private final String title = "The Name of the Wind";
+    private final String author = "Patrick Rothfuss";
+    private final String category = "Fiction";
+    private long code = LibraryCodeGenerator.nextId(Genre.FANTASY);
+
+    @Benchmark
+    public Book biography() {
+        return new BiographyBook(title, author, 662, category, null, null, "Kvothe", 1900, 1980);
+    }
+
+    @Benchmark
+    public Book detective() {
+        return new DetectiveBook(title, author, 662, category, null, null, 7, "Noir");
+    }
+
+    @Benchmark
+    public Book fantasy() {
+        return new FantasyBook(title, author, 662, category, null, null, "High Fantasy", 8);
+    }
+
+    @Benchmark
+    public Book historical() {
+        return new HistoricalBook(title, author, 662, category, null, null, "1453", "Europe");
+    }
+
+    @Benchmark
+    public Book horror() {
+        return new HorrorBook(title, author, 662, category, null, null, "Gothic", 9);
+    }
+
+    @Benchmark
+    public Book romance() {
+        return new RomanceBook(title, author, 662, category, null, null, "Regency", 6);
+    }
+
+    @Benchmark
+    public Book scienceFiction() {
+        return new ScienceFictionBook(title, author, 662, category, null, null, 8, "Space Opera");
+    }
+
+    @Benchmark
+    public long nextCodeId() {
+        return code = LibraryCodeGenerator.nextId(Genre.FANTASY);
+    }
+
+    @Benchmark
+    public String renderCode() {
+        return LibraryCodeGenerator.render(code);
+    }
+}
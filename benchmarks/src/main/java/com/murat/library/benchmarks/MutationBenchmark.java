@@ -0,0 +1,112 @@
+package com.murat.library.benchmarks;
+import com.murat.library.Book;
+import com.murat.library.LibraryManager;
+import com.murat.library.generator.CatalogGenerator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link LibraryManager#addBook} and {@link LibraryManager#removeBook} on
+ * catalogs of increasing size.
+ * <p>
+ * Adding and removing change the catalog, so each iteration is one batch of
+ * {@value #BATCH} calls timed as a whole, with the catalog restored to its
+ * original size between iterations. Scores and allocation are per batch.
+ * The books are built before the batch starts, so only the catalog update
+ * is measured.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = MutationBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = MutationBenchmark.BATCH)
+@Fork(1)
+public class MutationBenchmark {
+
+    /** Calls per iteration. */
+    static final int BATCH = 10_000;
+
+    /** The catalog under test. */
+    @State(Scope.Benchmark)
+    public static class Catalog {
+
+        @Param({"1000", "100000", "1000000", "10000000"})
+        public int size;
+
+        LibraryManager manager;
+        CatalogGenerator generator;
+
+        @Setup(Level.Trial)
+        public void build() {
+            manager = Catalogs.build(size, 42);
+            generator = Catalogs.generator(size, 7);
+        }
+
+        List<Book> newBooks() {
+            List<Book> books = new ArrayList<>(BATCH);
+            generator.generate(BATCH, books::add);
+            return books;
+        }
+    }
+
+    /** Books that {@link #addBook} adds, removed again after each iteration. */
+    @State(Scope.Thread)
+    public static class Additions {
+        List<Book> books;
+        int next;
+
+        @Setup(Level.Iteration)
+        public void prepare(Catalog catalog) {
+            books = catalog.newBooks();
+            next = 0;
+        }
+
+        @TearDown(Level.Iteration)
+        public void undo(Catalog catalog) {
+            for (Book book : books) {
+                catalog.manager.removeBook(book.getLibraryCode());
+            }
+        }
+    }
+
+    /** Books added before each iteration for {@link #removeBook} to remove. */
+    @State(Scope.Thread)
+    public static class Removals {
+        String[] codes;
+        int next;
+
+        @Setup(Level.Iteration)
+        public void prepare(Catalog catalog) {
+            List<Book> books = catalog.newBooks();
+            catalog.manager.addBooks(books);
+            codes = new String[books.size()];
+            for (int i = 0; i < codes.length; i++) {
+                codes[i] = books.get(i).getLibraryCode();
+            }
+            next = 0;
+        }
+    }
+
+    @Benchmark
+    public void addBook(Catalog catalog, Additions additions) {
+        catalog.manager.addBook(additions.books.get(additions.next++));
+    }
+
+    @Benchmark
+    public boolean removeBook(Catalog catalog, Removals removals) {
+        return catalog.manager.removeBook(removals.codes[removals.next++]);
+    }
+}
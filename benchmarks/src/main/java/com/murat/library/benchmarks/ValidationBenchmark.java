@@ -0,0 +1,57 @@
+package com.murat.library.benchmarks;
+import com.murat.library.utils.BookUtils;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The field checks of {@link BookUtils} that every new book and update goes
+ * through, for valid values and, through the error variants that the
+ * importers use, for invalid ones.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    private String title = "  Guns, Germs, and Steel  ";
+    private String name = "Jared Diamond";
+    private String nameWithDigit = "Jared Diamond 2";
+    private int pageCount = 480;
+    private int level = 7;
+
+    @Benchmark
+    public String validateBasicText() {
+        return BookUtils.validateBasicText(title, "Title");
+    }
+
+    @Benchmark
+    public String validateNameText() {
+        return BookUtils.validateNameText(name, "Author");
+    }
+
+    @Benchmark
+    public String nameTextError() {
+        return BookUtils.nameTextError(nameWithDigit, "Author");
+    }
+
+    @Benchmark
+    public int validatePageCount() {
+        return BookUtils.validatePageCount(pageCount);
+    }
+
+    @Benchmark
+    public int validateLevel1to10() {
+        return BookUtils.validateLevel1to10(level);
+    }
+}
@@ -1,5 +1,9 @@
 package com.murat.library;
+import com.murat.library.genres.Genre;
 import com.murat.library.utils.BookUtils;
+import com.murat.library.utils.FormatUtils;
+import com.murat.library.utils.LibraryCodeGenerator;
+import com.murat.library.utils.StringDictionary;
 import java.time.LocalDate;
 
 
@@ -7,19 +11,28 @@ import java.time.LocalDate;
  * Represents a generic book in the library.
  */
 public class Book {
-    private  String libraryCode;
+    /** Packed library code id (see {@link LibraryCodeGenerator}), or 0 if none was assigned. */
+    private long codeId;
+    /** Rendered form of {@link #codeId}, built on first request. */
+    private String libraryCode;
     /** Title of the book. */
     private String title;
-    /** Author of the book. */
+    /** Author of the book, canonicalized through {@link StringDictionary#AUTHORS}. */
     private String author;
+    /** Folded dictionary id of the author; equal for names that differ only in case. */
+    private int authorId;
     /** Total number of pages in the book. */
     private int pageCount;
-    /** Book category (e.g. Fiction, Science, History). */
+    /** Book category (e.g. Fiction, Science, History), canonicalized through {@link StringDictionary#CATEGORIES}. */
     private String category;
+    /** Folded dictionary id of the category; equal for categories that differ only in case. */
+    private int categoryId;
     /** The date the book was borrowed. */
     private LocalDate borrowedDate;
     /** The due date for returning the book. */
     private LocalDate returnDate;
+    /** The manager whose indexes contain this book, or null if it is not catalogued. */
+    private volatile LibraryManager manager;
 
 
     /**
@@ -34,29 +47,72 @@ public class Book {
     public Book( String title, String author, int pageCount
     ,String category, LocalDate borrowedDate, LocalDate returnDate){
         this.title = BookUtils.validateBasicText(title, "Title");
-        this.author = BookUtils.validateNameText(author,"Author");
+        assignAuthor(BookUtils.validateNameText(author,"Author"));
         this.pageCount = BookUtils.validatePageCount(pageCount);
-        this.category = BookUtils.validateNameText(category,"Category");
+        assignCategory(BookUtils.validateNameText(category,"Category"));
         setBorrowedDate(borrowedDate);
         setReturnDate(returnDate);
     }
 
+    /**
+     * Rebuilds a book from stored state that was valid when it was stored.
+     * Nothing is validated and the stored code id is kept; a record without
+     * one gets a new code. Genre classes call this from their restore
+     * constructors, see {@link Genre#restore(BookRecord)}.
+     *
+     * @param record the stored state
+     */
+    protected Book(BookRecord record) {
+        this.title = record.title();
+        assignAuthor(record.author());
+        this.pageCount = record.pageCount();
+        assignCategory(record.category());
+        this.borrowedDate = record.borrowedDate();
+        this.returnDate = record.returnDate();
+        this.codeId = record.codeId() != 0 ? record.codeId() : LibraryCodeGenerator.nextId(record.genre());
+    }
+
     /**
      * Gets the unique library code of the book.
+     * The code is rendered from its packed id the first time it is requested.
      *
-     * @return the library code
+     * @return the library code, or null if no code was assigned
      */
     public String getLibraryCode(){
-        return libraryCode;
+        String code = libraryCode;
+        if (code == null && codeId != 0) {
+            code = LibraryCodeGenerator.render(codeId);
+            libraryCode = code;
+        }
+        return code;
+    }
+
+    /**
+     * Gets the packed 64-bit id behind the library code.
+     *
+     * @return the code id, or 0 if no code was assigned
+     */
+    public long getCodeId(){
+        return codeId;
+    }
+
+    /**
+     * Sets the unique library code id of the book.
+     *
+     * @param codeId the packed code id, typically from {@link LibraryCodeGenerator#nextId(Genre)}
+     */
+    protected void setCodeId(long codeId){
+        this.codeId = codeId;
+        this.libraryCode = null;
     }
 
     /**
-     * Sets the unique library code of the book.
+     * Gets the genre encoded in the library code.
      *
-     * @param libraryCode the library code to set
+     * @return the genre, or null if no code was assigned
      */
-    protected void setLibraryCode(String libraryCode){
-        this.libraryCode = libraryCode;
+    public Genre getGenre(){
+        return LibraryCodeGenerator.genreOf(codeId);
     }
 
     /**
@@ -74,7 +130,7 @@ public class Book {
      * @param title the book title to set
      */
     public void setTitle(String title) {
-        this.title = BookUtils.validateBasicText(title , "Title");
+        change(BookField.TITLE, BookUtils.validateBasicText(title , "Title"));
     }
 
      /**
@@ -92,7 +148,17 @@ public class Book {
      * @param author the author's name to set
      */
     public void setAuthor(String author) {
-        this.author = BookUtils.validateNameText(author,"Author");
+        change(BookField.AUTHOR, BookUtils.validateNameText(author,"Author"));
+    }
+
+    /**
+     * Gets the dictionary code of the author.
+     * Two books have the same code exactly when their authors are equal ignoring case.
+     *
+     * @return the folded author id from {@link StringDictionary#AUTHORS}
+     */
+    public int getAuthorId() {
+        return authorId;
     }
 
     /**
@@ -110,7 +176,7 @@ public class Book {
      * @param pageCount the page count to set
      */
     public void setPageCount(int pageCount) {
-        this.pageCount = BookUtils.validatePageCount(pageCount);
+        change(BookField.PAGE_COUNT, BookUtils.validatePageCount(pageCount));
     }
 
     /**
@@ -128,7 +194,17 @@ public class Book {
      * @param category the book category to set
      */
     public void setCategory(String category) {
-        this.category = BookUtils.validateNameText(category,"Category");
+        change(BookField.CATEGORY, BookUtils.validateNameText(category,"Category"));
+    }
+
+    /**
+     * Gets the dictionary code of the category.
+     * Two books have the same code exactly when their categories are equal ignoring case.
+     *
+     * @return the folded category id from {@link StringDictionary#CATEGORIES}
+     */
+    public int getCategoryId() {
+        return categoryId;
     }
 
     /**
@@ -146,20 +222,10 @@ public class Book {
      * @param borrowedDate the date to set as the borrowed date
      */
     public void setBorrowedDate(LocalDate borrowedDate) {
-        try {
-            if (borrowedDate == null) {
-                this.borrowedDate = null;
-                return;
-            }
-            
-            if (borrowedDate.isAfter(LocalDate.now())) {
-                throw new IllegalArgumentException("Borrowed date cannot be in the future");
-            }
-            
-            this.borrowedDate = borrowedDate;
-            
-        } catch (IllegalArgumentException e) {
-            System.err.println("Error setting borrowed date: " + e.getMessage());
+        if (borrowedDate != null && borrowedDate.isAfter(LocalDate.now())) {
+            System.err.println("Error setting borrowed date: Borrowed date cannot be in the future");
+        } else {
+            change(BookField.BORROWED_DATE, borrowedDate);
         }
     }
 
@@ -178,25 +244,216 @@ public class Book {
      * @param returnDate the return date to set
      */
     public void setReturnDate(LocalDate returnDate) {
-        try{
-            if(returnDate == null){
-                this.returnDate = null; 
-                return;
+        if(returnDate != null && returnDate.isBefore(LocalDate.now())){
+            System.err.println("Error setting return date: Return date cannot be in the past");
+        }else if(returnDate != null && this.borrowedDate != null && returnDate.isBefore(this.borrowedDate)){
+            System.err.println("Error setting return date: Return date cannot be before borrowed date");
+        }else{
+            change(BookField.RETURN_DATE, returnDate);
+        }
+    }
+
+    /**
+     * Sets both loan dates together, as when the book is checked out or in,
+     * so that no valid pair is ever replaced by a mix of old and new dates.
+     * Both dates are written under the owning manager's lock for this book
+     * before it is notified of each date that changed.
+     *
+     * @param borrowedDate the borrowed date, or null
+     * @param returnDate   the return date, or null
+     * @throws IllegalArgumentException if the borrowed date is in the future, or the
+     *                                  return date is in the past or before the borrowed date
+     */
+    public void setLoanDates(LocalDate borrowedDate, LocalDate returnDate) {
+        if (borrowedDate != null && borrowedDate.isAfter(LocalDate.now())) {
+            throw new IllegalArgumentException("Borrowed date cannot be in the future");
+        }
+        if (returnDate != null && returnDate.isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("Return date cannot be in the past");
+        }
+        if (returnDate != null && borrowedDate != null && returnDate.isBefore(borrowedDate)) {
+            throw new IllegalArgumentException("Return date cannot be before borrowed date");
+        }
+        restoreLoanDates(borrowedDate, returnDate);
+    }
+
+    /**
+     * Attaches the book to the manager that indexes it, or detaches it when null.
+     *
+     * @param manager the owning manager, or null
+     */
+    void setManager(LibraryManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Returns the manager whose indexes contain this book.
+     *
+     * @return the owning manager, or null if the book is not catalogued
+     */
+    LibraryManager getManager() {
+        return manager;
+    }
+
+    private void assignAuthor(String author) {
+        int id = StringDictionary.AUTHORS.intern(author);
+        this.author = StringDictionary.AUTHORS.get(id);
+        this.authorId = StringDictionary.AUTHORS.foldedId(id);
+    }
+
+    private void assignCategory(String category) {
+        int id = StringDictionary.CATEGORIES.intern(category);
+        this.category = StringDictionary.CATEGORIES.get(id);
+        this.categoryId = StringDictionary.CATEGORIES.foldedId(id);
+    }
+
+    /**
+     * Restores persisted state that must not be re-validated or re-generated:
+     * the original library code and the loan dates, which may lie in the past.
+     *
+     * @param codeId       the packed library code id
+     * @param borrowedDate the borrowed date, or null
+     * @param returnDate   the return date, or null
+     */
+    void restore(long codeId, LocalDate borrowedDate, LocalDate returnDate) {
+        setCodeId(codeId);
+        restoreLoanDates(borrowedDate, returnDate);
+    }
+
+    /**
+     * Sets both loan dates without validation, for replaying persisted state.
+     * Both dates are written under the owning manager's lock for this book
+     * before it is notified of each date that changed.
+     *
+     * @param borrowedDate the borrowed date, or null
+     * @param returnDate   the return date, or null
+     */
+    void restoreLoanDates(LocalDate borrowedDate, LocalDate returnDate) {
+        LibraryManager owner = manager;
+        if (owner == null || !owner.changeBook(this, new BookField[] {BookField.BORROWED_DATE, BookField.RETURN_DATE},
+                new Object[] {borrowedDate, returnDate})) {
+            this.borrowedDate = borrowedDate;
+            this.returnDate = returnDate;
+        }
+    }
+
+    /**
+     * Changes genre-specific fields. Subclasses call this from the setters of
+     * their own fields, with the already validated assignment.
+     *
+     * @param write assigns the new values
+     */
+    protected void changeDetails(Runnable write) {
+        change(BookField.DETAILS, write);
+    }
+
+    /**
+     * Sets the genre-specific fields from stored state, without validation, as
+     * when a failed change is rolled back. Genre classes override this; the
+     * base class has no such fields.
+     *
+     * @param record the stored state
+     */
+    protected void restoreDetails(BookRecord record) {
+    }
+
+    /**
+     * Sets a field through the owning manager, which writes it under its lock
+     * for this book and then re-indexes the book, or directly if the book is
+     * not catalogued.
+     *
+     * @param field the field to set
+     * @param value the validated new value
+     */
+    private void change(BookField field, Object value) {
+        LibraryManager owner = manager;
+        if (owner == null || !owner.changeBook(this, new BookField[] {field}, new Object[] {value})) {
+            swap(field, value);
+        }
+    }
+
+    /**
+     * Sets a field without validation or notification. Called by the owning
+     * manager while it holds its lock for this book.
+     *
+     * @param field the field to set
+     * @param value the new value; for {@link BookField#DETAILS} the assignment
+     *              to run, or a {@link BookRecord} whose details to restore
+     * @return the previous value; for {@link BookField#DETAILS} a record of the
+     *         book before the change, which restores it when swapped back
+     */
+    Object swap(BookField field, Object value) {
+        Object previous;
+        switch (field) {
+            case TITLE -> {
+                previous = title;
+                title = (String) value;
             }
-            if(returnDate.isBefore(LocalDate.now())){
-                throw new IllegalArgumentException("Return date cannot be in the past");
+            case AUTHOR -> {
+                previous = author;
+                assignAuthor((String) value);
             }
-
-            if(this.borrowedDate != null && returnDate.isBefore(this.borrowedDate)){
-                throw new IllegalArgumentException("Return date cannot be before borrowed date");
+            case PAGE_COUNT -> {
+                previous = pageCount;
+                pageCount = (Integer) value;
             }
-            this.returnDate = returnDate;
+            case CATEGORY -> {
+                previous = category;
+                assignCategory((String) value);
+            }
+            case BORROWED_DATE -> {
+                previous = borrowedDate;
+                borrowedDate = (LocalDate) value;
+            }
+            case RETURN_DATE -> {
+                previous = returnDate;
+                returnDate = (LocalDate) value;
+            }
+            default -> {
+                previous = BookRecord.of(this);
+                if (value instanceof BookRecord record) {
+                    restoreDetails(record);
+                } else {
+                    ((Runnable) value).run();
+                }
+            }
+        }
+        return previous;
+    }
 
-        }catch(Exception e){
-            System.err.println("Error setting return date: " + e.getMessage());    
+    /**
+     * Appends the library code, rendering it into the builder if it was not rendered before.
+     *
+     * @param out the builder to append to
+     */
+    public void appendLibraryCode(StringBuilder out){
+        String code = libraryCode;
+        if (code != null || codeId == 0) {
+            out.append(code);
+        } else {
+            LibraryCodeGenerator.render(codeId, out);
         }
     }
 
+    /**
+     * Appends the text of {@link #toString()} to a builder, without creating
+     * intermediate strings. Genre classes append their own fields after these.
+     *
+     * @param out the builder to append to
+     */
+    public void appendTo(StringBuilder out){
+        out.append("Library Code: ");
+        appendLibraryCode(out);
+        out.append("| Title: ").append(title)
+                .append("| Author: ").append(author)
+                .append("| Page Count: ").append(pageCount)
+                .append("| Category: ").append(category)
+                .append("| Borrowed: ");
+        FormatUtils.appendDate(out, borrowedDate);
+        out.append("| Return by: ");
+        FormatUtils.appendDate(out, returnDate);
+    }
+
     /**
      * Returns a string representation of the book, including its library code, title, author, and category.
      *
@@ -204,13 +461,8 @@ public class Book {
      */
     @Override
     public String toString(){
-        return  "Library Code: " + libraryCode + "|" +
-                " Title: " + title + "|" +
-                " Author: " + author + "|" +
-                " Page Count: " + pageCount + "|" +
-                " Category: " + category + "|" +
-                " Borrowed: " + borrowedDate + "|" +
-                " Return by: " + returnDate;
-
+        StringBuilder out = new StringBuilder(160);
+        appendTo(out);
+        return out.toString();
     }
 }
@@ -0,0 +1,22 @@
+package com.murat.library;
+
+/**
+ * Identifies a {@link Book} field whose change must be propagated to the
+ * {@link LibraryManager} that holds the book, so its indexes and storage stay current.
+ */
+public enum BookField {
+    /** The book title. */
+    TITLE,
+    /** The author's name. */
+    AUTHOR,
+    /** The total number of pages. */
+    PAGE_COUNT,
+    /** The book category. */
+    CATEGORY,
+    /** The date the book was borrowed. */
+    BORROWED_DATE,
+    /** The due date for returning the book. */
+    RETURN_DATE,
+    /** Any genre-specific field; the previous value is not reported. */
+    DETAILS
+}
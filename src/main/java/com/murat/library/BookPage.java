@@ -0,0 +1,29 @@
+package com.murat.library;
+import java.util.List;
+
+/**
+ * One page of the results of a {@link BookQuery}.
+ *
+ * @param books             the books of this page, in catalog order
+ * @param continuationToken the token that fetches the next page with
+ *                          {@link LibraryManager#queryPage(BookQuery, String, int)},
+ *                          or null if this is the last page
+ */
+public record BookPage(List<Book> books, String continuationToken) {
+
+    /**
+     * Copies the book list.
+     */
+    public BookPage {
+        books = List.copyOf(books);
+    }
+
+    /**
+     * Tells whether more results follow this page.
+     *
+     * @return true if there is a continuation token
+     */
+    public boolean hasMore() {
+        return continuationToken != null;
+    }
+}
@@ -0,0 +1,85 @@
+package com.murat.library;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Criteria of a catalog query, run with {@link LibraryManager#query(BookQuery)}
+ * or one of the {@code queryPage} methods.
+ * <p>
+ * A book matches when it satisfies every criterion that is set. Author and
+ * category are compared ignoring case and surrounding blanks, as the other
+ * lookups of the manager do.
+ *
+ * @param author       the author's name, or null to match any author
+ * @param category     the category, or null to match any category
+ * @param maxPageCount the maximum allowed page count (inclusive)
+ */
+public record BookQuery(String author, String category, int maxPageCount) {
+
+    /** Matches every book. */
+    private static final BookQuery ALL = new BookQuery(null, null, Integer.MAX_VALUE);
+
+    /**
+     * Trims the names.
+     */
+    public BookQuery {
+        author = author == null ? null : author.trim();
+        category = category == null ? null : category.trim();
+    }
+
+    /**
+     * Returns a query that matches every book.
+     *
+     * @return the query
+     */
+    public static BookQuery all() {
+        return ALL;
+    }
+
+    /**
+     * Returns a query for the books of an author.
+     *
+     * @param author the author's name (case-insensitive)
+     * @return the query
+     */
+    public static BookQuery byAuthor(String author) {
+        return new BookQuery(Objects.requireNonNull(author, "author"), null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns a query for the books in a category.
+     *
+     * @param category the category (case-insensitive)
+     * @return the query
+     */
+    public static BookQuery byCategory(String category) {
+        return new BookQuery(null, Objects.requireNonNull(category, "category"), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the query of {@link LibraryManager#advancedSearch(String, String, int)}.
+     *
+     * @param author       the author's name (case-insensitive)
+     * @param category     the category (case-insensitive)
+     * @param maxPageCount the maximum allowed page count (inclusive)
+     * @return the query
+     */
+    public static BookQuery search(String author, String category, int maxPageCount) {
+        return new BookQuery(Objects.requireNonNull(author, "author"),
+                Objects.requireNonNull(category, "category"), maxPageCount);
+    }
+
+    /**
+     * Returns a hash that is equal for queries matching the same books, used to
+     * tie continuation tokens to their query.
+     *
+     * @return the hash
+     */
+    int fingerprint() {
+        return Objects.hash(fold(author), fold(category), maxPageCount);
+    }
+
+    private static String fold(String name) {
+        return name == null ? null : name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,229 @@
+package com.murat.library;
+import com.murat.library.genres.BiographyBook;
+import com.murat.library.genres.DetectiveBook;
+import com.murat.library.genres.FantasyBook;
+import com.murat.library.genres.Genre;
+import com.murat.library.genres.HistoricalBook;
+import com.murat.library.genres.HorrorBook;
+import com.murat.library.genres.RomanceBook;
+import com.murat.library.genres.ScienceFictionBook;
+import java.time.LocalDate;
+
+/**
+ * A flat, genre-independent copy of a book's state, used by storage engines
+ * that do not keep {@link Book} objects around.
+ * <p>
+ * Genre-specific fields are mapped onto two text and two number slots:
+ * <table>
+ *   <caption>Slot usage per genre</caption>
+ *   <tr><th>Genre</th><th>text1</th><th>text2</th><th>number1</th><th>number2</th></tr>
+ *   <tr><td>Biography</td><td>subject name</td><td>-</td><td>birth year</td><td>death year</td></tr>
+ *   <tr><td>Detective</td><td>sub-genre</td><td>-</td><td>mystery level</td><td>-</td></tr>
+ *   <tr><td>Fantasy</td><td>sub-genre</td><td>-</td><td>fantasy level</td><td>-</td></tr>
+ *   <tr><td>Historical</td><td>era start year</td><td>region</td><td>-</td><td>-</td></tr>
+ *   <tr><td>Horror</td><td>sub-genre</td><td>-</td><td>scare level</td><td>-</td></tr>
+ *   <tr><td>Science Fiction</td><td>sub-genre</td><td>-</td><td>scientific level</td><td>-</td></tr>
+ *   <tr><td>Romance</td><td>sub-genre</td><td>-</td><td>romantic level</td><td>-</td></tr>
+ * </table>
+ * Unused text slots are null and unused number slots are 0.
+ *
+ * @param codeId       packed library code id
+ * @param genre        the book genre
+ * @param title        the title
+ * @param author       the author's name
+ * @param pageCount    the page count
+ * @param category     the category
+ * @param borrowedDate the borrowed date, or null
+ * @param returnDate   the return date, or null
+ * @param text1        first genre-specific text field
+ * @param text2        second genre-specific text field
+ * @param number1      first genre-specific number field
+ * @param number2      second genre-specific number field
+ */
+public record BookRecord(long codeId, Genre genre, String title, String author, int pageCount, String category,
+                         LocalDate borrowedDate, LocalDate returnDate,
+                         String text1, String text2, int number1, int number2) {
+
+    /** The genre-specific slots of a record. */
+    public enum Slot {
+        /** The {@code text1} component. */
+        TEXT1,
+        /** The {@code text2} component. */
+        TEXT2,
+        /** The {@code number1} component. */
+        NUMBER1,
+        /** The {@code number2} component. */
+        NUMBER2;
+
+        /**
+         * Tells whether the slot holds text.
+         *
+         * @return true for the text slots, false for the number slots
+         */
+        public boolean isText() {
+            return this == TEXT1 || this == TEXT2;
+        }
+    }
+
+    /**
+     * Copies the state of a genre book.
+     *
+     * @param book the book to copy
+     * @return the flat record
+     * @throws IllegalArgumentException if the book is not one of the genre classes
+     */
+    public static BookRecord of(Book book) {
+        String text1 = null;
+        String text2 = null;
+        int number1 = 0;
+        int number2 = 0;
+        if (book instanceof BiographyBook biography) {
+            text1 = biography.getSubjectName();
+            number1 = biography.getBirthYear();
+            number2 = biography.getDeathYear();
+        } else if (book instanceof DetectiveBook detective) {
+            text1 = detective.getSubGenre();
+            number1 = detective.getMysteryLevel();
+        } else if (book instanceof FantasyBook fantasy) {
+            text1 = fantasy.getSubGenre();
+            number1 = fantasy.getFantasyLevel();
+        } else if (book instanceof HistoricalBook historical) {
+            text1 = historical.getEraStartYear();
+            text2 = historical.getRegion();
+        } else if (book instanceof HorrorBook horror) {
+            text1 = horror.getSubGenre();
+            number1 = horror.getScareLevel();
+        } else if (book instanceof ScienceFictionBook scienceFiction) {
+            text1 = scienceFiction.getSubGenre();
+            number1 = scienceFiction.getScientificLevel();
+        } else if (book instanceof RomanceBook romance) {
+            text1 = romance.getSubGenre();
+            number1 = romance.getRomanticLevel();
+        } else {
+            throw new IllegalArgumentException("Unsupported book type: " + book.getClass().getName());
+        }
+        return new BookRecord(book.getCodeId(), book.getGenre(), book.getTitle(), book.getAuthor(),
+                book.getPageCount(), book.getCategory(), book.getBorrowedDate(), book.getReturnDate(),
+                text1, text2, number1, number2);
+    }
+
+    /**
+     * Returns the value of a text slot.
+     *
+     * @param slot a text slot
+     * @return the text, or null
+     * @throws IllegalArgumentException if the slot holds a number
+     */
+    public String text(Slot slot) {
+        return switch (slot) {
+            case TEXT1 -> text1;
+            case TEXT2 -> text2;
+            default -> throw new IllegalArgumentException(slot + " is not a text slot");
+        };
+    }
+
+    /**
+     * Returns the value of a number slot.
+     *
+     * @param slot a number slot
+     * @return the number
+     * @throws IllegalArgumentException if the slot holds text
+     */
+    public int number(Slot slot) {
+        return switch (slot) {
+            case NUMBER1 -> number1;
+            case NUMBER2 -> number2;
+            default -> throw new IllegalArgumentException(slot + " is not a number slot");
+        };
+    }
+
+    /**
+     * Copies this record's state onto an existing book of the same genre through
+     * its setters, so a manager holding the book re-indexes it. Only fields that
+     * differ are set. The loan dates are restored as stored, even if they now
+     * lie in the past; the library code is left unchanged.
+     *
+     * @param book the book to update
+     * @throws IllegalArgumentException if the book has another genre or a field fails validation
+     */
+    public void applyTo(Book book) {
+        if (book.getGenre() != genre) {
+            throw new IllegalArgumentException("Cannot apply a " + genre + " record to a " + book.getGenre() + " book");
+        }
+        if (!title.equals(book.getTitle())) {
+            book.setTitle(title);
+        }
+        if (!author.equals(book.getAuthor())) {
+            book.setAuthor(author);
+        }
+        if (pageCount != book.getPageCount()) {
+            book.setPageCount(pageCount);
+        }
+        if (!category.equals(book.getCategory())) {
+            book.setCategory(category);
+        }
+        book.restoreLoanDates(borrowedDate, returnDate);
+        BookRecord current = of(book);
+        if (current.equals(this)) {
+            return;
+        }
+        if (book instanceof BiographyBook biography) {
+            biography.setSubjectName(text1);
+            biography.setBirthYear(number1);
+            biography.setDeathYear(number2);
+        } else if (book instanceof DetectiveBook detective) {
+            detective.setSubGenre(text1);
+            detective.setMysteryLevel(number1);
+        } else if (book instanceof FantasyBook fantasy) {
+            fantasy.setSubGenre(text1);
+            fantasy.setFantasyLevel(number1);
+        } else if (book instanceof HistoricalBook historical) {
+            historical.setEraStartYear(text1);
+            historical.setRegion(text2);
+        } else if (book instanceof HorrorBook horror) {
+            horror.setSubGenre(text1);
+            horror.setScareLevel(number1);
+        } else if (book instanceof ScienceFictionBook scienceFiction) {
+            scienceFiction.setSubGenre(text1);
+            scienceFiction.setScientificLevel(number1);
+        } else if (book instanceof RomanceBook romance) {
+            romance.setSubGenre(text1);
+            romance.setRomanticLevel(number1);
+        }
+    }
+
+    /**
+     * Builds a genre book from this record.
+     * The book keeps this record's library code and loan dates; the dates are
+     * restored as stored, even if they now lie in the past. A record with code
+     * id 0 gets a newly generated code.
+     *
+     * @return a new, detached book
+     * @throws IllegalArgumentException if any field fails validation
+     * @see #restoreBook()
+     */
+    public Book toBook() {
+        Book book = switch (genre) {
+            case BIOGRAPHY -> new BiographyBook(title, author, pageCount, category, null, null, text1, number1, number2);
+            case DETECTIVE -> new DetectiveBook(title, author, pageCount, category, null, null, number1, text1);
+            case FANTASY -> new FantasyBook(title, author, pageCount, category, null, null, text1, number1);
+            case HISTORICAL -> new HistoricalBook(title, author, pageCount, category, null, null, text1, text2);
+            case HORROR -> new HorrorBook(title, author, pageCount, category, null, null, text1, number1);
+            case SCIENCE_FICTION -> new ScienceFictionBook(title, author, pageCount, category, null, null, number1, text1);
+            case ROMANCE -> new RomanceBook(title, author, pageCount, category, null, null, text1, number1);
+        };
+        book.restore(codeId == 0 ? book.getCodeId() : codeId, borrowedDate, returnDate);
+        return book;
+    }
+
+    /**
+     * Rebuilds the book this record was taken from, as storage engines do when
+     * they materialize a stored row. Unlike {@link #toBook()} nothing is
+     * validated and the stored code id is kept without generating one.
+     *
+     * @return a new, detached book
+     */
+    public Book restoreBook() {
+        return genre.restore(this);
+    }
+}
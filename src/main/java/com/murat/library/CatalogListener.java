@@ -0,0 +1,40 @@
+package com.murat.library;
+
+/**
+ * Receives every change made to the catalog of a {@link LibraryManager}.
+ * <p>
+ * Notifications for one library code are delivered one at a time and in the
+ * order the changes were applied, so a listener sees an add before any update
+ * and a remove after them. Notifications for different codes may arrive
+ * concurrently. Listeners are called on the thread that made the change and
+ * should return quickly. A listener that throws refuses the change, which is
+ * then undone; see {@link LibraryManager#addListener(CatalogListener)}.
+ */
+public interface CatalogListener {
+
+    /**
+     * Called after a book was added to the catalog.
+     *
+     * @param book the added book
+     */
+    default void bookAdded(Book book) {
+    }
+
+    /**
+     * Called after a book was removed from the catalog.
+     *
+     * @param book the removed book
+     */
+    default void bookRemoved(Book book) {
+    }
+
+    /**
+     * Called after a field of a catalogued book changed through one of its setters.
+     *
+     * @param book          the book that changed
+     * @param field         the field that changed
+     * @param previousValue the value before the change, or null for {@link BookField#DETAILS}
+     */
+    default void bookChanged(Book book, BookField field, Object previousValue) {
+    }
+}
@@ -0,0 +1,60 @@
+package com.murat.library;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Encodes the resume point of a paged query.
+ * <p>
+ * A token holds the catalog position of the last book returned (see
+ * {@link com.murat.library.catalog.CatalogEntry}) and the fingerprint of the
+ * query, as twelve bytes in URL-safe Base64. Resuming from a position rather
+ * than an offset means books added or removed before it do not shift the
+ * following pages.
+ */
+final class ContinuationToken {
+
+    private static final int BYTES = Long.BYTES + Integer.BYTES;
+
+    private ContinuationToken() {
+        // Utility class, no instantiation
+    }
+
+    /**
+     * Creates the token that resumes a query after a position.
+     *
+     * @param query    the query
+     * @param position the catalog position of the last returned book
+     * @return the token
+     */
+    static String encode(BookQuery query, long position) {
+        ByteBuffer bytes = ByteBuffer.allocate(BYTES);
+        bytes.putLong(position).putInt(query.fingerprint());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.array());
+    }
+
+    /**
+     * Returns the position a token resumes after.
+     *
+     * @param query the query the token must belong to
+     * @param token the token
+     * @return the catalog position of the last book of the previous page
+     * @throws IllegalArgumentException if the token is malformed or belongs to another query
+     */
+    static long decode(BookQuery query, String token) {
+        byte[] decoded;
+        try {
+            decoded = Base64.getUrlDecoder().decode(token.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid continuation token", e);
+        }
+        if (decoded.length != BYTES) {
+            throw new IllegalArgumentException("Invalid continuation token");
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(decoded);
+        long position = bytes.getLong();
+        if (bytes.getInt() != query.fingerprint() || position < 0) {
+            throw new IllegalArgumentException("Continuation token does not belong to this query");
+        }
+        return position;
+    }
+}
@@ -1,19 +1,76 @@
 package com.murat.library;
+import com.murat.library.batch.BatchReport;
+import com.murat.library.batch.BatchRunner;
+import com.murat.library.circulation.OverdueSweeper;
+import com.murat.library.generator.CatalogGenerator;
 import com.murat.library.genres.*;
+import com.murat.library.http.LibraryServer;
+import com.murat.library.importer.BulkImporter;
+import com.murat.library.importer.ImportReport;
+import com.murat.library.metrics.CatalogMetrics;
+import com.murat.library.metrics.MetricsReporter;
+import com.murat.library.persistence.CatalogSnapshot;
+import com.murat.library.persistence.FsyncPolicy;
+import com.murat.library.persistence.WriteAheadLog;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.Locale;
 import java.util.Scanner;
+import com.murat.library.utils.BookUtils;
 import com.murat.library.utils.LibraryUtils;
 
 /**
  * Main class to run the library management system.
+ * <p>
+ * The catalog is persisted in a {@link CatalogSnapshot} plus a {@link WriteAheadLog} of the
+ * changes made since it was written, configured through system properties:
+ * <ul>
+ *   <li>{@code library.snapshot} - the snapshot file, {@code library.snapshot} by default;
+ *       empty disables snapshots</li>
+ *   <li>{@code library.wal} - the log file, {@code library.wal} by default; empty disables the log</li>
+ *   <li>{@code library.fsync} - the {@link FsyncPolicy}, {@code INTERVAL} by default</li>
+ *   <li>{@code library.fsync.intervalMillis} - the flush interval, 100 by default</li>
+ * </ul>
+ * Started with {@code --batch [file]}, the application runs the commands of
+ * the file, or of standard input if the file is missing or {@code -}, through
+ * a {@link BatchRunner} instead of showing the menu. Started with
+ * {@code --serve [port]}, it serves the catalog over HTTP through a
+ * {@link LibraryServer} on the given port, 8080 by default, until stopped.
+ * Started with {@code --generate count [file] [seed]}, it writes a synthetic
+ * catalog from a {@link CatalogGenerator} as JSON Lines, to standard output
+ * if the file is missing or {@code -}, ready to be imported.
  */
 public class LibraryApp {
     /**
      * Main method to run the library management system.
      *
-     * @param args command line arguments
+     * @param args command line arguments: none for the menu, {@code --batch [file]},
+     *             {@code --serve [port]} or {@code --generate count [file] [seed]}
      */
     public static void main(String[] args){
+        startMetrics();
+        if (args.length > 0 && args[0].equals("--batch")) {
+            runBatch(args.length > 1 ? args[1] : "-");
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--serve")) {
+            serve(args.length > 1 ? args[1] : "8080");
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--generate")) {
+            generate(args[1], args.length > 2 ? args[2] : "-", args.length > 3 ? args[3] : "1");
+            return;
+        }
         /**
          * Scanner object to read user input.
          */
@@ -21,15 +78,32 @@ public class LibraryApp {
     /**
      * LibraryManager instance to manage the library.
      */
-    LibraryManager manager = new LibraryManager();
+    LibraryManager manager = loadSnapshot();
+    if (manager == null) {
+        return;
+    }
     /**
      * Boolean flag to control the loop.
      */
     boolean exit = false;
     /**
-     * Initializes the library with sample books.
+     * Restores the catalog from the write-ahead log.
      */
-    initializeSampleBooks(manager);
+    WriteAheadLog log = openLog(manager);
+    if (log == null && logFile() != null) {
+        return;
+    }
+    /**
+     * Initializes the library with sample books on the first run.
+     */
+    if (manager.getCatalog().isEmpty()) {
+        initializeSampleBooks(manager);
+    }
+    /**
+     * Reports overdue books now and after every midnight.
+     */
+    OverdueSweeper sweeper = manager.startOverdueSweeper(book -> System.out.println(
+            "Overdue: " + book.getTitle() + " (" + book.getLibraryCode() + "), due " + book.getReturnDate()));
     /**
      * Welcome message.
      */
@@ -50,6 +124,12 @@ public class LibraryApp {
         System.out.println("6. Filter books by author");
         System.out.println("7. Advanced search");
         System.out.println("8. Update book");
+        System.out.println("9. Import books from a CSV or JSON file");
+        System.out.println("10. Search books by title words");
+        System.out.println("11. Find books by part of title or author");
+        System.out.println("12. List overdue books");
+        System.out.println("13. Check out a book");
+        System.out.println("14. Check in a book");
         System.out.println("0. Exit");
         System.out.print("Enter your choice: ");
 
@@ -63,7 +143,7 @@ public class LibraryApp {
                 removeBook(scanner,manager);
                 break;
             case 3:
-                manager.listBooks();
+                LibraryUtils.printPages(scanner, manager, BookQuery.all(), null, "No books found.");
                 break;
             case 4:
                 findBookByLibraryCode(scanner,manager);
@@ -80,6 +160,24 @@ public class LibraryApp {
             case 8:
                 updateBook(scanner,manager);
                 break;
+            case 9:
+                importBooks(scanner,manager);
+                break;
+            case 10:
+                searchByTitle(scanner,manager);
+                break;
+            case 11:
+                findByPart(scanner,manager);
+                break;
+            case 12:
+                LibraryUtils.listOverdue(manager, LocalDate.now());
+                break;
+            case 13:
+                checkoutBook(scanner,manager);
+                break;
+            case 14:
+                checkinBook(scanner,manager);
+                break;
             case 0:
                 exit = true;
                 System.out.println("Exiting the program...");
@@ -93,6 +191,219 @@ public class LibraryApp {
      * Closes the scanner.
      */
     scanner.close();
+    sweeper.close();
+    closeLog(log);
+    }
+
+    /**
+     * Runs a batch script against the persisted catalog. Command output goes to
+     * standard output; failed lines and the closing summary with the throughput
+     * go to standard error.
+     *
+     * @param file the script, or {@code -} for standard input
+     */
+    private static void runBatch(String file){
+        LibraryManager manager = loadSnapshot();
+        if (manager == null) {
+            return;
+        }
+        WriteAheadLog log = openLog(manager);
+        if (log == null && logFile() != null) {
+            return;
+        }
+        Charset charset = Charset.defaultCharset();
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, charset), 64 * 1024);
+        Writer errors = new BufferedWriter(new OutputStreamWriter(System.err, charset), 8 * 1024);
+        try (BufferedReader commands = file.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, charset), 64 * 1024)
+                : Files.newBufferedReader(Path.of(file), charset)) {
+            BatchReport report = new BatchRunner(manager).run(commands, out, errors);
+            System.err.println(report);
+        } catch (IOException e) {
+            System.err.println("Batch failed: " + e.getMessage());
+        }
+        closeLog(log);
+    }
+
+    /**
+     * Serves the persisted catalog over HTTP until the process is stopped;
+     * the log is closed by a shutdown hook. Raises the JDK's limit of idle
+     * keep-alive connections to 20000 unless the launch command set it.
+     *
+     * @param port the port to listen on
+     */
+    private static void serve(String port){
+        // Read once by the JDK server, so it must be set before the first one is created.
+        if (System.getProperty(LibraryServer.MAX_IDLE_CONNECTIONS) == null) {
+            System.setProperty(LibraryServer.MAX_IDLE_CONNECTIONS, "20000");
+        }
+        LibraryManager manager = loadSnapshot();
+        if (manager == null) {
+            return;
+        }
+        WriteAheadLog log = openLog(manager);
+        if (log == null && logFile() != null) {
+            return;
+        }
+        LibraryServer server;
+        try {
+            server = LibraryServer.start(manager, Integer.parseInt(port.trim()));
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Could not start server: " + e.getMessage());
+            closeLog(log);
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            closeLog(log);
+        }, "server-shutdown"));
+        System.out.println("Serving the library on port " + server.port());
+    }
+
+    /**
+     * Writes a synthetic catalog as JSON Lines, one book at a time.
+     *
+     * @param count the number of books
+     * @param file  the output file, or {@code -} for standard output
+     * @param seed  the random seed
+     */
+    private static void generate(String count, String file, String seed){
+        try {
+            CatalogGenerator generator = new CatalogGenerator(Long.parseLong(seed.trim()));
+            long books = Long.parseLong(count.trim());
+            if (file.equals("-")) {
+                generator.writeTo(System.out, books);
+            } else {
+                try (OutputStream out = Files.newOutputStream(Path.of(file))) {
+                    generator.writeTo(out, books);
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Generation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Publishes the catalog metrics over JMX and, when the
+     * {@code library.metrics.dumpSeconds} system property is positive, prints
+     * them to standard error at that interval and once more on exit.
+     */
+    private static void startMetrics(){
+        try {
+            CatalogMetrics.registerMBeans();
+        } catch (IllegalStateException e) {
+            System.err.println("Could not register metrics: " + e.getMessage());
+        }
+        long seconds;
+        try {
+            seconds = Long.parseLong(System.getProperty("library.metrics.dumpSeconds", "0").trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid library.metrics.dumpSeconds: " + e.getMessage());
+            return;
+        }
+        if (seconds > 0) {
+            MetricsReporter reporter = MetricsReporter.start(System.err, Duration.ofSeconds(seconds));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                reporter.close();
+                reporter.report();
+            }, "metrics-shutdown"));
+        }
+    }
+
+    /**
+     * Maps the snapshot named by the {@code library.snapshot} system property, if it exists.
+     * A snapshot that exists but cannot be read is reported and left alone:
+     * starting without it would lose every book it holds, and the next
+     * checkpoint would overwrite it.
+     *
+     * @return a manager backed by the snapshot, an empty manager if there is
+     *         no snapshot, or null if the snapshot cannot be read
+     */
+    private static LibraryManager loadSnapshot(){
+        Path file = snapshotFile();
+        if (file != null && Files.exists(file)) {
+            try {
+                return CatalogSnapshot.load(file);
+            } catch (IOException e) {
+                System.out.println("Error loading snapshot: " + e.getMessage()
+                        + ". Repair or move " + file + " aside to start.");
+                return null;
+            }
+        }
+        return new LibraryManager();
+    }
+
+    /**
+     * @return the snapshot file, or null if snapshots are disabled
+     */
+    private static Path snapshotFile(){
+        String file = System.getProperty("library.snapshot", "library.snapshot");
+        return file.isBlank() ? null : Path.of(file);
+    }
+
+    /**
+     * Opens the write-ahead log named by the {@code library.wal} system property
+     * and replays it into the manager.
+     * A log that cannot be opened is reported and left alone: the manager may
+     * hold only part of its changes, and running on would lose every later one.
+     *
+     * @param manager the manager to restore
+     * @return the open log, or null if logging is disabled or the log cannot be
+     *         opened, in which case the caller must not start
+     */
+    private static WriteAheadLog openLog(LibraryManager manager){
+        Path file = logFile();
+        if (file == null) {
+            return null;
+        }
+        FsyncPolicy policy;
+        long intervalMillis;
+        try {
+            policy = FsyncPolicy.valueOf(System.getProperty("library.fsync", "INTERVAL").trim().toUpperCase(Locale.ROOT));
+            intervalMillis = Long.parseLong(System.getProperty("library.fsync.intervalMillis", "100").trim());
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid write-ahead log settings: " + e.getMessage());
+            return null;
+        }
+        try {
+            return WriteAheadLog.open(file, policy, intervalMillis, manager);
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Error opening write-ahead log: " + e.getMessage()
+                    + ". Repair or move " + file + " aside to start.");
+            return null;
+        }
+    }
+
+    /**
+     * @return the write-ahead log file, or null if logging is disabled
+     */
+    private static Path logFile(){
+        String file = System.getProperty("library.wal", "library.wal");
+        return file.isBlank() ? null : Path.of(file);
+    }
+
+    /**
+     * Checkpoints the catalog into a new snapshot, then flushes and closes the write-ahead log.
+     *
+     * @param log the log, or null
+     */
+    private static void closeLog(WriteAheadLog log){
+        if (log == null) {
+            return;
+        }
+        Path snapshot = snapshotFile();
+        if (snapshot != null) {
+            try {
+                log.checkpoint(snapshot);
+            } catch (IOException e) {
+                System.out.println("Error writing snapshot: " + e.getMessage() + ". The log keeps all changes.");
+            }
+        }
+        try {
+            log.close();
+        } catch (IOException e) {
+            System.out.println("Error closing write-ahead log: " + e.getMessage());
+        }
     }
 
 
@@ -527,14 +838,14 @@ public class LibraryApp {
      * Filters and displays books by a specific category.
      *
      * This method prompts the user to enter a book category and displays
-     * all books that match the given category. The search is case-insensitive.
+     * all books that match the given category, a page at a time. The search is case-insensitive.
      * If no books are found in the specified category, an appropriate message
      * will be displayed.
      *
      * @param scanner The Scanner object used to read the category input
      * @param manager The LibraryManager instance containing the book catalog
      *
-     * @see LibraryUtils#filterByCategory(LibraryManager, String)
+     * @see LibraryUtils#printPages(Scanner, LibraryManager, BookQuery, String, String)
      *
      * @example
      * // Example usage:
@@ -543,21 +854,23 @@ public class LibraryApp {
      */
     public static void filterBooksByCategory(Scanner scanner , LibraryManager manager){
         System.out.println("write the book category");
-        String category = scanner.nextLine();
-        LibraryUtils.filterByCategory(manager,category);
+        String category = BookUtils.validateNameText(scanner.nextLine(), "Category");
+        LibraryUtils.printPages(scanner, manager, BookQuery.byCategory(category), null,
+                "No books found in category '" + category + "'.");
     }
     /**
  * Filters and displays books written by a specific author.
  *
  * This method prompts the user to enter an author name and displays
- * all books written by that author. The search is case-insensitive.
+ * all books written by that author, a page at a time. The search is case-insensitive.
  * If no books are found by the specified author, an appropriate message
- * will be displayed.
+ * will be displayed, followed by the catalogued authors whose names start
+ * with the entered text.
  *
  * @param scanner The Scanner object used to read the author name input
  * @param manager The LibraryManager instance containing the book catalog
  *
- * @see LibraryUtils#filterByAuthor(LibraryManager, String)
+ * @see LibraryUtils#printPages(Scanner, LibraryManager, BookQuery, String, String)
  *
  * @example
  * // Example usage:
@@ -566,8 +879,12 @@ public class LibraryApp {
  */
     public static void filterBooksByAuthor(Scanner scanner , LibraryManager manager){
         System.out.println("write the author name");
-        String author = scanner.nextLine();
-        LibraryUtils.filterByAuthor(manager, author);
+        String author = BookUtils.validateNameText(scanner.nextLine(), "Author");
+        boolean found = LibraryUtils.printPages(scanner, manager, BookQuery.byAuthor(author), "Books by author '" + author + "':",
+                "No books found for author '" + author + "'.");
+        if(!found){
+            LibraryUtils.suggestAuthors(manager, author);
+        }
     }
 
 
@@ -588,7 +905,7 @@ public class LibraryApp {
      * @param scanner The Scanner object used to read user input
      * @param manager The LibraryManager instance containing the book catalog
      *
-     * @see LibraryUtils#advancedSearch(LibraryManager, String, String, int)
+     * @see LibraryUtils#printPages(Scanner, LibraryManager, BookQuery, String, String)
      *
      * @example
      * // Example usage:
@@ -597,7 +914,7 @@ public class LibraryApp {
      * // Enter the maximum page count: 300
      * // Returns: All science books by authors with "stephen" in their name having 300 or fewer pages
      *
-     * @implNote This method delegates the actual search logic to LibraryUtils.advancedSearch()
+     * @implNote Matching books are shown a page at a time through LibraryUtils.printPages()
      */
     public static void advancedSearch(Scanner scanner , LibraryManager manager){
         System.out.println("Enter the author name");
@@ -607,7 +924,11 @@ public class LibraryApp {
         System.out.println("Enter the maximum page count");
         int maxPageCount = scanner.nextInt();
         scanner.nextLine();
-        LibraryUtils.advancedSearch(manager, author, category, maxPageCount);
+        author = BookUtils.validateNameText(author, "Author");
+        category = BookUtils.validateNameText(category, "Category");
+        BookUtils.validatePageCount(maxPageCount);
+        LibraryUtils.printPages(scanner, manager, BookQuery.search(author, category, maxPageCount), "Matching books:",
+                "No books matched the given criteria.");
     }
 
     /**
@@ -628,7 +949,7 @@ public class LibraryApp {
      * @param scanner The Scanner object used to read user input
      * @param manager The LibraryManager instance containing the book catalog
      *
-     * @see LibraryUtils#updateBookByCode(LibraryManager, String)
+     * @see LibraryUtils#updateBookByCode(Scanner, LibraryManager, String)
      *
      * @example
      * // Example usage:
@@ -641,7 +962,126 @@ public class LibraryApp {
     public static void updateBook(Scanner scanner , LibraryManager manager){
         System.out.println("Enter the book code");
         String code = scanner.nextLine();
-        LibraryUtils.updateBookByCode(manager , code);
+        LibraryUtils.updateBookByCode(scanner, manager , code);
+    }
+
+    /**
+     * Searches book titles by their words and displays the most relevant books.
+     *
+     * The words may appear anywhere in a title, in any order and case; books
+     * whose titles contain more of them, and rarer ones, are listed first.
+     *
+     * @param scanner The Scanner object used to read the words
+     * @param manager The LibraryManager instance containing the book catalog
+     *
+     * @see LibraryUtils#searchByTitle(LibraryManager, String)
+     *
+     * @example
+     * // Example usage:
+     * // User enters: "dark forest"
+     * // Output: Displays the best matching books, e.g. "The Dark Forest" first
+     */
+    public static void searchByTitle(Scanner scanner , LibraryManager manager){
+        System.out.println("Enter words from the title");
+        String words = scanner.nextLine();
+        LibraryUtils.searchByTitle(manager, words);
+    }
+
+    /**
+     * Finds books whose title or author contains a piece of text.
+     *
+     * The user chooses the field and enters the text, which may appear anywhere
+     * in the value; {@code %} and {@code _} turn it into a LIKE pattern for the
+     * whole value instead.
+     *
+     * @param scanner The Scanner object used to read the field and the text
+     * @param manager The LibraryManager instance containing the book catalog
+     *
+     * @see LibraryUtils#findByPart(LibraryManager, BookField, String)
+     *
+     * @example
+     * // Example usage:
+     * // User chooses 1 (title) and enters: "germs"
+     * // Output: Displays "Guns, Germs, and Steel: The Fates of Human Societies"
+     */
+    public static void findByPart(Scanner scanner , LibraryManager manager){
+        System.out.println("Search in: 1 --> Titles, 2 --> Authors");
+        String choice = scanner.nextLine().trim();
+        BookField field;
+        if (choice.equals("1")) {
+            field = BookField.TITLE;
+        } else if (choice.equals("2")) {
+            field = BookField.AUTHOR;
+        } else {
+            System.out.println("Invalid choice. Please try again.");
+            return;
+        }
+        System.out.println("Enter part of the text (% and _ are wildcards)");
+        LibraryUtils.findByPart(manager, field, scanner.nextLine());
+    }
+
+    /**
+     * Checks a book out to a patron.
+     *
+     * The user enters the library code, the patron's name and the due date.
+     * A book that is already checked out is left as it is.
+     *
+     * @param scanner The Scanner object used to read the input
+     * @param manager The LibraryManager instance containing the book catalog
+     *
+     * @see LibraryUtils#checkout(LibraryManager, String, String, String)
+     */
+    public static void checkoutBook(Scanner scanner , LibraryManager manager){
+        System.out.println("Enter the book code");
+        String code = scanner.nextLine();
+        System.out.println("Enter the patron name");
+        String patron = scanner.nextLine();
+        System.out.println("Enter the due date (yyyy-MM-dd format)");
+        LibraryUtils.checkout(manager, code, patron, scanner.nextLine());
+    }
+
+    /**
+     * Checks a book back in, clearing its borrowed and return dates.
+     *
+     * @param scanner The Scanner object used to read the library code
+     * @param manager The LibraryManager instance containing the book catalog
+     *
+     * @see LibraryUtils#checkin(LibraryManager, String)
+     */
+    public static void checkinBook(Scanner scanner , LibraryManager manager){
+        System.out.println("Enter the book code");
+        LibraryUtils.checkin(manager, scanner.nextLine());
+    }
+
+    /**
+     * Imports books from a CSV or JSON feed in parallel.
+     *
+     * Rejected rows are written to {@code <file>.errors}, next to the input file,
+     * and the import summary including its throughput is printed.
+     *
+     * @param scanner The Scanner object used to read the file name
+     * @param manager The LibraryManager instance that receives the books
+     *
+     * @see BulkImporter
+     */
+    public static void importBooks(Scanner scanner , LibraryManager manager){
+        System.out.println("Enter the path of the CSV or JSON file");
+        String file = scanner.nextLine().trim();
+        if (file.isEmpty()) {
+            System.out.println("File name cannot be empty");
+            return;
+        }
+        Path input = Path.of(file);
+        Path errorReport = input.resolveSibling(input.getFileName() + ".errors");
+        try {
+            ImportReport report = new BulkImporter(manager).importFile(input, errorReport);
+            System.out.println(report);
+            if (report.rowsRejected() > 0) {
+                System.out.println("Rejected rows are listed in " + errorReport);
+            }
+        } catch (IOException e) {
+            System.out.println("Import failed: " + e.getMessage());
+        }
     }
 
 
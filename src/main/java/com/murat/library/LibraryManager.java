@@ -1,65 +1,946 @@
 package com.murat.library;
+import com.murat.library.catalog.CatalogEntry;
+import com.murat.library.circulation.CirculationService;
+import com.murat.library.circulation.DueDateIndex;
+import com.murat.library.circulation.Loan;
+import com.murat.library.circulation.OverdueListener;
+import com.murat.library.circulation.OverdueSweeper;
+import com.murat.library.catalog.CatalogStore;
+import com.murat.library.catalog.ColumnarCatalog;
+import com.murat.library.catalog.ConcurrentCatalog;
+import com.murat.library.events.CatalogMutationEvent;
+import com.murat.library.events.CatalogSearchEvent;
+import com.murat.library.metrics.CatalogMetrics;
+import com.murat.library.metrics.OperationMetrics;
+import com.murat.library.render.BookRenderer;
+import com.murat.library.render.RenderFormat;
+import com.murat.library.search.AuthorCompleter;
+import com.murat.library.search.AuthorCompletion;
+import com.murat.library.search.AuthorMatch;
+import com.murat.library.search.Completions;
+import com.murat.library.search.SearchHit;
+import com.murat.library.search.TitleIndex;
+import com.murat.library.search.TrigramIndex;
+import com.murat.library.utils.LibraryCodeGenerator;
+import com.murat.library.utils.LongIntHashMap;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * Manages a collection of books in the library.
  * Provides basic operations such as add, remove, find, and list.
+ * <p>
+ * Each manager owns a thread-safe {@link CatalogStore}, selected by {@link StorageMode}.
+ * By default this is a {@link ConcurrentCatalog}, which indexes books by library
+ * code and keeps case-folded author and category indexes plus a sorted page-count
+ * index, so filtering costs only as much as the matching books. A
+ * {@link ColumnarCatalog} stores books as primitive columns instead and
+ * materializes them on demand.
+ * <p>
+ * Stores are kept current by {@link #addBook(Book)}, {@link #removeBook(String)}
+ * and the {@link Book} setters of every book obtained from this manager.
+ * Every such change is also reported to the registered {@link CatalogListener}s.
+ * <p>
+ * Large result sets are best read through {@link #query(BookQuery)} and the
+ * {@code queryPage} methods, which find books lazily in catalog order instead
+ * of collecting all matches first.
+ * <p>
+ * Titles are searched by words through {@link #searchTitles(String, int)},
+ * which ranks books with a {@link TitleIndex} built on its first use. Parts of
+ * titles and author names are found through {@link #findBooksContaining} and
+ * {@link #findBooksLike}, backed by a {@link TrigramIndex} built the same way.
+ * Author names are completed from their first letters through
+ * {@link #completeAuthors(String, int)}, backed by an {@link AuthorCompleter},
+ * which also finds misspelled names through {@link #findSimilarAuthors}.
+ * <p>
+ * Loans are tracked by return date in a {@link DueDateIndex}, which answers
+ * {@link #findOverdueBooks(LocalDate)} and feeds the daily
+ * {@link OverdueSweeper} started by {@link #startOverdueSweeper}. Books are
+ * lent through {@link #checkout} and {@link #checkin}, which a
+ * {@link CirculationService} makes atomic per book.
  */
 public class LibraryManager {
 
-    private static final List<Book> catalog = new ArrayList<>();
+    /** The books managed by this instance. */
+    private final CatalogStore catalog;
 
+    private static final CatalogListener[] NO_LISTENERS = new CatalogListener[0];
+
+    /** Listeners notified of every catalog change. */
+    private final List<CatalogListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Lock stripes that order the changes and notifications of each library code.
+     * A stripe is always taken before the monitor of a book.
+     */
+    private final Object[] codeLocks = new Object[64];
+
+    /** Ranked index of the titles, built by the first title search. */
+    private volatile TitleIndex titleIndex;
+
+    /** Substring index of the titles and authors, built by the first substring search. */
+    private volatile TrigramIndex trigramIndex;
+
+    /** Prefix trie of the author names, built by the first completion. */
+    private volatile AuthorCompleter authorCompleter;
+
+    /** Books by return date, built by the first due-date lookup or sweeper. */
+    private volatile DueDateIndex dueDateIndex;
+
+    /** Loan states of the books, created by the first checkout or checkin. */
+    private volatile CirculationService circulation;
+
+    /**
+     * Creates a manager backed by a {@link ConcurrentCatalog}.
+     */
+    public LibraryManager() {
+        this(StorageMode.OBJECTS);
+    }
+
+    /**
+     * Creates a manager with the given storage engine.
+     *
+     * @param storageMode the storage engine to use
+     */
+    public LibraryManager(StorageMode storageMode) {
+        this(switch (storageMode) {
+            case OBJECTS -> attach -> new ConcurrentCatalog();
+            case COLUMNAR -> ColumnarCatalog::new;
+        });
+    }
+
+    /**
+     * Creates a manager with a custom storage engine.
+     * <p>
+     * Stores that do not keep {@link Book} objects build fresh ones on lookup;
+     * they must pass each such book to the given callback, which attaches it to
+     * this manager so that its setters keep the store current.
+     *
+     * @param catalogFactory creates the store from the attach callback
+     */
+    public LibraryManager(Function<Consumer<Book>, CatalogStore> catalogFactory) {
+        this.catalog = catalogFactory.apply(book -> book.setManager(this));
+        for (int i = 0; i < codeLocks.length; i++) {
+            codeLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * Registers a listener for all later changes to the catalog.
+     * <p>
+     * Listeners are notified in the order they were added, under the lock of
+     * the changed book's code. If one throws, the change is undone, the
+     * listeners already notified are told of the reverse change, and the
+     * exception is passed to the caller, so the catalog, its write-ahead log
+     * and its indexes never disagree about a change that failed.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(CatalogListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Registers a listener and reports every book already in the catalog to it
+     * through {@link CatalogListener#bookAdded(Book)}, in catalog order; books
+     * that change while the replay runs are reported last, as they are then.
+     * Changes to a book are held back until it has been reported, so the
+     * listener sees each book exactly once, either in the replay or through a
+     * later notification. The catalog stays writable throughout: each lock
+     * stripe is held only while one book is reported, and all of them only
+     * while the listener is registered.
+     *
+     * @param listener the listener to add
+     */
+    public void addListenerWithReplay(CatalogListener listener) {
+        Replay replay = new Replay(listener);
+        underAllStripes(0, () -> listeners.add(replay));
+        try {
+            query(BookQuery.all()).forEach(replay::replay);
+            for (int stripe = 0; stripe < codeLocks.length; stripe++) {
+                synchronized (codeLocks[stripe]) {
+                    replay.catchUp(stripe);
+                }
+            }
+        } catch (RuntimeException e) {
+            listeners.remove(replay);
+            throw e;
+        }
+        listeners.replaceAll(registered -> registered == replay ? listener : registered);
+    }
+
+    private void underAllStripes(int stripe, Runnable action) {
+        if (stripe == codeLocks.length) {
+            action.run();
+            return;
+        }
+        synchronized (codeLocks[stripe]) {
+            underAllStripes(stripe + 1, action);
+        }
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(CatalogListener listener) {
+        listeners.remove(listener);
+    }
 
     /**
      * Adds a book to the catalog.
      *
      * @param book the book to add
+     * @throws IllegalArgumentException if the book has no library code or the code is already taken
+     * @throws RuntimeException         if a listener, such as a write-ahead log, fails; the book
+     *                                  is then not added, see {@link #addListener(CatalogListener)}
      */
     public void addBook(Book book) {
-        catalog.add(book);
+        long start = CatalogMetrics.start();
+        CatalogMutationEvent event = CatalogMutationEvent.start();
+        synchronized (lockFor(book.getCodeId())) {
+            catalog.add(book);
+            book.setManager(this);
+            notifyListeners(listener -> listener.bookAdded(book), listener -> listener.bookRemoved(book), () -> {
+                catalog.remove(book.getCodeId());
+                book.setManager(null);
+            });
+        }
+        CatalogMetrics.ADD_BOOK.record(start, 1);
+        event.finish(CatalogMetrics.ADD_BOOK.name(), book, null);
+    }
+
+    /**
+     * Adds several books to the catalog, skipping those that cannot be added.
+     *
+     * @param books the books to add
+     * @return the books that were not added because their library code is missing or already taken,
+     *         in the order given
+     */
+    public List<Book> addBooks(Collection<? extends Book> books) {
+        List<Book> rejected = new ArrayList<>();
+        for (Book book : books) {
+            try {
+                addBook(book);
+            } catch (IllegalArgumentException e) {
+                rejected.add(book);
+            }
+        }
+        return rejected;
     }
 
     /**
      * Removes a book from the catalog by its library code.
      *
-     * @param libraryCode the unique code of the book
+     * @param libraryCode the unique code of the book (case-insensitive)
      * @return true if a book was removed, false otherwise
      */
     public boolean removeBook(String libraryCode) {
-        return catalog.removeIf(book -> book.getLibraryCode().equalsIgnoreCase(libraryCode));
+        return removeBookById(LibraryCodeGenerator.parse(libraryCode));
+    }
+
+    /**
+     * Removes a book from the catalog by the packed id of its library code,
+     * as when a stored removal is replayed. The code is neither rendered nor parsed.
+     *
+     * @param codeId the packed code id
+     * @return true if a book was removed, false otherwise
+     */
+    public boolean removeBookById(long codeId) {
+        long start = CatalogMetrics.start();
+        CatalogMutationEvent event = CatalogMutationEvent.start();
+        Optional<Book> removed;
+        synchronized (lockFor(codeId)) {
+            removed = catalog.remove(codeId);
+            removed.ifPresent(book -> {
+                book.setManager(null);
+                notifyListeners(listener -> listener.bookRemoved(book), listener -> listener.bookAdded(book), () -> {
+                    catalog.add(book);
+                    book.setManager(this);
+                });
+            });
+        }
+        CatalogMetrics.REMOVE_BOOK.record(start, removed.isPresent() ? 1 : 0);
+        event.finish(CatalogMetrics.REMOVE_BOOK.name(), removed.orElse(null), null);
+        return removed.isPresent();
+    }
+
+    /**
+     * Finds a book by its library code.
+     *
+     * @param libraryCode the unique code of the book (case-insensitive)
+     * @return the matching book, or an empty Optional if none exists
+     */
+    public Optional<Book> findBookByCode(String libraryCode) {
+        long start = CatalogMetrics.start();
+        Optional<Book> book = catalog.findByCode(libraryCode);
+        CatalogMetrics.FIND_BY_CODE.record(start, book.isPresent() ? 1 : 0);
+        return book;
+    }
+
+    /**
+     * Finds a book by the packed id of its library code, for indexes that keep
+     * code ids and resolve many of them per lookup. The code is neither
+     * rendered nor parsed, and the call is not counted in the metrics of
+     * {@link #findBookByCode(String)}.
+     *
+     * @param codeId the packed code id
+     * @return the matching book, or an empty Optional if none exists
+     */
+    public Optional<Book> findBookById(long codeId) {
+        return catalog.findById(codeId);
+    }
+
+    /**
+     * Returns all books written by the given author.
+     *
+     * @param author the author's name (case-insensitive)
+     * @return a read-only view of the matching books, empty if there are none
+     */
+    public Collection<Book> findBooksByAuthor(String author) {
+        long start = CatalogMetrics.start();
+        CatalogSearchEvent event = CatalogSearchEvent.start();
+        Collection<Book> books = catalog.findByAuthor(author);
+        CatalogMetrics.FILTER_BY_AUTHOR.record(start, books.size());
+        event.finish(CatalogMetrics.FILTER_BY_AUTHOR.name(), author, null, Integer.MAX_VALUE, books.size());
+        return books;
+    }
+
+    /**
+     * Returns all books in the given category.
+     *
+     * @param category the category (case-insensitive)
+     * @return a read-only view of the matching books, empty if there are none
+     */
+    public Collection<Book> findBooksByCategory(String category) {
+        long start = CatalogMetrics.start();
+        CatalogSearchEvent event = CatalogSearchEvent.start();
+        Collection<Book> books = catalog.findByCategory(category);
+        CatalogMetrics.FILTER_BY_CATEGORY.record(start, books.size());
+        event.finish(CatalogMetrics.FILTER_BY_CATEGORY.name(), null, category, Integer.MAX_VALUE, books.size());
+        return books;
+    }
+
+    /**
+     * Returns the books that match the author and category and have at most
+     * the given number of pages.
+     *
+     * @param author       the author's name (case-insensitive)
+     * @param category     the category (case-insensitive)
+     * @param maxPageCount the maximum allowed page count (inclusive)
+     * @return the matching books
+     */
+    public List<Book> advancedSearch(String author, String category, int maxPageCount) {
+        long start = CatalogMetrics.start();
+        CatalogSearchEvent event = CatalogSearchEvent.start();
+        List<Book> books = catalog.search(author, category, maxPageCount);
+        CatalogMetrics.ADVANCED_SEARCH.record(start, books.size());
+        event.finish(CatalogMetrics.ADVANCED_SEARCH.name(), author, category, maxPageCount, books.size());
+        return books;
+    }
+
+    /**
+     * Streams the books that match a query, in catalog order.
+     * <p>
+     * Books are found as the stream is consumed, so memory use does not depend
+     * on the number of matches, and {@link Stream#limit(long)} or
+     * {@link Stream#skip(long)} stop or skip the search early. The stream is
+     * weakly consistent: changes made while it is consumed may or may not be seen.
+     *
+     * @param query the criteria
+     * @return a lazy stream of the matching books
+     */
+    public Stream<Book> query(BookQuery query) {
+        return catalog.stream(query, -1).map(CatalogEntry::book);
+    }
+
+    /**
+     * Returns one page of the books that match a query, selected by offset.
+     * The cost grows with the offset; continue with the token of the returned
+     * page to read further pages at constant cost.
+     *
+     * @param query  the criteria
+     * @param offset the number of matching books to skip
+     * @param limit  the maximum number of books on the page
+     * @return the page
+     * @throws IllegalArgumentException if the offset is negative or the limit is not positive
+     */
+    public BookPage queryPage(BookQuery query, int offset, int limit) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset cannot be negative");
+        }
+        return page(query, catalog.stream(query, -1).skip(offset), limit);
     }
 
     /**
-     * Finds a book by its title.
+     * Returns the page of the books that match a query following a continuation token.
+     * A page continues right after the last book of the previous one, even if
+     * books were added or removed in between.
+     *
+     * @param query             the criteria, equal to those of the previous page
+     * @param continuationToken the token of the previous page, or null for the first page
+     * @param limit             the maximum number of books on the page
+     * @return the page
+     * @throws IllegalArgumentException if the limit is not positive or the token is
+     *                                  invalid or was issued for another query
+     */
+    public BookPage queryPage(BookQuery query, String continuationToken, int limit) {
+        long after = continuationToken == null || continuationToken.isBlank()
+                ? -1 : ContinuationToken.decode(query, continuationToken);
+        return page(query, catalog.stream(query, after), limit);
+    }
+
+    /**
+     * Finds a book by its whole title, ignoring case.
+     * Only the books whose titles have the same words are compared, as found
+     * by the {@link TitleIndex}, which the first lookup builds like
+     * {@link #searchTitles(String, int)} does; a title without letters or
+     * digits is compared with every title in the catalog.
      *
      * @param title the title to search
-     * @return the first matching book, or null if not found
+     * @return the matching book indexed first, or null if not found
      */
     public Book findBookByTitle(String title) {
-        return catalog.stream()
-                .filter(book -> book.getTitle().equalsIgnoreCase(title))
-                .findFirst()
-                .orElse(null);
+        long[] candidates = titleIndex().candidatesFor(title);
+        if (candidates == null) {
+            return catalog.snapshot().stream()
+                    .filter(book -> book.getTitle().equalsIgnoreCase(title))
+                    .findFirst()
+                    .orElse(null);
+        }
+        for (long codeId : candidates) {
+            Optional<Book> book = findBookById(codeId);
+            if (book.isPresent() && book.get().getTitle().equalsIgnoreCase(title)) {
+                return book.get();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the books whose titles best match the words of a query, ranked by
+     * BM25 relevance. A book matches if its title contains at least one of the
+     * words, in any case.
+     * <p>
+     * The first search indexes every title, which takes time proportional to
+     * the catalog; the index then follows all changes and answers each search
+     * from its posting lists.
+     *
+     * @param query the words to look for
+     * @param limit the maximum number of books to return
+     * @return the best matches, highest score first
+     * @throws IllegalArgumentException if the limit is not positive
+     * @see TitleIndex
+     */
+    public List<SearchHit> searchTitles(String query, int limit) {
+        CatalogSearchEvent event = CatalogSearchEvent.start();
+        List<SearchHit> hits = titleIndex().search(query, limit);
+        event.finish("searchTitles", query, hits.size());
+        return hits;
+    }
+
+    /**
+     * Finds books whose title or author contains a text, ignoring case, e.g.
+     * {@code "germs"} finds "Guns, Germs, and Steel". The first substring search
+     * indexes every title and author; later ones only check the books that
+     * contain every three-character piece of the text.
+     *
+     * @param field {@link BookField#TITLE} or {@link BookField#AUTHOR}
+     * @param text  the text to look for
+     * @param limit the maximum number of books to return
+     * @return the matching books
+     * @throws IllegalArgumentException if the field cannot be searched or the limit is not positive
+     * @see TrigramIndex#contains(BookField, String, int)
+     */
+    public List<Book> findBooksContaining(BookField field, String text, int limit) {
+        CatalogSearchEvent event = CatalogSearchEvent.start();
+        List<Book> books = trigramIndex().contains(field, text, limit);
+        event.finish(field == BookField.TITLE ? "titleContains" : "authorContains", text, books.size());
+        return books;
+    }
+
+    /**
+     * Finds books whose whole title or author matches a SQL {@code LIKE} pattern,
+     * ignoring case: {@code %} stands for any run of characters and {@code _}
+     * for one character.
+     *
+     * @param field   {@link BookField#TITLE} or {@link BookField#AUTHOR}
+     * @param pattern the pattern
+     * @param limit   the maximum number of books to return
+     * @return the matching books
+     * @throws IllegalArgumentException if the field cannot be searched, the pattern
+     *                                  is malformed or the limit is not positive
+     * @see TrigramIndex#like(BookField, String, int)
+     */
+    public List<Book> findBooksLike(BookField field, String pattern, int limit) {
+        CatalogSearchEvent event = CatalogSearchEvent.start();
+        List<Book> books = trigramIndex().like(field, pattern, limit);
+        event.finish(field == BookField.TITLE ? "titleLike" : "authorLike", pattern, books.size());
+        return books;
+    }
+
+    /**
+     * Suggests author names that start with a typed prefix, ignoring case,
+     * ranked by how many books of each author the catalog holds. The first
+     * completion collects every author; later ones only walk the names below
+     * the prefix that can make the result.
+     *
+     * @param prefix the typed beginning of the name
+     * @param limit  the maximum number of names to return
+     * @return the completions, most books first
+     * @throws IllegalArgumentException if the limit is not positive
+     * @see AuthorCompleter
+     */
+    public List<AuthorCompletion> completeAuthors(String prefix, int limit) {
+        return authorCompleter().complete(prefix, limit);
+    }
+
+    /**
+     * Suggests author names like {@link #completeAuthors(String, int)}, into a
+     * holder that is reused between calls, e.g. one per keystroke, so that no
+     * objects are allocated.
+     *
+     * @param prefix the typed beginning of the name
+     * @param limit  the maximum number of names to return
+     * @param out    receives the completions, replacing its previous ones
+     * @return the number of completions
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public int completeAuthors(CharSequence prefix, int limit, Completions out) {
+        return authorCompleter().complete(prefix, limit, out);
+    }
+
+    /**
+     * Finds the catalogued authors whose names differ from a possibly misspelled
+     * name by at most a few inserted, deleted or replaced characters, ignoring
+     * case, e.g. {@code "Stephen Hawkins"} finds "Stephen Hawking". Only the
+     * branches of the author trie that stay within the distance are visited.
+     *
+     * @param name        the name to look up
+     * @param maxDistance the largest edit distance to accept, from 0 to {@value AuthorCompleter#MAX_DISTANCE}
+     * @param limit       the maximum number of authors to return
+     * @return the matches, closest first and, at equal distance, most books first
+     * @throws IllegalArgumentException if the distance is out of range or the limit is not positive
+     * @see AuthorCompleter#findSimilar(CharSequence, int, int)
+     */
+    public List<AuthorMatch> findSimilarAuthors(String name, int maxDistance, int limit) {
+        CatalogSearchEvent event = CatalogSearchEvent.start();
+        List<AuthorMatch> matches = authorCompleter().findSimilar(name, maxDistance, limit);
+        event.finish("similarAuthors", name, matches.size());
+        return matches;
+    }
+
+    /**
+     * Finds the books whose return date lies before a given day. The first
+     * lookup indexes every return date; later ones only read the days before
+     * the given one.
+     *
+     * @param today the current day
+     * @return the overdue books, longest overdue first
+     * @see DueDateIndex
+     */
+    public List<Book> findOverdueBooks(LocalDate today) {
+        return dueDateIndex().findOverdue(today);
+    }
+
+    /**
+     * Finds the books due on or after one day and before another.
+     *
+     * @param from  the first day, inclusive, or null for no lower bound
+     * @param until the last day, exclusive
+     * @return the books, earliest return date first
+     * @throws IllegalArgumentException if the range ends before it starts
+     */
+    public List<Book> findBooksDueBetween(LocalDate from, LocalDate until) {
+        return dueDateIndex().findDueBetween(from, until);
+    }
+
+    /**
+     * Starts a background task that reports every book already overdue and
+     * then, each day after midnight, the books that became overdue that day.
+     *
+     * @param listener receives the overdue books on the sweeper thread
+     * @return the running sweeper, to be closed when no longer needed
+     */
+    public OverdueSweeper startOverdueSweeper(OverdueListener listener) {
+        return OverdueSweeper.start(dueDateIndex(), listener, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Checks a book out to a patron, setting its borrowed date to today and its
+     * return date to the due date. Of several concurrent checkouts of the same
+     * book exactly one succeeds.
+     *
+     * @param libraryCode the library code of the book
+     * @param patron      the borrowing patron
+     * @param dueDate     the day the book must be returned
+     * @return true if the book was checked out, false if it was already on loan
+     * @throws IllegalArgumentException if no book has the code, the patron is blank
+     *                                  or the due date is missing or in the past
+     * @see CirculationService#checkout(String, String, LocalDate)
+     */
+    public boolean checkout(String libraryCode, String patron, LocalDate dueDate) {
+        return circulation().checkout(libraryCode, patron, dueDate);
+    }
+
+    /**
+     * Checks a book back in and clears its loan dates.
+     *
+     * @param libraryCode the library code of the book
+     * @return the loan that ended, or empty if the book was not on loan
+     * @throws IllegalArgumentException if no book has the code
+     */
+    public Optional<Loan> checkin(String libraryCode) {
+        return circulation().checkin(libraryCode);
+    }
+
+    /**
+     * Returns the current loan of a book, read in one step.
+     *
+     * @param libraryCode the library code of the book
+     * @return the loan, or empty if the book is available
+     * @throws IllegalArgumentException if no book has the code
+     */
+    public Optional<Loan> findLoan(String libraryCode) {
+        return circulation().findLoan(libraryCode);
     }
 
     /**
      * Prints all books in the catalog to the console.
      */
     public void listBooks() {
-        if (catalog.isEmpty()) {
-            System.out.println("No books found.");
-        } else {
-            catalog.forEach(System.out::println);
+        try {
+            BookRenderer renderer = BookRenderer.console();
+            if (renderer.renderAll(query(BookQuery.all()).iterator()) == 0) {
+                System.out.println("No books found.");
+            }
+            renderer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
     /**
-     * Returns the internal book list for further processing.
+     * Writes all books in the catalog to a stream through a {@link BookRenderer},
+     * in catalog order. Books are rendered as they are found, so the listing
+     * needs no copy of the catalog.
+     *
+     * @param format the output format
+     * @param out    the stream to write to; flushed, not closed
+     * @return the number of books written
+     * @throws IOException if the stream cannot be written
+     */
+    public long listBooks(RenderFormat format, OutputStream out) throws IOException {
+        BookRenderer renderer = new BookRenderer(format, out);
+        long count = renderer.renderAll(query(BookQuery.all()).iterator());
+        renderer.flush();
+        return count;
+    }
+
+    /**
+     * Returns an immutable snapshot of the catalog for further processing.
+     * Later changes to the catalog are not reflected in the returned list.
      *
-     * @return the book catalog
+     * @return the book catalog in insertion order
      */
     public List<Book> getCatalog() {
-        return catalog;
+        return catalog.snapshot();
+    }
+
+    private static BookPage page(BookQuery query, Stream<CatalogEntry> matches, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        long start = CatalogMetrics.start();
+        CatalogSearchEvent event = CatalogSearchEvent.start();
+        List<Book> books = new ArrayList<>(Math.min(limit, 1024));
+        String token;
+        // Closing the stream credits the rows it scanned to the query's metrics.
+        try (matches) {
+            Iterator<CatalogEntry> iterator = matches.iterator();
+            long last = -1;
+            while (books.size() < limit && iterator.hasNext()) {
+                CatalogEntry entry = iterator.next();
+                books.add(entry.book());
+                last = entry.position();
+            }
+            token = iterator.hasNext() ? ContinuationToken.encode(query, last) : null;
+        }
+        OperationMetrics operation = CatalogMetrics.forQuery(query);
+        operation.record(start, books.size());
+        event.finish(operation.name(), query.author(), query.category(), query.maxPageCount(), books.size());
+        return new BookPage(books, token);
+    }
+
+    /**
+     * Writes fields of a catalogued book, then re-indexes it and notifies the
+     * listeners of each field whose value changed. Called by {@link Book}
+     * setters. Writing under the book's lock stripe keeps readers that take
+     * the stripe, such as a listener replay, from seeing a value that is not
+     * indexed yet. If a listener fails, every field is set back.
+     *
+     * @param book   the book to change
+     * @param fields the fields to write
+     * @param values the validated new values, see {@link Book#swap(BookField, Object)}
+     * @return false if the book is no longer catalogued here, in which case nothing was written
+     */
+    boolean changeBook(Book book, BookField[] fields, Object[] values) {
+        CatalogMutationEvent event = CatalogMutationEvent.start();
+        synchronized (lockFor(book.getCodeId())) {
+            if (book.getManager() != this) {
+                return false;
+            }
+            Object[] previous = new Object[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                previous[i] = book.swap(fields[i], values[i]);
+            }
+            for (int i = 0; i < fields.length; i++) {
+                if (!changed(fields[i], previous[i], values[i])) {
+                    continue;
+                }
+                BookField field = fields[i];
+                Object before = reported(field, previous[i]);
+                Object after = reported(field, values[i]);
+                int last = i;
+                catalog.reindex(book, field, before);
+                notifyListeners(listener -> listener.bookChanged(book, field, before),
+                        listener -> listener.bookChanged(book, field, after),
+                        () -> undoChange(book, fields, values, previous, last));
+            }
+        }
+        event.finish("update", book, fields[0]);
+        return true;
+    }
+
+    /**
+     * Sets back the fields of a failed change and re-indexes them, telling the
+     * listeners of the fields before {@code last} that they changed back; the
+     * listeners of {@code last} itself are handled by the caller.
+     */
+    private void undoChange(Book book, BookField[] fields, Object[] values, Object[] previous, int last) {
+        for (int i = fields.length - 1; i >= 0; i--) {
+            book.swap(fields[i], previous[i]);
+        }
+        for (int i = 0; i <= last; i++) {
+            if (!changed(fields[i], previous[i], values[i])) {
+                continue;
+            }
+            BookField field = fields[i];
+            Object after = reported(field, values[i]);
+            catalog.reindex(book, field, after);
+            if (i < last) {
+                for (CatalogListener listener : listeners) {
+                    listener.bookChanged(book, field, after);
+                }
+            }
+        }
+    }
+
+    private static boolean changed(BookField field, Object previous, Object value) {
+        return field == BookField.DETAILS || !Objects.equals(previous, value);
+    }
+
+    /** @return the value reported to listeners as a field's previous value */
+    private static Object reported(BookField field, Object value) {
+        return field == BookField.DETAILS ? null : value;
+    }
+
+    /**
+     * Notifies the listeners of a change, in the order they were added. If one
+     * fails, the change is undone and the listeners notified before it are told
+     * of the reverse change; their own failures are added to the first one,
+     * which is rethrown.
+     *
+     * @param change  delivers the change to a listener
+     * @param reverse delivers the reverse change to a listener
+     * @param undo    undoes the change in the catalog
+     */
+    private void notifyListeners(Consumer<CatalogListener> change, Consumer<CatalogListener> reverse, Runnable undo) {
+        CatalogListener[] current = listeners.toArray(NO_LISTENERS);
+        for (int i = 0; i < current.length; i++) {
+            try {
+                change.accept(current[i]);
+            } catch (RuntimeException e) {
+                try {
+                    undo.run();
+                } catch (RuntimeException failure) {
+                    e.addSuppressed(failure);
+                }
+                for (int j = i - 1; j >= 0; j--) {
+                    try {
+                        reverse.accept(current[j]);
+                    } catch (RuntimeException failure) {
+                        e.addSuppressed(failure);
+                    }
+                }
+                throw e;
+            }
+        }
+    }
+
+    private TitleIndex titleIndex() {
+        TitleIndex index = titleIndex;
+        return index != null ? index : createTitleIndex();
+    }
+
+    private synchronized TitleIndex createTitleIndex() {
+        if (titleIndex == null) {
+            titleIndex = TitleIndex.attach(this);
+        }
+        return titleIndex;
+    }
+
+    private TrigramIndex trigramIndex() {
+        TrigramIndex index = trigramIndex;
+        return index != null ? index : createTrigramIndex();
+    }
+
+    private synchronized TrigramIndex createTrigramIndex() {
+        if (trigramIndex == null) {
+            trigramIndex = TrigramIndex.attach(this);
+        }
+        return trigramIndex;
+    }
+
+    private AuthorCompleter authorCompleter() {
+        AuthorCompleter completer = authorCompleter;
+        return completer != null ? completer : createAuthorCompleter();
+    }
+
+    private synchronized AuthorCompleter createAuthorCompleter() {
+        if (authorCompleter == null) {
+            authorCompleter = AuthorCompleter.attach(this);
+        }
+        return authorCompleter;
+    }
+
+    private DueDateIndex dueDateIndex() {
+        DueDateIndex index = dueDateIndex;
+        return index != null ? index : createDueDateIndex();
+    }
+
+    private synchronized DueDateIndex createDueDateIndex() {
+        if (dueDateIndex == null) {
+            dueDateIndex = DueDateIndex.attach(this);
+        }
+        return dueDateIndex;
+    }
+
+    private CirculationService circulation() {
+        CirculationService service = circulation;
+        return service != null ? service : createCirculation();
+    }
+
+    private synchronized CirculationService createCirculation() {
+        if (circulation == null) {
+            circulation = CirculationService.attach(this);
+        }
+        return circulation;
+    }
+
+    private Object lockFor(long codeId) {
+        return codeLocks[stripeOf(codeId)];
+    }
+
+    /** @return the lock stripe of a library code id */
+    int stripeOf(long codeId) {
+        return (int) (codeId ^ (codeId >>> 32)) & (codeLocks.length - 1);
+    }
+
+    /**
+     * Stands in for a listener while {@link #addListenerWithReplay} reports the
+     * catalog to it. Notifications arrive under the stripe of their book, which
+     * also guards the state of that stripe here: a book already reported, or
+     * any book of a stripe that has caught up, is passed through; any other
+     * book is only noted, and reported as it is when its stripe catches up.
+     */
+    private final class Replay implements CatalogListener {
+        private static final int REPLAYED = 1;
+        private static final int TOUCHED = 2;
+
+        private final CatalogListener listener;
+        /** State of each book seen so far, per stripe; null once the stripe has caught up. */
+        private final LongIntHashMap[] states = new LongIntHashMap[codeLocks.length];
+        /** Books noted before they could be reported, per stripe. */
+        private final List<List<Long>> touched = new ArrayList<>(codeLocks.length);
+
+        Replay(CatalogListener listener) {
+            this.listener = listener;
+            for (int i = 0; i < codeLocks.length; i++) {
+                states[i] = new LongIntHashMap();
+                touched.add(new ArrayList<>());
+            }
+        }
+
+        /** Reports a book found in the catalog, unless it changed since the replay began. */
+        void replay(Book book) {
+            long codeId = book.getCodeId();
+            int stripe = stripeOf(codeId);
+            synchronized (codeLocks[stripe]) {
+                if (states[stripe].get(codeId) < 0) {
+                    states[stripe].put(codeId, REPLAYED);
+                    listener.bookAdded(book);
+                }
+            }
+        }
+
+        /** Reports the current state of the noted books of a stripe; called under its lock. */
+        void catchUp(int stripe) {
+            for (long codeId : touched.get(stripe)) {
+                findBookById(codeId).ifPresent(listener::bookAdded);
+            }
+            states[stripe] = null;
+            touched.set(stripe, null);
+        }
+
+        /** @return true if notifications about the book go through to the listener */
+        private boolean passes(Book book) {
+            long codeId = book.getCodeId();
+            int stripe = stripeOf(codeId);
+            LongIntHashMap state = states[stripe];
+            if (state == null || state.get(codeId) == REPLAYED) {
+                return true;
+            }
+            if (state.get(codeId) < 0) {
+                state.put(codeId, TOUCHED);
+                touched.get(stripe).add(codeId);
+            }
+            return false;
+        }
+
+        @Override
+        public void bookAdded(Book book) {
+            if (passes(book)) {
+                listener.bookAdded(book);
+            }
+        }
+
+        @Override
+        public void bookRemoved(Book book) {
+            if (passes(book)) {
+                listener.bookRemoved(book);
+            }
+        }
+
+        @Override
+        public void bookChanged(Book book, BookField field, Object previousValue) {
+            if (passes(book)) {
+                listener.bookChanged(book, field, previousValue);
+            }
+        }
     }
 }
@@ -0,0 +1,17 @@
+package com.murat.library;
+
+/**
+ * Selects the storage engine used by a {@link LibraryManager}.
+ */
+public enum StorageMode {
+    /**
+     * Keeps {@link Book} objects in a {@link com.murat.library.catalog.ConcurrentCatalog}
+     * with hash and sorted indexes. Best for small and medium catalogs with frequent lookups.
+     */
+    OBJECTS,
+    /**
+     * Keeps books as primitive columns in a {@link com.murat.library.catalog.ColumnarCatalog}
+     * and materializes them on demand. Best for very large catalogs in a modest heap.
+     */
+    COLUMNAR
+}
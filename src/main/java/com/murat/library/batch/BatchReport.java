@@ -0,0 +1,32 @@
+package com.murat.library.batch;
+
+/**
+ * Summary of a finished batch run.
+ *
+ * @param commandsRead   the number of commands read, not counting blank and comment lines
+ * @param commandsFailed the number of commands that failed, each reported with its line number
+ * @param booksWritten   the number of books printed by {@code find} and {@code filter}
+ * @param elapsedNanos   the wall-clock duration of the run
+ */
+public record BatchReport(long commandsRead, long commandsFailed, long booksWritten, long elapsedNanos) {
+
+    /**
+     * Returns the batch throughput.
+     *
+     * @return commands run per second
+     */
+    public double commandsPerSecond() {
+        return elapsedNanos == 0 ? 0 : commandsRead * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    /**
+     * Returns a one-line summary of the run.
+     *
+     * @return the summary
+     */
+    @Override
+    public String toString() {
+        return String.format("Ran %d commands (%d failed, %d books printed) in %.2f s, %.0f commands/s",
+                commandsRead, commandsFailed, booksWritten, elapsedNanos / 1e9, commandsPerSecond());
+    }
+}
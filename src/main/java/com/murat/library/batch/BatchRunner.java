@@ -0,0 +1,180 @@
+package com.murat.library.batch;
+import com.murat.library.Book;
+import com.murat.library.BookField;
+import com.murat.library.BookQuery;
+import com.murat.library.LibraryManager;
+import com.murat.library.importer.BookRowMapper;
+import com.murat.library.utils.LibraryUtils;
+import com.murat.library.validation.BookValidator;
+import com.murat.library.validation.ValidationError;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs a script of catalog commands without any prompts.
+ * <p>
+ * Each line holds one command, parsed as described in {@link Command};
+ * blank lines and lines starting with {@code #} are skipped:
+ * <ul>
+ *   <li>{@code add genre=... title=... author=... pageCount=... category=...} plus the
+ *       optional columns of a CSV import, e.g. {@code returnDate=2026-12-01 mysteryLevel=7};
+ *       prints {@code added <code>}</li>
+ *   <li>{@code remove <code>} - prints {@code removed <code>}</li>
+ *   <li>{@code find <code>} - prints the book</li>
+ *   <li>{@code filter [author=...] [category=...] [maxPages=...]} - prints the matching books</li>
+ *   <li>{@code update <code> field=value...} with the fields {@code title}, {@code author},
+ *       {@code category}, {@code pageCount}, {@code borrowedDate} and {@code returnDate},
+ *       applied in order; prints {@code updated <code>}</li>
+ * </ul>
+ * A command that fails is reported as {@code line <n>: <reason>} on the error
+ * writer and the run goes on with the next line; the changes a failed
+ * {@code update} made before its invalid field are kept. Both writers are
+ * used without flushing per line, so wrap them in buffers.
+ */
+public final class BatchRunner {
+
+    private final LibraryManager manager;
+
+    /**
+     * Creates a runner for a manager's catalog.
+     *
+     * @param manager the manager the commands apply to
+     */
+    public BatchRunner(LibraryManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Runs every command of a script.
+     *
+     * @param commands the script; not closed
+     * @param out      receives the output of the commands; flushed at the end but not closed
+     * @param errors   receives one line per failed command; flushed at the end but not closed
+     * @return the run summary
+     * @throws IOException if the script cannot be read or the output cannot be written
+     */
+    public BatchReport run(BufferedReader commands, Writer out, Writer errors) throws IOException {
+        long start = System.nanoTime();
+        BookValidator validator = BookValidator.forToday();
+        StringBuilder text = new StringBuilder(256);
+        long read = 0;
+        long failed = 0;
+        long books = 0;
+        long lineNumber = 0;
+        String line;
+        while ((line = commands.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.strip();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            read++;
+            try {
+                books += execute(Command.parse(trimmed), validator, out, text);
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                failed++;
+                errors.append("line ").append(Long.toString(lineNumber)).append(": ").append(e.getMessage()).append('\n');
+            }
+        }
+        out.flush();
+        errors.flush();
+        return new BatchReport(read, failed, books, System.nanoTime() - start);
+    }
+
+    /**
+     * Runs one command and writes its output, using {@code text} as scratch space.
+     *
+     * @return the number of books printed
+     */
+    private long execute(Command command, BookValidator validator, Writer out, StringBuilder text) throws IOException {
+        switch (command.name()) {
+            case "add" -> {
+                List<ValidationError> problems = new ArrayList<>();
+                Book book = BookRowMapper.toBook(command.options(), validator, problems);
+                if (book == null) {
+                    StringBuilder message = new StringBuilder();
+                    for (ValidationError problem : problems) {
+                        message.append(message.length() == 0 ? "" : "; ").append(problem.field()).append(": ").append(problem.message());
+                    }
+                    throw new IllegalArgumentException(message.toString());
+                }
+                manager.addBook(book);
+                text.setLength(0);
+                book.appendLibraryCode(text.append("added "));
+                out.append(text).append('\n');
+                return 0;
+            }
+            case "remove" -> {
+                String code = command.singleArgument("library code");
+                if (!manager.removeBook(code)) {
+                    throw noSuchBook(code);
+                }
+                out.append("removed ").append(code).append('\n');
+                return 0;
+            }
+            case "find" -> {
+                String code = command.singleArgument("library code");
+                writeBook(manager.findBookByCode(code).orElseThrow(() -> noSuchBook(code)), out, text);
+                return 1;
+            }
+            case "filter" -> {
+                return filter(command, out, text);
+            }
+            case "update" -> {
+                String code = command.singleArgument("library code");
+                List<BookField> fields = new ArrayList<>(command.options().size());
+                for (String key : command.options().keySet()) {
+                    fields.add(LibraryUtils.updatableField(key));
+                }
+                Book book = manager.findBookByCode(code).orElseThrow(() -> noSuchBook(code));
+                int i = 0;
+                for (String value : command.options().values()) {
+                    LibraryUtils.updateField(book, fields.get(i++), value);
+                }
+                out.append("updated ").append(code).append('\n');
+                return 0;
+            }
+            default -> throw new IllegalArgumentException("Unknown command: " + command.name());
+        }
+    }
+
+    private long filter(Command command, Writer out, StringBuilder text) throws IOException {
+        String author = null;
+        String category = null;
+        int maxPages = Integer.MAX_VALUE;
+        for (Map.Entry<String, String> option : command.options().entrySet()) {
+            switch (option.getKey()) {
+                case "author" -> author = option.getValue();
+                case "category" -> category = option.getValue();
+                case "maxPages" -> maxPages = Integer.parseInt(option.getValue().trim());
+                default -> throw new IllegalArgumentException("Unknown filter: " + option.getKey());
+            }
+        }
+        if (!command.arguments().isEmpty()) {
+            throw new IllegalArgumentException("filter expects author=, category= or maxPages=");
+        }
+        long count = 0;
+        Iterator<Book> matches = manager.query(new BookQuery(author, category, maxPages)).iterator();
+        while (matches.hasNext()) {
+            writeBook(matches.next(), out, text);
+            count++;
+        }
+        return count;
+    }
+
+    private static void writeBook(Book book, Writer out, StringBuilder text) throws IOException {
+        text.setLength(0);
+        book.appendTo(text);
+        out.append(text).append('\n');
+    }
+
+    private static IllegalArgumentException noSuchBook(String code) {
+        return new IllegalArgumentException("No book found with library code: " + code);
+    }
+}
@@ -0,0 +1,97 @@
+package com.murat.library.batch;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * One parsed line of a batch script.
+ * <p>
+ * A line is a command name followed by words, separated by spaces. A word
+ * of the form {@code key=value} is an option, any other word an argument.
+ * Words, keys and values may be enclosed in double quotes to include spaces;
+ * inside quotes a backslash makes the next character literal.
+ *
+ * @param name      the command name, lower-cased
+ * @param arguments the words that are not options, in order
+ * @param options   the options by key, in order
+ */
+record Command(String name, List<String> arguments, Map<String, String> options) {
+
+    /**
+     * Parses a line.
+     *
+     * @param line the line, not blank
+     * @return the command
+     * @throws IllegalArgumentException if a quote is not closed or an option has no key
+     */
+    static Command parse(String line) {
+        List<String> words = new ArrayList<>();
+        List<Integer> equalsAt = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        int i = 0;
+        while (i < line.length()) {
+            while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            if (i == line.length()) {
+                break;
+            }
+            word.setLength(0);
+            int separator = -1;
+            while (i < line.length() && !Character.isWhitespace(line.charAt(i))) {
+                char c = line.charAt(i++);
+                if (c == '"') {
+                    while (true) {
+                        if (i == line.length()) {
+                            throw new IllegalArgumentException("Unclosed quote");
+                        }
+                        c = line.charAt(i++);
+                        if (c == '"') {
+                            break;
+                        }
+                        if (c == '\\' && i < line.length()) {
+                            c = line.charAt(i++);
+                        }
+                        word.append(c);
+                    }
+                } else {
+                    if (c == '=' && separator < 0) {
+                        separator = word.length();
+                    }
+                    word.append(c);
+                }
+            }
+            words.add(word.toString());
+            equalsAt.add(separator);
+        }
+        List<String> arguments = new ArrayList<>();
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int w = 1; w < words.size(); w++) {
+            int separator = equalsAt.get(w);
+            if (separator < 0) {
+                arguments.add(words.get(w));
+            } else if (separator == 0) {
+                throw new IllegalArgumentException("Option without a name: " + words.get(w));
+            } else {
+                options.put(words.get(w).substring(0, separator), words.get(w).substring(separator + 1));
+            }
+        }
+        return new Command(words.get(0).toLowerCase(Locale.ROOT), arguments, options);
+    }
+
+    /**
+     * Returns the only argument, such as the library code of {@code remove}.
+     *
+     * @param what the name of the argument for the error message
+     * @return the argument
+     * @throws IllegalArgumentException if there is not exactly one argument
+     */
+    String singleArgument(String what) {
+        if (arguments.size() != 1) {
+            throw new IllegalArgumentException(name + " expects one " + what);
+        }
+        return arguments.get(0);
+    }
+}
@@ -0,0 +1,15 @@
+package com.murat.library.catalog;
+import com.murat.library.Book;
+
+/**
+ * A book together with its position in catalog order.
+ * <p>
+ * Positions increase along the catalog order and are never reused, but they
+ * are not contiguous: a removed book leaves a gap. They only serve to resume a
+ * query after the last book seen (see {@link CatalogStore#stream}).
+ *
+ * @param position the position of the book in its catalog
+ * @param book     the book
+ */
+public record CatalogEntry(long position, Book book) {
+}
@@ -0,0 +1,128 @@
+package com.murat.library.catalog;
+import com.murat.library.Book;
+import com.murat.library.BookField;
+import com.murat.library.BookQuery;
+import com.murat.library.utils.LibraryCodeGenerator;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Storage engine behind a {@link com.murat.library.LibraryManager}.
+ * <p>
+ * Implementations must be safe for concurrent use. Library codes passed in as
+ * strings are matched case-insensitively; author and category matches ignore case.
+ *
+ * @see ConcurrentCatalog
+ * @see ColumnarCatalog
+ */
+public interface CatalogStore {
+
+    /**
+     * Adds a book.
+     *
+     * @param book the book to add
+     * @throws IllegalArgumentException if the book has no library code or the code is already taken
+     */
+    void add(Book book);
+
+    /**
+     * Removes a book by its library code.
+     *
+     * @param libraryCode the unique code of the book
+     * @return the removed book, or an empty Optional if none exists
+     */
+    default Optional<Book> remove(String libraryCode) {
+        return remove(LibraryCodeGenerator.parse(libraryCode));
+    }
+
+    /**
+     * Removes a book by the packed id of its library code.
+     *
+     * @param codeId the packed code id
+     * @return the removed book, or an empty Optional if none exists
+     */
+    Optional<Book> remove(long codeId);
+
+    /**
+     * Finds a book by its library code.
+     *
+     * @param libraryCode the unique code of the book
+     * @return the matching book, or an empty Optional if none exists
+     */
+    default Optional<Book> findByCode(String libraryCode) {
+        return findById(LibraryCodeGenerator.parse(libraryCode));
+    }
+
+    /**
+     * Finds a book by the packed id of its library code, without rendering or parsing the code.
+     *
+     * @param codeId the packed code id
+     * @return the matching book, or an empty Optional if none exists
+     */
+    Optional<Book> findById(long codeId);
+
+    /**
+     * Returns all books written by the given author.
+     *
+     * @param author the author's name
+     * @return the matching books
+     */
+    Collection<Book> findByAuthor(String author);
+
+    /**
+     * Returns all books in the given category.
+     *
+     * @param category the category
+     * @return the matching books
+     */
+    Collection<Book> findByCategory(String category);
+
+    /**
+     * Returns the books that match the author and category and have at most
+     * the given number of pages.
+     *
+     * @param author       the author's name
+     * @param category     the category
+     * @param maxPageCount the maximum allowed page count (inclusive)
+     * @return the matching books
+     */
+    List<Book> search(String author, String category, int maxPageCount);
+
+    /**
+     * Streams the books that match a query, in catalog order, starting after a position.
+     * <p>
+     * The stream is lazy: books are found and built as it is consumed, so memory
+     * use does not depend on the number of matches. It is weakly consistent and
+     * may or may not reflect changes made while it is consumed.
+     *
+     * @param query the criteria
+     * @param after the position of the last book already seen, or -1 to start at the beginning
+     * @return the matching books with their positions, in increasing position order
+     */
+    Stream<CatalogEntry> stream(BookQuery query, long after);
+
+    /**
+     * Propagates a change made through a {@link Book} setter to the stored data.
+     *
+     * @param book          the book that changed
+     * @param field         the field that changed
+     * @param previousValue the value of the field before the change, null for {@link BookField#DETAILS}
+     */
+    void reindex(Book book, BookField field, Object previousValue);
+
+    /**
+     * Returns an immutable snapshot of all books in insertion order.
+     *
+     * @return the stored books
+     */
+    List<Book> snapshot();
+
+    /**
+     * Returns the number of stored books.
+     *
+     * @return the catalog size
+     */
+    int size();
+}
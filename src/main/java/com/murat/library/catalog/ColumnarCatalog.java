@@ -0,0 +1,520 @@
+package com.murat.library.catalog;
+import com.murat.library.Book;
+import com.murat.library.BookField;
+import com.murat.library.BookQuery;
+import com.murat.library.BookRecord;
+import com.murat.library.genres.Genre;
+import com.murat.library.metrics.CatalogMetrics;
+import com.murat.library.utils.LongIntHashMap;
+import com.murat.library.utils.StringDictionary;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Struct-of-arrays catalog that stores books as primitive columns instead of objects.
+ * <p>
+ * Each book is one row: page counts and loan dates (as epoch days) live in
+ * {@code int[]} columns, the genre in a {@code byte[]}, and author, category and
+ * genre-specific texts are dictionary-encoded into {@code int[]} columns through
+ * {@link StringDictionary}; authors and categories use the shared
+ * {@link StringDictionary#AUTHORS} and {@link StringDictionary#CATEGORIES}. Titles are kept as UTF-8 bytes in one shared buffer.
+ * A row costs roughly 70 bytes plus its title, against several hundred bytes
+ * for a {@link Book} with its strings and dates, and filters such as
+ * {@link #search(String, String, int)} run as tight loops over the columns.
+ * <p>
+ * The catalog does not keep {@link Book} objects. Lookups materialize fresh
+ * flyweight books from the rows (see {@link BookRecord#restoreBook()}) and hand
+ * each one to the callback given at construction, which lets the owning
+ * manager attach it; changes made through its setters are written back to the
+ * row by {@link #reindex(Book, BookField, Object)}. Two lookups of the same row
+ * return two independent objects.
+ * <p>
+ * Removed rows are marked with genre tag 0 and reclaimed once they make up half
+ * of the catalog. A changed title is written over the old one if it fits and
+ * appended otherwise; the title bytes are repacked once replaced and removed
+ * titles make up half of them, so a catalog that is only updated does not grow
+ * without bound. All access is guarded by a read-write lock.
+ * <p>
+ * Every row also records its insertion sequence number, which serves as its
+ * position for {@link #stream(BookQuery, long)}. Rows stay sorted by it, since
+ * compaction keeps their order, so a stream finds its next row by binary search
+ * and holds the lock only while it scans one chunk of rows.
+ */
+public class ColumnarCatalog implements CatalogStore {
+
+    /** Epoch day stored for a missing date. */
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    /** Dictionary id stored for a missing text. */
+    private static final int NO_TEXT = -1;
+
+    /** Genre tag that marks a removed row. */
+    private static final byte REMOVED = 0;
+
+    /** Matches a stream collects per acquisition of the read lock. */
+    private static final int STREAM_CHUNK = 64;
+
+    private final Consumer<Book> onMaterialize;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final StringDictionary detailDictionary = new StringDictionary();
+    private final LongIntHashMap codeIndex = new LongIntHashMap();
+
+    /** Rows in use, including removed ones. */
+    private int rows;
+    /** Rows holding a book. */
+    private int liveRows;
+    /** Sequence number of the next added row. */
+    private long nextSequence;
+
+    private long[] sequences;
+    private long[] codeIds;
+    private byte[] genres;
+    private int[] titleOffsets;
+    private int[] titleLengths;
+    private int[] authors;
+    private int[] categories;
+    private int[] pageCounts;
+    private int[] borrowedDays;
+    private int[] returnDays;
+    private int[] texts1;
+    private int[] texts2;
+    private int[] numbers1;
+    private int[] numbers2;
+
+    /** UTF-8 bytes of all titles; rows point into it. */
+    private byte[] titleBytes;
+    private int titleBytesUsed;
+    /** Bytes of {@link #titleBytes} that no live row points to any more. */
+    private int wastedTitleBytes;
+
+    /**
+     * Creates an empty columnar catalog.
+     *
+     * @param onMaterialize called with every book materialized from a row before it is returned
+     */
+    public ColumnarCatalog(Consumer<Book> onMaterialize) {
+        this.onMaterialize = onMaterialize;
+        allocate(1024);
+        titleBytes = new byte[16 * 1024];
+    }
+
+    @Override
+    public void add(Book book) {
+        long codeId = book.getCodeId();
+        if (codeId == 0) {
+            throw new IllegalArgumentException("Library Code cannot be empty");
+        }
+        BookRecord record = BookRecord.of(book);
+        lock.writeLock().lock();
+        try {
+            if (codeIndex.get(codeId) >= 0) {
+                throw new IllegalArgumentException("A book with library code '" + book.getLibraryCode() + "' already exists.");
+            }
+            if (rows == codeIds.length) {
+                allocate(rows + (rows >> 1));
+            }
+            int row = rows++;
+            sequences[row] = nextSequence++;
+            codeIds[row] = codeId;
+            genres[row] = (byte) record.genre().getTag();
+            writeTitle(row, record.title());
+            authors[row] = StringDictionary.AUTHORS.intern(record.author());
+            categories[row] = StringDictionary.CATEGORIES.intern(record.category());
+            pageCounts[row] = record.pageCount();
+            borrowedDays[row] = toEpochDay(record.borrowedDate());
+            returnDays[row] = toEpochDay(record.returnDate());
+            writeDetails(row, record);
+            codeIndex.put(codeId, row);
+            liveRows++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Book> remove(long codeId) {
+        lock.writeLock().lock();
+        try {
+            int row = codeIndex.get(codeId);
+            if (row < 0) {
+                return Optional.empty();
+            }
+            Book book = materialize(row);
+            codeIndex.remove(codeId);
+            genres[row] = REMOVED;
+            wastedTitleBytes += titleLengths[row];
+            liveRows--;
+            if (rows > 1024 && liveRows < rows / 2) {
+                compact();
+            } else {
+                compactTitlesIfWasteful();
+            }
+            return Optional.of(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Book> findById(long codeId) {
+        lock.readLock().lock();
+        try {
+            int row = codeIndex.get(codeId);
+            return row < 0 ? Optional.empty() : Optional.of(materialize(row));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Book> findByAuthor(String author) {
+        return findByName(true, author);
+    }
+
+    @Override
+    public List<Book> findByCategory(String category) {
+        return findByName(false, category);
+    }
+
+    @Override
+    public List<Book> search(String author, String category, int maxPageCount) {
+        List<Book> matches = new ArrayList<>();
+        if (author == null || category == null) {
+            return matches;
+        }
+        lock.readLock().lock();
+        try {
+            int wantedAuthor = StringDictionary.AUTHORS.lookupFolded(author.trim());
+            int wantedCategory = StringDictionary.CATEGORIES.lookupFolded(category.trim());
+            if (wantedAuthor < 0 || wantedCategory < 0) {
+                return matches;
+            }
+            for (int row = 0; row < rows; row++) {
+                if (pageCounts[row] <= maxPageCount
+                        && genres[row] != REMOVED
+                        && StringDictionary.AUTHORS.foldedId(authors[row]) == wantedAuthor
+                        && StringDictionary.CATEGORIES.foldedId(categories[row]) == wantedCategory) {
+                    matches.add(materialize(row));
+                }
+            }
+            CatalogMetrics.ADVANCED_SEARCH.addRowsScanned(rows);
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Streams the matching books in insertion order. The stream scans the
+     * columns a chunk at a time and materializes only the matching rows.
+     *
+     * @param query the criteria
+     * @param after the sequence number of the last book already seen, or -1
+     * @return the matching books with their sequence numbers
+     */
+    @Override
+    public Stream<CatalogEntry> stream(BookQuery query, long after) {
+        QueryFilter filter = new QueryFilter(query);
+        if (filter.empty) {
+            return Stream.empty();
+        }
+        return StreamSupport.stream(new RowSpliterator(filter, after), false);
+    }
+
+    @Override
+    public void reindex(Book book, BookField field, Object previousValue) {
+        lock.writeLock().lock();
+        try {
+            int row = codeIndex.get(book.getCodeId());
+            if (row < 0) {
+                return;
+            }
+            switch (field) {
+                case TITLE -> rewriteTitle(row, book.getTitle());
+                case AUTHOR -> authors[row] = StringDictionary.AUTHORS.intern(book.getAuthor());
+                case CATEGORY -> categories[row] = StringDictionary.CATEGORIES.intern(book.getCategory());
+                case PAGE_COUNT -> pageCounts[row] = book.getPageCount();
+                case BORROWED_DATE -> borrowedDays[row] = toEpochDay(book.getBorrowedDate());
+                case RETURN_DATE -> returnDays[row] = toEpochDay(book.getReturnDate());
+                case DETAILS -> writeDetails(row, BookRecord.of(book));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Materializes every stored book; the cost is proportional to the catalog size.
+     *
+     * @return the stored books in insertion order
+     */
+    @Override
+    public List<Book> snapshot() {
+        lock.readLock().lock();
+        try {
+            List<Book> books = new ArrayList<>(liveRows);
+            for (int row = 0; row < rows; row++) {
+                if (genres[row] != REMOVED) {
+                    books.add(materialize(row));
+                }
+            }
+            return List.copyOf(books);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveRows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Book> findByName(boolean byAuthor, String name) {
+        List<Book> matches = new ArrayList<>();
+        if (name == null) {
+            return matches;
+        }
+        lock.readLock().lock();
+        try {
+            StringDictionary dictionary = byAuthor ? StringDictionary.AUTHORS : StringDictionary.CATEGORIES;
+            int[] values = byAuthor ? authors : categories;
+            int wanted = dictionary.lookupFolded(name.trim());
+            if (wanted < 0) {
+                return matches;
+            }
+            for (int row = 0; row < rows; row++) {
+                if (genres[row] != REMOVED && dictionary.foldedId(values[row]) == wanted) {
+                    matches.add(materialize(row));
+                }
+            }
+            (byAuthor ? CatalogMetrics.FILTER_BY_AUTHOR : CatalogMetrics.FILTER_BY_CATEGORY).addRowsScanned(rows);
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** @return the first row whose sequence number is greater than the given one */
+    private int firstRowAfter(long sequence) {
+        int low = 0;
+        int high = rows - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (sequences[middle] <= sequence) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /** Builds a detached book from a row and passes it to the materialization callback. */
+    private Book materialize(int row) {
+        BookRecord record = new BookRecord(codeIds[row], Genre.fromTag(genres[row]),
+                new String(titleBytes, titleOffsets[row], titleLengths[row], StandardCharsets.UTF_8),
+                StringDictionary.AUTHORS.get(authors[row]), pageCounts[row], StringDictionary.CATEGORIES.get(categories[row]),
+                toDate(borrowedDays[row]), toDate(returnDays[row]),
+                texts1[row] == NO_TEXT ? null : detailDictionary.get(texts1[row]),
+                texts2[row] == NO_TEXT ? null : detailDictionary.get(texts2[row]),
+                numbers1[row], numbers2[row]);
+        Book book = record.restoreBook();
+        onMaterialize.accept(book);
+        return book;
+    }
+
+    private void writeTitle(int row, String title) {
+        byte[] encoded = title.getBytes(StandardCharsets.UTF_8);
+        if (titleBytesUsed + encoded.length > titleBytes.length) {
+            titleBytes = Arrays.copyOf(titleBytes, Math.max(titleBytes.length * 2, titleBytesUsed + encoded.length));
+        }
+        System.arraycopy(encoded, 0, titleBytes, titleBytesUsed, encoded.length);
+        titleOffsets[row] = titleBytesUsed;
+        titleLengths[row] = encoded.length;
+        titleBytesUsed += encoded.length;
+    }
+
+    /** Replaces the title of a row, in place if the new one is not longer. */
+    private void rewriteTitle(int row, String title) {
+        byte[] encoded = title.getBytes(StandardCharsets.UTF_8);
+        if (encoded.length <= titleLengths[row]) {
+            System.arraycopy(encoded, 0, titleBytes, titleOffsets[row], encoded.length);
+            wastedTitleBytes += titleLengths[row] - encoded.length;
+            titleLengths[row] = encoded.length;
+        } else {
+            wastedTitleBytes += titleLengths[row];
+            writeTitle(row, title);
+        }
+        compactTitlesIfWasteful();
+    }
+
+    private void compactTitlesIfWasteful() {
+        if (titleBytesUsed > 16 * 1024 && wastedTitleBytes > titleBytesUsed / 2) {
+            compactTitles();
+        }
+    }
+
+    /** Repacks the titles of the live rows, dropping the bytes of replaced and removed titles. */
+    private void compactTitles() {
+        int liveBytes = titleBytesUsed - wastedTitleBytes;
+        byte[] packed = new byte[Math.max(16 * 1024, liveBytes + (liveBytes >> 1))];
+        int bytesUsed = 0;
+        for (int row = 0; row < rows; row++) {
+            if (genres[row] != REMOVED) {
+                System.arraycopy(titleBytes, titleOffsets[row], packed, bytesUsed, titleLengths[row]);
+                titleOffsets[row] = bytesUsed;
+                bytesUsed += titleLengths[row];
+            }
+        }
+        titleBytes = packed;
+        titleBytesUsed = bytesUsed;
+        wastedTitleBytes = 0;
+    }
+
+    private void writeDetails(int row, BookRecord record) {
+        texts1[row] = record.text1() == null ? NO_TEXT : detailDictionary.intern(record.text1());
+        texts2[row] = record.text2() == null ? NO_TEXT : detailDictionary.intern(record.text2());
+        numbers1[row] = record.number1();
+        numbers2[row] = record.number2();
+    }
+
+    /** Moves live rows to the front, drops stale title bytes and rebuilds the code index. */
+    private void compact() {
+        byte[] compactTitles = new byte[Math.max(16 * 1024, titleBytesUsed)];
+        int bytesUsed = 0;
+        int live = 0;
+        codeIndex.clear();
+        for (int row = 0; row < rows; row++) {
+            if (genres[row] == REMOVED) {
+                continue;
+            }
+            System.arraycopy(titleBytes, titleOffsets[row], compactTitles, bytesUsed, titleLengths[row]);
+            sequences[live] = sequences[row];
+            codeIds[live] = codeIds[row];
+            genres[live] = genres[row];
+            titleOffsets[live] = bytesUsed;
+            titleLengths[live] = titleLengths[row];
+            authors[live] = authors[row];
+            categories[live] = categories[row];
+            pageCounts[live] = pageCounts[row];
+            borrowedDays[live] = borrowedDays[row];
+            returnDays[live] = returnDays[row];
+            texts1[live] = texts1[row];
+            texts2[live] = texts2[row];
+            numbers1[live] = numbers1[row];
+            numbers2[live] = numbers2[row];
+            codeIndex.put(codeIds[live], live);
+            bytesUsed += titleLengths[row];
+            live++;
+        }
+        titleBytes = compactTitles;
+        titleBytesUsed = bytesUsed;
+        wastedTitleBytes = 0;
+        rows = live;
+    }
+
+    private void allocate(int capacity) {
+        sequences = sequences == null ? new long[capacity] : Arrays.copyOf(sequences, capacity);
+        codeIds = codeIds == null ? new long[capacity] : Arrays.copyOf(codeIds, capacity);
+        genres = genres == null ? new byte[capacity] : Arrays.copyOf(genres, capacity);
+        titleOffsets = grow(titleOffsets, capacity);
+        titleLengths = grow(titleLengths, capacity);
+        authors = grow(authors, capacity);
+        categories = grow(categories, capacity);
+        pageCounts = grow(pageCounts, capacity);
+        borrowedDays = grow(borrowedDays, capacity);
+        returnDays = grow(returnDays, capacity);
+        texts1 = grow(texts1, capacity);
+        texts2 = grow(texts2, capacity);
+        numbers1 = grow(numbers1, capacity);
+        numbers2 = grow(numbers2, capacity);
+    }
+
+    private static int[] grow(int[] column, int capacity) {
+        return column == null ? new int[capacity] : Arrays.copyOf(column, capacity);
+    }
+
+    private static int toEpochDay(LocalDate date) {
+        return date == null ? NO_DATE : (int) date.toEpochDay();
+    }
+
+    private static LocalDate toDate(int epochDay) {
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * Scans the rows for a stream in chunks, taking the read lock once per chunk.
+     * Between chunks the scan resumes after the sequence number of the last
+     * matched row, so compactions in between do not disturb it.
+     */
+    private final class RowSpliterator extends Spliterators.AbstractSpliterator<CatalogEntry> {
+        private final QueryFilter filter;
+        private final CatalogEntry[] chunk = new CatalogEntry[STREAM_CHUNK];
+        private int chunkSize;
+        private int chunkIndex;
+        /** Sequence number the next chunk starts after. */
+        private long resumeAfter;
+        private boolean exhausted;
+
+        RowSpliterator(QueryFilter filter, long after) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT);
+            this.filter = filter;
+            this.resumeAfter = after;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super CatalogEntry> action) {
+            if (chunkIndex == chunkSize && !exhausted) {
+                fill();
+            }
+            if (chunkIndex == chunkSize) {
+                return false;
+            }
+            CatalogEntry entry = chunk[chunkIndex];
+            chunk[chunkIndex++] = null;
+            action.accept(entry);
+            return true;
+        }
+
+        private void fill() {
+            chunkSize = 0;
+            chunkIndex = 0;
+            lock.readLock().lock();
+            try {
+                int first = firstRowAfter(resumeAfter);
+                int row = first;
+                for (; row < rows && chunkSize < STREAM_CHUNK; row++) {
+                    if (genres[row] != REMOVED
+                            && filter.matches(StringDictionary.AUTHORS.foldedId(authors[row]),
+                                    StringDictionary.CATEGORIES.foldedId(categories[row]), pageCounts[row])) {
+                        chunk[chunkSize++] = new CatalogEntry(sequences[row], materialize(row));
+                    }
+                }
+                if (row > 0) {
+                    resumeAfter = sequences[row - 1];
+                }
+                exhausted = row >= rows;
+                filter.metrics.addRowsScanned(row - first);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
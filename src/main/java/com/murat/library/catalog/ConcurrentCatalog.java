@@ -0,0 +1,342 @@
+package com.murat.library.catalog;
+import com.murat.library.Book;
+import com.murat.library.BookField;
+import com.murat.library.BookQuery;
+import com.murat.library.utils.StringDictionary;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Thread-safe book catalog with its code, author, category and page-count indexes.
+ * Books are keyed by their packed code id, so lookups parse the code string
+ * once and never render the codes of catalogued books.
+ * <p>
+ * Writes go to {@link ConcurrentHashMap}s, whose per-bin locking stripes
+ * concurrent writers, and to a {@link ConcurrentSkipListMap} for ordered data.
+ * Index maintenance for a single book is serialized on that book, so a book
+ * removed while it is being added never leaves entries behind.
+ * <p>
+ * Readers never block. {@link #snapshot()} returns an immutable list that is
+ * cached until the next add or remove, so read-heavy workloads reuse one
+ * snapshot and iterate it without any synchronization.
+ * <p>
+ * The author and category indexes keep their books in insertion order (see
+ * {@link Posting}), so {@link #stream(BookQuery, long)} walks the smallest
+ * matching index entry from any position without sorting or copying.
+ * Positions are insertion sequence numbers.
+ */
+public class ConcurrentCatalog implements CatalogStore {
+
+    /**
+     * A catalogued book together with its insertion sequence number, boxed once
+     * and shared as the key of every map the book is in.
+     */
+    private record Entry(Book book, Long sequence) { }
+
+    /** An immutable catalog listing valid for one catalog version. */
+    private record Snapshot(long version, List<Book> books) { }
+
+    /** Entries keyed by their packed library code id. */
+    private final ConcurrentMap<Long, Entry> byCode = new ConcurrentHashMap<>();
+
+    /** Books in insertion order. */
+    private final ConcurrentSkipListMap<Long, Book> bySequence = new ConcurrentSkipListMap<>();
+
+    /** Books keyed by their folded author id (see {@link Book#getAuthorId()}). */
+    private final ConcurrentMap<Integer, Posting> authorIndex = new ConcurrentHashMap<>();
+
+    /** Books keyed by their folded category id (see {@link Book#getCategoryId()}). */
+    private final ConcurrentMap<Integer, Posting> categoryIndex = new ConcurrentHashMap<>();
+
+    /** Books keyed by their page count, sorted ascending. Empty entries are kept. */
+    private final ConcurrentSkipListMap<Integer, Set<Book>> pageCountIndex = new ConcurrentSkipListMap<>();
+
+    /** Source of insertion sequence numbers. */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /** Incremented after every add or remove; invalidates the cached snapshot. */
+    private final AtomicLong version = new AtomicLong();
+
+    /** The most recently built snapshot, possibly stale. */
+    private volatile Snapshot snapshot = new Snapshot(0, List.of());
+
+    /**
+     * Adds a book to the catalog.
+     *
+     * @param book the book to add
+     * @throws IllegalArgumentException if the book has no library code or the code is already taken
+     */
+    @Override
+    public void add(Book book) {
+        long key = book.getCodeId();
+        if (key == 0) {
+            throw new IllegalArgumentException("Library Code cannot be empty");
+        }
+        Entry entry = new Entry(book, sequence.getAndIncrement());
+        if (byCode.putIfAbsent(key, entry) != null) {
+            throw new IllegalArgumentException("A book with library code '" + book.getLibraryCode() + "' already exists.");
+        }
+        synchronized (book) {
+            if (byCode.get(key) == entry) {
+                bySequence.put(entry.sequence(), book);
+                addToIndex(authorIndex, book.getAuthorId(), entry);
+                addToIndex(categoryIndex, book.getCategoryId(), entry);
+                pageCountIndex.computeIfAbsent(book.getPageCount(), k -> ConcurrentHashMap.newKeySet()).add(book);
+            }
+        }
+        version.incrementAndGet();
+    }
+
+    /**
+     * Removes a book by the packed id of its library code.
+     *
+     * @param codeId the packed code id
+     * @return the removed book, or an empty Optional if none exists
+     */
+    @Override
+    public Optional<Book> remove(long codeId) {
+        Entry entry = byCode.remove(codeId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        Book book = entry.book();
+        synchronized (book) {
+            bySequence.remove(entry.sequence());
+            removeFromIndex(authorIndex, book.getAuthorId(), entry);
+            removeFromIndex(categoryIndex, book.getCategoryId(), entry);
+            Set<Book> samePageCount = pageCountIndex.get(book.getPageCount());
+            if (samePageCount != null) {
+                samePageCount.remove(book);
+            }
+        }
+        version.incrementAndGet();
+        return Optional.of(book);
+    }
+
+    /**
+     * Finds a book by the packed id of its library code.
+     *
+     * @param codeId the packed code id
+     * @return the matching book, or an empty Optional if none exists
+     */
+    @Override
+    public Optional<Book> findById(long codeId) {
+        Entry entry = byCode.get(codeId);
+        return entry == null ? Optional.empty() : Optional.of(entry.book());
+    }
+
+    /**
+     * Returns all books written by the given author.
+     *
+     * @param author the author's name (case-insensitive)
+     * @return a read-only, weakly consistent view of the matching books in insertion order
+     */
+    @Override
+    public Collection<Book> findByAuthor(String author) {
+        return lookup(authorIndex, StringDictionary.AUTHORS, author);
+    }
+
+    /**
+     * Returns all books in the given category.
+     *
+     * @param category the category (case-insensitive)
+     * @return a read-only, weakly consistent view of the matching books in insertion order
+     */
+    @Override
+    public Collection<Book> findByCategory(String category) {
+        return lookup(categoryIndex, StringDictionary.CATEGORIES, category);
+    }
+
+    /**
+     * Returns the books that match the author and category and have at most
+     * the given number of pages.
+     *
+     * @param author       the author's name (case-insensitive)
+     * @param category     the category (case-insensitive)
+     * @param maxPageCount the maximum allowed page count (inclusive)
+     * @return the matching books
+     * @see QueryPlanner
+     */
+    @Override
+    public List<Book> search(String author, String category, int maxPageCount) {
+        if (author == null || category == null) {
+            return List.of();
+        }
+        QueryFilter filter = new QueryFilter(new BookQuery(author, category, maxPageCount));
+        return QueryPlanner.search(findByAuthor(author), findByCategory(category), pageCountIndex, filter);
+    }
+
+    /**
+     * Streams the matching books in insertion order. The smaller of the author
+     * and category index entries drives the stream when either is requested;
+     * otherwise all books are walked. Remaining criteria are tested per book.
+     *
+     * @param query the criteria
+     * @param after the sequence number of the last book already seen, or -1
+     * @return the matching books with their sequence numbers
+     */
+    @Override
+    public Stream<CatalogEntry> stream(BookQuery query, long after) {
+        QueryFilter filter = new QueryFilter(query);
+        if (filter.empty) {
+            return Stream.empty();
+        }
+        NavigableMap<Long, Book> source = bySequence.tailMap(after, false);
+        Posting byAuthor = filter.authorId == QueryFilter.ANY ? null : authorIndex.get(filter.authorId);
+        Posting byCategory = filter.categoryId == QueryFilter.ANY ? null : categoryIndex.get(filter.categoryId);
+        if ((filter.authorId != QueryFilter.ANY && byAuthor == null)
+                || (filter.categoryId != QueryFilter.ANY && byCategory == null)) {
+            return Stream.empty();
+        }
+        if (byAuthor != null && (byCategory == null || byAuthor.size() <= byCategory.size())) {
+            source = byAuthor.after(after);
+        } else if (byCategory != null) {
+            source = byCategory.after(after);
+        }
+        ScanSpliterator scan = new ScanSpliterator(source.entrySet().iterator(), filter);
+        return StreamSupport.stream(scan, false).onClose(scan::reportScanned);
+    }
+
+    /**
+     * Moves a catalogued book between index entries after one of its indexed fields changed.
+     * Fields without an index are ignored, since the book object itself holds them.
+     * The book is re-indexed under its current value, so concurrent setters converge.
+     *
+     * @param book          the book that changed
+     * @param field         the field that changed
+     * @param previousValue the value of the field before the change
+     */
+    @Override
+    public void reindex(Book book, BookField field, Object previousValue) {
+        synchronized (book) {
+            Entry entry = byCode.get(book.getCodeId());
+            if (entry == null || entry.book() != book) {
+                return;
+            }
+            switch (field) {
+                case AUTHOR -> moveEntry(authorIndex, StringDictionary.AUTHORS.lookupFolded((String) previousValue), book.getAuthorId(), entry);
+                case CATEGORY -> moveEntry(categoryIndex, StringDictionary.CATEGORIES.lookupFolded((String) previousValue), book.getCategoryId(), entry);
+                case PAGE_COUNT -> {
+                    Set<Book> previous = pageCountIndex.get((Integer) previousValue);
+                    if (previous != null) {
+                        previous.remove(book);
+                    }
+                    pageCountIndex.computeIfAbsent(book.getPageCount(), k -> ConcurrentHashMap.newKeySet()).add(book);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns an immutable snapshot of the catalog in insertion order.
+     * The snapshot is rebuilt only after the catalog has been modified.
+     *
+     * @return the catalogued books
+     */
+    @Override
+    public List<Book> snapshot() {
+        long current = version.get();
+        Snapshot cached = snapshot;
+        if (cached.version() == current) {
+            return cached.books();
+        }
+        List<Book> books = List.copyOf(bySequence.values());
+        snapshot = new Snapshot(current, books);
+        return books;
+    }
+
+    /**
+     * Returns the number of catalogued books.
+     *
+     * @return the catalog size
+     */
+    @Override
+    public int size() {
+        return byCode.size();
+    }
+
+    private static void moveEntry(ConcurrentMap<Integer, Posting> index, int previousKey, int newKey, Entry entry) {
+        if (previousKey == newKey) {
+            return;
+        }
+        removeFromIndex(index, previousKey, entry);
+        addToIndex(index, newKey, entry);
+    }
+
+    private static void addToIndex(ConcurrentMap<Integer, Posting> index, int key, Entry entry) {
+        // Postings are only changed inside compute, which serializes their size counters.
+        index.compute(key, (k, books) -> {
+            Posting target = books == null ? new Posting() : books;
+            target.add(entry.sequence(), entry.book());
+            return target;
+        });
+    }
+
+    private static void removeFromIndex(ConcurrentMap<Integer, Posting> index, int key, Entry entry) {
+        index.computeIfPresent(key, (k, books) -> {
+            books.remove(entry.sequence());
+            return books.isEmpty() ? null : books;
+        });
+    }
+
+    private static Collection<Book> lookup(Map<Integer, Posting> index, StringDictionary dictionary, String key) {
+        if (key == null) {
+            return Collections.emptySet();
+        }
+        int id = dictionary.lookupFolded(key.trim());
+        Posting books = id < 0 ? null : index.get(id);
+        return books == null ? Collections.emptySet() : books;
+    }
+
+    /**
+     * Walks the entries of an index for a stream, testing each book against the
+     * filter and counting the books tested. The count is credited to the query's
+     * metrics once, when the walk is exhausted or the stream is closed early.
+     */
+    private static final class ScanSpliterator extends Spliterators.AbstractSpliterator<CatalogEntry> {
+        private final Iterator<Map.Entry<Long, Book>> source;
+        private final QueryFilter filter;
+        private long scanned;
+
+        ScanSpliterator(Iterator<Map.Entry<Long, Book>> source, QueryFilter filter) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT);
+            this.source = source;
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super CatalogEntry> action) {
+            while (source.hasNext()) {
+                Map.Entry<Long, Book> entry = source.next();
+                scanned++;
+                if (filter.matches(entry.getValue())) {
+                    action.accept(new CatalogEntry(entry.getKey(), entry.getValue()));
+                    return true;
+                }
+            }
+            reportScanned();
+            return false;
+        }
+
+        /** Credits the books tested so far, at most once per stream. */
+        void reportScanned() {
+            filter.metrics.addRowsScanned(scanned);
+            scanned = 0;
+        }
+    }
+}
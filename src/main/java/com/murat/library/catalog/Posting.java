@@ -0,0 +1,64 @@
+package com.murat.library.catalog;
+import com.murat.library.Book;
+import java.util.AbstractCollection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The books that share one value of an index, ordered by insertion sequence.
+ * <p>
+ * Iteration is weakly consistent and read-only. The size is kept in a counter,
+ * because counting a {@link ConcurrentSkipListMap} walks all of it; the counter
+ * is only written by {@link #add} and {@link #remove}, which callers serialize
+ * per posting.
+ */
+final class Posting extends AbstractCollection<Book> {
+
+    private final ConcurrentSkipListMap<Long, Book> books = new ConcurrentSkipListMap<>();
+    private volatile int size;
+
+    /**
+     * Adds a book under its insertion sequence number.
+     *
+     * @param sequence the sequence number
+     * @param book     the book
+     */
+    void add(Long sequence, Book book) {
+        if (books.put(sequence, book) == null) {
+            size++;
+        }
+    }
+
+    /**
+     * Removes the book with the given insertion sequence number.
+     *
+     * @param sequence the sequence number
+     */
+    void remove(Long sequence) {
+        if (books.remove(sequence) != null) {
+            size--;
+        }
+    }
+
+    /**
+     * Returns the books inserted after a sequence number, in insertion order.
+     *
+     * @param after the sequence number to start after
+     * @return a weakly consistent view keyed by sequence number
+     */
+    NavigableMap<Long, Book> after(long after) {
+        return books.tailMap(after, false);
+    }
+
+    @Override
+    public Iterator<Book> iterator() {
+        return Collections.unmodifiableCollection(books.values()).iterator();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
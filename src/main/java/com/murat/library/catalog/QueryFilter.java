@@ -0,0 +1,61 @@
+package com.murat.library.catalog;
+import com.murat.library.Book;
+import com.murat.library.BookQuery;
+import com.murat.library.metrics.CatalogMetrics;
+import com.murat.library.metrics.OperationMetrics;
+import com.murat.library.utils.StringDictionary;
+
+/**
+ * A {@link BookQuery} with its author and category resolved to folded dictionary ids,
+ * so that each candidate is tested with integer comparisons only.
+ */
+final class QueryFilter {
+
+    /** Id of a criterion that is not set. */
+    static final int ANY = -1;
+
+    /** Folded author id, or {@link #ANY}. */
+    final int authorId;
+    /** Folded category id, or {@link #ANY}. */
+    final int categoryId;
+    final int maxPageCount;
+    /** True if no book can match, because a requested name is not in use. */
+    final boolean empty;
+    /** The operation credited with the rows this query scans. */
+    final OperationMetrics metrics;
+
+    QueryFilter(BookQuery query) {
+        int author = query.author() == null ? ANY : StringDictionary.AUTHORS.lookupFolded(query.author());
+        int category = query.category() == null ? ANY : StringDictionary.CATEGORIES.lookupFolded(query.category());
+        this.empty = (query.author() != null && author < 0) || (query.category() != null && category < 0);
+        this.authorId = author;
+        this.categoryId = category;
+        this.maxPageCount = query.maxPageCount();
+        this.metrics = CatalogMetrics.forQuery(query);
+    }
+
+    /**
+     * Tests a book against all criteria.
+     *
+     * @param book the book
+     * @return true if the book matches
+     */
+    boolean matches(Book book) {
+        return matches(book.getAuthorId(), book.getCategoryId(), book.getPageCount());
+    }
+
+    /**
+     * Tests the indexed values of a book against all criteria.
+     *
+     * @param foldedAuthorId   the folded author id of the book
+     * @param foldedCategoryId the folded category id of the book
+     * @param pageCount        the page count of the book
+     * @return true if the book matches
+     */
+    boolean matches(int foldedAuthorId, int foldedCategoryId, int pageCount) {
+        return !empty
+                && pageCount <= maxPageCount
+                && (authorId == ANY || authorId == foldedAuthorId)
+                && (categoryId == ANY || categoryId == foldedCategoryId);
+    }
+}
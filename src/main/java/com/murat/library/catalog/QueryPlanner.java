@@ -0,0 +1,83 @@
+package com.murat.library.catalog;
+import com.murat.library.Book;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+
+/**
+ * Plans and runs the author + category + maximum page count search over the
+ * {@link ConcurrentCatalog} indexes.
+ * <p>
+ * The selectivity of each criterion is estimated from index cardinalities:
+ * the equality criteria cost one set size each, and the page range is counted
+ * over the sorted page-count index only until it exceeds the best candidate
+ * so far. Evaluation starts from the most selective criterion and tests the
+ * remaining ones on each of its books.
+ */
+final class QueryPlanner {
+
+    private QueryPlanner() {
+        // Utility class, no instantiation
+    }
+
+    /**
+     * Returns the books that match all three criteria.
+     *
+     * @param byAuthor    books of the requested author
+     * @param byCategory  books of the requested category
+     * @param byPageCount books keyed by page count, sorted ascending
+     * @param filter      all three criteria, tested on each candidate
+     * @return the matching books
+     */
+    static List<Book> search(Collection<Book> byAuthor, Collection<Book> byCategory,
+                             NavigableMap<Integer, Set<Book>> byPageCount, QueryFilter filter) {
+        List<Book> matches = new ArrayList<>();
+        if (byAuthor.isEmpty() || byCategory.isEmpty()) {
+            return matches;
+        }
+        Collection<Book> driver = byAuthor.size() <= byCategory.size() ? byAuthor : byCategory;
+        NavigableMap<Integer, Set<Book>> pageRange = byPageCount.headMap(filter.maxPageCount, true);
+
+        long scanned = 0;
+        if (countUpTo(pageRange.values(), driver.size()) < driver.size()) {
+            for (Set<Book> books : pageRange.values()) {
+                for (Book book : books) {
+                    scanned++;
+                    if (filter.matches(book)) {
+                        matches.add(book);
+                    }
+                }
+            }
+        } else {
+            for (Book book : driver) {
+                scanned++;
+                if (filter.matches(book)) {
+                    matches.add(book);
+                }
+            }
+        }
+        filter.metrics.addRowsScanned(scanned);
+        return matches;
+    }
+
+    /**
+     * Counts the books in the given index entries, stopping as soon as the
+     * count reaches the limit so a wide range is never fully summed.
+     *
+     * @param entries the index entries to count
+     * @param limit   the count at which to stop
+     * @return the number of books, or a value of at least {@code limit}
+     */
+    private static int countUpTo(Collection<Set<Book>> entries, int limit) {
+        int count = 0;
+        for (Set<Book> books : entries) {
+            count += books.size();
+            if (count >= limit) {
+                break;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,142 @@
+package com.murat.library.circulation;
+import com.murat.library.Book;
+import com.murat.library.CatalogListener;
+import com.murat.library.LibraryManager;
+import com.murat.library.utils.BookUtils;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Checks books out to patrons and back in, one loan per book at a time.
+ * <p>
+ * The loan of each book is an immutable {@link Loan} held in its own
+ * {@link AtomicReference}, null while the book is available. A checkout
+ * succeeds only by swapping null for a new loan with a compare-and-set, so
+ * of any number of desks checking out the same copy at once exactly one
+ * wins; a checkin swaps the loan back to null. Different books never
+ * contend with each other, and no lock is held while deciding who wins.
+ * <p>
+ * After each transition the book's borrowed and return dates are set
+ * together from the loan the book has at that moment, holding the book's
+ * loan reference as a monitor. Transitions that race to publish their dates
+ * thus leave the dates of the latest one. The {@link LibraryManager} writes
+ * both dates under its lock for the book before it notifies its listeners,
+ * once per date that changed, so every notification and every log record
+ * already carries both new dates.
+ * <p>
+ * A book that already has a return date when the service first sees it is
+ * treated as on loan to an unknown patron. Loan dates changed through the
+ * {@link Book} setters directly are not tracked.
+ */
+public final class CirculationService implements CatalogListener {
+
+    private final LibraryManager manager;
+    /** Loan state of each book handled so far, by library code id. */
+    private final ConcurrentMap<Long, AtomicReference<Loan>> loans = new ConcurrentHashMap<>();
+
+    private CirculationService(LibraryManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Creates a service for a manager's catalog.
+     *
+     * @param manager the manager whose books to lend
+     * @return the service
+     */
+    public static CirculationService attach(LibraryManager manager) {
+        CirculationService service = new CirculationService(manager);
+        manager.addListener(service);
+        return service;
+    }
+
+    /**
+     * Stops following the manager's changes.
+     */
+    public void detach() {
+        manager.removeListener(this);
+    }
+
+    /**
+     * Checks a book out to a patron, unless it is already on loan.
+     *
+     * @param libraryCode the library code of the book
+     * @param patron      the borrowing patron
+     * @param dueDate     the day the book must be returned
+     * @return true if the book was checked out, false if it was already on loan
+     * @throws IllegalArgumentException if no book has the code, the patron is blank
+     *                                  or the due date is missing or in the past
+     */
+    public boolean checkout(String libraryCode, String patron, LocalDate dueDate) {
+        String borrower = BookUtils.validateBasicText(patron, "Patron");
+        LocalDate today = LocalDate.now();
+        if (dueDate == null || dueDate.isBefore(today)) {
+            throw new IllegalArgumentException("Due date cannot be in the past");
+        }
+        AtomicReference<Loan> state = stateOf(libraryCode);
+        if (!state.compareAndSet(null, new Loan(borrower, today, dueDate))) {
+            return false;
+        }
+        publish(libraryCode, state);
+        return true;
+    }
+
+    /**
+     * Checks a book back in.
+     *
+     * @param libraryCode the library code of the book
+     * @return the loan that ended, or empty if the book was not on loan
+     * @throws IllegalArgumentException if no book has the code
+     */
+    public Optional<Loan> checkin(String libraryCode) {
+        AtomicReference<Loan> state = stateOf(libraryCode);
+        Loan ended = state.getAndSet(null);
+        if (ended == null) {
+            return Optional.empty();
+        }
+        publish(libraryCode, state);
+        return Optional.of(ended);
+    }
+
+    /**
+     * Returns the current loan of a book.
+     *
+     * @param libraryCode the library code of the book
+     * @return the loan, or empty if the book is available
+     * @throws IllegalArgumentException if no book has the code
+     */
+    public Optional<Loan> findLoan(String libraryCode) {
+        return Optional.ofNullable(stateOf(libraryCode).get());
+    }
+
+    @Override
+    public void bookRemoved(Book book) {
+        loans.remove(book.getCodeId());
+    }
+
+    private AtomicReference<Loan> stateOf(String libraryCode) {
+        Book book = manager.findBookByCode(libraryCode)
+                .orElseThrow(() -> new IllegalArgumentException("No book found with library code: " + libraryCode));
+        AtomicReference<Loan> state = loans.get(book.getCodeId());
+        return state != null ? state : loans.computeIfAbsent(book.getCodeId(), id -> new AtomicReference<>(
+                book.getReturnDate() == null ? null : new Loan(null, book.getBorrowedDate(), book.getReturnDate())));
+    }
+
+    /** Sets the book's dates from its loan as it is now. */
+    private void publish(String libraryCode, AtomicReference<Loan> state) {
+        synchronized (state) {
+            Loan loan = state.get();
+            // Fetched again here: stores without book objects hand out copies that may be stale.
+            manager.findBookByCode(libraryCode).ifPresent(book -> {
+                if (loan == null) {
+                    book.setLoanDates(null, null);
+                } else if (loan.patron() != null) {
+                    book.setLoanDates(loan.borrowedDate(), loan.dueDate());
+                }
+            });
+        }
+    }
+}
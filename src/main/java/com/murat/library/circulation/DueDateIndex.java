@@ -0,0 +1,231 @@
+package com.murat.library.circulation;
+import com.murat.library.Book;
+import com.murat.library.BookField;
+import com.murat.library.CatalogListener;
+import com.murat.library.LibraryManager;
+import com.murat.library.utils.LongIntHashMap;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index of the catalogued books by return date.
+ * <p>
+ * Books are grouped into one bucket per day, keyed by epoch day in a sorted
+ * map, so the books due in any range of days are found without looking at
+ * the others: a range lookup costs a logarithmic search for its first day
+ * plus the books it returns. Each bucket is an array of library code ids; a
+ * hash map remembers where each book sits in its bucket, so moving a book
+ * to another day takes constant time besides the map lookups.
+ * <p>
+ * The index is attached to a {@link LibraryManager} as a {@link CatalogListener}
+ * and follows additions, removals and every {@link Book#setReturnDate} call.
+ * Books without a return date are not indexed. Reads and writes are guarded
+ * by a read-write lock.
+ */
+public final class DueDateIndex implements CatalogListener {
+
+    private final LibraryManager manager;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Books due on each day, by epoch day; days without books have no bucket. */
+    private final NavigableMap<Long, Bucket> days = new TreeMap<>();
+    /** Position of each indexed book in the bucket of its return date. */
+    private final LongIntHashMap positions = new LongIntHashMap();
+
+    private DueDateIndex(LibraryManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Indexes the return dates of a manager's catalog and keeps them up to
+     * date with later changes.
+     *
+     * @param manager the manager whose books to index
+     * @return the index
+     */
+    public static DueDateIndex attach(LibraryManager manager) {
+        DueDateIndex index = new DueDateIndex(manager);
+        manager.addListenerWithReplay(index);
+        return index;
+    }
+
+    /**
+     * Stops following the manager's changes.
+     */
+    public void detach() {
+        manager.removeListener(this);
+    }
+
+    /**
+     * Returns the number of books that have a return date.
+     *
+     * @return the number of indexed books
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return positions.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the books due on or after one day and before another.
+     *
+     * @param from  the first day, inclusive, or null for no lower bound
+     * @param until the last day, exclusive
+     * @return the books, earliest return date first
+     * @throws IllegalArgumentException if the range ends before it starts
+     */
+    public List<Book> findDueBetween(LocalDate from, LocalDate until) {
+        long first = from == null ? Long.MIN_VALUE : from.toEpochDay();
+        long end = until.toEpochDay();
+        if (end < first) {
+            throw new IllegalArgumentException("Date range cannot end before it starts");
+        }
+        return findDueBetween(first, end);
+    }
+
+    /**
+     * Finds the books due from one epoch day up to but excluding another.
+     *
+     * @param first the first epoch day
+     * @param end   the epoch day after the last, not before {@code first}
+     * @return the books, earliest return date first
+     */
+    List<Book> findDueBetween(long first, long end) {
+        long[] codes;
+        int count = 0;
+        lock.readLock().lock();
+        try {
+            NavigableMap<Long, Bucket> range = days.subMap(first, true, end, false);
+            int total = 0;
+            for (Bucket bucket : range.values()) {
+                total += bucket.size;
+            }
+            codes = new long[total];
+            for (Bucket bucket : range.values()) {
+                System.arraycopy(bucket.codes, 0, codes, count, bucket.size);
+                count += bucket.size;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        // A book may have been returned or rescheduled since the lock was released.
+        List<Book> books = new ArrayList<>(count);
+        for (long code : codes) {
+            manager.findBookById(code).ifPresent(book -> {
+                LocalDate due = book.getReturnDate();
+                if (due != null && due.toEpochDay() >= first && due.toEpochDay() < end) {
+                    books.add(book);
+                }
+            });
+        }
+        return books;
+    }
+
+    /**
+     * Finds the books whose return date has passed.
+     *
+     * @param today the current day
+     * @return the overdue books, longest overdue first
+     */
+    public List<Book> findOverdue(LocalDate today) {
+        return findDueBetween(null, today);
+    }
+
+    @Override
+    public void bookAdded(Book book) {
+        if (book.getReturnDate() != null) {
+            lock.writeLock().lock();
+            try {
+                add(book.getCodeId(), book.getReturnDate().toEpochDay());
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public void bookRemoved(Book book) {
+        if (book.getReturnDate() != null) {
+            lock.writeLock().lock();
+            try {
+                remove(book.getCodeId(), book.getReturnDate().toEpochDay());
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public void bookChanged(Book book, BookField field, Object previousValue) {
+        if (field != BookField.RETURN_DATE) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (previousValue != null) {
+                remove(book.getCodeId(), ((LocalDate) previousValue).toEpochDay());
+            }
+            if (book.getReturnDate() != null) {
+                add(book.getCodeId(), book.getReturnDate().toEpochDay());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(long code, long day) {
+        positions.put(code, days.computeIfAbsent(day, key -> new Bucket()).add(code));
+    }
+
+    private void remove(long code, long day) {
+        Bucket bucket = days.get(day);
+        int position = positions.get(code);
+        if (bucket == null || position < 0 || position >= bucket.size || bucket.codes[position] != code) {
+            return;
+        }
+        positions.remove(code);
+        long moved = bucket.removeAt(position);
+        if (moved != 0) {
+            positions.put(moved, position);
+        }
+        if (bucket.size == 0) {
+            days.remove(day);
+        }
+    }
+
+    /** Code ids of the books due on one day, in no particular order. */
+    private static final class Bucket {
+        private long[] codes = new long[4];
+        private int size;
+
+        /** Appends a code id and returns its position. */
+        int add(long code) {
+            if (size == codes.length) {
+                codes = Arrays.copyOf(codes, size * 2);
+            }
+            codes[size] = code;
+            return size++;
+        }
+
+        /** Fills the gap at a position with the last code id and returns that id, or 0 if the last one was removed. */
+        long removeAt(int position) {
+            long last = codes[--size];
+            codes[size] = 0;
+            if (position == size) {
+                return 0;
+            }
+            codes[position] = last;
+            return last;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.murat.library.circulation;
+import java.time.LocalDate;
+
+/**
+ * A book on loan to a patron.
+ *
+ * @param patron       the borrowing patron, or null for a loan recorded before the book was managed by a
+ *                     {@link CirculationService}
+ * @param borrowedDate the day the book was checked out, or null if unknown
+ * @param dueDate      the day the book must be returned
+ */
+public record Loan(String patron, LocalDate borrowedDate, LocalDate dueDate) {
+}
@@ -0,0 +1,17 @@
+package com.murat.library.circulation;
+import com.murat.library.Book;
+
+/**
+ * Receives the books an {@link OverdueSweeper} finds newly overdue.
+ */
+@FunctionalInterface
+public interface OverdueListener {
+
+    /**
+     * Called once for a book whose return date has just passed. Called on the
+     * sweeper thread, earliest return date first.
+     *
+     * @param book the overdue book; {@link Book#getReturnDate()} is the missed date
+     */
+    void bookOverdue(Book book);
+}
@@ -0,0 +1,102 @@
+package com.murat.library.circulation;
+import com.murat.library.Book;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background task that reports books as they become overdue.
+ * <p>
+ * The sweeper remembers the first day it has not yet swept. Each sweep asks
+ * the {@link DueDateIndex} only for the books due from that day up to
+ * yesterday, reports them and moves the day forward, so a sweep costs the
+ * number of books that became overdue since the last one, whatever the size
+ * of the catalog. The first sweep reports every book already overdue.
+ * <p>
+ * A started sweeper runs on a daemon thread: once at start and then just
+ * after each midnight of its clock's time zone. {@link #sweep()} can also be
+ * called directly.
+ */
+public final class OverdueSweeper implements AutoCloseable {
+
+    private final DueDateIndex index;
+    private final OverdueListener listener;
+    private final Clock clock;
+    private final ScheduledExecutorService scheduler;
+
+    /** First epoch day whose books have not been reported; guarded by this sweeper. */
+    private long firstUnswept = Long.MIN_VALUE;
+
+    private OverdueSweeper(DueDateIndex index, OverdueListener listener, Clock clock) {
+        this.index = index;
+        this.listener = listener;
+        this.clock = clock;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "overdue-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts sweeping an index daily.
+     *
+     * @param index    the index to sweep
+     * @param listener receives the newly overdue books
+     * @param clock    the clock that tells the current day and its time zone
+     * @return the running sweeper
+     */
+    public static OverdueSweeper start(DueDateIndex index, OverdueListener listener, Clock clock) {
+        OverdueSweeper sweeper = new OverdueSweeper(index, listener, clock);
+        sweeper.scheduler.execute(sweeper::sweepAndReschedule);
+        return sweeper;
+    }
+
+    /**
+     * Reports the books that became overdue since the last sweep.
+     *
+     * @return the number of books reported
+     */
+    public synchronized int sweep() {
+        long today = LocalDate.now(clock).toEpochDay();
+        if (today <= firstUnswept) {
+            return 0;
+        }
+        List<Book> overdue = index.findDueBetween(firstUnswept, today);
+        firstUnswept = today;
+        for (Book book : overdue) {
+            listener.bookOverdue(book);
+        }
+        return overdue.size();
+    }
+
+    /**
+     * Stops the daily sweeps. A sweep in progress is interrupted.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void sweepAndReschedule() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            System.err.println("Error sweeping overdue books: " + e.getMessage());
+        }
+        ZonedDateTime now = ZonedDateTime.now(clock);
+        ZonedDateTime nextMidnight = now.toLocalDate().plusDays(1).atStartOfDay(now.getZone());
+        try {
+            scheduler.schedule(this::sweepAndReschedule,
+                    Duration.between(now, nextMidnight).toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Closed while sweeping.
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.murat.library.events;
+import com.murat.library.Book;
+import com.murat.library.BookField;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for a book added to, removed from or changed in a
+ * {@link com.murat.library.LibraryManager}, listeners included. Only changes
+ * slower than the threshold are recorded.
+ */
+@Name("com.murat.library.CatalogMutation")
+@Label("Catalog Mutation")
+@Category({"Library Manager", "Catalog"})
+@Description("A book added to, removed from or changed in the catalog")
+@Threshold("1 ms")
+public final class CatalogMutationEvent extends Event {
+
+    @Label("Operation")
+    @Description("addBook, removeBook or update")
+    String operation;
+
+    @Label("Library Code")
+    String libraryCode;
+
+    @Label("Genre")
+    String genre;
+
+    @Label("Field")
+    @Description("The field that changed, for updates")
+    String field;
+
+    private CatalogMutationEvent() {
+    }
+
+    /**
+     * Starts timing a change; the clock is read only while the event is enabled.
+     *
+     * @return the started event
+     */
+    public static CatalogMutationEvent start() {
+        CatalogMutationEvent event = new CatalogMutationEvent();
+        if (event.isEnabled()) {
+            event.begin();
+        }
+        return event;
+    }
+
+    /**
+     * Records the change if it took longer than the threshold.
+     *
+     * @param operation the name of the operation
+     * @param book      the book, or null if none was found
+     * @param field     the field that changed, or null
+     */
+    public void finish(String operation, Book book, BookField field) {
+        if (shouldCommit()) {
+            this.operation = operation;
+            if (book != null) {
+                this.libraryCode = book.getLibraryCode();
+                this.genre = book.getGenre() == null ? null : book.getGenre().name();
+            }
+            this.field = field == null ? null : field.name();
+            commit();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.murat.library.events;
+import com.murat.library.metrics.CatalogMetrics;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for a catalog lookup, a page of a query or a text
+ * search, with its criteria, the number of results it returned and the rows
+ * the storage engine tested. Text searches go through an index of their own,
+ * so they record their query text and scan no rows. Only searches slower than
+ * the threshold are recorded.
+ */
+@Name("com.murat.library.CatalogSearch")
+@Label("Catalog Search")
+@Category({"Library Manager", "Catalog"})
+@Description("A search of the catalog by author, category, page count or text")
+@Threshold("5 ms")
+public final class CatalogSearchEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Author")
+    String author;
+
+    @Label("Category")
+    String category;
+
+    @Label("Max Page Count")
+    int maxPageCount;
+
+    @Label("Query")
+    @Description("The text, pattern or name of a text search")
+    String query;
+
+    @Label("Results")
+    long results;
+
+    @Label("Rows Scanned")
+    @Description("Rows tested against the criteria; 0 while catalog metrics are disabled")
+    long rowsScanned;
+
+    /** Rows the thread had scanned before the search; not recorded. */
+    private transient long rowsBefore;
+
+    private CatalogSearchEvent() {
+    }
+
+    /**
+     * Starts timing a search on the current thread; the clock is read only
+     * while the event is enabled.
+     *
+     * @return the started event
+     */
+    public static CatalogSearchEvent start() {
+        CatalogSearchEvent event = new CatalogSearchEvent();
+        if (event.isEnabled()) {
+            event.rowsBefore = CatalogMetrics.rowsScannedByCurrentThread();
+            event.begin();
+        }
+        return event;
+    }
+
+    /**
+     * Records the search if it took longer than the threshold.
+     *
+     * @param operation    the name of the operation
+     * @param author       the author criterion, or null
+     * @param category     the category criterion, or null
+     * @param maxPageCount the page count limit
+     * @param results      the number of books returned
+     */
+    public void finish(String operation, String author, String category, int maxPageCount, long results) {
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.author = author;
+            this.category = category;
+            this.maxPageCount = maxPageCount;
+            this.results = results;
+            this.rowsScanned = CatalogMetrics.rowsScannedByCurrentThread() - rowsBefore;
+            commit();
+        }
+    }
+
+    /**
+     * Records a text search if it took longer than the threshold.
+     *
+     * @param operation the name of the operation
+     * @param query     the searched text, pattern or name
+     * @param results   the number of results returned
+     */
+    public void finish(String operation, String query, long results) {
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.query = query;
+            this.maxPageCount = Integer.MAX_VALUE;
+            this.results = results;
+            this.rowsScanned = CatalogMetrics.rowsScannedByCurrentThread() - rowsBefore;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.murat.library.events;
+import com.murat.library.genres.Genre;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for the generation of a library code id. Generation
+ * takes nanoseconds unless threads contend for the sequence, so by default only
+ * calls slower than the threshold are recorded, with the number of retries.
+ */
+@Name("com.murat.library.CodeGeneration")
+@Label("Library Code Generation")
+@Category({"Library Manager", "Codes"})
+@Description("Generation of a library code id")
+@Threshold("100 us")
+public final class CodeGenerationEvent extends Event {
+
+    @Label("Genre")
+    String genre;
+
+    @Label("Code Id")
+    long codeId;
+
+    @Label("Retries")
+    @Description("Times the sequence was taken by another thread first")
+    int retries;
+
+    private CodeGenerationEvent() {
+    }
+
+    /**
+     * Starts timing the generation of a code id; the clock is read only while
+     * the event is enabled, so a disabled event costs a field read.
+     *
+     * @return the started event
+     */
+    public static CodeGenerationEvent start() {
+        CodeGenerationEvent event = new CodeGenerationEvent();
+        if (event.isEnabled()) {
+            event.begin();
+        }
+        return event;
+    }
+
+    /**
+     * Records the generation if it took longer than the threshold.
+     *
+     * @param genre   the genre of the book
+     * @param codeId  the generated code id
+     * @param retries the number of failed attempts to take a sequence number
+     */
+    public void finish(Genre genre, long codeId, int retries) {
+        if (shouldCommit()) {
+            this.genre = genre.name();
+            this.codeId = codeId;
+            this.retries = retries;
+            commit();
+        }
+    }
+}
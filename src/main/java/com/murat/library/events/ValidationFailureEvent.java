@@ -0,0 +1,48 @@
+package com.murat.library.events;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for a field value rejected by
+ * {@link com.murat.library.utils.BookUtils} or {@link com.murat.library.utils.AuthorUtils}.
+ * The event is instant, so it has no threshold; the stack trace shows where
+ * the value came from.
+ */
+@Name("com.murat.library.ValidationFailure")
+@Label("Validation Failure")
+@Category({"Library Manager", "Validation"})
+@Description("A field value rejected by validation")
+public final class ValidationFailureEvent extends Event {
+
+    @Label("Field")
+    String field;
+
+    @Label("Value")
+    String value;
+
+    @Label("Message")
+    String message;
+
+    private ValidationFailureEvent() {
+    }
+
+    /**
+     * Records a rejected value if the event is enabled.
+     *
+     * @param field   the name of the field
+     * @param value   the rejected value, or null
+     * @param message the error message
+     */
+    public static void emit(String field, Object value, String message) {
+        ValidationFailureEvent event = new ValidationFailureEvent();
+        if (event.shouldCommit()) {
+            event.field = field;
+            event.value = String.valueOf(value);
+            event.message = message;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.murat.library.generator;
+import com.murat.library.Book;
+import com.murat.library.BookRecord;
+import com.murat.library.LibraryManager;
+import com.murat.library.genres.Genre;
+import com.murat.library.render.BookRenderer;
+import com.murat.library.render.RenderFormat;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+/**
+ * Generates large, realistic catalogs for load and scale testing.
+ * <p>
+ * Books are spread over all seven genres. Authors and, within each genre,
+ * categories follow Zipf distributions, so a few authors and categories hold
+ * most of the books while the rest form a long tail, as in a real library.
+ * Page counts follow a log-normal distribution around 300 pages. About a
+ * quarter of the books are on loan, a few of them overdue, and every genre
+ * field gets a plausible value, e.g. eras and regions for historical books
+ * and lifespans, some still running, for biographies.
+ * <p>
+ * The same seed, number of authors and day always give the same books in
+ * the same order; only the library codes differ, as they are generated from
+ * the clock. Books are produced one at a time and handed on at once, so a
+ * catalog of any size can be streamed into a {@link LibraryManager} or a file
+ * without ever being held in memory as a whole. A generator is not
+ * thread-safe.
+ */
+public final class CatalogGenerator {
+
+    /** Number of distinct authors when none is given. */
+    public static final int DEFAULT_AUTHORS = 100_000;
+
+    /** Zipf exponent of the authors' popularity. */
+    private static final double AUTHOR_EXPONENT = 0.75;
+    /** Zipf exponent of the categories within a genre. */
+    private static final double CATEGORY_EXPONENT = 1.1;
+    /** Share of the books that are on loan. */
+    private static final double LOAN_SHARE = 0.25;
+
+    /** Genres by {@link Genre#ordinal()}, with their shares of the catalog in percent. */
+    private static final Genre[] GENRES = Genre.values();
+    private static final int[] GENRE_PERCENT = new int[GENRES.length];
+
+    static {
+        GENRE_PERCENT[Genre.BIOGRAPHY.ordinal()] = 10;
+        GENRE_PERCENT[Genre.DETECTIVE.ordinal()] = 18;
+        GENRE_PERCENT[Genre.FANTASY.ordinal()] = 16;
+        GENRE_PERCENT[Genre.HISTORICAL.ordinal()] = 12;
+        GENRE_PERCENT[Genre.HORROR.ordinal()] = 10;
+        GENRE_PERCENT[Genre.SCIENCE_FICTION.ordinal()] = 14;
+        GENRE_PERCENT[Genre.ROMANCE.ordinal()] = 20;
+    }
+
+    /** Categories of each genre by {@link Genre#ordinal()}, most popular first. */
+    private static final String[][] CATEGORIES = new String[GENRES.length][];
+
+    static {
+        CATEGORIES[Genre.BIOGRAPHY.ordinal()] = new String[]{
+                "Biography", "Memoir", "Autobiography", "Political Biography", "Sports", "Music", "Science"};
+        CATEGORIES[Genre.DETECTIVE.ordinal()] = new String[]{
+                "Mystery", "Crime", "Thriller", "Police Procedural", "Legal Thriller", "Cozy Mystery"};
+        CATEGORIES[Genre.FANTASY.ordinal()] = new String[]{
+                "Fantasy", "Young Adult", "Fiction", "Fairy Tales", "Mythology", "Graphic Novels"};
+        CATEGORIES[Genre.HISTORICAL.ordinal()] = new String[]{
+                "History", "Military History", "Historical Fiction", "Ancient History", "Politics", "Economics"};
+        CATEGORIES[Genre.HORROR.ordinal()] = new String[]{
+                "Horror", "Fiction", "Supernatural", "Short Stories", "Classics"};
+        CATEGORIES[Genre.SCIENCE_FICTION.ordinal()] = new String[]{
+                "Science Fiction", "Fiction", "Dystopian", "Popular Science", "Young Adult", "Classics"};
+        CATEGORIES[Genre.ROMANCE.ordinal()] = new String[]{
+                "Romance", "Fiction", "Contemporary", "Historical Romance", "Young Adult", "Women's Fiction"};
+    }
+
+    /** Sub-genres of the genres that have one, by {@link Genre#ordinal()}. */
+    private static final String[][] SUB_GENRES = new String[GENRES.length][];
+
+    static {
+        SUB_GENRES[Genre.DETECTIVE.ordinal()] = new String[]{
+                "Noir", "Whodunit", "Hardboiled", "Cozy", "Locked Room", "Procedural"};
+        SUB_GENRES[Genre.FANTASY.ordinal()] = new String[]{
+                "High Fantasy", "Urban Fantasy", "Sword and Sorcery", "Dark Fantasy", "Fairy Tale"};
+        SUB_GENRES[Genre.HORROR.ordinal()] = new String[]{
+                "Gothic", "Psychological", "Cosmic", "Slasher", "Ghost Story", "Folk Horror"};
+        SUB_GENRES[Genre.SCIENCE_FICTION.ordinal()] = new String[]{
+                "Space Opera", "Cyberpunk", "Hard Science", "Time Travel", "Post-Apocalyptic", "Military"};
+        SUB_GENRES[Genre.ROMANCE.ordinal()] = new String[]{
+                "Regency", "Contemporary", "Paranormal", "Romantic Comedy", "Romantic Suspense"};
+    }
+
+    private static final String[] REGIONS = {
+            "Europe", "Mediterranean", "Middle East", "East Asia", "South Asia", "Africa",
+            "North America", "South America", "Central Asia", "Oceania", "Global"};
+
+    private static final String[] FIRST_NAMES = {
+            "James", "Mary", "John", "Patricia", "Robert", "Jennifer", "Michael", "Linda",
+            "William", "Elizabeth", "David", "Barbara", "Richard", "Susan", "Joseph", "Jessica",
+            "Thomas", "Sarah", "Charles", "Karen", "Daniel", "Nancy", "Matthew", "Lisa",
+            "Anthony", "Margaret", "Mark", "Sandra", "Paul", "Ashley", "Steven", "Emily",
+            "Andrew", "Donna", "Kenneth", "Michelle", "George", "Carol", "Edward", "Amanda",
+            "Ahmet", "Ayse", "Mehmet", "Elif", "Hiroshi", "Yuki", "Wei", "Mei",
+            "Olga", "Ivan", "Sofia", "Lucas", "Amara", "Kwame", "Priya", "Arjun",
+            "Isabel", "Diego", "Ingrid", "Lars", "Fatima", "Omar", "Chloe", "Pierre"};
+
+    private static final String[] SURNAMES = {
+            "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis",
+            "Rodriguez", "Martinez", "Hernandez", "Lopez", "Wilson", "Anderson", "Taylor", "Moore",
+            "Jackson", "Martin", "Lee", "Thompson", "White", "Harris", "Clark", "Lewis",
+            "Walker", "Hall", "Young", "King", "Wright", "Hill", "Green", "Adams",
+            "Baker", "Nelson", "Carter", "Mitchell", "Roberts", "Turner", "Phillips", "Campbell",
+            "Yilmaz", "Kaya", "Demir", "Sahin", "Tanaka", "Suzuki", "Wang", "Chen",
+            "Ivanova", "Petrov", "Rossi", "Bianchi", "Mensah", "Okafor", "Sharma", "Patel",
+            "Silva", "Santos", "Larsen", "Berg", "Haddad", "Nasser", "Dubois", "Moreau"};
+
+    /** Syllables for the surnames beyond {@link #SURNAMES}. */
+    private static final String[] SYLLABLES = {
+            "ka", "lo", "mi", "ner", "sa", "tu", "vel", "ro", "an", "del",
+            "fi", "gar", "hal", "is", "jo", "ben", "cor", "da", "el", "wyn"};
+
+    private static final String[] ADJECTIVES = {
+            "Silent", "Crimson", "Hidden", "Last", "Broken", "Golden", "Forgotten", "Burning",
+            "Distant", "Midnight", "Secret", "Winter", "Lost", "Iron", "Glass", "Wild"};
+
+    private static final String[] NOUNS = {
+            "Harbor", "Kingdom", "Garden", "Letter", "River", "Crown", "Shadow", "Empire",
+            "Promise", "Storm", "Tower", "Voyage", "Orchard", "Mirror", "Island", "Witness"};
+
+    private static final String[] PLACES = {
+            "Avalon", "Istanbul", "the North", "Venice", "Samarkand", "the Sea", "Kyoto",
+            "the Desert", "Prague", "the Stars", "Alexandria", "the Valley"};
+
+    private final SplittableRandom random;
+    private final LocalDate today;
+    private final ZipfSampler authors;
+    private final ZipfSampler[] categories = new ZipfSampler[GENRES.length];
+
+    /**
+     * Creates a generator with {@value #DEFAULT_AUTHORS} authors and loans
+     * dated around the current day.
+     *
+     * @param seed the random seed
+     */
+    public CatalogGenerator(long seed) {
+        this(seed, DEFAULT_AUTHORS, LocalDate.now());
+    }
+
+    /**
+     * Creates a generator.
+     *
+     * @param seed        the random seed
+     * @param authorCount the number of distinct authors to draw from
+     * @param today       the day the loan dates are relative to; borrowed dates lie
+     *                    before it and some return dates have passed by then
+     * @throws IllegalArgumentException if the number of authors is not positive
+     */
+    public CatalogGenerator(long seed, int authorCount, LocalDate today) {
+        this.random = new SplittableRandom(seed);
+        this.today = today;
+        this.authors = new ZipfSampler(authorCount, AUTHOR_EXPONENT);
+        for (Genre genre : GENRES) {
+            categories[genre.ordinal()] = new ZipfSampler(CATEGORIES[genre.ordinal()].length, CATEGORY_EXPONENT);
+        }
+    }
+
+    /**
+     * Returns the name of the author of a popularity rank. Names are distinct
+     * for every rank and contain no digits.
+     *
+     * @param rank the rank, 1 for the author with the most books
+     * @return the author's name
+     */
+    public static String authorName(int rank) {
+        int index = rank - 1;
+        int first = index % FIRST_NAMES.length;
+        int row = index / FIRST_NAMES.length;
+        StringBuilder name = new StringBuilder(24).append(FIRST_NAMES[first]).append(' ');
+        if (row < SURNAMES.length) {
+            // Shift each row of first names by one surname, so the most popular authors share no surname.
+            return name.append(SURNAMES[(row + first) % SURNAMES.length]).toString();
+        }
+        // Beyond the common surnames, build one from syllables, one per base-20 digit of the row.
+        int start = name.length();
+        int rest = row - SURNAMES.length;
+        do {
+            name.append(SYLLABLES[rest % SYLLABLES.length]);
+            rest /= SYLLABLES.length;
+        } while (rest > 0 || name.length() - start < 4);
+        name.setCharAt(start, Character.toUpperCase(name.charAt(start)));
+        return name.toString();
+    }
+
+    /**
+     * Generates the record of the next book, without a library code.
+     *
+     * @return the record
+     */
+    public BookRecord nextRecord() {
+        Genre genre = nextGenre();
+        String title = nextTitle();
+        String author = authorName(authors.sample(random));
+        String[] genreCategories = CATEGORIES[genre.ordinal()];
+        String category = genreCategories[categories[genre.ordinal()].sample(random) - 1];
+        int pageCount = nextPageCount();
+
+        LocalDate borrowedDate = null;
+        LocalDate returnDate = null;
+        if (random.nextDouble() < LOAN_SHARE) {
+            // Three-week loans borrowed in the last 24 days, so a few are overdue.
+            borrowedDate = today.minusDays(random.nextInt(24));
+            returnDate = borrowedDate.plusWeeks(3);
+        }
+
+        String text1 = null;
+        String text2 = null;
+        int number1 = 0;
+        int number2 = 0;
+        switch (genre) {
+            case BIOGRAPHY -> {
+                text1 = authorName(1 + random.nextInt(FIRST_NAMES.length * SURNAMES.length));
+                number1 = today.getYear() - 20 - (int) Math.min(600, Math.abs(random.nextGaussian() * 150));
+                int lifespan = (int) Math.round(72 + random.nextGaussian() * 12);
+                int death = number1 + Math.max(20, Math.min(105, lifespan));
+                number2 = death > today.getYear() ? -1 : death;
+            }
+            case HISTORICAL -> {
+                int year = (int) Math.round(1500 - Math.abs(random.nextGaussian() * 1200)) + random.nextInt(500);
+                text1 = year > 0 ? Integer.toString(year) : (1 - year) + " BCE";
+                text2 = REGIONS[random.nextInt(REGIONS.length)];
+            }
+            default -> {
+                String[] subGenres = SUB_GENRES[genre.ordinal()];
+                text1 = subGenres[random.nextInt(subGenres.length)];
+                number1 = nextLevel();
+            }
+        }
+        return new BookRecord(0, genre, title, author, pageCount, category, borrowedDate, returnDate,
+                text1, text2, number1, number2);
+    }
+
+    /**
+     * Generates the next book.
+     *
+     * @return a new, detached book with a newly generated library code
+     */
+    public Book next() {
+        return nextRecord().toBook();
+    }
+
+    /**
+     * Generates books and hands each one to a consumer as soon as it is built.
+     *
+     * @param count the number of books
+     * @param sink  receives the books
+     * @throws IllegalArgumentException if the count is negative
+     */
+    public void generate(long count, Consumer<? super Book> sink) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count cannot be negative");
+        }
+        for (long i = 0; i < count; i++) {
+            sink.accept(next());
+        }
+    }
+
+    /**
+     * Generates books straight into a manager's catalog.
+     *
+     * @param manager the manager to add the books to
+     * @param count   the number of books
+     * @throws IllegalArgumentException if the count is negative
+     */
+    public void addTo(LibraryManager manager, long count) {
+        generate(count, manager::addBook);
+    }
+
+    /**
+     * Generates books into a stream as JSON Lines, which the JSON importer
+     * reads back with their library codes. Only one book is in memory at a
+     * time.
+     *
+     * @param out   the stream to write to; flushed but not closed
+     * @param count the number of books
+     * @throws IOException              if the stream cannot be written
+     * @throws IllegalArgumentException if the count is negative
+     */
+    public void writeTo(OutputStream out, long count) throws IOException {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count cannot be negative");
+        }
+        BookRenderer renderer = new BookRenderer(RenderFormat.JSON_LINES, out);
+        for (long i = 0; i < count; i++) {
+            renderer.render(next());
+        }
+        renderer.flush();
+    }
+
+    private Genre nextGenre() {
+        int roll = random.nextInt(100);
+        for (int i = 0; i < GENRE_PERCENT.length; i++) {
+            roll -= GENRE_PERCENT[i];
+            if (roll < 0) {
+                return GENRES[i];
+            }
+        }
+        return GENRES[GENRES.length - 1];
+    }
+
+    private String nextTitle() {
+        String adjective = ADJECTIVES[random.nextInt(ADJECTIVES.length)];
+        String noun = NOUNS[random.nextInt(NOUNS.length)];
+        return switch (random.nextInt(4)) {
+            case 0 -> "The " + adjective + " " + noun;
+            case 1 -> noun + " of " + PLACES[random.nextInt(PLACES.length)];
+            case 2 -> "The " + noun + " of the " + adjective + " " + NOUNS[random.nextInt(NOUNS.length)];
+            default -> adjective + " " + noun + ", Volume " + (1 + random.nextInt(12));
+        };
+    }
+
+    /** A log-normal page count with a median of 300, clamped to 24 to 2000 pages. */
+    private int nextPageCount() {
+        double pages = 300 * Math.exp(random.nextGaussian() * 0.45);
+        return (int) Math.max(24, Math.min(2000, Math.round(pages)));
+    }
+
+    /** A level from 1 to 10, most often in the middle. */
+    private int nextLevel() {
+        return 1 + (random.nextInt(10) + random.nextInt(10)) / 2;
+    }
+}
@@ -0,0 +1,92 @@
+package com.murat.library.generator;
+import java.util.random.RandomGenerator;
+
+/**
+ * Draws ranks from 1 to {@code n} with probability proportional to
+ * {@code 1 / rank^exponent}.
+ * <p>
+ * Uses rejection-inversion sampling (Hörmann and Derflinger, 1996): a draw
+ * takes constant expected time and there is no table of probabilities, so
+ * millions of ranks cost no memory. Immutable; the randomness comes from the
+ * caller.
+ */
+final class ZipfSampler {
+
+    private final int n;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double s;
+
+    /**
+     * Creates a sampler.
+     *
+     * @param n        the number of ranks
+     * @param exponent the exponent, greater than 0
+     * @throws IllegalArgumentException if {@code n} or the exponent is not positive
+     */
+    ZipfSampler(int n, double exponent) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Number of ranks must be positive");
+        }
+        if (!(exponent > 0)) {
+            throw new IllegalArgumentException("Exponent must be positive");
+        }
+        this.n = n;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1;
+        this.hIntegralN = hIntegral(n + 0.5);
+        this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    /**
+     * Draws a rank.
+     *
+     * @param random the source of randomness
+     * @return a rank from 1 to {@code n}; 1 is the most likely
+     */
+    int sample(RandomGenerator random) {
+        while (true) {
+            double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+            double x = hIntegralInverse(u);
+            int k = (int) (x + 0.5);
+            if (k < 1) {
+                k = 1;
+            } else if (k > n) {
+                k = n;
+            }
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k;
+            }
+        }
+    }
+
+    /** The integral of {@link #h} from 1 to {@code x}, shifted so it is defined for every exponent. */
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return helper2((1 - exponent) * logX) * logX;
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = x * (1 - exponent);
+        if (t < -1) {
+            // Rounding can push t just below -1, where log1p is undefined.
+            t = -1;
+        }
+        return Math.exp(helper1(t) * x);
+    }
+
+    /** {@code log(1 + x) / x}, accurate near 0. */
+    private static double helper1(double x) {
+        return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+    }
+
+    /** {@code (exp(x) - 1) / x}, accurate near 0. */
+    private static double helper2(double x) {
+        return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x * (1.0 / 3) * (1 + 0.25 * x));
+    }
+}
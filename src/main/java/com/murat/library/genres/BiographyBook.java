@@ -1,12 +1,12 @@
 package com.murat.library.genres;
 import com.murat.library.Book;
+import com.murat.library.BookRecord;
+import com.murat.library.BookRecord.Slot;
 import com.murat.library.utils.AuthorUtils;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Random;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.List;
 import com.murat.library.utils.BookUtils;
+import com.murat.library.utils.LibraryCodeGenerator;
 
 /**
  * Represents a biography or memoir in the library system.
@@ -17,34 +17,14 @@ import com.murat.library.utils.BookUtils;
  *   <li>{@code birthYear} – the subject’s year of birth (validated via {@link AuthorUtils})</li>
  *   <li>{@code deathYear} – the subject’s year of death (validated via {@link AuthorUtils})</li>
  * </ul>
- * Also generates a unique {@code libraryCode} per instance using a timestamp, random number, and counter.
+ * Also receives a unique {@code libraryCode} per instance from {@link LibraryCodeGenerator}.
  */
 public class BiographyBook extends Book {
-
-    /** Counter to ensure uniqueness in generated library codes. */
-    private final static AtomicInteger counter = new AtomicInteger();
-
-    /** Random component for library code generation. */
-    private final static Random random = new Random();
-
-    /**
-     * Generates a unique library code for biographies.
-     * <p>
-     * Format: BK-ByyyyMMddHHmmssSSS-<random>-<counter>
-     *
-     * @return a unique code string
-     */
-
-    private static String generateCode() {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter
-                .ofPattern("yyyyMMddHHmmssSSS"));
-
-        int randomPart = random.nextInt(1000);
-
-        int count = counter.getAndIncrement();
-
-        return "BK-B" + timestamp + "-" + String.format("%03d", randomPart) + "-" + count;
-    }
+    /** Stable encoding tags of the fields this class adds to {@link Book}. */
+    public static final List<DetailField> DETAIL_FIELDS = List.of(
+            new DetailField(1, "subjectName", Slot.TEXT1),
+            new DetailField(2, "birthYear", Slot.NUMBER1),
+            new DetailField(3, "deathYear", Slot.NUMBER2));
 
     /** The name of the biography’s subject (no digits, not blank). */
     private String subjectName;
@@ -55,9 +35,6 @@ public class BiographyBook extends Book {
     /** The death year of the subject (birthYear ≤ year ≤ current year). */
     private int deathYear;
 
-    /** System-generated unique library code for this book. */
-    private final String libraryCode;
-
     /**
      * Constructs a new {@code BiographyBook}.
      *
@@ -79,9 +56,30 @@ public class BiographyBook extends Book {
         this.subjectName = BookUtils.validateNameText(subjectName, "Subject Name");
         this.birthYear = AuthorUtils.validateBirthYear(birthYear);
         this.deathYear = AuthorUtils.validateDeathYear(birthYear, deathYear);
+        super.setCodeId(LibraryCodeGenerator.nextId(Genre.BIOGRAPHY));
+    }
+
+    /**
+     * Restores a book from stored state, without validation and keeping the
+     * stored library code. See {@link Genre#restore(BookRecord)}.
+     *
+     * @param record the stored state of a book of this genre
+     */
+    BiographyBook(BookRecord record) {
+        super(record);
+        restoreDetails(record);
+    }
 
-        this.libraryCode = generateCode();
-        super.setLibraryCode(libraryCode);
+    /**
+     * Sets the biography fields from stored state, without validation.
+     *
+     * @param record the stored state of a book of this genre
+     */
+    @Override
+    protected void restoreDetails(BookRecord record) {
+        this.subjectName = record.text1();
+        this.birthYear = record.number1();
+        this.deathYear = record.number2();
     }
 
     /**
@@ -91,7 +89,8 @@ public class BiographyBook extends Book {
      * @throws IllegalArgumentException if validation fails
      */
     public void setSubjectName(String subjectName) {
-        this.subjectName = BookUtils.validateNameText(subjectName, "Subject Name");
+        String validated = BookUtils.validateNameText(subjectName, "Subject Name");
+        changeDetails(() -> this.subjectName = validated);
     }
 
     /** @return the biography subject’s name */
@@ -106,7 +105,8 @@ public class BiographyBook extends Book {
      * @throws IllegalArgumentException if validation fails
      */
     public void setBirthYear(int birthYear) {
-        this.birthYear = AuthorUtils.validateBirthYear(birthYear);
+        int validated = AuthorUtils.validateBirthYear(birthYear);
+        changeDetails(() -> this.birthYear = validated);
     }
 
     /** @return the subject’s birth year */
@@ -114,7 +114,6 @@ public class BiographyBook extends Book {
         return birthYear;
     }
 
-
     /**
      * Updates the death year of the subject.
      *
@@ -122,7 +121,8 @@ public class BiographyBook extends Book {
      * @throws IllegalArgumentException if validation fails
      */
     public void setDeathYear(int deathYear) {
-        this.deathYear = AuthorUtils.validateDeathYear(birthYear, deathYear);
+        int validated = AuthorUtils.validateDeathYear(birthYear, deathYear);
+        changeDetails(() -> this.deathYear = validated);
     }
 
     /** @return the subject’s death year */
@@ -131,36 +131,23 @@ public class BiographyBook extends Book {
     }
 
     /**
-     * Retrieves the system-generated library code for this biography.
+     * Appends both base and biography-specific book information.
      *
-     * @return unique library code string
+     * @param out the builder to append to
      */
     @Override
-    public String getLibraryCode() {
-        return libraryCode;
-    }
-
-    /**
-     * Returns a detailed string with both base and biography-specific book information.
-     *
-     * @return formatted book details
-     */
-    @Override
-    public String toString() {
-        String deathYearStr;
+    public void appendTo(StringBuilder out) {
+        super.appendTo(out);
+        out.append(" | Subject Name: ").append(subjectName)
+                .append(" | Subject Birth Year: ").append(birthYear)
+                .append(" | Subject Death Year: ");
         if(deathYear == -1){
-            deathYearStr = "Still alive";
+            out.append("Still alive");
         }else if(deathYear == 0){
-            deathYearStr = "No information available";
+            out.append("No information available");
         }else{
-            deathYearStr = String.valueOf(deathYear);
+            out.append(deathYear);
         }
-        return super.toString() +
-                " | Subject Name: " + subjectName +
-                " | Subject Birth Year: " + birthYear +
-                " | Subject Death Year: " + deathYearStr;
     }
 }
 
-
-
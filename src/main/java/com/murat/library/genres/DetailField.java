@@ -0,0 +1,16 @@
+package com.murat.library.genres;
+import com.murat.library.BookRecord;
+
+/**
+ * A genre-specific book field together with its stable encoding tag.
+ * <p>
+ * Binary formats write each genre field under its tag instead of its position,
+ * so fields can be added or removed without breaking existing files. Tags are
+ * unique within a genre and must never be renumbered or reused.
+ *
+ * @param tag  the stable tag of the field (1–255)
+ * @param name the field name, for diagnostics
+ * @param slot the {@link BookRecord} slot that carries the field
+ */
+public record DetailField(int tag, String name, BookRecord.Slot slot) {
+}
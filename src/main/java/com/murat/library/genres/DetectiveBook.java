@@ -1,11 +1,11 @@
 package com.murat.library.genres;
 import com.murat.library.Book;
+import com.murat.library.BookRecord;
+import com.murat.library.BookRecord.Slot;
 import com.murat.library.utils.BookUtils;
+import com.murat.library.utils.LibraryCodeGenerator;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Random;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.List;
 /**
  * <p><b>DetectiveBook</b> models fiction that revolves around a mystery, crime,
  * or investigative plot‑line.</p>
@@ -26,40 +26,17 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 
 public class DetectiveBook extends Book {
-    private static final AtomicInteger counter = new AtomicInteger();
-    private static final Random random = new Random();
+    /** Stable encoding tags of the fields this class adds to {@link Book}. */
+    public static final List<DetailField> DETAIL_FIELDS = List.of(
+            new DetailField(1, "subGenre", Slot.TEXT1),
+            new DetailField(2, "mysteryLevel", Slot.NUMBER1));
 
     /** Puzzle complexity on a 1 - 10 scale(10 = extremely intricate). */
     private int mysteryLevel;
 
-
     /** A finer detective category such as “cosy”, “forensic”, “hard‑boiled”. */
     private String subGenre;
 
-    /** Immutable, system‑generated identifier that uniquely distinguishes every book instance. */
-    private final String libraryCode;
-
-    /**
-     * Generates a unique library code for detective books.
-     * Format: BK-DyyyyMMddHHmmssSSS-<random>-<counter>
-     *
-     * Components:
-     * - Prefix "BK-D" identifies the book as a detective genre.
-     * - Timestamp: current date and time down to milliseconds (e.g., 20240503161530123).
-     * - Random Part: 3-digit random number (000–999) to reduce risk of collision.
-     * - Counter: sequential number that increments with each code generation.
-     *
-     * Example output: BK-D20240503161530123-027-42
-     */
-    private static String generateCode(){
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS"));
-
-        int randomPart = random.nextInt(1000);
-        int count = counter.getAndIncrement();
-        return "BK-D" + timestamp+"-"+String.format("%03d",randomPart)+"-"+count;
-    }
-
-
     /**
      * Constructs a {@code DetectiveBook}.
      *
@@ -78,10 +55,30 @@ public class DetectiveBook extends Book {
         super(title,author,pageCount,category,borrowedDate,returnDate);
         this.mysteryLevel = BookUtils.validateLevel1to10(mysteryLevel);
         this.subGenre = BookUtils.validateNameText(subGenre,"Sub-genre");
-        this.libraryCode = generateCode();
-        super.setLibraryCode(libraryCode);
+        super.setCodeId(LibraryCodeGenerator.nextId(Genre.DETECTIVE));
     }
 
+    /**
+     * Restores a book from stored state, without validation and keeping the
+     * stored library code. See {@link Genre#restore(BookRecord)}.
+     *
+     * @param record the stored state of a book of this genre
+     */
+    DetectiveBook(BookRecord record) {
+        super(record);
+        restoreDetails(record);
+    }
+
+    /**
+     * Sets the detective fields from stored state, without validation.
+     *
+     * @param record the stored state of a book of this genre
+     */
+    @Override
+    protected void restoreDetails(BookRecord record) {
+        this.mysteryLevel = record.number1();
+        this.subGenre = record.text1();
+    }
 
     /**
      * Updates the mystery complexity level.
@@ -90,10 +87,10 @@ public class DetectiveBook extends Book {
      * @throws IllegalArgumentException if out of range
      */
     public void setMysteryLevel(int mysteryLevel){
-        this.mysteryLevel = BookUtils.validateLevel1to10(mysteryLevel);
+        int validated = BookUtils.validateLevel1to10(mysteryLevel);
+        changeDetails(() -> this.mysteryLevel = validated);
     }
 
-
     /** @return puzzle complexity (1‑10) */
     public int getMysteryLevel(){
         return mysteryLevel;
@@ -106,25 +103,20 @@ public class DetectiveBook extends Book {
      * @throws IllegalArgumentException if validation fails
      */
     public void setSubGenre(String subGenre){
-        this.subGenre = BookUtils.validateNameText(subGenre,"Sub-genre");
+        String validated = BookUtils.validateNameText(subGenre,"Sub-genre");
+        changeDetails(() -> this.subGenre = validated);
     }
 
-
     /** @return detective sub‑genre label */
     public String getSubGenre(){
         return subGenre;
     }
 
+    /** Adds detective‑specific details to the base {@link Book#appendTo(StringBuilder)}. */
     @Override
-    public String getLibraryCode() {
-        return libraryCode;
-    }
-
-    /** Adds detective‑specific details to the base {@link Book#toString()}. */
-    @Override
-    public String toString(){
-       return super.toString() +
-       " | Sub-genre: " + subGenre +
-       " | Mystery level: " + mysteryLevel;
+    public void appendTo(StringBuilder out){
+       super.appendTo(out);
+       out.append(" | Sub-genre: ").append(subGenre)
+               .append(" | Mystery level: ").append(mysteryLevel);
     }
 }
@@ -1,11 +1,11 @@
 package com.murat.library.genres;
 import com.murat.library.Book;
+import com.murat.library.BookRecord;
+import com.murat.library.BookRecord.Slot;
 import com.murat.library.utils.BookUtils;
+import com.murat.library.utils.LibraryCodeGenerator;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Random;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.List;
 
 /**
  * Represents a fantasy genre book in the library system.
@@ -15,12 +15,14 @@ import java.util.concurrent.atomic.AtomicInteger;
  *     <li>{@code subGenre} – specific type of fantasy, such as "epic", "dark", or "urban fantasy".</li>
  *     <li>{@code fantasyLevel} – an integer from <b>1 to 10</b> that represents how magical or fantastical the story is.</li>
  * </ul>
- * A unique {@code libraryCode} is generated for each instance using timestamp + random + counter.
+ * A unique {@code libraryCode} is assigned to each instance by {@link LibraryCodeGenerator}.
  */
 
 public class FantasyBook extends Book{
-    private static final AtomicInteger counter = new AtomicInteger();
-    private static final Random random = new Random();
+    /** Stable encoding tags of the fields this class adds to {@link Book}. */
+    public static final List<DetailField> DETAIL_FIELDS = List.of(
+            new DetailField(1, "subGenre", Slot.TEXT1),
+            new DetailField(2, "fantasyLevel", Slot.NUMBER1));
 
     /** Refined fantasy category, e.g. "epic", "urban", "dark". */
     private String subGenre;
@@ -28,26 +30,6 @@ public class FantasyBook extends Book{
     /** Indicates magical intensity or fantasy depth (1–10). */
     private int fantasyLevel;
 
-    /** Unique code for this book, automatically generated. */
-    private final String libraryCode;
-
-    /**
-     * Generates a unique library code using the current timestamp, a random number, and a sequential counter.
-     * Format: BK-FyyyyMMddHHmmssSSS-<random>-<counter>
-     *
-     * @return a unique string for identifying this fantasy book
-     */
-    private static String generateCode(){
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter
-                .ofPattern("yyyyMMddHHmmssSSS"));
-
-        int randomPart = random.nextInt(1000);
-
-        int count = counter.getAndIncrement();
-
-        return "Bk-F" + timestamp +"-" + String.format("%03d",randomPart) +"-" +count;
-    }
-
     /**
      * Constructs a new {@code FantasyBook} with all required fields and fantasy-specific properties.
      *
@@ -66,8 +48,29 @@ public class FantasyBook extends Book{
         super(title,author,pageCount,category,borrowedDate,returnDate);
         this.subGenre = BookUtils.validateNameText(subGenre,"Sub-genre");
         this.fantasyLevel = BookUtils.validateLevel1to10(fantasyLevel);
-        this.libraryCode = generateCode();
-        super.setLibraryCode(libraryCode);
+        super.setCodeId(LibraryCodeGenerator.nextId(Genre.FANTASY));
+    }
+
+    /**
+     * Restores a book from stored state, without validation and keeping the
+     * stored library code. See {@link Genre#restore(BookRecord)}.
+     *
+     * @param record the stored state of a book of this genre
+     */
+    FantasyBook(BookRecord record) {
+        super(record);
+        restoreDetails(record);
+    }
+
+    /**
+     * Sets the fantasy fields from stored state, without validation.
+     *
+     * @param record the stored state of a book of this genre
+     */
+    @Override
+    protected void restoreDetails(BookRecord record) {
+        this.subGenre = record.text1();
+        this.fantasyLevel = record.number1();
     }
 
     /**
@@ -76,7 +79,8 @@ public class FantasyBook extends Book{
      * @param subGenre new sub-genre label (validated)
      */
     public void setSubGenre(String subGenre){
-        this.subGenre = BookUtils.validateNameText(subGenre,"Sub-genre");
+        String validated = BookUtils.validateNameText(subGenre,"Sub-genre");
+        changeDetails(() -> this.subGenre = validated);
     }
     /** @return the fantasy sub-genre */
     public String getSubGenre(){
@@ -90,7 +94,8 @@ public class FantasyBook extends Book{
      * @throws IllegalArgumentException if value is out of bounds
      */
     public void setFantasyLevel(int fantasyLevel){
-        this.fantasyLevel = BookUtils.validateLevel1to10(fantasyLevel);
+        int validated = BookUtils.validateLevel1to10(fantasyLevel);
+        changeDetails(() -> this.fantasyLevel = validated);
     }
 
     /** @return the fantasy level value */
@@ -98,20 +103,15 @@ public class FantasyBook extends Book{
         return fantasyLevel;
     }
 
-    @Override
-    public String getLibraryCode() {
-        return libraryCode;
-    }
-
     /**
-     * Returns a string including both base and fantasy-specific book details.
+     * Appends both base and fantasy-specific book details.
      *
-     * @return formatted string with full book information
+     * @param out the builder to append to
      */
     @Override
-    public String toString(){
-        return   super.toString() +
-                " | Sub-genre: " + subGenre +
-                " | Fantasy Level: " + fantasyLevel;
+    public void appendTo(StringBuilder out){
+        super.appendTo(out);
+        out.append(" | Sub-genre: ").append(subGenre)
+                .append(" | Fantasy Level: ").append(fantasyLevel);
     }
 }
@@ -0,0 +1,113 @@
+package com.murat.library.genres;
+import com.murat.library.Book;
+import com.murat.library.BookRecord;
+import java.util.List;
+
+/**
+ * The book genres supported by the library.
+ * <p>
+ * Each genre has a stable numeric tag, packed into generated library codes,
+ * and the letter prefix shown in the rendered {@code BK-...} code.
+ */
+public enum Genre {
+    BIOGRAPHY(1, "B"),
+    DETECTIVE(2, "D"),
+    FANTASY(3, "F"),
+    HISTORICAL(4, "HI"),
+    HORROR(5, "H"),
+    SCIENCE_FICTION(6, "S"),
+    ROMANCE(7, "R");
+
+    private static final Genre[] BY_TAG = new Genre[8];
+
+    static {
+        for (Genre genre : values()) {
+            BY_TAG[genre.tag] = genre;
+        }
+    }
+
+    /** Stable numeric identifier (1–7); never reuse or renumber. */
+    private final int tag;
+
+    /** Letter prefix used in rendered library codes. */
+    private final String codePrefix;
+
+    Genre(int tag, String codePrefix) {
+        this.tag = tag;
+        this.codePrefix = codePrefix;
+    }
+
+    /** @return the stable numeric tag of this genre (1–7) */
+    public int getTag() {
+        return tag;
+    }
+
+    /** @return the letter prefix used in rendered library codes */
+    public String getCodePrefix() {
+        return codePrefix;
+    }
+
+    /**
+     * Returns the genre-specific fields of the book class of this genre, with their stable tags.
+     *
+     * @return the detail fields, in declaration order
+     */
+    public List<DetailField> getDetailFields() {
+        return switch (this) {
+            case BIOGRAPHY -> BiographyBook.DETAIL_FIELDS;
+            case DETECTIVE -> DetectiveBook.DETAIL_FIELDS;
+            case FANTASY -> FantasyBook.DETAIL_FIELDS;
+            case HISTORICAL -> HistoricalBook.DETAIL_FIELDS;
+            case HORROR -> HorrorBook.DETAIL_FIELDS;
+            case SCIENCE_FICTION -> ScienceFictionBook.DETAIL_FIELDS;
+            case ROMANCE -> RomanceBook.DETAIL_FIELDS;
+        };
+    }
+
+    /**
+     * Rebuilds a book of this genre from state that was valid when it was
+     * stored, as storage engines do when they materialize a row. Nothing is
+     * validated and no code is generated unless the record has none, so no
+     * messages are printed and no code sequence numbers are used up.
+     * Use {@link BookRecord#toBook()} for state from outside the catalog.
+     *
+     * @param record the stored state; its genre must be this genre
+     * @return a new, detached book
+     */
+    public Book restore(BookRecord record) {
+        return switch (this) {
+            case BIOGRAPHY -> new BiographyBook(record);
+            case DETECTIVE -> new DetectiveBook(record);
+            case FANTASY -> new FantasyBook(record);
+            case HISTORICAL -> new HistoricalBook(record);
+            case HORROR -> new HorrorBook(record);
+            case SCIENCE_FICTION -> new ScienceFictionBook(record);
+            case ROMANCE -> new RomanceBook(record);
+        };
+    }
+
+    /**
+     * Looks up a genre by its numeric tag.
+     *
+     * @param tag the tag to look up
+     * @return the genre, or null if no genre has this tag
+     */
+    public static Genre fromTag(int tag) {
+        return tag > 0 && tag < BY_TAG.length ? BY_TAG[tag] : null;
+    }
+
+    /**
+     * Looks up a genre by its library code prefix (case-insensitive).
+     *
+     * @param prefix the prefix to look up, e.g. "HI"
+     * @return the genre, or null if no genre uses this prefix
+     */
+    public static Genre fromCodePrefix(String prefix) {
+        for (Genre genre : values()) {
+            if (genre.codePrefix.equalsIgnoreCase(prefix)) {
+                return genre;
+            }
+        }
+        return null;
+    }
+}
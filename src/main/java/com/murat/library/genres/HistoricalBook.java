@@ -1,11 +1,11 @@
 package com.murat.library.genres;
 import com.murat.library.Book;
+import com.murat.library.BookRecord;
+import com.murat.library.BookRecord.Slot;
 import com.murat.library.utils.BookUtils;
+import com.murat.library.utils.LibraryCodeGenerator;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Random;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.List;
 
 /**
  * Represents a historical book in the library system.
@@ -15,41 +15,19 @@ import java.util.concurrent.atomic.AtomicInteger;
  *   <li>{@code eraStartYear} – the starting year of the historical period depicted</li>
  *   <li>{@code region} – the geographic area or empire relevant to the story</li>
  * </ul>
- * Each instance is assigned a unique {@code libraryCode} generated via timestamp + random + counter.
+ * Each instance is assigned a unique {@code libraryCode} by {@link LibraryCodeGenerator}.
  */
 public class HistoricalBook extends Book{
+    /** Stable encoding tags of the fields this class adds to {@link Book}. */
+    public static final List<DetailField> DETAIL_FIELDS = List.of(
+            new DetailField(1, "eraStartYear", Slot.TEXT1),
+            new DetailField(2, "region", Slot.TEXT2));
+
     private String eraStartYear;
 
     /** Geographic region for the historical narrative (e.g. "Empire"). */
     private String region;
 
-    /** System-generated unique identifier for this book. */
-    private final  String libraryCode;
-
-    /** Counter used to ensure uniqueness in code generation. */
-    private static final AtomicInteger counter = new AtomicInteger();
-
-    /** Random component to further reduce collision risk. */
-    private static final Random random = new Random();
-
-    /**
-     * Generates a unique library code for a historical book.
-     * <p>
-     * Format: BK-HIyyyyMMddHHmmssSSS-<random>-<counter>
-     *
-     * @return a unique string identifier
-     */
-    private static String generateCode(){
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter
-                .ofPattern("yyyyMMddHHmmssSSS"));
-
-        int randomPart = random.nextInt(1000);
-
-        int count = counter.getAndIncrement();
-
-        return "Bk-HI" + timestamp +"-" + String.format("%03d",randomPart) +"-" +count;
-    }
-
     /**
      * Constructs a new {@code HistoricalBook} with specified metadata and era details.
      *
@@ -68,8 +46,29 @@ public class HistoricalBook extends Book{
         super(title,author,pageCount,category,borrowedDate,returnDate);
         this.eraStartYear = BookUtils.validateBasicText(eraStartYear,"Start Year");
         this.region = BookUtils.validateBasicText(region,"Region");
-        this.libraryCode = generateCode();
-        super.setLibraryCode(libraryCode);
+        super.setCodeId(LibraryCodeGenerator.nextId(Genre.HISTORICAL));
+    }
+
+    /**
+     * Restores a book from stored state, without validation and keeping the
+     * stored library code. See {@link Genre#restore(BookRecord)}.
+     *
+     * @param record the stored state of a book of this genre
+     */
+    HistoricalBook(BookRecord record) {
+        super(record);
+        restoreDetails(record);
+    }
+
+    /**
+     * Sets the historical fields from stored state, without validation.
+     *
+     * @param record the stored state of a book of this genre
+     */
+    @Override
+    protected void restoreDetails(BookRecord record) {
+        this.eraStartYear = record.text1();
+        this.region = record.text2();
     }
 
     /**
@@ -79,7 +78,8 @@ public class HistoricalBook extends Book{
      * @throws IllegalArgumentException if input is blank
      */
     public void setEraStartYear(String eraStartYear){
-        this.eraStartYear = BookUtils.validateBasicText(eraStartYear,"Start Year");
+        String validated = BookUtils.validateBasicText(eraStartYear,"Start Year");
+        changeDetails(() -> this.eraStartYear = validated);
     }
 
     /** @return the era start year as provided (non-blank string) */
@@ -94,7 +94,8 @@ public class HistoricalBook extends Book{
      * @throws IllegalArgumentException if input is blank
      */
     public void setRegion(String region){
-        this.region = BookUtils.validateBasicText(region,"Region");
+        String validated = BookUtils.validateBasicText(region,"Region");
+        changeDetails(() -> this.region = validated);
     }
 
     /** @return the geographic region of the historical narrative */
@@ -103,23 +104,14 @@ public class HistoricalBook extends Book{
     }
 
     /**
-     * Returns the system-generated library code.
-     *
-     * @return unique libraryCode string
-     */
-    public String getLibraryCode(){
-        return libraryCode;
-    }
-
-    /**
-     * Returns a formatted string including all book details and historical specifics.
+     * Appends all book details and historical specifics.
      *
-     * @return descriptive book information
+     * @param out the builder to append to
      */
     @Override
-    public String toString(){
-       return super.toString() +
-                " | Start Year: " + eraStartYear +
-                " | Region: " + region;
+    public void appendTo(StringBuilder out){
+       super.appendTo(out);
+       out.append(" | Start Year: ").append(eraStartYear)
+               .append(" | Region: ").append(region);
     }
 }
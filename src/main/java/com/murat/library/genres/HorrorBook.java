@@ -1,11 +1,11 @@
 package com.murat.library.genres;
 import com.murat.library.Book;
+import com.murat.library.BookRecord;
+import com.murat.library.BookRecord.Slot;
 import com.murat.library.utils.BookUtils;
+import com.murat.library.utils.LibraryCodeGenerator;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Random;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.List;
 
 /**
  * A concrete {@link Book} representing works in the horror genre.
@@ -20,35 +20,16 @@ import java.util.concurrent.atomic.AtomicInteger;
  * All extra data is validated through {@link BookUtils}.
  */
 public class HorrorBook extends Book {
-    private static final AtomicInteger counter = new AtomicInteger();
-    private static final Random random = new Random();
+    /** Stable encoding tags of the fields this class adds to {@link Book}. */
+    public static final List<DetailField> DETAIL_FIELDS = List.of(
+            new DetailField(1, "subGenre", Slot.TEXT1),
+            new DetailField(2, "scareLevel", Slot.NUMBER1));
+
     /** Refines the horror type, e.g. “zombie outbreak”, “psychological”. */
     private String subGenre;
 
     /** Fright factor; must stay between 1 and 10 (inclusive). */
     private int scareLevel;
-    /** Immutable, system‑generated identifier that uniquely distinguishes every book instance. */
-    private final String libraryCode;
-
-    /**
-     * Generates a unique library code using a timestamp, random number, and counter.
-     * Format: Bk-HyyyyMMddHHmmssSSS-<random>-<counter>
-     * Components:
-     * - Timestamp: current date and time down to milliseconds (e.g., 20240503143015123)
-     * - Random Part: a 3-digit random number (000–999) to reduce collision chance
-     * - Counter: an incrementing integer to ensure uniqueness across rapid calls
-     * Example: Bk-H20240503143015123-042-17
-     */
-    private static String generateCode(){
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter
-                .ofPattern("yyyyMMddHHmmssSSS"));
-
-        int randomPart = random.nextInt(1000);
-
-        int count = counter.getAndIncrement();
-
-        return "Bk-H" + timestamp +"-" + String.format("%03d",randomPart) +"-" +count;
-    }
 
     /**
      * Creates a {@code HorrorBook} with horror-specific attributes.
@@ -68,8 +49,29 @@ public class HorrorBook extends Book {
         super(title,author,pageCount,category,borrowedDate,returnDate);
             this.subGenre = BookUtils.validateNameText(subGenre, "Sub Genre");
             this.scareLevel = BookUtils.validateLevel1to10(scareLevel);
-            this.libraryCode = generateCode();
-            super.setLibraryCode(libraryCode);
+            super.setCodeId(LibraryCodeGenerator.nextId(Genre.HORROR));
+    }
+
+    /**
+     * Restores a book from stored state, without validation and keeping the
+     * stored library code. See {@link Genre#restore(BookRecord)}.
+     *
+     * @param record the stored state of a book of this genre
+     */
+    HorrorBook(BookRecord record) {
+        super(record);
+        restoreDetails(record);
+    }
+
+    /**
+     * Sets the horror fields from stored state, without validation.
+     *
+     * @param record the stored state of a book of this genre
+     */
+    @Override
+    protected void restoreDetails(BookRecord record) {
+        this.subGenre = record.text1();
+        this.scareLevel = record.number1();
     }
 
     /**
@@ -78,7 +80,8 @@ public class HorrorBook extends Book {
      * @param subGenre the sub-genre to set
      */
     public void setSubGenre(String subGenre){
-            this.subGenre = BookUtils.validateNameText(subGenre,"Sub-Genre");
+            String validated = BookUtils.validateNameText(subGenre,"Sub-Genre");
+            changeDetails(() -> this.subGenre = validated);
     }
 
     /**
@@ -96,7 +99,8 @@ public class HorrorBook extends Book {
      * @param scareLevel an integer from 1 to 10 indicating the intensity of scares
      */
     public void setScareLevel(int scareLevel){
-            this.scareLevel = BookUtils.validateLevel1to10(scareLevel);
+            int validated = BookUtils.validateLevel1to10(scareLevel);
+            changeDetails(() -> this.scareLevel = validated);
     }
 
     /**
@@ -109,25 +113,15 @@ public class HorrorBook extends Book {
     }
 
     /**
-     * Gets the unique library code of the horror book.
-     *
-     * @return the library code
-     */
-    @Override
-    public String getLibraryCode() {
-        return libraryCode;
-    }
-
-    /**
-     * Returns a string representation of the horror book, including its library code, title, author, and category.
+     * Appends the base book details and the horror-specific fields.
      *
-     * @return a string describing the book
+     * @param out the builder to append to
      */
     @Override
-    public  String toString(){
-       return   super.toString() +
-               " | Sub-genre: " + subGenre +
-               " | Scare Level: " + scareLevel;
+    public void appendTo(StringBuilder out){
+       super.appendTo(out);
+       out.append(" | Sub-genre: ").append(subGenre)
+               .append(" | Scare Level: ").append(scareLevel);
     }
 }
 
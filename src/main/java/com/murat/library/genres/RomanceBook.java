@@ -1,11 +1,11 @@
 package com.murat.library.genres;
 import com.murat.library.Book;
+import com.murat.library.BookRecord;
+import com.murat.library.BookRecord.Slot;
 import com.murat.library.utils.BookUtils;
+import com.murat.library.utils.LibraryCodeGenerator;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Random;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.List;
 
 /**
  * Represents a romance genre book in the library system.
@@ -17,15 +17,14 @@ import java.util.concurrent.atomic.AtomicInteger;
  *   <li>{@code romanticLevel} – an integer from <b>1 to 10</b> indicating
  *       how intensely romantic the story is.</li>
  * </ul>
- * Each instance also receives a unique {@code libraryCode} generated
- * via timestamp + random + counter pattern.
+ * Each instance also receives a unique {@code libraryCode} from
+ * {@link LibraryCodeGenerator}.
  */
 public class RomanceBook extends Book {
-    /** Counter for generating unique library codes in this subclass. */
-    private static final AtomicInteger counter = new AtomicInteger();
-
-    /** Random component to reduce collision risk in library codes. */
-    private static final Random random = new Random();
+    /** Stable encoding tags of the fields this class adds to {@link Book}. */
+    public static final List<DetailField> DETAIL_FIELDS = List.of(
+            new DetailField(1, "subGenre", Slot.TEXT1),
+            new DetailField(2, "romanticLevel", Slot.NUMBER1));
 
     /** Refined romance category (no digits, not blank). */
     private String subGenre;
@@ -33,27 +32,6 @@ public class RomanceBook extends Book {
     /** Romantic intensity on a 1–10 scale (inclusive). */
     private int romanticLevel;
 
-    /** System-generated unique code, set at construction time. */
-    private final String libraryCode;
-
-    /**
-     * Generates a unique library code for a romance book.
-     * <p>
-     * Format: BK-RyyyyMMddHHmmssSSS-<random>-<counter>
-     *
-     * @return a unique identifier string
-     */
-    private static String generateCode(){
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter
-                .ofPattern("yyyyMMddHHmmssSSS"));
-
-        int randomPart = random.nextInt(1000);
-
-        int count = counter.getAndIncrement();
-
-        return "Bk-R" + timestamp +"-" + String.format("%03d",randomPart) +"-" +count;
-    }
-
     /**
      * Constructs a new {@code RomanceBook}.
      *
@@ -72,8 +50,29 @@ public class RomanceBook extends Book {
         super(title,author,pageCount,category,borrowedDate,returnDate);
         this.subGenre = BookUtils.validateNameText(subGenre,"Sub-Genre");
         this.romanticLevel = BookUtils.validateLevel1to10(romanticLevel);
-        this.libraryCode = generateCode();
-        super.setLibraryCode(libraryCode);
+        super.setCodeId(LibraryCodeGenerator.nextId(Genre.ROMANCE));
+    }
+
+    /**
+     * Restores a book from stored state, without validation and keeping the
+     * stored library code. See {@link Genre#restore(BookRecord)}.
+     *
+     * @param record the stored state of a book of this genre
+     */
+    RomanceBook(BookRecord record) {
+        super(record);
+        restoreDetails(record);
+    }
+
+    /**
+     * Sets the romance fields from stored state, without validation.
+     *
+     * @param record the stored state of a book of this genre
+     */
+    @Override
+    protected void restoreDetails(BookRecord record) {
+        this.subGenre = record.text1();
+        this.romanticLevel = record.number1();
     }
 
     /**
@@ -83,7 +82,8 @@ public class RomanceBook extends Book {
      * @throws IllegalArgumentException if validation fails
      */
     public void setSubGenre(String subGenre){
-        this.subGenre = BookUtils.validateNameText(subGenre,"Sub-Genre");
+        String validated = BookUtils.validateNameText(subGenre,"Sub-Genre");
+        changeDetails(() -> this.subGenre = validated);
     }
 
     /** @return the refined romance category */
@@ -98,7 +98,8 @@ public class RomanceBook extends Book {
      * @throws IllegalArgumentException if out of range
      */
     public void setRomanticLevel(int romanticLevel){
-        this.romanticLevel = BookUtils.validateLevel1to10(romanticLevel);
+        int validated = BookUtils.validateLevel1to10(romanticLevel);
+        changeDetails(() -> this.romanticLevel = validated);
     }
 
     /** @return the romantic intensity level (1–10) */
@@ -107,24 +108,15 @@ public class RomanceBook extends Book {
     }
 
     /**
-     * Returns the system-generated library code for this book.
-     * @return unique libraryCode string
-     */
-    @Override
-    public String getLibraryCode() {
-        return libraryCode;
-    }
-
-    /**
-     * Returns a formatted string containing all book details,
+     * Appends all book details,
      * including romance-specific fields.
      *
-     * @return descriptive book information
+     * @param out the builder to append to
      */
     @Override
-    public  String toString(){
-        return   super.toString() +
-                " | Sub-genre: " + subGenre +
-                " | Romantic Level: " + romanticLevel;
+    public void appendTo(StringBuilder out){
+        super.appendTo(out);
+        out.append(" | Sub-genre: ").append(subGenre)
+                .append(" | Romantic Level: ").append(romanticLevel);
     }
 }
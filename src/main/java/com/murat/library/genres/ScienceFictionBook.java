@@ -1,11 +1,11 @@
 package com.murat.library.genres;
 import com.murat.library.Book;
+import com.murat.library.BookRecord;
+import com.murat.library.BookRecord.Slot;
 import com.murat.library.utils.BookUtils;
+import com.murat.library.utils.LibraryCodeGenerator;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Random;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.List;
 
 /**
  * Represents a science fiction book in the library system.
@@ -15,14 +15,13 @@ import java.util.concurrent.atomic.AtomicInteger;
  *     <li>{@code subGenre} – a specific sci-fi type (e.g. "space opera", "cyberpunk")</li>
  *     <li>{@code scientificLevel} – a value from 1 to 10 indicating how realistic or technical the story is</li>
  * </ul>
- * Each book is assigned a unique library code using the timestamp, a random number, and a counter.
+ * Each book is assigned a unique library code by {@link LibraryCodeGenerator}.
  */
 public class ScienceFictionBook extends Book {
-    /** Counter for generating unique library codes. */
-    private final static AtomicInteger counter = new AtomicInteger();
-
-    /** Random number generator for library code uniqueness. */
-    private final static Random random = new Random();
+    /** Stable encoding tags of the fields this class adds to {@link Book}. */
+    public static final List<DetailField> DETAIL_FIELDS = List.of(
+            new DetailField(1, "subGenre", Slot.TEXT1),
+            new DetailField(2, "scientificLevel", Slot.NUMBER1));
 
     /** Indicates the scientific complexity level (1–10). */
     private int scientificLevel;
@@ -30,27 +29,6 @@ public class ScienceFictionBook extends Book {
     /** Refined sci-fi category, such as "dystopia", "time travel", or "space opera". */
     private String subGenre;
 
-    /** Unique code for this book, auto-generated during construction. */
-    private final String libraryCode;
-
-    /**
-     * Generates a unique library code using timestamp + random number + counter.
-     * <p>
-     * Format: BK-SyyyyMMddHHmmssSSS-<random>-<counter>
-     *
-     * @return A unique library code string
-     */
-    private static String generateCode(){
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter
-                .ofPattern("yyyyMMddHHmmssSSS"));
-
-        int randomPart = random.nextInt(1000);
-
-        int count = counter.getAndIncrement();
-
-        return "Bk-S" + timestamp +"-" + String.format("%03d",randomPart) +"-" +count;
-    }
-
     /**
      * Constructs a new {@code ScienceFictionBook} object.
      *
@@ -69,8 +47,29 @@ public class ScienceFictionBook extends Book {
         super(title,author,pageCount,category,borrowedDate,returnDate);
         this.scientificLevel = BookUtils.validateLevel1to10(scientificLevel);
         this.subGenre = BookUtils.validateNameText(subGenre,"Sub-Genre");
-        this.libraryCode = generateCode();
-        super.setLibraryCode(libraryCode);
+        super.setCodeId(LibraryCodeGenerator.nextId(Genre.SCIENCE_FICTION));
+    }
+
+    /**
+     * Restores a book from stored state, without validation and keeping the
+     * stored library code. See {@link Genre#restore(BookRecord)}.
+     *
+     * @param record the stored state of a book of this genre
+     */
+    ScienceFictionBook(BookRecord record) {
+        super(record);
+        restoreDetails(record);
+    }
+
+    /**
+     * Sets the science fiction fields from stored state, without validation.
+     *
+     * @param record the stored state of a book of this genre
+     */
+    @Override
+    protected void restoreDetails(BookRecord record) {
+        this.scientificLevel = record.number1();
+        this.subGenre = record.text1();
     }
 
     /**
@@ -80,7 +79,8 @@ public class ScienceFictionBook extends Book {
      * @throws IllegalArgumentException if input is blank or contains digits
      */
     public void setSubGenre(String subGenre){
-        this.subGenre = BookUtils.validateNameText(subGenre,"Sub-Genre");
+        String validated = BookUtils.validateNameText(subGenre,"Sub-Genre");
+        changeDetails(() -> this.subGenre = validated);
     }
 
     /** @return the sub-genre label for this science fiction book */
@@ -95,7 +95,8 @@ public class ScienceFictionBook extends Book {
      * @throws IllegalArgumentException if level is out of bounds
      */
     public void setScientificLevel(int scientificLevel){
-        this.scientificLevel = BookUtils.validateLevel1to10(scientificLevel);
+        int validated = BookUtils.validateLevel1to10(scientificLevel);
+        changeDetails(() -> this.scientificLevel = validated);
     }
 
     /** @return scientific realism or complexity level (1–10) */
@@ -103,20 +104,15 @@ public class ScienceFictionBook extends Book {
         return scientificLevel;
     }
 
-    @Override
-    public String getLibraryCode() {
-        return libraryCode;
-    }
-
     /**
-     * Returns a printable string with all book details, including science fiction–specific fields.
+     * Appends all book details, including science fiction–specific fields.
      *
-     * @return formatted string containing complete book information
+     * @param out the builder to append to
      */
     @Override
-    public String toString(){
-        return super.toString() +
-                " | Sub-genre: " + subGenre +
-                " | Scientific level: " + scientificLevel;
+    public void appendTo(StringBuilder out){
+        super.appendTo(out);
+        out.append(" | Sub-genre: ").append(subGenre)
+                .append(" | Scientific level: ").append(scientificLevel);
     }
 }
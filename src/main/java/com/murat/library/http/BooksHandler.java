@@ -0,0 +1,260 @@
+package com.murat.library.http;
+import com.murat.library.Book;
+import com.murat.library.BookPage;
+import com.murat.library.BookQuery;
+import com.murat.library.LibraryManager;
+import com.murat.library.importer.BookRowMapper;
+import com.murat.library.importer.JsonRowReader;
+import com.murat.library.render.JsonWriter;
+import com.murat.library.utils.LibraryUtils;
+import com.murat.library.validation.BookValidator;
+import com.murat.library.validation.ValidationError;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Serves {@code /books} and {@code /books/{code}}; see {@link LibraryServer}
+ * for the routes. Responses are streamed with a {@link JsonWriter} taken from
+ * a shared pool, so a request allocates no response buffer of its own.
+ * <p>
+ * Invalid requests are answered with 400 and any other failure with 500; the
+ * exchange is closed either way, so a failed request never leaves its
+ * connection hanging.
+ */
+final class BooksHandler implements HttpHandler {
+
+    /** Largest page a client may ask for. */
+    static final int MAX_PAGE_SIZE = 1000;
+    /** Fields a PATCH may set, in the order they are applied, so dates are checked against each other consistently. */
+    private static final String[] UPDATABLE = {"title", "author", "category", "pageCount", "borrowedDate", "returnDate"};
+    /** Writers kept for reuse; more than this are left to the garbage collector. */
+    private static final int MAX_POOLED_WRITERS = 64;
+
+    private final LibraryManager manager;
+    private final ConcurrentLinkedQueue<JsonWriter> writers = new ConcurrentLinkedQueue<>();
+
+    BooksHandler(LibraryManager manager) {
+        this.manager = manager;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getRawPath();
+            String code = path.length() > "/books/".length() && path.startsWith("/books/")
+                    ? URLDecoder.decode(path.substring("/books/".length()), StandardCharsets.UTF_8) : null;
+            if (code == null && !path.equals("/books") && !path.equals("/books/")) {
+                sendError(exchange, 404, "Not found: " + path);
+                return;
+            }
+            String method = exchange.getRequestMethod();
+            try {
+                if (code == null) {
+                    switch (method) {
+                        case "GET" -> list(exchange);
+                        case "POST" -> add(exchange);
+                        default -> notAllowed(exchange, "GET, POST");
+                    }
+                } else {
+                    switch (method) {
+                        case "GET" -> find(exchange, code);
+                        case "PATCH" -> update(exchange, code);
+                        case "DELETE" -> remove(exchange, code);
+                        default -> notAllowed(exchange, "GET, PATCH, DELETE");
+                    }
+                }
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                fail(exchange, 400, e.getMessage());
+            } catch (RuntimeException e) {
+                // E.g. a write-ahead log that refused the change; the client learns no more than that it failed.
+                System.err.println("Error handling " + method + " " + path + ": " + e);
+                fail(exchange, 500, "Internal server error");
+            }
+        }
+    }
+
+    /**
+     * Answers a failed request with an error, unless its response has already
+     * begun, in which case closing the exchange cuts the response short.
+     */
+    private void fail(HttpExchange exchange, int status, String message) throws IOException {
+        if (exchange.getResponseCode() == -1) {
+            sendError(exchange, status, message);
+        }
+    }
+
+    /** {@code GET /books}: one page of the books matching the query parameters. */
+    private void list(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+        int maxPages = parameters.containsKey("maxPages") ? parseInt(parameters.get("maxPages"), "maxPages") : Integer.MAX_VALUE;
+        int limit = parameters.containsKey("limit") ? parseInt(parameters.get("limit"), "limit") : LibraryUtils.PAGE_SIZE;
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        BookQuery query = new BookQuery(parameters.get("author"), parameters.get("category"), maxPages);
+        BookPage page = manager.queryPage(query, parameters.get("after"), limit);
+
+        JsonWriter json = begin(exchange, 200);
+        try {
+            json.beginObject().name("books").beginArray();
+            for (Book book : page.books()) {
+                json.book(book);
+            }
+            json.endArray().name("next").value(page.continuationToken()).endObject().flush();
+        } finally {
+            release(json);
+        }
+    }
+
+    /** {@code POST /books}: adds the book described by the body. */
+    private void add(HttpExchange exchange) throws IOException {
+        Map<String, String> row = readObject(exchange);
+        List<ValidationError> problems = new ArrayList<>();
+        Book book = BookRowMapper.toBook(row, BookValidator.forToday(), problems);
+        if (book == null) {
+            JsonWriter json = begin(exchange, 400);
+            try {
+                json.beginObject().name("errors").beginArray();
+                for (ValidationError problem : problems) {
+                    json.beginObject().name("field").value(problem.field()).name("message").value(problem.message()).endObject();
+                }
+                json.endArray().endObject().flush();
+            } finally {
+                release(json);
+            }
+            return;
+        }
+        manager.addBook(book);
+        exchange.getResponseHeaders().set("Location", "/books/" + book.getLibraryCode());
+        sendBook(exchange, 201, book);
+    }
+
+    /** {@code GET /books/{code}}. */
+    private void find(HttpExchange exchange, String code) throws IOException {
+        Optional<Book> book = manager.findBookByCode(code);
+        if (book.isPresent()) {
+            sendBook(exchange, 200, book.get());
+        } else {
+            sendError(exchange, 404, "No book found with library code: " + code);
+        }
+    }
+
+    /** {@code PATCH /books/{code}}: sets the fields of the body; those set before an invalid one stay set. */
+    private void update(HttpExchange exchange, String code) throws IOException {
+        Map<String, String> changes = readObject(exchange);
+        for (String name : changes.keySet()) {
+            LibraryUtils.updatableField(name);
+        }
+        Optional<Book> found = manager.findBookByCode(code);
+        if (found.isEmpty()) {
+            sendError(exchange, 404, "No book found with library code: " + code);
+            return;
+        }
+        Book book = found.get();
+        for (String name : UPDATABLE) {
+            if (changes.containsKey(name)) {
+                LibraryUtils.updateField(book, LibraryUtils.updatableField(name), changes.get(name));
+            }
+        }
+        sendBook(exchange, 200, book);
+    }
+
+    /** {@code DELETE /books/{code}}. */
+    private void remove(HttpExchange exchange, String code) throws IOException {
+        if (manager.removeBook(code)) {
+            exchange.sendResponseHeaders(204, -1);
+        } else {
+            sendError(exchange, 404, "No book found with library code: " + code);
+        }
+    }
+
+    private void sendBook(HttpExchange exchange, int status, Book book) throws IOException {
+        JsonWriter json = begin(exchange, status);
+        try {
+            json.book(book).flush();
+        } finally {
+            release(json);
+        }
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        JsonWriter json = begin(exchange, status);
+        try {
+            json.beginObject().name("error").value(message).endObject().flush();
+        } finally {
+            release(json);
+        }
+    }
+
+    private void notAllowed(HttpExchange exchange, String allowed) throws IOException {
+        exchange.getResponseHeaders().set("Allow", allowed);
+        sendError(exchange, 405, "Method not allowed: " + exchange.getRequestMethod());
+    }
+
+    /** Sends the headers of a chunked JSON response and returns a writer on its body. */
+    private JsonWriter begin(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0);
+        JsonWriter json = writers.poll();
+        if (json == null) {
+            json = new JsonWriter();
+        }
+        return json.reset(exchange.getResponseBody());
+    }
+
+    private void release(JsonWriter json) {
+        json.reset(null);
+        if (writers.size() < MAX_POOLED_WRITERS) {
+            writers.offer(json);
+        }
+    }
+
+    /** Reads a request body holding one flat JSON object. */
+    private static Map<String, String> readObject(HttpExchange exchange) throws IOException {
+        JsonRowReader reader = new JsonRowReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8), 1024);
+        Map<String, String> row;
+        try {
+            row = reader.next();
+        } catch (IOException e) {
+            // A broken connection fails again on the response; anything else is a malformed body.
+            throw new IllegalArgumentException("Invalid JSON: " + e.getMessage(), e);
+        }
+        if (row == null) {
+            throw new IllegalArgumentException("Request body must be a JSON object");
+        }
+        return row;
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+            String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            parameters.put(name, value);
+        }
+        return parameters;
+    }
+
+    private static int parseInt(String value, String name) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a whole number: " + value);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.murat.library.http;
+import com.murat.library.LibraryManager;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embedded HTTP server that exposes a {@link LibraryManager} as a JSON API,
+ * built on the JDK's {@code com.sun.net.httpserver}:
+ * <ul>
+ *   <li>{@code GET /books?author=&category=&maxPages=&limit=&after=} - filter or
+ *       advanced search, one page at a time; {@code after} is the {@code next}
+ *       token of the previous page</li>
+ *   <li>{@code POST /books} - add a book given as a JSON object with the columns of the JSON importer</li>
+ *   <li>{@code GET /books/{code}} - find a book by its library code</li>
+ *   <li>{@code PATCH /books/{code}} - update title, author, category, pageCount,
+ *       borrowedDate or returnDate; an empty date clears it</li>
+ *   <li>{@code DELETE /books/{code}} - remove a book</li>
+ * </ul>
+ * Errors are answered with a status code and {@code {"error": "..."}}.
+ * <p>
+ * The server multiplexes all connections on one selector thread and only
+ * hands requests that have arrived to the request executor, so idle
+ * keep-alive connections cost no thread. On Java 21 and later every request
+ * runs on its own virtual thread; the executor is looked up reflectively, so
+ * the code still builds for Java 17, where a small fixed pool of daemon
+ * threads is used instead.
+ * <p>
+ * The JDK keeps at most 200 idle keep-alive connections unless
+ * {@value #MAX_IDLE_CONNECTIONS} is set before the first server of the
+ * process starts, e.g. with {@code -Dsun.net.httpserver.maxIdleConnections=20000}
+ * on the command line. This class leaves the setting alone; {@code LibraryApp}
+ * raises it for {@code --serve}.
+ */
+public final class LibraryServer implements AutoCloseable {
+
+    /**
+     * System property that limits the idle keep-alive connections of every JDK
+     * server in the process. The JDK reads it once, when its first server is
+     * created, and defaults to 200.
+     */
+    public static final String MAX_IDLE_CONNECTIONS = "sun.net.httpserver.maxIdleConnections";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private LibraryServer(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts serving a manager's catalog on all interfaces.
+     *
+     * @param manager the manager to expose
+     * @param port    the port, or 0 for any free port
+     * @return the running server
+     * @throws IOException if the port cannot be bound
+     */
+    public static LibraryServer start(LibraryManager manager, int port) throws IOException {
+        return start(manager, new InetSocketAddress(port));
+    }
+
+    /**
+     * Starts serving a manager's catalog.
+     *
+     * @param manager the manager to expose
+     * @param address the address to bind
+     * @return the running server
+     * @throws IOException if the address cannot be bound
+     */
+    public static LibraryServer start(LibraryManager manager, InetSocketAddress address) throws IOException {
+        HttpServer server = HttpServer.create(address, 1024);
+        ExecutorService executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/books", new BooksHandler(manager));
+        server.start();
+        return new LibraryServer(server, executor);
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the bound port
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting connections, lets running requests finish for up to a
+     * second and closes all connections.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns a virtual-thread-per-request executor where the runtime has one,
+     * and otherwise a fixed pool sized for short, CPU-bound requests.
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            AtomicInteger created = new AtomicInteger();
+            return Executors.newFixedThreadPool(Math.max(8, 4 * Runtime.getRuntime().availableProcessors()), task -> {
+                Thread thread = new Thread(task, "http-worker-" + created.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
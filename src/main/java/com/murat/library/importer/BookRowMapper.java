@@ -0,0 +1,177 @@
+package com.murat.library.importer;
+import com.murat.library.Book;
+import com.murat.library.BookRecord;
+import com.murat.library.genres.DetailField;
+import com.murat.library.genres.Genre;
+import com.murat.library.utils.LibraryCodeGenerator;
+import com.murat.library.validation.BookValidator;
+import com.murat.library.validation.ValidationError;
+import com.murat.library.validation.ValidationResult;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Turns an imported row into a genre book.
+ * <p>
+ * Rows use the columns {@code genre}, {@code title}, {@code author},
+ * {@code pageCount}, {@code category}, the optional {@code borrowedDate} and
+ * {@code returnDate} (yyyy-MM-dd) and {@code libraryCode}, and one column per
+ * genre field named as in {@link Genre#getDetailFields()}, e.g.
+ * {@code subjectName} or {@code scareLevel}. The genre is its enum name, in any
+ * case and with spaces allowed, e.g. {@code Science Fiction}. Rows without a
+ * library code get a newly generated one.
+ * <p>
+ * Parsing and validation never throw: all problems of a row are collected and
+ * reported together. Text values are trimmed, and a valid row's book is
+ * restored from the validated record, so it is not validated a second time
+ * and only takes a new code id when the row has none.
+ * Besides the importers, batch commands build their books with it.
+ */
+public final class BookRowMapper {
+
+    private BookRowMapper() {
+    }
+
+    /**
+     * Parses and validates a row and builds its book if it is valid.
+     *
+     * @param row       the fields of the row by column name
+     * @param validator the validator, which also supplies "today"
+     * @param errors    receives every problem of the row
+     * @return the new, detached book, or null if the row has errors
+     */
+    public static Book toBook(Map<String, String> row, BookValidator validator, List<ValidationError> errors) {
+        List<String> unparsed = new ArrayList<>(2);
+        Genre genre = parseGenre(row.get("genre"));
+        if (genre == null) {
+            String value = row.get("genre");
+            fail(errors, unparsed, "genre", value == null || value.isBlank() ? "Genre cannot be empty" : "Unknown genre: " + value);
+        }
+        long codeId = 0;
+        String code = row.get("libraryCode");
+        if (code != null) {
+            codeId = LibraryCodeGenerator.parse(code);
+            if (codeId == 0 || (genre != null && LibraryCodeGenerator.genreOf(codeId) != genre)) {
+                errors.add(new ValidationError("libraryCode", "Library Code is not a valid " + genre + " code: " + code));
+            }
+        }
+        int pageCount = parseInt(row.get("pageCount"), "pageCount", "Page Count", errors, unparsed);
+        LocalDate borrowedDate = parseDate(row.get("borrowedDate"), "borrowedDate", "Borrowed Date", errors, unparsed);
+        LocalDate returnDate = parseDate(row.get("returnDate"), "returnDate", "Return Date", errors, unparsed);
+
+        String[] texts = new String[2];
+        int[] numbers = new int[2];
+        if (genre != null) {
+            for (DetailField field : genre.getDetailFields()) {
+                String value = row.get(field.name());
+                switch (field.slot()) {
+                    case TEXT1 -> texts[0] = trim(value);
+                    case TEXT2 -> texts[1] = trim(value);
+                    case NUMBER1 -> numbers[0] = parseInt(value, field.name(), field.name(), errors, unparsed);
+                    case NUMBER2 -> numbers[1] = parseInt(value, field.name(), field.name(), errors, unparsed);
+                }
+            }
+        }
+        BookRecord record = new BookRecord(codeId, genre, trim(row.get("title")), trim(row.get("author")), pageCount,
+                trim(row.get("category")), borrowedDate, returnDate, texts[0], texts[1], numbers[0], numbers[1]);
+        ValidationResult result = validator.validate(record);
+        for (ValidationError error : result.errors()) {
+            if (!unparsed.contains(error.field())) {
+                errors.add(error);
+            }
+        }
+        return errors.isEmpty() ? record.restoreBook() : null;
+    }
+
+    private static String trim(String value) {
+        return value == null ? null : value.trim();
+    }
+
+    private static void fail(List<ValidationError> errors, List<String> unparsed, String field, String message) {
+        errors.add(new ValidationError(field, message));
+        unparsed.add(field);
+    }
+
+    private static Genre parseGenre(String value) {
+        if (value == null) {
+            return null;
+        }
+        String name = value.trim().replace(' ', '_').replace('-', '_').toUpperCase(Locale.ROOT);
+        for (Genre genre : Genre.values()) {
+            if (genre.name().equals(name)) {
+                return genre;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parses a decimal int without throwing.
+     *
+     * @return the value, or 0 after adding an error
+     */
+    private static int parseInt(String value, String field, String label, List<ValidationError> errors,
+                                List<String> unparsed) {
+        if (value == null || value.isBlank()) {
+            fail(errors, unparsed, field, label + " cannot be empty");
+            return 0;
+        }
+        String text = value.trim();
+        boolean negative = text.charAt(0) == '-';
+        int start = negative || text.charAt(0) == '+' ? 1 : 0;
+        long result = 0;
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9' || (result = result * 10 + (c - '0')) > Integer.MAX_VALUE + 1L) {
+                fail(errors, unparsed, field, label + " must be a whole number: " + value);
+                return 0;
+            }
+        }
+        if (start == text.length() || (!negative && result > Integer.MAX_VALUE)) {
+            fail(errors, unparsed, field, label + " must be a whole number: " + value);
+            return 0;
+        }
+        return (int) (negative ? -result : result);
+    }
+
+    /**
+     * Parses a yyyy-MM-dd date without throwing.
+     *
+     * @return the date, or null if the value is empty or after adding an error
+     */
+    private static LocalDate parseDate(String value, String field, String label, List<ValidationError> errors,
+                                       List<String> unparsed) {
+        if (value == null || value.isBlank() || value.trim().equalsIgnoreCase("null")) {
+            return null;
+        }
+        String text = value.trim();
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 7);
+        int day = digits(text, 8, 10);
+        if (text.length() != 10 || text.charAt(4) != '-' || text.charAt(7) != '-'
+                || year < 0 || month < 1 || month > 12 || day < 1
+                || day > LocalDate.of(year, month, 1).lengthOfMonth()) {
+            fail(errors, unparsed, field, label + " must be a valid yyyy-MM-dd date: " + value);
+            return null;
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    private static int digits(String text, int from, int to) {
+        if (text.length() < to) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,205 @@
+package com.murat.library.importer;
+import com.murat.library.Book;
+import com.murat.library.LibraryManager;
+import com.murat.library.validation.BookValidator;
+import com.murat.library.validation.ValidationError;
+import com.murat.library.validation.ValidationResult;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Imports CSV or JSON catalog feeds into a {@link LibraryManager} in parallel.
+ * <p>
+ * The calling thread parses the input into batches of rows; a pool of workers
+ * validates each batch, builds the genre books (see {@link BookRowMapper}) and
+ * adds them with {@link LibraryManager#addBooks(java.util.Collection)}. At most
+ * two batches per worker are in flight, so memory use does not depend on the
+ * size of the input. Books from different batches may be added out of input order.
+ * <p>
+ * A row that fails validation, or whose library code is already taken, is
+ * written to the error report as {@code row<TAB>message} and the import goes on.
+ * Only unreadable or malformed input aborts an import.
+ */
+public class BulkImporter {
+
+    /** Rows handed to a worker at once. */
+    private static final int BATCH_SIZE = 1024;
+
+    private final LibraryManager manager;
+    private final int workers;
+
+    /**
+     * Creates an importer that uses one worker per available processor.
+     *
+     * @param manager the manager to import into
+     */
+    public BulkImporter(LibraryManager manager) {
+        this(manager, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an importer.
+     *
+     * @param manager the manager to import into
+     * @param workers the number of worker threads
+     * @throws IllegalArgumentException if the worker count is not positive
+     */
+    public BulkImporter(LibraryManager manager, int workers) {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("Worker count must be positive");
+        }
+        this.manager = manager;
+        this.workers = workers;
+    }
+
+    /**
+     * Imports a file, choosing the format by its extension: {@code .csv} for CSV,
+     * anything else for JSON.
+     *
+     * @param input       the feed to import
+     * @param errorReport the file that receives the rejected rows
+     * @return the import summary
+     * @throws IOException if a file cannot be read or written, or the input is malformed
+     */
+    public ImportReport importFile(Path input, Path errorReport) throws IOException {
+        try (Reader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             Writer errors = Files.newBufferedWriter(errorReport, StandardCharsets.UTF_8)) {
+            boolean csv = input.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv");
+            return run(csv ? new CsvRowReader(reader) : new JsonRowReader(reader), errors);
+        }
+    }
+
+    /**
+     * Imports rows from any source.
+     *
+     * @param rows        the rows to import; closed when the import ends
+     * @param errorReport receives one line per rejected row; not closed
+     * @return the import summary
+     * @throws IOException if the rows cannot be read or the report cannot be written
+     */
+    public ImportReport run(RowReader rows, Writer errorReport) throws IOException {
+        long start = System.nanoTime();
+        BookValidator validator = BookValidator.forToday();
+        Writer errors = errorReport instanceof BufferedWriter ? errorReport : new BufferedWriter(errorReport);
+        AtomicLong imported = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        Semaphore inFlight = new Semaphore(2 * workers);
+        List<Future<?>> batches = new ArrayList<>();
+        long rowsRead = 0;
+        ExecutorService pool = Executors.newFixedThreadPool(workers, new WorkerFactory());
+        try (rows) {
+            List<Map<String, String>> batch = new ArrayList<>(BATCH_SIZE);
+            Map<String, String> row;
+            while ((row = rows.next()) != null) {
+                batch.add(row);
+                rowsRead++;
+                if (batch.size() == BATCH_SIZE) {
+                    batches.add(submit(pool, inFlight, batch, rowsRead - batch.size() + 1, validator, errors, imported, rejected));
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            if (!batch.isEmpty()) {
+                batches.add(submit(pool, inFlight, batch, rowsRead - batch.size() + 1, validator, errors, imported, rejected));
+            }
+            for (Future<?> future : batches) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw new IllegalStateException("Import worker failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+            errors.flush();
+        }
+        return new ImportReport(rowsRead, imported.get(), rejected.get(), System.nanoTime() - start);
+    }
+
+    private Future<?> submit(ExecutorService pool, Semaphore inFlight, List<Map<String, String>> batch, long firstRow,
+                             BookValidator validator, Writer errors, AtomicLong imported, AtomicLong rejected)
+            throws InterruptedException {
+        inFlight.acquire();
+        return pool.submit(() -> {
+            try {
+                importBatch(batch, firstRow, validator, errors, imported, rejected);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private void importBatch(List<Map<String, String>> batch, long firstRow, BookValidator validator, Writer errors,
+                             AtomicLong imported, AtomicLong rejected) {
+        List<Book> books = new ArrayList<>(batch.size());
+        List<Long> bookRows = new ArrayList<>(batch.size());
+        List<ImportError> failures = new ArrayList<>();
+        List<ValidationError> rowErrors = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            rowErrors.clear();
+            Book book = BookRowMapper.toBook(batch.get(i), validator, rowErrors);
+            if (book != null) {
+                books.add(book);
+                bookRows.add(firstRow + i);
+            } else {
+                failures.add(new ImportError(firstRow + i, ValidationResult.of(rowErrors).message()));
+            }
+        }
+        List<Book> duplicates = manager.addBooks(books);
+        // The duplicates come back in input order, so one pass over the books finds their rows.
+        int next = 0;
+        for (Book duplicate : duplicates) {
+            while (books.get(next) != duplicate) {
+                next++;
+            }
+            failures.add(new ImportError(bookRows.get(next),
+                    "A book with library code '" + duplicate.getLibraryCode() + "' already exists."));
+        }
+        imported.addAndGet(books.size() - duplicates.size());
+        rejected.addAndGet(failures.size());
+        if (!failures.isEmpty()) {
+            synchronized (errors) {
+                try {
+                    for (ImportError failure : failures) {
+                        errors.write(failure.row() + "\t" + failure.message() + System.lineSeparator());
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    /** Creates daemon worker threads, so an abandoned import never keeps the JVM alive. */
+    private static final class WorkerFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "import-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
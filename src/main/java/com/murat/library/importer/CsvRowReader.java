@@ -0,0 +1,128 @@
+package com.murat.library.importer;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads CSV rows as defined by RFC 4180: comma-separated fields, optionally
+ * enclosed in double quotes, with {@code ""} for a quote inside a quoted field.
+ * Quoted fields may span lines. The first record names the columns; blank
+ * lines are skipped, and empty fields are reported as absent.
+ */
+public class CsvRowReader implements RowReader {
+
+    private static final int END = -1;
+
+    private final Reader in;
+    private final char[] buffer = new char[64 * 1024];
+    private int position;
+    private int limit;
+    private final String[] columns;
+    private final StringBuilder field = new StringBuilder();
+    private long line = 1;
+
+    /**
+     * Creates a reader and reads the header record.
+     *
+     * @param in the CSV input; not closed until {@link #close()}
+     * @throws IOException if the header cannot be read or is missing
+     */
+    public CsvRowReader(Reader in) throws IOException {
+        this.in = in;
+        List<String> header = readRecord();
+        if (header == null) {
+            throw new IOException("CSV input has no header row");
+        }
+        this.columns = new String[header.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = header.get(i).trim();
+        }
+    }
+
+    @Override
+    public Map<String, String> next() throws IOException {
+        List<String> values;
+        do {
+            values = readRecord();
+            if (values == null) {
+                return null;
+            }
+        } while (values.size() == 1 && values.get(0).isEmpty());
+        if (values.size() > columns.length) {
+            throw new IOException("Line " + line + " has " + values.size() + " fields, but the header names only " + columns.length);
+        }
+        Map<String, String> row = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            if (!values.get(i).isEmpty()) {
+                row.put(columns[i], values.get(i));
+            }
+        }
+        return row;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private List<String> readRecord() throws IOException {
+        int c = read();
+        if (c == END) {
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        field.setLength(0);
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == END) {
+                    throw new IOException("Unterminated quoted field at line " + line);
+                }
+                if (c == '"') {
+                    int following = read();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = following;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == END) {
+                if (c == '\n') {
+                    line++;
+                }
+                values.add(field.toString());
+                return values;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return END;
+            }
+        }
+        return buffer[position++];
+    }
+}
@@ -0,0 +1,10 @@
+package com.murat.library.importer;
+
+/**
+ * A row that was rejected during an import.
+ *
+ * @param row     the 1-based number of the row among the data rows of the input
+ * @param message why the row was rejected
+ */
+public record ImportError(long row, String message) {
+}
@@ -0,0 +1,32 @@
+package com.murat.library.importer;
+
+/**
+ * Summary of a finished import.
+ *
+ * @param rowsRead     the number of data rows read
+ * @param rowsImported the number of books added to the catalog
+ * @param rowsRejected the number of rows rejected, each listed in the error report
+ * @param elapsedNanos the wall-clock duration of the import
+ */
+public record ImportReport(long rowsRead, long rowsImported, long rowsRejected, long elapsedNanos) {
+
+    /**
+     * Returns the import throughput.
+     *
+     * @return rows read per second
+     */
+    public double rowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rowsRead * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    /**
+     * Returns a one-line summary of the import.
+     *
+     * @return the summary
+     */
+    @Override
+    public String toString() {
+        return String.format("Imported %d of %d rows (%d rejected) in %.2f s, %.0f rows/s",
+                rowsImported, rowsRead, rowsRejected, elapsedNanos / 1e9, rowsPerSecond());
+    }
+}
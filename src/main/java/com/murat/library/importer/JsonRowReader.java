@@ -0,0 +1,212 @@
+package com.murat.library.importer;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads rows from JSON: either one top-level array of objects or a sequence of
+ * objects, such as one object per line (JSON Lines).
+ * <p>
+ * Objects must be flat: each value is a string, number, boolean or null.
+ * Numbers and booleans are reported as their literal text, and null values
+ * as absent fields.
+ */
+public class JsonRowReader implements RowReader {
+
+    private static final int END = -1;
+
+    private final Reader in;
+    private final char[] buffer;
+    private int position;
+    private int limit;
+    private final StringBuilder text = new StringBuilder();
+    private long offset;
+    private boolean inArray;
+    private boolean started;
+
+    /**
+     * Creates a reader.
+     *
+     * @param in the JSON input; not closed until {@link #close()}
+     */
+    public JsonRowReader(Reader in) {
+        this(in, 64 * 1024);
+    }
+
+    /**
+     * Creates a reader with a smaller or larger buffer, e.g. for short request bodies.
+     *
+     * @param in          the JSON input; not closed until {@link #close()}
+     * @param bufferChars the size of the character buffer
+     * @throws IllegalArgumentException if the buffer size is not positive
+     */
+    public JsonRowReader(Reader in, int bufferChars) {
+        if (bufferChars <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        this.in = in;
+        this.buffer = new char[bufferChars];
+    }
+
+    @Override
+    public Map<String, String> next() throws IOException {
+        int c = skipWhitespace();
+        if (!started) {
+            started = true;
+            if (c == '[') {
+                inArray = true;
+                c = skipWhitespace();
+                if (c == ']') {
+                    return endOfInput();
+                }
+            }
+        } else if (inArray) {
+            if (c == ']') {
+                return endOfInput();
+            }
+            if (c != ',') {
+                throw error("Expected ',' or ']'");
+            }
+            c = skipWhitespace();
+        }
+        if (c == END) {
+            if (inArray) {
+                throw error("Unterminated array");
+            }
+            return null;
+        }
+        if (c != '{') {
+            throw error("Expected '{'");
+        }
+        return readObject();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private Map<String, String> readObject() throws IOException {
+        Map<String, String> row = new HashMap<>();
+        int c = skipWhitespace();
+        if (c == '}') {
+            return row;
+        }
+        while (true) {
+            if (c != '"') {
+                throw error("Expected a field name");
+            }
+            String name = readString();
+            if (skipWhitespace() != ':') {
+                throw error("Expected ':'");
+            }
+            String value = readValue(skipWhitespace());
+            if (value != null) {
+                row.put(name, value);
+            }
+            c = skipWhitespace();
+            if (c == '}') {
+                return row;
+            }
+            if (c != ',') {
+                throw error("Expected ',' or '}'");
+            }
+            c = skipWhitespace();
+        }
+    }
+
+    private String readValue(int c) throws IOException {
+        if (c == '"') {
+            return readString();
+        }
+        if (c == '{' || c == '[') {
+            throw error("Nested values are not supported");
+        }
+        text.setLength(0);
+        while (c != END && c != ',' && c != '}' && !Character.isWhitespace(c)) {
+            text.append((char) c);
+            c = read();
+        }
+        if (c != END) {
+            position--;
+            offset--;
+        }
+        String literal = text.toString();
+        if (literal.isEmpty()) {
+            throw error("Expected a value");
+        }
+        return literal.equals("null") ? null : literal;
+    }
+
+    private String readString() throws IOException {
+        text.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == END) {
+                throw error("Unterminated string");
+            }
+            if (c == '"') {
+                return text.toString();
+            }
+            if (c == '\\') {
+                int escaped = read();
+                switch (escaped) {
+                    case '"', '\\', '/' -> text.append((char) escaped);
+                    case 'b' -> text.append('\b');
+                    case 'f' -> text.append('\f');
+                    case 'n' -> text.append('\n');
+                    case 'r' -> text.append('\r');
+                    case 't' -> text.append('\t');
+                    case 'u' -> {
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(read(), 16);
+                            if (digit < 0) {
+                                throw error("Invalid unicode escape");
+                            }
+                            code = code * 16 + digit;
+                        }
+                        text.append((char) code);
+                    }
+                    default -> throw error("Invalid escape");
+                }
+            } else {
+                text.append((char) c);
+            }
+        }
+    }
+
+    private Map<String, String> endOfInput() throws IOException {
+        if (skipWhitespace() != END) {
+            throw error("Unexpected content after the array");
+        }
+        inArray = false;
+        return null;
+    }
+
+    private int skipWhitespace() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c != END && Character.isWhitespace(c));
+        return c;
+    }
+
+    private IOException error(String message) {
+        return new IOException(message + " at character " + offset);
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return END;
+            }
+        }
+        offset++;
+        return buffer[position++];
+    }
+}
@@ -0,0 +1,19 @@
+package com.murat.library.importer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Streams the rows of a catalog feed one at a time, so feeds of any size can
+ * be imported in constant memory.
+ */
+public interface RowReader extends Closeable {
+
+    /**
+     * Reads the next row.
+     *
+     * @return the fields of the row by column name, or null at the end of the input
+     * @throws IOException if the input cannot be read or is malformed
+     */
+    Map<String, String> next() throws IOException;
+}
@@ -0,0 +1,210 @@
+package com.murat.library.metrics;
+import com.murat.library.BookQuery;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Latencies and counters of the catalog operations, kept for the lifetime of
+ * the process.
+ * <p>
+ * {@link com.murat.library.LibraryManager} times its lookups and changes;
+ * {@link com.murat.library.utils.LibraryUtils} times its console filters,
+ * printing included, under names starting with {@code console.}. The rows
+ * each kind of query tests are counted by the storage engines and credited
+ * to the filter of the same shape: {@link #FILTER_BY_AUTHOR},
+ * {@link #FILTER_BY_CATEGORY}, {@link #ADVANCED_SEARCH} when both are given,
+ * or {@link #LIST} when neither is.
+ * <p>
+ * Metrics are on unless the {@code library.metrics} system property is
+ * {@code false}, and can be switched at run time. They are published over
+ * JMX by {@link #registerMBeans()} and as text by {@link #report()} or a
+ * {@link MetricsReporter}.
+ */
+public final class CatalogMetrics {
+
+    /** {@code LibraryManager.addBook}. */
+    public static final OperationMetrics ADD_BOOK = new OperationMetrics("addBook");
+    /** {@code LibraryManager.removeBook}. */
+    public static final OperationMetrics REMOVE_BOOK = new OperationMetrics("removeBook");
+    /** {@code LibraryManager.findBookByCode}; internal lookups through {@code findBookById} are not counted. */
+    public static final OperationMetrics FIND_BY_CODE = new OperationMetrics("findBookByCode");
+    /** Author lookups and pages of author queries. */
+    public static final OperationMetrics FILTER_BY_AUTHOR = new OperationMetrics("filterByAuthor");
+    /** Category lookups and pages of category queries. */
+    public static final OperationMetrics FILTER_BY_CATEGORY = new OperationMetrics("filterByCategory");
+    /** Searches by author, category and page count, and pages of such queries. */
+    public static final OperationMetrics ADVANCED_SEARCH = new OperationMetrics("advancedSearch");
+    /** Pages of queries without an author or category. */
+    public static final OperationMetrics LIST = new OperationMetrics("list");
+    /** {@code LibraryUtils.filterByAuthor}. */
+    public static final OperationMetrics CONSOLE_FILTER_BY_AUTHOR = new OperationMetrics("console.filterByAuthor");
+    /** {@code LibraryUtils.filterByCategory}. */
+    public static final OperationMetrics CONSOLE_FILTER_BY_CATEGORY = new OperationMetrics("console.filterByCategory");
+    /** {@code LibraryUtils.advancedSearch}. */
+    public static final OperationMetrics CONSOLE_ADVANCED_SEARCH = new OperationMetrics("console.advancedSearch");
+
+    private static final List<OperationMetrics> OPERATIONS = List.of(
+            ADD_BOOK, REMOVE_BOOK, FIND_BY_CODE, FILTER_BY_AUTHOR, FILTER_BY_CATEGORY, ADVANCED_SEARCH, LIST,
+            CONSOLE_FILTER_BY_AUTHOR, CONSOLE_FILTER_BY_CATEGORY, CONSOLE_ADVANCED_SEARCH);
+
+    /** Rows scanned by each thread so far, across all operations. */
+    private static final ThreadLocal<long[]> THREAD_ROWS_SCANNED = ThreadLocal.withInitial(() -> new long[1]);
+
+    private static volatile boolean enabled = !"false".equalsIgnoreCase(System.getProperty("library.metrics", "true").trim());
+    private static boolean registered;
+
+    private CatalogMetrics() {
+    }
+
+    /**
+     * Returns the start time of a call to pass to {@link OperationMetrics#record(long, long)}.
+     *
+     * @return the current {@link System#nanoTime()}, never 0, or 0 if metrics are disabled
+     */
+    public static long start() {
+        if (!enabled) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        return now == 0 ? 1 : now;
+    }
+
+    /**
+     * Returns the number of rows the current thread has scanned so far. Scans
+     * run on the calling thread, so the difference between two readings is
+     * the rows scanned by the calls in between. Rows scanned while metrics are
+     * disabled are not counted.
+     *
+     * @return the running total of the current thread
+     */
+    public static long rowsScannedByCurrentThread() {
+        return THREAD_ROWS_SCANNED.get()[0];
+    }
+
+    static void creditCurrentThread(long rows) {
+        THREAD_ROWS_SCANNED.get()[0] += rows;
+    }
+
+    /**
+     * Tells whether catalog operations are being measured.
+     *
+     * @return true if metrics are enabled
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts or stops measuring catalog operations. Recorded values are kept.
+     *
+     * @param enabled true to measure
+     */
+    public static void setEnabled(boolean enabled) {
+        CatalogMetrics.enabled = enabled;
+    }
+
+    /**
+     * Returns every operation, in report order.
+     *
+     * @return the operations
+     */
+    public static List<OperationMetrics> operations() {
+        return OPERATIONS;
+    }
+
+    /**
+     * Returns the filter operation that a query's scanned rows are credited to.
+     *
+     * @param query the query
+     * @return the operation of the query's shape
+     */
+    public static OperationMetrics forQuery(BookQuery query) {
+        if (query.author() != null) {
+            return query.category() != null ? ADVANCED_SEARCH : FILTER_BY_AUTHOR;
+        }
+        return query.category() != null ? FILTER_BY_CATEGORY : LIST;
+    }
+
+    /**
+     * Clears the latencies and counters of every operation.
+     */
+    public static void reset() {
+        for (OperationMetrics operation : OPERATIONS) {
+            operation.reset();
+        }
+    }
+
+    /**
+     * Returns a text report with one line per operation.
+     *
+     * @return the report
+     */
+    public static String report() {
+        StringBuilder out = new StringBuilder(OPERATIONS.size() * 160);
+        for (OperationMetrics operation : OPERATIONS) {
+            operation.appendTo(out);
+            out.append(System.lineSeparator());
+        }
+        return out.toString();
+    }
+
+    /**
+     * Registers the MBeans of the metrics with the platform MBean server:
+     * {@code com.murat.library:type=CatalogMetrics} to switch and reset them
+     * and one {@code com.murat.library:type=Operation,name=<operation>} per
+     * operation. Registering again does nothing.
+     *
+     * @throws IllegalStateException if the MBeans cannot be registered
+     */
+    public static synchronized void registerMBeans() {
+        if (registered) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            register(server, new Control(), new ObjectName("com.murat.library:type=CatalogMetrics"));
+            for (OperationMetrics operation : OPERATIONS) {
+                register(server, operation, new ObjectName("com.murat.library:type=Operation,name=" + operation.name()));
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register metrics MBeans: " + e.getMessage(), e);
+        }
+        registered = true;
+    }
+
+    private static void register(MBeanServer server, Object bean, ObjectName name) throws JMException {
+        try {
+            server.registerMBean(bean, name);
+        } catch (InstanceAlreadyExistsException e) {
+            // Already registered, e.g. by a copy of this class in another class loader; keep that bean.
+        }
+    }
+
+    /** The {@link MetricsControlMXBean} over the static state. */
+    private static final class Control implements MetricsControlMXBean {
+
+        @Override
+        public boolean isEnabled() {
+            return CatalogMetrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            CatalogMetrics.setEnabled(enabled);
+        }
+
+        @Override
+        public void reset() {
+            CatalogMetrics.reset();
+        }
+
+        @Override
+        public String getReport() {
+            return report();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.murat.library.metrics;
+
+/**
+ * JMX control of the {@link CatalogMetrics}, registered as
+ * {@code com.murat.library:type=CatalogMetrics}.
+ */
+public interface MetricsControlMXBean {
+
+    /**
+     * @return true if catalog operations are being measured
+     */
+    boolean isEnabled();
+
+    /**
+     * Starts or stops measuring catalog operations.
+     *
+     * @param enabled true to measure
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Clears the latencies and counters of every operation.
+     */
+    void reset();
+
+    /**
+     * @return the text report of every operation
+     */
+    String getReport();
+}
@@ -0,0 +1,62 @@
+package com.murat.library.metrics;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background task that prints the {@link CatalogMetrics#report()} at a fixed
+ * interval, on a daemon thread, so latencies can be followed in a log without
+ * a JMX client.
+ */
+public final class MetricsReporter implements AutoCloseable {
+
+    private final PrintStream out;
+    private final ScheduledExecutorService scheduler;
+
+    private MetricsReporter(PrintStream out) {
+        this.out = out;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts printing reports; the first follows after one interval.
+     *
+     * @param out      the stream to print to
+     * @param interval the time between reports
+     * @return the running reporter
+     * @throws IllegalArgumentException if the interval is shorter than a millisecond
+     */
+    public static MetricsReporter start(PrintStream out, Duration interval) {
+        if (interval.compareTo(Duration.ofMillis(1)) < 0) {
+            throw new IllegalArgumentException("Report interval must be at least 1 ms");
+        }
+        long millis = interval.toMillis();
+        MetricsReporter reporter = new MetricsReporter(out);
+        reporter.scheduler.scheduleAtFixedRate(reporter::report, millis, millis, TimeUnit.MILLISECONDS);
+        return reporter;
+    }
+
+    /**
+     * Prints one report now.
+     */
+    public void report() {
+        out.print("--- Catalog metrics at " + LocalDateTime.now().withNano(0) + " ---" + System.lineSeparator()
+                + CatalogMetrics.report());
+        out.flush();
+    }
+
+    /**
+     * Stops the reports.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
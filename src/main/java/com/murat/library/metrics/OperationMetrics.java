@@ -0,0 +1,135 @@
+package com.murat.library.metrics;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and counters of one catalog operation, such as {@code addBook}.
+ * <p>
+ * A call is timed by passing the value of {@link CatalogMetrics#start()}
+ * taken before it to {@link #record(long, long)} after it. When metrics are
+ * disabled {@code start()} returns 0 and recording does nothing, so an
+ * instrumented call costs one volatile read.
+ */
+public final class OperationMetrics implements OperationMetricsMXBean {
+
+    private final String name;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder matches = new LongAdder();
+    private final LongAdder rowsScanned = new LongAdder();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the name of the operation, as shown in reports and JMX.
+     *
+     * @return the name
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Records a call that started at the given time.
+     *
+     * @param start   the value of {@link CatalogMetrics#start()} before the call;
+     *                0 if metrics were disabled, in which case nothing is recorded
+     * @param matches the number of books the call returned or printed
+     */
+    public void record(long start, long matches) {
+        if (start == 0) {
+            return;
+        }
+        latencies.record(System.nanoTime() - start);
+        if (matches > 0) {
+            this.matches.add(matches);
+        }
+    }
+
+    /**
+     * Adds to the number of rows tested against query criteria, and to the
+     * total of the calling thread, see
+     * {@link CatalogMetrics#rowsScannedByCurrentThread()}. Nothing is counted
+     * while metrics are disabled.
+     *
+     * @param rows the number of rows
+     */
+    public void addRowsScanned(long rows) {
+        if (rows > 0 && CatalogMetrics.isEnabled()) {
+            CatalogMetrics.creditCurrentThread(rows);
+            rowsScanned.add(rows);
+        }
+    }
+
+    /**
+     * Returns the latencies of the recorded calls.
+     *
+     * @return the live histogram
+     */
+    public LatencyHistogram latencies() {
+        return latencies;
+    }
+
+    @Override
+    public long getOperations() {
+        return latencies.count();
+    }
+
+    @Override
+    public long getMatches() {
+        return matches.sum();
+    }
+
+    @Override
+    public long getRowsScanned() {
+        return rowsScanned.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latencies.mean() / 1000;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latencies.percentile(50) / 1000.0;
+    }
+
+    @Override
+    public double getP90Micros() {
+        return latencies.percentile(90) / 1000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latencies.percentile(99) / 1000.0;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return latencies.percentile(99.9) / 1000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latencies.max() / 1000.0;
+    }
+
+    @Override
+    public void reset() {
+        latencies.reset();
+        matches.reset();
+        rowsScanned.reset();
+    }
+
+    /**
+     * Appends one report line: the call count, latency percentiles and counters.
+     *
+     * @param out the builder to append to
+     */
+    public void appendTo(StringBuilder out) {
+        out.append(String.format("%-28s calls=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus matches=%d scanned=%d",
+                name, getOperations(), getMeanMicros(), getP50Micros(), getP90Micros(), getP99Micros(),
+                getP999Micros(), getMaxMicros(), getMatches(), getRowsScanned()));
+    }
+}
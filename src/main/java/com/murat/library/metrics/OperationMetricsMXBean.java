@@ -0,0 +1,59 @@
+package com.murat.library.metrics;
+
+/**
+ * JMX view of the {@link OperationMetrics} of one catalog operation,
+ * registered as {@code com.murat.library:type=Operation,name=<operation>}.
+ * Latencies are in microseconds.
+ */
+public interface OperationMetricsMXBean {
+
+    /**
+     * @return the number of timed calls
+     */
+    long getOperations();
+
+    /**
+     * @return the number of books the calls returned or printed
+     */
+    long getMatches();
+
+    /**
+     * @return the number of books or rows the queries of this kind tested against their criteria
+     */
+    long getRowsScanned();
+
+    /**
+     * @return the mean latency
+     */
+    double getMeanMicros();
+
+    /**
+     * @return the median latency
+     */
+    double getP50Micros();
+
+    /**
+     * @return the 90th percentile latency
+     */
+    double getP90Micros();
+
+    /**
+     * @return the 99th percentile latency
+     */
+    double getP99Micros();
+
+    /**
+     * @return the 99.9th percentile latency
+     */
+    double getP999Micros();
+
+    /**
+     * @return the highest latency
+     */
+    double getMaxMicros();
+
+    /**
+     * Clears the latencies and counters.
+     */
+    void reset();
+}
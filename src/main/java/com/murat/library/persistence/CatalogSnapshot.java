@@ -0,0 +1,247 @@
+package com.murat.library.persistence;
+import com.murat.library.Book;
+import com.murat.library.BookRecord;
+import com.murat.library.LibraryManager;
+import com.murat.library.genres.DetailField;
+import com.murat.library.genres.Genre;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary snapshot of a whole catalog, loaded by memory-mapping the file.
+ * <p>
+ * The file consists of, in order (all numbers big-endian):
+ * <ol>
+ *   <li>A 48-byte header: magic {@code LIBSNAP1}, format version, section count,
+ *       book count, offset of the order table, offset of the dictionary,
+ *       string count and name count.</li>
+ *   <li>A section directory: per genre its tag, row count, rows offset and the
+ *       (tag, kind) pair of every genre-specific field (see {@link DetailField}).</li>
+ *   <li>One section of fixed-width rows per genre, sorted by code id: the code id,
+ *       then title, author, page count, category, borrowed and return epoch day,
+ *       then one {@code int} per genre field. Strings are dictionary ids.</li>
+ *   <li>The order table: the row of every book in catalog order.</li>
+ *   <li>The string dictionary: an offset table followed by UTF-8 bytes. Authors
+ *       and categories come first, so name lookups only scan that prefix.</li>
+ * </ol>
+ * Fixed-width sorted rows let a loaded snapshot find a book by binary search
+ * and build it only when it is asked for, so loading costs the same for any
+ * catalog size.
+ */
+public final class CatalogSnapshot {
+
+    /** "LIBSNAP1" in ASCII. */
+    static final long MAGIC = 0x4C4942534E415031L;
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 48;
+    /** Bytes of the fields every row has: the code id and six ints. */
+    static final int FIXED_ROW_BYTES = 32;
+    static final int NO_DATE = Integer.MIN_VALUE;
+    static final int NO_TEXT = -1;
+    static final int KIND_TEXT = 1;
+    static final int KIND_NUMBER = 2;
+
+    private CatalogSnapshot() {
+    }
+
+    /**
+     * Writes a snapshot of the given books, replacing the file atomically.
+     * The file is forced to disk before it replaces the previous one, and the
+     * directory after, so the new snapshot survives a crash once this returns.
+     *
+     * @param file  the snapshot file
+     * @param books the books, in catalog order
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if a book is not one of the genre classes
+     */
+    public static void write(Path file, Collection<Book> books) throws IOException {
+        List<BookRecord> records = new ArrayList<>(books.size());
+        for (Book book : books) {
+            records.add(BookRecord.of(book));
+        }
+
+        // Names first, so lookups by author or category scan only this prefix.
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (BookRecord record : records) {
+            intern(record.author(), ids, strings);
+            intern(record.category(), ids, strings);
+        }
+        int nameCount = strings.size();
+        for (BookRecord record : records) {
+            intern(record.title(), ids, strings);
+            if (record.text1() != null) {
+                intern(record.text1(), ids, strings);
+            }
+            if (record.text2() != null) {
+                intern(record.text2(), ids, strings);
+            }
+        }
+
+        List<List<Integer>> sections = new ArrayList<>();
+        int[] rowOf = new int[records.size()];
+        int nextRow = 0;
+        for (Genre genre : Genre.values()) {
+            List<Integer> section = new ArrayList<>();
+            for (int i = 0; i < records.size(); i++) {
+                if (records.get(i).genre() == genre) {
+                    section.add(i);
+                }
+            }
+            if (section.isEmpty()) {
+                continue;
+            }
+            section.sort(Comparator.comparingLong(i -> records.get(i).codeId()));
+            for (int index : section) {
+                rowOf[index] = nextRow++;
+            }
+            sections.add(section);
+        }
+
+        long offset = HEADER_BYTES;
+        for (List<Integer> section : sections) {
+            offset += 20 + 4L * fieldsOf(records.get(section.get(0))).size();
+        }
+        long[] sectionOffsets = new long[sections.size()];
+        for (int s = 0; s < sections.size(); s++) {
+            sectionOffsets[s] = offset;
+            List<Integer> section = sections.get(s);
+            offset += (long) section.size() * rowBytes(fieldsOf(records.get(section.get(0))));
+        }
+        long orderOffset = offset;
+        long dictionaryOffset = orderOffset + 4L * records.size();
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temporary.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16))) {
+            out.writeLong(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(sections.size());
+            out.writeLong(records.size());
+            out.writeLong(orderOffset);
+            out.writeLong(dictionaryOffset);
+            out.writeInt(strings.size());
+            out.writeInt(nameCount);
+
+            for (int s = 0; s < sections.size(); s++) {
+                List<Integer> section = sections.get(s);
+                BookRecord first = records.get(section.get(0));
+                List<DetailField> fields = fieldsOf(first);
+                out.writeInt(first.genre().getTag());
+                out.writeInt(section.size());
+                out.writeLong(sectionOffsets[s]);
+                out.writeInt(fields.size());
+                for (DetailField field : fields) {
+                    out.writeInt(field.tag() << 8 | (field.slot().isText() ? KIND_TEXT : KIND_NUMBER));
+                }
+            }
+
+            for (List<Integer> section : sections) {
+                for (int index : section) {
+                    BookRecord record = records.get(index);
+                    out.writeLong(record.codeId());
+                    out.writeInt(ids.get(record.title()));
+                    out.writeInt(ids.get(record.author()));
+                    out.writeInt(record.pageCount());
+                    out.writeInt(ids.get(record.category()));
+                    out.writeInt(record.borrowedDate() == null ? NO_DATE : (int) record.borrowedDate().toEpochDay());
+                    out.writeInt(record.returnDate() == null ? NO_DATE : (int) record.returnDate().toEpochDay());
+                    for (DetailField field : fieldsOf(record)) {
+                        if (field.slot().isText()) {
+                            String text = record.text(field.slot());
+                            out.writeInt(text == null ? NO_TEXT : ids.get(text));
+                        } else {
+                            out.writeInt(record.number(field.slot()));
+                        }
+                    }
+                }
+            }
+
+            for (int row : rowOf) {
+                out.writeInt(row);
+            }
+
+            byte[][] encoded = new byte[strings.size()][];
+            long blobBytes = 0;
+            for (int i = 0; i < encoded.length; i++) {
+                encoded[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+                blobBytes += encoded[i].length;
+            }
+            if (blobBytes > Integer.MAX_VALUE) {
+                throw new IOException("String dictionary exceeds 2 GB");
+            }
+            int position = 0;
+            out.writeInt(position);
+            for (byte[] bytes : encoded) {
+                position += bytes.length;
+                out.writeInt(position);
+            }
+            for (byte[] bytes : encoded) {
+                out.write(bytes);
+            }
+            out.flush();
+            stream.getFD().sync();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(file.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Forces a directory's entries to disk, so that a rename inside it is durable.
+     * Windows cannot open directories as files and journals renames itself.
+     */
+    private static void forceDirectory(Path directory) throws IOException {
+        if (directory == null || System.getProperty("os.name", "").startsWith("Windows")) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Maps a snapshot file and returns a manager backed by it.
+     * <p>
+     * Only the header and section directory are read; books are built from the
+     * mapped file when they are looked up, and the author and category index is
+     * built by the first lookup that filters by them. Changes made through the
+     * manager are kept in memory on top of the file, which itself is never
+     * modified.
+     *
+     * @param file the snapshot file
+     * @return a manager holding the books of the snapshot
+     * @throws IOException if the file cannot be mapped or is not a valid snapshot
+     */
+    public static LibraryManager load(Path file) throws IOException {
+        SnapshotReader reader = SnapshotReader.open(file);
+        return new LibraryManager(attach -> new SnapshotCatalog(reader, attach));
+    }
+
+    static int rowBytes(List<DetailField> fields) {
+        return FIXED_ROW_BYTES + 4 * fields.size();
+    }
+
+    private static List<DetailField> fieldsOf(BookRecord record) {
+        return record.genre().getDetailFields();
+    }
+
+    private static void intern(String value, Map<String, Integer> ids, List<String> strings) {
+        if (ids.putIfAbsent(value, strings.size()) == null) {
+            strings.add(value);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.murat.library.persistence;
+
+/**
+ * Decides when a {@link WriteAheadLog} forces its records to stable storage.
+ */
+public enum FsyncPolicy {
+    /**
+     * Every change waits until its record is on disk. Concurrent changes are
+     * group-committed, so they share one fsync instead of paying one each.
+     */
+    ALWAYS,
+    /**
+     * Records are written and forced to disk by a background thread at a fixed
+     * interval. A crash loses at most the changes of the last interval.
+     */
+    INTERVAL,
+    /**
+     * Records are written at a fixed interval but never forced; the operating
+     * system decides when they reach the disk. Survives a process crash only
+     * for records already written.
+     */
+    NEVER
+}
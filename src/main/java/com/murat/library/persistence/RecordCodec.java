@@ -0,0 +1,139 @@
+package com.murat.library.persistence;
+import com.murat.library.BookRecord;
+import com.murat.library.genres.Genre;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Binary encoding of {@link BookRecord}s shared by the persistence formats.
+ * <p>
+ * A book is written as its genre tag, the title, author, page count and
+ * category, both loan dates as epoch days and the four genre-specific slots.
+ * Strings are a length-prefixed UTF-8 sequence, with length -1 for null; a
+ * missing date is {@link Integer#MIN_VALUE}. All numbers are big-endian.
+ * <p>
+ * An instance owns a reusable, growable output buffer and is not thread-safe.
+ */
+final class RecordCodec {
+
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    private ByteBuffer out = ByteBuffer.allocate(512);
+
+    /**
+     * Discards everything written so far.
+     */
+    void clear() {
+        out.clear();
+    }
+
+    /**
+     * Returns the bytes written since the last {@link #clear()}.
+     *
+     * @return a read-only view of the output, valid until the next write
+     */
+    ByteBuffer output() {
+        return out.duplicate().flip().asReadOnlyBuffer();
+    }
+
+    void writeByte(int value) {
+        ensure(1).put((byte) value);
+    }
+
+    void writeInt(int value) {
+        ensure(4).putInt(value);
+    }
+
+    void writeLong(long value) {
+        ensure(8).putLong(value);
+    }
+
+    void writeString(String value) {
+        if (value == null) {
+            writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(bytes.length);
+        ensure(bytes.length).put(bytes);
+    }
+
+    /**
+     * Writes every field of a record except its code id.
+     *
+     * @param record the record to write
+     */
+    void writeBook(BookRecord record) {
+        writeByte(record.genre().getTag());
+        writeString(record.title());
+        writeString(record.author());
+        writeInt(record.pageCount());
+        writeString(record.category());
+        writeInt(record.borrowedDate() == null ? NO_DATE : (int) record.borrowedDate().toEpochDay());
+        writeInt(record.returnDate() == null ? NO_DATE : (int) record.returnDate().toEpochDay());
+        writeString(record.text1());
+        writeString(record.text2());
+        writeInt(record.number1());
+        writeInt(record.number2());
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(String)}.
+     *
+     * @param in the input, positioned at the string
+     * @return the string, or null
+     */
+    static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    /**
+     * Reads a book written by {@link #writeBook(BookRecord)}.
+     *
+     * @param in     the input, positioned at the book; must be backed by an array
+     * @param codeId the code id of the book
+     * @return the record
+     * @throws IllegalArgumentException if the genre tag is unknown
+     */
+    static BookRecord readBook(ByteBuffer in, long codeId) {
+        int tag = in.get();
+        Genre genre = Genre.fromTag(tag);
+        if (genre == null) {
+            throw new IllegalArgumentException("Unknown genre tag: " + tag);
+        }
+        String title = readString(in);
+        String author = readString(in);
+        int pageCount = in.getInt();
+        String category = readString(in);
+        LocalDate borrowedDate = readDate(in);
+        LocalDate returnDate = readDate(in);
+        String text1 = readString(in);
+        String text2 = readString(in);
+        int number1 = in.getInt();
+        int number2 = in.getInt();
+        return new BookRecord(codeId, genre, title, author, pageCount, category,
+                borrowedDate, returnDate, text1, text2, number1, number2);
+    }
+
+    private static LocalDate readDate(ByteBuffer in) {
+        int epochDay = in.getInt();
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    private ByteBuffer ensure(int bytes) {
+        if (out.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + bytes));
+            out.flip();
+            larger.put(out);
+            out = larger;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,357 @@
+package com.murat.library.persistence;
+import com.murat.library.Book;
+import com.murat.library.BookField;
+import com.murat.library.BookQuery;
+import com.murat.library.catalog.CatalogEntry;
+import com.murat.library.catalog.CatalogStore;
+import com.murat.library.catalog.ConcurrentCatalog;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Catalog backed by a memory-mapped {@link CatalogSnapshot}, with changes kept in memory.
+ * <p>
+ * Books of the snapshot are built from the mapped rows only when they are looked
+ * up, and each lookup builds a new object that is handed to the attach callback.
+ * A snapshot book that is changed through its setters is remembered and returned
+ * by later lookups instead of the stale row. Removed snapshot rows are remembered
+ * as well, and books added later live in a {@link ConcurrentCatalog}.
+ * <p>
+ * Code lookups binary-search the snapshot. Author and category filters, searches
+ * and query streams walk the positions of a {@link SnapshotIndex}, so they
+ * cost the number of books with the requested author or category rather than
+ * the size of the snapshot. The index is built by the first lookup that needs
+ * it, so loading a snapshot stays independent of its size.
+ * <p>
+ * Stream positions are the positions in the saved catalog order for snapshot
+ * books, followed by the snapshot size plus the insertion sequence number for
+ * added books.
+ */
+final class SnapshotCatalog implements CatalogStore {
+
+    /** An immutable catalog listing valid for one catalog version. */
+    private record Listing(long version, List<Book> books) { }
+
+    private final SnapshotReader base;
+    /** Author and category index of the snapshot rows, built on first use. */
+    private volatile SnapshotIndex index;
+    private final Consumer<Book> onMaterialize;
+
+    /** Books added after the snapshot was written. */
+    private final ConcurrentCatalog added = new ConcurrentCatalog();
+    /** Snapshot rows whose book was removed. */
+    private final Set<Integer> removedRows = ConcurrentHashMap.newKeySet();
+    /** Snapshot rows whose book was changed, with the changed book. */
+    private final ConcurrentMap<Integer, Book> changedRows = new ConcurrentHashMap<>();
+
+    /** Incremented after every add or remove; invalidates the cached listing. */
+    private final AtomicLong version = new AtomicLong();
+    private volatile Listing listing = new Listing(-1, List.of());
+
+    SnapshotCatalog(SnapshotReader base, Consumer<Book> onMaterialize) {
+        this.base = base;
+        this.onMaterialize = onMaterialize;
+    }
+
+    @Override
+    public void add(Book book) {
+        int row = base.find(book.getCodeId());
+        if (row >= 0 && !removedRows.contains(row)) {
+            throw new IllegalArgumentException("A book with library code '" + book.getLibraryCode() + "' already exists.");
+        }
+        added.add(book);
+        version.incrementAndGet();
+    }
+
+    @Override
+    public Optional<Book> remove(long codeId) {
+        Optional<Book> removed = added.remove(codeId);
+        if (removed.isEmpty()) {
+            int row = base.find(codeId);
+            if (row >= 0 && removedRows.add(row)) {
+                Book changed = changedRows.remove(row);
+                removed = Optional.of(changed != null ? changed : materialize(row));
+            }
+        }
+        if (removed.isPresent()) {
+            version.incrementAndGet();
+        }
+        return removed;
+    }
+
+    @Override
+    public Optional<Book> findById(long codeId) {
+        Optional<Book> book = added.findById(codeId);
+        if (book.isPresent()) {
+            return book;
+        }
+        int row = base.find(codeId);
+        return row < 0 || removedRows.contains(row) ? Optional.empty() : Optional.of(bookAt(row));
+    }
+
+    @Override
+    public Collection<Book> findByAuthor(String author) {
+        if (author == null) {
+            return List.of();
+        }
+        BitSet authorIds = base.namesEqualIgnoringCase(author.trim());
+        List<Book> matches = collect(index().authorPositions(authorIds), authorIds, null, Integer.MAX_VALUE);
+        for (Book book : changedRows.values()) {
+            if (book.getAuthor().equalsIgnoreCase(author.trim())) {
+                matches.add(book);
+            }
+        }
+        matches.addAll(added.findByAuthor(author));
+        return matches;
+    }
+
+    @Override
+    public Collection<Book> findByCategory(String category) {
+        if (category == null) {
+            return List.of();
+        }
+        BitSet categoryIds = base.namesEqualIgnoringCase(category.trim());
+        List<Book> matches = collect(index().categoryPositions(categoryIds), null, categoryIds, Integer.MAX_VALUE);
+        for (Book book : changedRows.values()) {
+            if (book.getCategory().equalsIgnoreCase(category.trim())) {
+                matches.add(book);
+            }
+        }
+        matches.addAll(added.findByCategory(category));
+        return matches;
+    }
+
+    @Override
+    public List<Book> search(String author, String category, int maxPageCount) {
+        if (author == null || category == null) {
+            return List.of();
+        }
+        BitSet authorIds = base.namesEqualIgnoringCase(author.trim());
+        BitSet categoryIds = base.namesEqualIgnoringCase(category.trim());
+        List<Book> matches = collect(driver(authorIds, categoryIds), authorIds, categoryIds, maxPageCount);
+        for (Book book : changedRows.values()) {
+            if (book.getAuthor().equalsIgnoreCase(author.trim())
+                    && book.getCategory().equalsIgnoreCase(category.trim())
+                    && book.getPageCount() <= maxPageCount) {
+                matches.add(book);
+            }
+        }
+        matches.addAll(added.search(author, category, maxPageCount));
+        return matches;
+    }
+
+    /**
+     * Streams the matching books: the snapshot rows in their saved order, then
+     * the added books. When an author or category is requested, only the
+     * positions the index lists for the rarer of the two are visited, together
+     * with the changed rows, whose indexed names may be stale.
+     *
+     * @param query the criteria
+     * @param after the position of the last book already seen, or -1
+     * @return the matching books with their positions
+     */
+    @Override
+    public Stream<CatalogEntry> stream(BookQuery query, long after) {
+        long baseSize = base.size();
+        Stream<CatalogEntry> addedBooks = added.stream(query, Math.max(-1, after - baseSize))
+                .map(entry -> new CatalogEntry(baseSize + entry.position(), entry.book()));
+        BitSet authorIds = query.author() == null ? null : base.namesEqualIgnoringCase(query.author());
+        BitSet categoryIds = query.category() == null ? null : base.namesEqualIgnoringCase(query.category());
+        boolean noSavedMatch = (authorIds != null && authorIds.isEmpty()) || (categoryIds != null && categoryIds.isEmpty());
+        if (after >= baseSize - 1 || (noSavedMatch && changedRows.isEmpty())) {
+            return addedBooks;
+        }
+        IntStream positions;
+        if (authorIds == null && categoryIds == null) {
+            positions = IntStream.range((int) (after + 1), base.size());
+        } else {
+            int[] driver = withChangedRows(driver(authorIds, categoryIds));
+            int from = Arrays.binarySearch(driver, (int) (after + 1));
+            positions = Arrays.stream(driver, from < 0 ? -from - 1 : from, driver.length);
+        }
+        Stream<CatalogEntry> snapshotBooks = positions
+                .mapToObj(position -> entryAt(position, query, authorIds, categoryIds))
+                .filter(entry -> entry != null);
+        return Stream.concat(snapshotBooks, addedBooks);
+    }
+
+    /**
+     * Records a change to a book. A changed snapshot book replaces its row for
+     * all later lookups; other books are re-indexed by the in-memory catalog.
+     */
+    @Override
+    public void reindex(Book book, BookField field, Object previousValue) {
+        int row = base.find(book.getCodeId());
+        if (row >= 0 && !removedRows.contains(row)) {
+            changedRows.put(row, book);
+        } else {
+            added.reindex(book, field, previousValue);
+        }
+    }
+
+    /**
+     * Returns an immutable listing of the catalog: the snapshot books in their
+     * saved order, then the added books. Snapshot books are built when the
+     * listing is read, not when it is created.
+     */
+    @Override
+    public List<Book> snapshot() {
+        long current = version.get();
+        Listing cached = listing;
+        if (cached.version() == current) {
+            return cached.books();
+        }
+        int[] liveRows = null;
+        if (!removedRows.isEmpty()) {
+            liveRows = new int[base.size() - removedRows.size()];
+            int count = 0;
+            for (int position = 0; position < base.size() && count < liveRows.length; position++) {
+                int row = base.rowAt(position);
+                if (!removedRows.contains(row)) {
+                    liveRows[count++] = row;
+                }
+            }
+        }
+        List<Book> books = new LazyListing(liveRows, added.snapshot());
+        listing = new Listing(current, books);
+        return books;
+    }
+
+    @Override
+    public int size() {
+        return base.size() - removedRows.size() + added.size();
+    }
+
+    /**
+     * Returns the index positions of the rarer of the requested author and category.
+     *
+     * @param authorIds   the author ids, or null for any author
+     * @param categoryIds the category ids, or null for any category; not null if the author ids are
+     * @return the positions, ascending
+     */
+    private int[] driver(BitSet authorIds, BitSet categoryIds) {
+        SnapshotIndex index = index();
+        if (categoryIds == null || (authorIds != null && index.authorCount(authorIds) <= index.categoryCount(categoryIds))) {
+            return index.authorPositions(authorIds);
+        }
+        return index.categoryPositions(categoryIds);
+    }
+
+    private SnapshotIndex index() {
+        SnapshotIndex current = index;
+        return current != null ? current : createIndex();
+    }
+
+    private synchronized SnapshotIndex createIndex() {
+        if (index == null) {
+            index = new SnapshotIndex(base);
+        }
+        return index;
+    }
+
+    /** @return the positions with the positions of the changed rows merged in, ascending and distinct */
+    private int[] withChangedRows(int[] positions) {
+        if (changedRows.isEmpty()) {
+            return positions;
+        }
+        int[] merged = Arrays.copyOf(positions, positions.length + changedRows.size());
+        int count = positions.length;
+        for (int row : changedRows.keySet()) {
+            if (count == merged.length) {
+                break;
+            }
+            merged[count++] = index().positionOf(row);
+        }
+        return Arrays.stream(merged, 0, count).sorted().distinct().toArray();
+    }
+
+    /** Builds the live, unchanged books at the given positions that match the criteria. */
+    private List<Book> collect(int[] positions, BitSet authorIds, BitSet categoryIds, int maxPageCount) {
+        List<Book> matches = new ArrayList<>();
+        boolean skipRows = !removedRows.isEmpty() || !changedRows.isEmpty();
+        for (int position : positions) {
+            int row = base.rowAt(position);
+            if ((authorIds == null || authorIds.get(base.authorId(row)))
+                    && (categoryIds == null || categoryIds.get(base.categoryId(row)))
+                    && base.pageCount(row) <= maxPageCount
+                    && !(skipRows && (removedRows.contains(row) || changedRows.containsKey(row)))) {
+                matches.add(materialize(row));
+            }
+        }
+        return matches;
+    }
+
+    /** @return the book at a position of the saved order if it is live and matches, otherwise null */
+    private CatalogEntry entryAt(int position, BookQuery query, BitSet authorIds, BitSet categoryIds) {
+        int row = base.rowAt(position);
+        if (removedRows.contains(row)) {
+            return null;
+        }
+        Book changed = changedRows.get(row);
+        if (changed != null) {
+            boolean matches = changed.getPageCount() <= query.maxPageCount()
+                    && (query.author() == null || changed.getAuthor().equalsIgnoreCase(query.author()))
+                    && (query.category() == null || changed.getCategory().equalsIgnoreCase(query.category()));
+            return matches ? new CatalogEntry(position, changed) : null;
+        }
+        boolean matches = base.pageCount(row) <= query.maxPageCount()
+                && (authorIds == null || authorIds.get(base.authorId(row)))
+                && (categoryIds == null || categoryIds.get(base.categoryId(row)));
+        return matches ? new CatalogEntry(position, materialize(row)) : null;
+    }
+
+    private Book bookAt(int row) {
+        Book changed = changedRows.get(row);
+        return changed != null ? changed : materialize(row);
+    }
+
+    private Book materialize(int row) {
+        Book book = base.record(row).restoreBook();
+        onMaterialize.accept(book);
+        return book;
+    }
+
+    /** The snapshot rows of a listing, followed by the added books. */
+    private final class LazyListing extends AbstractList<Book> implements RandomAccess {
+
+        /** Live snapshot rows in catalog order, or null if no row was removed. */
+        private final int[] liveRows;
+        private final List<Book> addedBooks;
+
+        LazyListing(int[] liveRows, List<Book> addedBooks) {
+            this.liveRows = liveRows;
+            this.addedBooks = addedBooks;
+        }
+
+        @Override
+        public Book get(int index) {
+            int baseCount = baseCount();
+            if (index < baseCount) {
+                return bookAt(liveRows == null ? base.rowAt(index) : liveRows[index]);
+            }
+            return addedBooks.get(index - baseCount);
+        }
+
+        @Override
+        public int size() {
+            return baseCount() + addedBooks.size();
+        }
+
+        private int baseCount() {
+            return liveRows == null ? base.size() : liveRows.length;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.murat.library.persistence;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Author and category indexes over the rows of a {@link SnapshotReader},
+ * built once by the first lookup that filters by author or category.
+ * <p>
+ * For each name id, the catalog positions of the books with that author or
+ * category are stored contiguously and in ascending order in one array, with a
+ * table of where each name's positions start. Lookups therefore cost the
+ * number of matching books rather than the size of the snapshot, as the
+ * indexes of {@link com.murat.library.catalog.ConcurrentCatalog} do. The
+ * index takes three ints per book and two per name, and is never changed:
+ * the catalog overlays removed and changed rows itself.
+ */
+final class SnapshotIndex {
+
+    private final int[] authorStarts;
+    private final int[] authorPositions;
+    private final int[] categoryStarts;
+    private final int[] categoryPositions;
+    /** Catalog position of each row. */
+    private final int[] positionOfRow;
+
+    /**
+     * Reads the author and category columns of every row once.
+     *
+     * @param reader the snapshot
+     */
+    SnapshotIndex(SnapshotReader reader) {
+        int size = reader.size();
+        int names = reader.nameCount();
+        int[] authors = new int[size];
+        int[] categories = new int[size];
+        positionOfRow = new int[size];
+        authorStarts = new int[names + 1];
+        categoryStarts = new int[names + 1];
+        for (int position = 0; position < size; position++) {
+            int row = reader.rowAt(position);
+            positionOfRow[row] = position;
+            authors[position] = reader.authorId(row);
+            categories[position] = reader.categoryId(row);
+            authorStarts[authors[position] + 1]++;
+            categoryStarts[categories[position] + 1]++;
+        }
+        authorPositions = group(authors, authorStarts);
+        categoryPositions = group(categories, categoryStarts);
+    }
+
+    /**
+     * Returns the positions of the books whose author has one of the given ids.
+     *
+     * @param ids the author ids
+     * @return the positions, ascending
+     */
+    int[] authorPositions(BitSet ids) {
+        return positions(ids, authorStarts, authorPositions);
+    }
+
+    /**
+     * Returns the positions of the books whose category has one of the given ids.
+     *
+     * @param ids the category ids
+     * @return the positions, ascending
+     */
+    int[] categoryPositions(BitSet ids) {
+        return positions(ids, categoryStarts, categoryPositions);
+    }
+
+    /** @return the number of books whose author has one of the given ids */
+    int authorCount(BitSet ids) {
+        return count(ids, authorStarts);
+    }
+
+    /** @return the number of books whose category has one of the given ids */
+    int categoryCount(BitSet ids) {
+        return count(ids, categoryStarts);
+    }
+
+    /** @return the catalog position of a row */
+    int positionOf(int row) {
+        return positionOfRow[row];
+    }
+
+    /**
+     * Turns per-name counts, shifted by one, into start offsets and lays out
+     * the positions of each name after its start, by counting sort.
+     */
+    private static int[] group(int[] names, int[] starts) {
+        for (int id = 1; id < starts.length; id++) {
+            starts[id] += starts[id - 1];
+        }
+        int[] next = Arrays.copyOf(starts, starts.length - 1);
+        int[] positions = new int[names.length];
+        for (int position = 0; position < names.length; position++) {
+            positions[next[names[position]]++] = position;
+        }
+        return positions;
+    }
+
+    private static int[] positions(BitSet ids, int[] starts, int[] positions) {
+        int[] matches = new int[count(ids, starts)];
+        int count = 0;
+        for (int id = ids.nextSetBit(0); id >= 0 && id < starts.length - 1; id = ids.nextSetBit(id + 1)) {
+            int length = starts[id + 1] - starts[id];
+            System.arraycopy(positions, starts[id], matches, count, length);
+            count += length;
+        }
+        if (ids.cardinality() > 1) {
+            Arrays.sort(matches);
+        }
+        return matches;
+    }
+
+    private static int count(BitSet ids, int[] starts) {
+        int count = 0;
+        for (int id = ids.nextSetBit(0); id >= 0 && id < starts.length - 1; id = ids.nextSetBit(id + 1)) {
+            count += starts[id + 1] - starts[id];
+        }
+        return count;
+    }
+}
@@ -0,0 +1,277 @@
+package com.murat.library.persistence;
+import com.murat.library.BookRecord;
+import com.murat.library.genres.DetailField;
+import com.murat.library.genres.Genre;
+import com.murat.library.utils.LibraryCodeGenerator;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Read-only access to a memory-mapped {@link CatalogSnapshot} file.
+ * <p>
+ * Rows are addressed by a global row number: the rows of all sections, in file
+ * order. Every accessor reads the mapped buffers with absolute gets only, so
+ * one reader can be shared by any number of threads.
+ */
+final class SnapshotReader {
+
+    /** A genre section with the row offsets of the genre fields known to this version. */
+    private record Section(Genre genre, int firstRow, int rowCount, int rowBytes, ByteBuffer rows, int[] slotOffsets) {
+    }
+
+    private final Section[] sections;
+    private final Section[] byGenreTag = new Section[8];
+    private final int bookCount;
+    private final ByteBuffer order;
+    private final ByteBuffer stringOffsets;
+    private final ByteBuffer strings;
+    private final int nameCount;
+
+    /** Ids of the names equal to each case-folded name; built on first use. */
+    private volatile Map<String, BitSet> namesByFoldedValue;
+
+    private SnapshotReader(Section[] sections, int bookCount, ByteBuffer order,
+                           ByteBuffer stringOffsets, ByteBuffer strings, int nameCount) {
+        this.sections = sections;
+        this.bookCount = bookCount;
+        this.order = order;
+        this.stringOffsets = stringOffsets;
+        this.strings = strings;
+        this.nameCount = nameCount;
+        for (Section section : sections) {
+            byGenreTag[section.genre().getTag()] = section;
+        }
+    }
+
+    /**
+     * Maps a snapshot file. Only the header and section directory are read.
+     *
+     * @param file the snapshot file
+     * @return the reader
+     * @throws IOException if the file cannot be mapped or is not a valid snapshot
+     */
+    static SnapshotReader open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(fileSize, 16 * 1024));
+            if (fileSize < CatalogSnapshot.HEADER_BYTES || header.getLong() != CatalogSnapshot.MAGIC) {
+                throw new IOException("Not a library snapshot: " + file);
+            }
+            int version = header.getInt();
+            if (version != CatalogSnapshot.FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + file);
+            }
+            int sectionCount = header.getInt();
+            long bookCount = header.getLong();
+            long orderOffset = header.getLong();
+            long dictionaryOffset = header.getLong();
+            int stringCount = header.getInt();
+            int nameCount = header.getInt();
+            if (bookCount > Integer.MAX_VALUE || sectionCount > Genre.values().length) {
+                throw new IOException("Corrupt snapshot header in " + file);
+            }
+
+            Section[] sections = new Section[sectionCount];
+            int firstRow = 0;
+            for (int s = 0; s < sectionCount; s++) {
+                Genre genre = Genre.fromTag(header.getInt());
+                int rowCount = header.getInt();
+                long rowsOffset = header.getLong();
+                int fieldCount = header.getInt();
+                if (genre == null) {
+                    throw new IOException("Unknown genre in snapshot " + file);
+                }
+                int[] slotOffsets = {-1, -1, -1, -1};
+                for (int f = 0; f < fieldCount; f++) {
+                    int encoded = header.getInt();
+                    DetailField field = fieldWithTag(genre, encoded >>> 8);
+                    int kind = field == null || field.slot().isText() ? CatalogSnapshot.KIND_TEXT : CatalogSnapshot.KIND_NUMBER;
+                    // Fields this version no longer knows, or whose kind changed, are skipped.
+                    if (field != null && (encoded & 0xFF) == kind) {
+                        slotOffsets[field.slot().ordinal()] = CatalogSnapshot.FIXED_ROW_BYTES + 4 * f;
+                    }
+                }
+                int rowBytes = CatalogSnapshot.FIXED_ROW_BYTES + 4 * fieldCount;
+                ByteBuffer rows = map(channel, rowsOffset, (long) rowCount * rowBytes, file);
+                sections[s] = new Section(genre, firstRow, rowCount, rowBytes, rows, slotOffsets);
+                firstRow += rowCount;
+            }
+            if (firstRow != bookCount) {
+                throw new IOException("Corrupt snapshot sections in " + file);
+            }
+
+            ByteBuffer order = map(channel, orderOffset, 4 * bookCount, file);
+            long stringOffsetsBytes = 4L * (stringCount + 1);
+            ByteBuffer stringOffsets = map(channel, dictionaryOffset, stringOffsetsBytes, file);
+            long stringsOffset = dictionaryOffset + stringOffsetsBytes;
+            ByteBuffer strings = map(channel, stringsOffset, fileSize - stringsOffset, file);
+            return new SnapshotReader(sections, (int) bookCount, order, stringOffsets, strings, nameCount);
+        }
+    }
+
+    /** @return the number of books in the snapshot */
+    int size() {
+        return bookCount;
+    }
+
+    /** @return the number of strings in the snapshot's name table, an upper bound of the author and category ids */
+    int nameCount() {
+        return nameCount;
+    }
+
+    /**
+     * Returns the row of the book at a position in catalog order.
+     *
+     * @param position the position, from 0 to {@link #size()} - 1
+     * @return the global row number
+     */
+    int rowAt(int position) {
+        return order.getInt(4 * position);
+    }
+
+    /**
+     * Finds the row of a book by binary search in its genre section.
+     *
+     * @param codeId the packed library code id
+     * @return the global row number, or -1 if the snapshot has no such book
+     */
+    int find(long codeId) {
+        Genre genre = LibraryCodeGenerator.genreOf(codeId);
+        Section section = genre == null ? null : byGenreTag[genre.getTag()];
+        if (section == null) {
+            return -1;
+        }
+        int low = 0;
+        int high = section.rowCount() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long candidate = section.rows().getLong(middle * section.rowBytes());
+            if (candidate < codeId) {
+                low = middle + 1;
+            } else if (candidate > codeId) {
+                high = middle - 1;
+            } else {
+                return section.firstRow() + middle;
+            }
+        }
+        return -1;
+    }
+
+    /** @return the dictionary id of the author of a row */
+    int authorId(int row) {
+        return intAt(row, 12);
+    }
+
+    /** @return the dictionary id of the category of a row */
+    int categoryId(int row) {
+        return intAt(row, 20);
+    }
+
+    /** @return the page count of a row */
+    int pageCount(int row) {
+        return intAt(row, 16);
+    }
+
+    /**
+     * Returns the dictionary ids of all names equal to the given one ignoring case.
+     *
+     * @param name the author or category to look up, not null
+     * @return the matching ids; empty if no book has this name
+     */
+    BitSet namesEqualIgnoringCase(String name) {
+        Map<String, BitSet> index = namesByFoldedValue;
+        if (index == null) {
+            index = new HashMap<>();
+            for (int id = 0; id < nameCount; id++) {
+                index.computeIfAbsent(string(id).toLowerCase(Locale.ROOT), k -> new BitSet()).set(id);
+            }
+            namesByFoldedValue = index;
+        }
+        BitSet ids = index.get(name.toLowerCase(Locale.ROOT));
+        return ids == null ? new BitSet() : ids;
+    }
+
+    /**
+     * Decodes the full state of a row.
+     *
+     * @param row the global row number
+     * @return the book record
+     */
+    BookRecord record(int row) {
+        Section section = sectionOf(row);
+        ByteBuffer rows = section.rows();
+        int base = (row - section.firstRow()) * section.rowBytes();
+        int[] slots = section.slotOffsets();
+        return new BookRecord(rows.getLong(base), section.genre(),
+                string(rows.getInt(base + 8)), string(rows.getInt(base + 12)), rows.getInt(base + 16),
+                string(rows.getInt(base + 20)), date(rows.getInt(base + 24)), date(rows.getInt(base + 28)),
+                text(rows, base, slots[BookRecord.Slot.TEXT1.ordinal()]),
+                text(rows, base, slots[BookRecord.Slot.TEXT2.ordinal()]),
+                number(rows, base, slots[BookRecord.Slot.NUMBER1.ordinal()]),
+                number(rows, base, slots[BookRecord.Slot.NUMBER2.ordinal()]));
+    }
+
+    private String text(ByteBuffer rows, int base, int offset) {
+        if (offset < 0) {
+            return null;
+        }
+        int id = rows.getInt(base + offset);
+        return id == CatalogSnapshot.NO_TEXT ? null : string(id);
+    }
+
+    private static int number(ByteBuffer rows, int base, int offset) {
+        return offset < 0 ? 0 : rows.getInt(base + offset);
+    }
+
+    private static LocalDate date(int epochDay) {
+        return epochDay == CatalogSnapshot.NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    private String string(int id) {
+        int start = stringOffsets.getInt(4 * id);
+        byte[] bytes = new byte[stringOffsets.getInt(4 * id + 4) - start];
+        strings.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int intAt(int row, int offset) {
+        Section section = sectionOf(row);
+        return section.rows().getInt((row - section.firstRow()) * section.rowBytes() + offset);
+    }
+
+    private Section sectionOf(int row) {
+        for (Section section : sections) {
+            if (row < section.firstRow() + section.rowCount()) {
+                return section;
+            }
+        }
+        throw new IndexOutOfBoundsException("Row " + row + " is outside the snapshot");
+    }
+
+    private static DetailField fieldWithTag(Genre genre, int tag) {
+        List<DetailField> fields = genre.getDetailFields();
+        for (DetailField field : fields) {
+            if (field.tag() == tag) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    private static ByteBuffer map(FileChannel channel, long offset, long length, Path file) throws IOException {
+        if (length < 0 || length > Integer.MAX_VALUE || offset + length > channel.size()) {
+            throw new IOException("Corrupt or oversized snapshot region in " + file);
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    }
+}
@@ -0,0 +1,444 @@
+package com.murat.library.persistence;
+import com.murat.library.Book;
+import com.murat.library.BookField;
+import com.murat.library.BookRecord;
+import com.murat.library.CatalogListener;
+import com.murat.library.LibraryManager;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, checksummed log of every change to a {@link LibraryManager}'s catalog.
+ * <p>
+ * Each change is one record: a 4-byte payload length, the CRC32C of the payload
+ * and the payload itself, which is a type byte, the packed library code id and,
+ * for additions and updates, the full state of the book (see {@link RecordCodec}).
+ * An update always stores the whole book, so replaying it needs no knowledge of
+ * which setter was called.
+ * <p>
+ * Records are appended to an in-memory buffer and written in batches. With
+ * {@link FsyncPolicy#ALWAYS} a change returns only once its batch is on disk,
+ * and every change that arrived while the previous batch was being forced rides
+ * along with the next one (group commit). The other policies write from a
+ * background thread at a fixed interval.
+ * <p>
+ * {@link #open(Path, FsyncPolicy, long, LibraryManager)} replays an existing
+ * log into the manager before it starts recording. A record that was only
+ * partly written when the process died, or whose checksum does not match, ends
+ * the log: it is cut off and everything before it is recovered.
+ * <p>
+ * The log grows with every change until {@link #checkpoint(Path)} writes a
+ * {@link CatalogSnapshot} and empties it. Replay is idempotent: adding a book
+ * that is already present updates it, and updates or removals of absent books
+ * are ignored, so a log that outlived its checkpoint can be replayed on top of
+ * the snapshot safely.
+ */
+public class WriteAheadLog implements CatalogListener, Closeable {
+
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    private static final byte UPDATE = 3;
+
+    /** Bytes before each payload: its length and its checksum. */
+    private static final int HEADER_BYTES = 8;
+
+    /** Upper bound on a payload; longer lengths can only come from a torn header. */
+    private static final int MAX_PAYLOAD_BYTES = 1 << 24;
+
+    private final FileChannel channel;
+    private final LibraryManager manager;
+    private final FsyncPolicy policy;
+    private final ScheduledExecutorService flusher;
+
+    /** Guards the pending buffer, the codec and the append counter. */
+    private final Object appendLock = new Object();
+    /** Serializes batches; always taken before {@link #appendLock}. */
+    private final Object flushLock = new Object();
+
+    private final RecordCodec codec = new RecordCodec();
+    private final CRC32C checksum = new CRC32C();
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    /** Number of records appended so far. */
+    private long appended;
+
+    /** The buffer not currently receiving records; guarded by {@link #flushLock}. */
+    private ByteBuffer spare = ByteBuffer.allocate(64 * 1024);
+    /** Number of records written (and forced, if the policy forces). */
+    private volatile long written;
+
+    /** First write failure; once set, every later change fails. */
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    private WriteAheadLog(FileChannel channel, LibraryManager manager, FsyncPolicy policy, long intervalMillis) {
+        this.channel = channel;
+        this.manager = manager;
+        this.policy = policy;
+        if (policy == FsyncPolicy.ALWAYS) {
+            this.flusher = null;
+        } else {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "wal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Opens or creates a log, replays it into the manager and starts recording
+     * the manager's changes.
+     * <p>
+     * Books already in the manager, such as those of a loaded snapshot, are not recorded.
+     * A damaged last record, left by a crash during a write, is cut off. A damaged
+     * record followed by more records means the log is corrupt; the file is then
+     * left untouched and the log is not opened.
+     *
+     * @param path           the log file
+     * @param policy         when records are forced to disk
+     * @param intervalMillis the write interval for {@link FsyncPolicy#INTERVAL} and {@link FsyncPolicy#NEVER}
+     * @param manager        the manager to restore and record
+     * @return the open log
+     * @throws IOException if the file cannot be read, truncated or opened,
+     *                     or has a damaged record before its last one
+     * @throws IllegalArgumentException if the interval is not positive
+     */
+    public static WriteAheadLog open(Path path, FsyncPolicy policy, long intervalMillis, LibraryManager manager)
+            throws IOException {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive");
+        }
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long validBytes;
+            try {
+                validBytes = replay(channel, manager);
+            } catch (IOException e) {
+                throw new IOException(path + ": " + e.getMessage(), e);
+            }
+            if (validBytes < channel.size()) {
+                System.out.println("Discarding " + (channel.size() - validBytes)
+                        + " bytes of incomplete log records at the end of " + path);
+                channel.truncate(validBytes);
+                channel.force(true);
+            }
+            channel.position(validBytes);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        WriteAheadLog log = new WriteAheadLog(channel, manager, policy, intervalMillis);
+        manager.addListener(log);
+        return log;
+    }
+
+    /**
+     * Records an added book.
+     *
+     * @param book the added book
+     */
+    @Override
+    public void bookAdded(Book book) {
+        append(ADD, book);
+    }
+
+    /**
+     * Records a removed book.
+     *
+     * @param book the removed book
+     */
+    @Override
+    public void bookRemoved(Book book) {
+        append(REMOVE, book);
+    }
+
+    /**
+     * Records the new state of a changed book.
+     *
+     * @param book          the book that changed
+     * @param field         the field that changed
+     * @param previousValue the value before the change
+     */
+    @Override
+    public void bookChanged(Book book, BookField field, Object previousValue) {
+        append(UPDATE, book);
+    }
+
+    /**
+     * Writes all buffered records and forces them to disk, whatever the policy.
+     *
+     * @throws UncheckedIOException if writing fails
+     */
+    public void sync() {
+        long target;
+        synchronized (appendLock) {
+            target = appended;
+        }
+        flush(target, true);
+    }
+
+    /**
+     * Writes a snapshot of the catalog and empties the log, so the next start
+     * loads the snapshot and replays only the changes made after it.
+     * Changes to the catalog wait until the checkpoint is complete.
+     *
+     * @param snapshotFile the snapshot file to replace
+     * @throws IOException if the snapshot cannot be written or the log cannot be truncated
+     */
+    public void checkpoint(Path snapshotFile) throws IOException {
+        synchronized (flushLock) {
+            synchronized (appendLock) {
+                // Changes applied but not yet appended are waiting for appendLock:
+                // the snapshot may already contain them, and replaying their
+                // records on top of it again is harmless. The log is only emptied
+                // once the snapshot and its directory entry are on disk.
+                CatalogSnapshot.write(snapshotFile, manager.getCatalog());
+                channel.truncate(0);
+                channel.position(0);
+                channel.force(true);
+                pending.clear();
+                written = appended;
+            }
+        }
+    }
+
+    /**
+     * Writes and forces all buffered records, then closes the file.
+     * Changes made after closing are no longer recorded.
+     *
+     * @throws IOException if the final write fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        try {
+            sync();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            closed = true;
+            channel.close();
+        }
+    }
+
+    private void append(byte type, Book book) {
+        if (closed) {
+            return;
+        }
+        IOException failed = failure;
+        if (failed != null) {
+            throw new UncheckedIOException("Write-ahead log is unusable after an earlier failure", failed);
+        }
+        long sequence;
+        synchronized (appendLock) {
+            // Encoding under the lock captures the book state in log order,
+            // so the last record of a book always matches its final state.
+            codec.clear();
+            codec.writeByte(type);
+            codec.writeLong(book.getCodeId());
+            if (type != REMOVE) {
+                codec.writeBook(BookRecord.of(book));
+            }
+            ByteBuffer payload = codec.output();
+            checksum.reset();
+            checksum.update(payload.duplicate());
+            ensurePending(HEADER_BYTES + payload.remaining());
+            pending.putInt(payload.remaining());
+            pending.putInt((int) checksum.getValue());
+            pending.put(payload);
+            sequence = ++appended;
+        }
+        if (policy == FsyncPolicy.ALWAYS) {
+            flush(sequence, true);
+        }
+    }
+
+    /**
+     * Writes buffered records until at least {@code target} records are written.
+     * Callers that queue here while another batch is being written usually find
+     * their record already covered by it and return without any I/O.
+     */
+    private void flush(long target, boolean force) {
+        synchronized (flushLock) {
+            if (written >= target) {
+                return;
+            }
+            ByteBuffer batch;
+            long batchEnd;
+            synchronized (appendLock) {
+                batch = pending;
+                batchEnd = appended;
+                pending = spare;
+            }
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                if (force) {
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                failure = e;
+                throw new UncheckedIOException("Cannot write to the write-ahead log", e);
+            } finally {
+                batch.clear();
+                spare = batch;
+            }
+            written = batchEnd;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            long target;
+            synchronized (appendLock) {
+                target = appended;
+            }
+            flush(target, policy == FsyncPolicy.INTERVAL);
+        } catch (UncheckedIOException e) {
+            System.out.println("Write-ahead log flush failed: " + e.getCause().getMessage());
+        }
+    }
+
+    private static void apply(byte type, ByteBuffer record, LibraryManager manager) {
+        long codeId = record.getLong();
+        if (type == REMOVE) {
+            manager.removeBookById(codeId);
+            return;
+        }
+        BookRecord state = RecordCodec.readBook(record, codeId);
+        Optional<Book> existing = manager.findBookById(codeId);
+        if (existing.isPresent()) {
+            state.applyTo(existing.get());
+        } else if (type == ADD) {
+            manager.addBook(state.restoreBook());
+        }
+    }
+
+    private void ensurePending(int bytes) {
+        if (pending.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+    }
+
+    /**
+     * Reads records from the start of the channel and applies them to the manager.
+     * Reading stops at the first damaged record, which must be the last one.
+     *
+     * @return the length of the intact prefix of the log
+     * @throws IOException if the channel cannot be read, or a damaged record is followed by more data
+     */
+    private static long replay(FileChannel channel, LibraryManager manager) throws IOException {
+        long size = channel.size();
+        channel.position(0);
+        InputStream stream = new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024);
+        DataInputStream in = new DataInputStream(stream);
+        CRC32C crc = new CRC32C();
+        long validBytes = 0;
+        byte[] payload = new byte[512];
+        while (true) {
+            int length;
+            int expected;
+            try {
+                length = in.readInt();
+                expected = in.readInt();
+                if (length <= 0) {
+                    return requireZeroTail(channel, validBytes, size);
+                }
+                if (length > MAX_PAYLOAD_BYTES) {
+                    return requireTornTail(validBytes, length, size);
+                }
+                if (payload.length < length) {
+                    payload = new byte[Math.max(length, payload.length * 2)];
+                }
+                in.readFully(payload, 0, length);
+            } catch (EOFException e) {
+                return validBytes;
+            }
+            crc.reset();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != expected) {
+                return requireTornTail(validBytes, length, size);
+            }
+            ByteBuffer record = ByteBuffer.wrap(payload, 0, length);
+            byte type = record.get();
+            if (type != ADD && type != REMOVE && type != UPDATE) {
+                return requireTornTail(validBytes, length, size);
+            }
+            try {
+                apply(type, record, manager);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Skipping logged change that cannot be restored: " + e.getMessage());
+            }
+            validBytes += HEADER_BYTES + length;
+        }
+    }
+
+    /**
+     * Accepts a damaged record only if it is the last one: a record torn by a
+     * crash ends at or past the end of the file.
+     *
+     * @return the offset of the record, where the log is cut
+     */
+    private static long requireTornTail(long offset, int length, long size) throws IOException {
+        if (offset + HEADER_BYTES + length >= size) {
+            return offset;
+        }
+        throw corrupt(offset, size);
+    }
+
+    /**
+     * Accepts a record without a length only if nothing but zeros follows it,
+     * as when the file system extended the file before the crash.
+     *
+     * @return the offset of the record, where the log is cut
+     */
+    private static long requireZeroTail(FileChannel channel, long offset, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        for (long position = offset; position < size; ) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) != 0) {
+                    throw corrupt(offset, size);
+                }
+            }
+            position += read;
+        }
+        return offset;
+    }
+
+    private static IOException corrupt(long offset, long size) {
+        return new IOException("Damaged log record at byte " + offset + " of " + size
+                + " is followed by later records; the log was left unchanged");
+    }
+}
@@ -0,0 +1,92 @@
+package com.murat.library.render;
+import com.murat.library.Book;
+import com.murat.library.BookRecord;
+import com.murat.library.genres.DetailField;
+import com.murat.library.utils.FormatUtils;
+import java.time.LocalDate;
+
+/**
+ * Appends books and strings as JSON text, for {@link RenderFormat#JSON_LINES}
+ * and {@link JsonWriter}. A book becomes one flat object with the field
+ * names read by the JSON importer.
+ */
+final class BookJson {
+
+    private BookJson() {
+    }
+
+    /**
+     * Appends a book as a JSON object.
+     *
+     * @param out  the builder to append to
+     * @param book the book
+     */
+    static void appendBook(StringBuilder out, Book book) {
+        BookRecord record = BookRecord.of(book);
+        out.append("{\"libraryCode\":\"");
+        book.appendLibraryCode(out);
+        out.append("\",\"genre\":\"").append(record.genre().name()).append('"');
+        appendField(out, "title", record.title());
+        appendField(out, "author", record.author());
+        out.append(",\"pageCount\":").append(record.pageCount());
+        appendField(out, "category", record.category());
+        appendDate(out, "borrowedDate", record.borrowedDate());
+        appendDate(out, "returnDate", record.returnDate());
+        for (DetailField field : record.genre().getDetailFields()) {
+            if (field.slot().isText()) {
+                appendField(out, field.name(), record.text(field.slot()));
+            } else {
+                out.append(",\"").append(field.name()).append("\":").append(record.number(field.slot()));
+            }
+        }
+        out.append('}');
+    }
+
+    /**
+     * Appends a string as a quoted, escaped JSON string, or {@code null}.
+     *
+     * @param out   the builder to append to
+     * @param value the string, or null
+     */
+    static void appendString(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    private static void appendField(StringBuilder out, String name, String value) {
+        out.append(",\"").append(name).append("\":");
+        appendString(out, value);
+    }
+
+    private static void appendDate(StringBuilder out, String name, LocalDate date) {
+        out.append(",\"").append(name).append("\":");
+        if (date == null) {
+            out.append("null");
+        } else {
+            out.append('"');
+            FormatUtils.appendDate(out, date);
+            out.append('"');
+        }
+    }
+}
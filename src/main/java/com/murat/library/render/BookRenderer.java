@@ -0,0 +1,251 @@
+package com.murat.library.render;
+import com.murat.library.Book;
+import com.murat.library.BookRecord;
+import com.murat.library.genres.DetailField;
+import com.murat.library.genres.Genre;
+import com.murat.library.utils.FormatUtils;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Writes books to an output stream in a {@link RenderFormat}, through buffers
+ * that are reused for every book.
+ * <p>
+ * Each book is appended to one {@link StringBuilder} field by field, without
+ * intermediate strings, then encoded into a byte buffer that is written
+ * to the stream only when it is full or on {@link #flush()}. Rendering a large
+ * catalog therefore costs one write per buffer instead of one synchronized
+ * console write and several temporary strings per book.
+ * <p>
+ * A renderer is not thread-safe and does not close its stream.
+ */
+public final class BookRenderer implements Flushable {
+
+    /** Column names of the fields every book has, in TSV and JSON Lines order. */
+    private static final String[] BASE_COLUMNS = {
+            "libraryCode", "genre", "title", "author", "pageCount", "category", "borrowedDate", "returnDate"};
+
+    /** Names of all genre fields, in genre order, each once. */
+    private static final List<String> DETAIL_COLUMNS = new ArrayList<>();
+
+    /** For each genre tag, the field shown in each TSV detail column, or null. */
+    private static final DetailField[][] FIELD_IN_COLUMN = new DetailField[8][];
+
+    static {
+        for (Genre genre : Genre.values()) {
+            for (DetailField field : genre.getDetailFields()) {
+                if (!DETAIL_COLUMNS.contains(field.name())) {
+                    DETAIL_COLUMNS.add(field.name());
+                }
+            }
+        }
+        for (Genre genre : Genre.values()) {
+            DetailField[] columns = new DetailField[DETAIL_COLUMNS.size()];
+            for (DetailField field : genre.getDetailFields()) {
+                columns[DETAIL_COLUMNS.indexOf(field.name())] = field;
+            }
+            FIELD_IN_COLUMN[genre.getTag()] = columns;
+        }
+    }
+
+    private final RenderFormat format;
+    private final OutputStream out;
+    private final String lineSeparator = System.lineSeparator();
+
+    private final StringBuilder line = new StringBuilder(256);
+    private char[] chars = new char[256];
+    private CharBuffer charBuffer = CharBuffer.wrap(chars);
+    private final ByteBuffer bytes;
+    private final CharsetEncoder encoder;
+    private boolean headerWritten;
+
+    /**
+     * Creates a renderer that writes UTF-8 through a 64 KB buffer.
+     *
+     * @param format the output format
+     * @param out    the stream to write to
+     */
+    public BookRenderer(RenderFormat format, OutputStream out) {
+        this(format, out, StandardCharsets.UTF_8, 64 * 1024);
+    }
+
+    /**
+     * Creates a renderer.
+     *
+     * @param format      the output format
+     * @param out         the stream to write to
+     * @param charset     the encoding of the output, e.g. the console's for {@link System#out}
+     * @param bufferBytes the size of the byte buffer
+     * @throws IllegalArgumentException if the buffer size is below 16 bytes
+     */
+    public BookRenderer(RenderFormat format, OutputStream out, Charset charset, int bufferBytes) {
+        if (bufferBytes < 16) {
+            throw new IllegalArgumentException("Buffer size must be at least 16 bytes");
+        }
+        this.format = format;
+        this.out = out;
+        this.bytes = ByteBuffer.allocate(bufferBytes);
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * Creates a plain-text renderer for the console, in the encoding {@link System#out} uses.
+     *
+     * @return the renderer
+     */
+    public static BookRenderer console() {
+        return new BookRenderer(RenderFormat.PLAIN, System.out, Charset.defaultCharset(), 64 * 1024);
+    }
+
+    /**
+     * Renders one book as one line.
+     *
+     * @param book the book
+     * @throws IOException if the stream cannot be written
+     */
+    public void render(Book book) throws IOException {
+        line.setLength(0);
+        switch (format) {
+            case PLAIN -> book.appendTo(line);
+            case TSV -> {
+                if (!headerWritten) {
+                    appendTsvHeader();
+                    encodeLine();
+                    line.setLength(0);
+                    headerWritten = true;
+                }
+                appendTsv(book);
+            }
+            case JSON_LINES -> BookJson.appendBook(line, book);
+        }
+        encodeLine();
+    }
+
+    /**
+     * Renders books until the iterator is exhausted.
+     *
+     * @param books the books to render
+     * @return the number of books rendered
+     * @throws IOException if the stream cannot be written
+     */
+    public long renderAll(Iterator<? extends Book> books) throws IOException {
+        long count = 0;
+        while (books.hasNext()) {
+            render(books.next());
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Writes the buffered bytes to the stream and flushes it.
+     *
+     * @throws IOException if the stream cannot be written
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    private void appendTsvHeader() {
+        line.append(String.join("\t", BASE_COLUMNS));
+        for (String column : DETAIL_COLUMNS) {
+            line.append('\t').append(column);
+        }
+    }
+
+    private void appendTsv(Book book) {
+        BookRecord record = BookRecord.of(book);
+        book.appendLibraryCode(line);
+        line.append('\t').append(record.genre().name()).append('\t');
+        appendTsvText(record.title());
+        line.append('\t');
+        appendTsvText(record.author());
+        line.append('\t').append(record.pageCount()).append('\t');
+        appendTsvText(record.category());
+        line.append('\t');
+        appendTsvDate(record.borrowedDate());
+        line.append('\t');
+        appendTsvDate(record.returnDate());
+
+        for (DetailField field : FIELD_IN_COLUMN[record.genre().getTag()]) {
+            line.append('\t');
+            if (field == null) {
+                continue;
+            }
+            if (field.slot().isText()) {
+                appendTsvText(record.text(field.slot()));
+            } else {
+                line.append(record.number(field.slot()));
+            }
+        }
+    }
+
+    private void appendTsvText(String value) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\t' -> line.append("\\t");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\\' -> line.append("\\\\");
+                default -> line.append(c);
+            }
+        }
+    }
+
+    private void appendTsvDate(LocalDate date) {
+        if (date != null) {
+            FormatUtils.appendDate(line, date);
+        }
+    }
+
+    /** Terminates the line in the builder and encodes it into the byte buffer. */
+    private void encodeLine() throws IOException {
+        line.append(lineSeparator);
+        int length = line.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+            charBuffer = CharBuffer.wrap(chars);
+        }
+        line.getChars(0, length, chars, 0);
+        charBuffer.limit(length).position(0);
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(charBuffer, bytes, true);
+            if (result.isOverflow()) {
+                drain();
+            } else {
+                break;
+            }
+        }
+        while (encoder.flush(bytes).isOverflow()) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        if (bytes.position() > 0) {
+            out.write(bytes.array(), 0, bytes.position());
+            bytes.clear();
+        }
+    }
+}
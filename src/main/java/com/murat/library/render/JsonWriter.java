@@ -0,0 +1,265 @@
+package com.murat.library.render;
+import com.murat.library.Book;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams a JSON document to an output stream as UTF-8.
+ * <p>
+ * Values are appended to one reused {@link StringBuilder} and encoded into one
+ * reused byte buffer by a UTF-8 {@link CharsetEncoder}, as {@link BookRenderer}
+ * does; the buffer is written to the stream whenever it fills up and on
+ * {@link #flush()}. A writer can be pointed at another stream with
+ * {@link #reset(OutputStream)}, so a server can keep a few writers and use
+ * them for every response instead of building each response in memory.
+ * <p>
+ * Commas between members and elements are inserted automatically; the caller
+ * is responsible for balancing the begin and end calls. A writer is not
+ * thread-safe and does not close its stream.
+ */
+public final class JsonWriter implements Flushable {
+
+    /** Deepest nesting of objects and arrays. */
+    private static final int MAX_DEPTH = 32;
+
+    private OutputStream out;
+    private final StringBuilder text = new StringBuilder(256);
+    private char[] chars = new char[256];
+    private CharBuffer charBuffer = CharBuffer.wrap(chars);
+    private final ByteBuffer bytes;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    /** Whether the container at each depth already has a member or element. */
+    private final boolean[] hasValue = new boolean[MAX_DEPTH + 1];
+    private int depth;
+    /** Whether a member name was just written, so the next value needs no comma. */
+    private boolean afterName;
+
+    /**
+     * Creates a writer with a 16 KB buffer and no stream.
+     */
+    public JsonWriter() {
+        this(16 * 1024);
+    }
+
+    /**
+     * Creates a writer with no stream.
+     *
+     * @param bufferBytes the size of the byte buffer
+     * @throws IllegalArgumentException if the buffer size is below 16 bytes
+     */
+    public JsonWriter(int bufferBytes) {
+        if (bufferBytes < 16) {
+            throw new IllegalArgumentException("Buffer size must be at least 16 bytes");
+        }
+        this.bytes = ByteBuffer.allocate(bufferBytes);
+    }
+
+    /**
+     * Starts a new document on a stream, discarding anything not yet flushed.
+     *
+     * @param out the stream to write to
+     * @return this writer
+     */
+    public JsonWriter reset(OutputStream out) {
+        this.out = out;
+        bytes.clear();
+        depth = 0;
+        hasValue[0] = false;
+        afterName = false;
+        return this;
+    }
+
+    /**
+     * Opens an object.
+     *
+     * @return this writer
+     * @throws IOException if the stream cannot be written
+     */
+    public JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+
+    /**
+     * Closes the innermost object.
+     *
+     * @return this writer
+     * @throws IOException if the stream cannot be written
+     */
+    public JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    /**
+     * Opens an array.
+     *
+     * @return this writer
+     * @throws IOException if the stream cannot be written
+     */
+    public JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+
+    /**
+     * Closes the innermost array.
+     *
+     * @return this writer
+     * @throws IOException if the stream cannot be written
+     */
+    public JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    /**
+     * Writes the name of the next member of the innermost object.
+     *
+     * @param name the member name
+     * @return this writer
+     * @throws IOException if the stream cannot be written
+     */
+    public JsonWriter name(String name) throws IOException {
+        text.setLength(0);
+        separate();
+        BookJson.appendString(text, name);
+        text.append(':');
+        afterName = true;
+        return emit();
+    }
+
+    /**
+     * Writes a string value, or {@code null}.
+     *
+     * @param value the value, or null
+     * @return this writer
+     * @throws IOException if the stream cannot be written
+     */
+    public JsonWriter value(String value) throws IOException {
+        text.setLength(0);
+        separate();
+        BookJson.appendString(text, value);
+        return emit();
+    }
+
+    /**
+     * Writes a number value.
+     *
+     * @param value the value
+     * @return this writer
+     * @throws IOException if the stream cannot be written
+     */
+    public JsonWriter value(long value) throws IOException {
+        text.setLength(0);
+        separate();
+        text.append(value);
+        return emit();
+    }
+
+    /**
+     * Writes a boolean value.
+     *
+     * @param value the value
+     * @return this writer
+     * @throws IOException if the stream cannot be written
+     */
+    public JsonWriter value(boolean value) throws IOException {
+        text.setLength(0);
+        separate();
+        text.append(value);
+        return emit();
+    }
+
+    /**
+     * Writes a book as an object with the fields of {@link RenderFormat#JSON_LINES}.
+     *
+     * @param book the book
+     * @return this writer
+     * @throws IOException if the stream cannot be written
+     */
+    public JsonWriter book(Book book) throws IOException {
+        text.setLength(0);
+        separate();
+        BookJson.appendBook(text, book);
+        return emit();
+    }
+
+    /**
+     * Writes the buffered bytes to the stream and flushes it.
+     *
+     * @throws IOException if the stream cannot be written
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    private JsonWriter open(char bracket) throws IOException {
+        if (depth == MAX_DEPTH) {
+            throw new IllegalStateException("JSON nested deeper than " + MAX_DEPTH);
+        }
+        text.setLength(0);
+        separate();
+        text.append(bracket);
+        hasValue[++depth] = false;
+        return emit();
+    }
+
+    private JsonWriter close(char bracket) throws IOException {
+        depth--;
+        text.setLength(0);
+        text.append(bracket);
+        return emit();
+    }
+
+    /** Appends the comma owed to the previous sibling and marks the container as non-empty. */
+    private void separate() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (hasValue[depth]) {
+            text.append(',');
+        }
+        hasValue[depth] = true;
+    }
+
+    /** Encodes the builder as UTF-8 into the byte buffer. */
+    private JsonWriter emit() throws IOException {
+        int length = text.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+            charBuffer = CharBuffer.wrap(chars);
+        }
+        text.getChars(0, length, chars, 0);
+        charBuffer.limit(length).position(0);
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(charBuffer, bytes, true);
+            if (result.isOverflow()) {
+                drain();
+            } else {
+                break;
+            }
+        }
+        while (encoder.flush(bytes).isOverflow()) {
+            drain();
+        }
+        return this;
+    }
+
+    private void drain() throws IOException {
+        if (bytes.position() > 0) {
+            out.write(bytes.array(), 0, bytes.position());
+            bytes.clear();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.murat.library.render;
+
+/**
+ * Output formats of a {@link BookRenderer}. Every format writes one line per book.
+ */
+public enum RenderFormat {
+    /**
+     * The console text of {@link com.murat.library.Book#toString()}.
+     */
+    PLAIN,
+    /**
+     * Tab-separated values under a header line. Every genre field has its own
+     * column, left empty for books of other genres. Tabs, line breaks and
+     * backslashes inside values are escaped as {@code \t}, {@code \n},
+     * {@code \r} and {@code \\}.
+     */
+    TSV,
+    /**
+     * One JSON object per line, with the field names read by the JSON importer,
+     * so a listing can be imported again.
+     */
+    JSON_LINES
+}
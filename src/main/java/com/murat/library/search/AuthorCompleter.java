@@ -0,0 +1,522 @@
+package com.murat.library.search;
+import com.murat.library.Book;
+import com.murat.library.BookField;
+import com.murat.library.CatalogListener;
+import com.murat.library.LibraryManager;
+import com.murat.library.utils.StringDictionary;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Type-ahead completion of author names, most-catalogued authors first.
+ * <p>
+ * The distinct author names of the catalog, lower-cased character by
+ * character, form a radix trie: every edge is labelled with a run of
+ * characters kept in one shared {@code char[]}, and every node is a row of
+ * parallel {@code int} arrays, so the trie holds no objects per name. A node
+ * where a name ends records how many catalogued books have that author, and
+ * every node records the highest such count below it.
+ * <p>
+ * A lookup follows the typed prefix down the trie and then expands the nodes
+ * below it best-first, by their highest count, emitting names as soon as no
+ * unexpanded node can beat them. It therefore visits little more than the
+ * path to the prefix and the paths to the names it returns, however many
+ * names share the prefix. With a reused {@link Completions} holder the lookup
+ * allocates nothing.
+ * <p>
+ * The trie is attached to a {@link LibraryManager} as a {@link CatalogListener}
+ * and follows additions, removals and author changes. Names whose count drops
+ * to zero stay in the trie but are no longer suggested. Reads and writes are
+ * guarded by a read-write lock.
+ * <p>
+ * The same trie answers typo-tolerant lookups through
+ * {@link #findSimilar(CharSequence, int, int)}. It walks the trie depth-first
+ * and carries one row of the Levenshtein table per character, which together
+ * simulate a Levenshtein automaton of the query. A branch is abandoned as soon
+ * as every cell of its row exceeds the allowed distance, so names that share
+ * a prefix share the work and most of the trie is never visited.
+ */
+public final class AuthorCompleter implements CatalogListener {
+
+    /** Queue entry flag: the entry stands for the name ending at the node, not for the nodes below it. */
+    private static final int NAME = 1;
+
+    /** Largest edit distance {@link #findSimilar(CharSequence, int, int)} accepts. */
+    public static final int MAX_DISTANCE = 2;
+
+    /** Best matches first: closest, then most books, then alphabetical. */
+    private static final Comparator<AuthorMatch> RANKING = Comparator.comparingInt(AuthorMatch::distance)
+            .thenComparing(Comparator.comparingInt(AuthorMatch::bookCount).reversed())
+            .thenComparing(AuthorMatch::author);
+
+    private final LibraryManager manager;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Edge labels of all nodes. */
+    private char[] labels = new char[4096];
+    private int labelsUsed;
+
+    /** Start and length in {@link #labels} of the label of the edge into each node. */
+    private int[] labelStarts = new int[1024];
+    private int[] labelLengths = new int[1024];
+    /** First child and next sibling of each node, or -1. */
+    private int[] firstChildren = new int[1024];
+    private int[] nextSiblings = new int[1024];
+    /** Number of catalogued books by the name ending at each node; 0 if none ends there. */
+    private int[] bookCounts = new int[1024];
+    /** Highest book count of any name ending at or below each node. */
+    private int[] bestCounts = new int[1024];
+    /** Id in {@link StringDictionary#AUTHORS} of the spelling of the name ending at each node, or -1. */
+    private int[] valueIds = new int[1024];
+    private int nodes;
+    /** Length of the longest name in the trie. */
+    private int longestName;
+
+    /** Nodes from the root to the one last reached by {@link #insert(String)}; written under the write lock. */
+    private int[] path = new int[64];
+    private int pathLength;
+
+    private AuthorCompleter(LibraryManager manager) {
+        this.manager = manager;
+        newNode(0, 0);
+    }
+
+    /**
+     * Collects the authors of a manager's catalog and keeps their book counts
+     * up to date with later changes.
+     *
+     * @param manager the manager whose authors to complete
+     * @return the completer
+     */
+    public static AuthorCompleter attach(LibraryManager manager) {
+        AuthorCompleter completer = new AuthorCompleter(manager);
+        manager.addListenerWithReplay(completer);
+        return completer;
+    }
+
+    /**
+     * Stops following the manager's changes.
+     */
+    public void detach() {
+        manager.removeListener(this);
+    }
+
+    /**
+     * Completes a prefix of an author name.
+     *
+     * @param prefix the typed beginning of the name, in any case
+     * @param limit  the maximum number of completions
+     * @return the completions, most books first
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public List<AuthorCompletion> complete(CharSequence prefix, int limit) {
+        Completions completions = new Completions(limit);
+        complete(prefix, limit, completions);
+        List<AuthorCompletion> result = new ArrayList<>(completions.size());
+        for (int i = 0; i < completions.size(); i++) {
+            result.add(new AuthorCompletion(completions.author(i), completions.bookCount(i)));
+        }
+        return result;
+    }
+
+    /**
+     * Completes a prefix of an author name into a reusable holder, without
+     * allocating once the holder has grown to fit.
+     *
+     * @param prefix the typed beginning of the name, in any case
+     * @param limit  the maximum number of completions
+     * @param out    receives the completions, most books first, replacing its previous ones
+     * @return the number of completions
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public int complete(CharSequence prefix, int limit, Completions out) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Result limit must be positive");
+        }
+        out.clear(limit);
+        lock.readLock().lock();
+        try {
+            int node = find(prefix);
+            if (node < 0 || bestCounts[node] == 0) {
+                return 0;
+            }
+            long[] queue = out.queue;
+            int queued = 0;
+            queue[queued++] = entry(bestCounts[node], node, 0);
+            while (queued > 0 && out.size() < limit) {
+                long top = queue[0];
+                queue[0] = queue[--queued];
+                siftDown(queue, queued);
+                int item = entryItem(top);
+                int current = item >>> 1;
+                if ((item & NAME) != 0) {
+                    out.add(StringDictionary.AUTHORS.get(valueIds[current]), bookCounts[current]);
+                    continue;
+                }
+                if (bookCounts[current] > 0) {
+                    queue = ensureRoom(out, queue, queued);
+                    queue[queued] = entry(bookCounts[current], current, NAME);
+                    siftUp(queue, queued++);
+                }
+                for (int child = firstChildren[current]; child >= 0; child = nextSiblings[child]) {
+                    if (bestCounts[child] > 0) {
+                        queue = ensureRoom(out, queue, queued);
+                        queue[queued] = entry(bestCounts[child], child, 0);
+                        siftUp(queue, queued++);
+                    }
+                }
+            }
+            return out.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the catalogued authors whose names are within a small edit
+     * distance of a possibly misspelled name, ignoring case and surrounding
+     * spaces. The distance counts the characters to insert, delete or replace
+     * to turn one name into the other.
+     *
+     * @param name        the name to look up
+     * @param maxDistance the largest distance to accept, from 0 to {@value #MAX_DISTANCE}
+     * @param limit       the maximum number of authors to return
+     * @return the matches, closest first and, at equal distance, most books first
+     * @throws IllegalArgumentException if the distance is out of range or the limit is not positive
+     */
+    public List<AuthorMatch> findSimilar(CharSequence name, int maxDistance, int limit) {
+        if (maxDistance < 0 || maxDistance > MAX_DISTANCE) {
+            throw new IllegalArgumentException("Edit distance must be between 0 and " + MAX_DISTANCE);
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Result limit must be positive");
+        }
+        String query = name.toString().trim();
+        char[] folded = new char[query.length()];
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = Character.toLowerCase(query.charAt(i));
+        }
+        lock.readLock().lock();
+        try {
+            FuzzySearch search = new FuzzySearch(folded, maxDistance, limit, longestName);
+            search.visitChildren(0, 0);
+            List<AuthorMatch> result = new ArrayList<>(search.matches);
+            result.sort(RANKING);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void bookAdded(Book book) {
+        count(book.getAuthor(), 1);
+    }
+
+    @Override
+    public void bookRemoved(Book book) {
+        count(book.getAuthor(), -1);
+    }
+
+    @Override
+    public void bookChanged(Book book, BookField field, Object previousValue) {
+        if (field == BookField.AUTHOR) {
+            count((String) previousValue, -1);
+            count(book.getAuthor(), 1);
+        }
+    }
+
+    private void count(String author, int delta) {
+        if (author == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int node = insert(author);
+            longestName = Math.max(longestName, author.length());
+            if (valueIds[node] < 0) {
+                valueIds[node] = StringDictionary.AUTHORS.intern(author);
+            }
+            bookCounts[node] = Math.max(0, bookCounts[node] + delta);
+            // Refresh the best counts upwards until one no longer changes.
+            for (int i = pathLength - 1; i >= 0; i--) {
+                int current = path[i];
+                int best = bookCounts[current];
+                for (int child = firstChildren[current]; child >= 0; child = nextSiblings[child]) {
+                    best = Math.max(best, bestCounts[child]);
+                }
+                if (best == bestCounts[current]) {
+                    break;
+                }
+                bestCounts[current] = best;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Returns the node at or below which all names start with the prefix, or -1. */
+    private int find(CharSequence prefix) {
+        int node = 0;
+        int i = 0;
+        while (i < prefix.length()) {
+            int child = child(node, Character.toLowerCase(prefix.charAt(i)));
+            if (child < 0) {
+                return -1;
+            }
+            int start = labelStarts[child];
+            int end = start + labelLengths[child];
+            for (int at = start; at < end && i < prefix.length(); at++, i++) {
+                if (labels[at] != Character.toLowerCase(prefix.charAt(i))) {
+                    return -1;
+                }
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    /**
+     * Returns the node where a name ends, adding nodes and splitting edges as
+     * needed, and leaves the path to it in {@link #path}.
+     */
+    private int insert(String name) {
+        pathLength = 0;
+        int node = 0;
+        pushPath(node);
+        int i = 0;
+        while (i < name.length()) {
+            char c = Character.toLowerCase(name.charAt(i));
+            int child = child(node, c);
+            if (child < 0) {
+                child = newNode(appendLabel(name, i), name.length() - i);
+                nextSiblings[child] = firstChildren[node];
+                firstChildren[node] = child;
+                pushPath(child);
+                return child;
+            }
+            int start = labelStarts[child];
+            int length = labelLengths[child];
+            int matched = 0;
+            while (matched < length && i < name.length()
+                    && labels[start + matched] == Character.toLowerCase(name.charAt(i))) {
+                matched++;
+                i++;
+            }
+            if (matched < length) {
+                child = split(node, child, matched);
+            }
+            node = child;
+            pushPath(node);
+        }
+        return node;
+    }
+
+    /** Puts a new node for the first {@code matched} label characters of {@code child} between it and its parent. */
+    private int split(int parent, int child, int matched) {
+        int middle = newNode(labelStarts[child], matched);
+        labelStarts[child] += matched;
+        labelLengths[child] -= matched;
+        bestCounts[middle] = bestCounts[child];
+        firstChildren[middle] = child;
+        nextSiblings[middle] = nextSiblings[child];
+        nextSiblings[child] = -1;
+        if (firstChildren[parent] == child) {
+            firstChildren[parent] = middle;
+        } else {
+            int previous = firstChildren[parent];
+            while (nextSiblings[previous] != child) {
+                previous = nextSiblings[previous];
+            }
+            nextSiblings[previous] = middle;
+        }
+        return middle;
+    }
+
+    private int child(int node, char c) {
+        for (int child = firstChildren[node]; child >= 0; child = nextSiblings[child]) {
+            if (labels[labelStarts[child]] == c) {
+                return child;
+            }
+        }
+        return -1;
+    }
+
+    private int newNode(int labelStart, int labelLength) {
+        if (nodes == labelStarts.length) {
+            int capacity = nodes * 2;
+            labelStarts = Arrays.copyOf(labelStarts, capacity);
+            labelLengths = Arrays.copyOf(labelLengths, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+            bookCounts = Arrays.copyOf(bookCounts, capacity);
+            bestCounts = Arrays.copyOf(bestCounts, capacity);
+            valueIds = Arrays.copyOf(valueIds, capacity);
+        }
+        int node = nodes++;
+        labelStarts[node] = labelStart;
+        labelLengths[node] = labelLength;
+        firstChildren[node] = -1;
+        nextSiblings[node] = -1;
+        bookCounts[node] = 0;
+        bestCounts[node] = 0;
+        valueIds[node] = -1;
+        return node;
+    }
+
+    /** Appends the lower-cased rest of a name, from {@code from}, to the labels and returns where it starts. */
+    private int appendLabel(String name, int from) {
+        int length = name.length() - from;
+        if (labelsUsed + length > labels.length) {
+            labels = Arrays.copyOf(labels, Math.max(labelsUsed + length, labels.length * 2));
+        }
+        int start = labelsUsed;
+        for (int i = from; i < name.length(); i++) {
+            labels[labelsUsed++] = Character.toLowerCase(name.charAt(i));
+        }
+        return start;
+    }
+
+    private void pushPath(int node) {
+        if (pathLength == path.length) {
+            path = Arrays.copyOf(path, pathLength * 2);
+        }
+        path[pathLength++] = node;
+    }
+
+    /**
+     * State of one {@link #findSimilar} walk: the Levenshtein rows of the
+     * current path and the best matches found so far. Used under the read lock.
+     */
+    private final class FuzzySearch {
+        private final char[] query;
+        private final int maxDistance;
+        private final int limit;
+        /** Row {@code d} holds the distances between the query prefixes and the trie path of length {@code d}. */
+        private final int[] rows;
+        private final int width;
+        /** The kept matches, worst on top. */
+        private final PriorityQueue<AuthorMatch> matches;
+
+        FuzzySearch(char[] query, int maxDistance, int limit, int longestName) {
+            this.query = query;
+            this.maxDistance = maxDistance;
+            this.limit = limit;
+            this.width = query.length + 1;
+            this.rows = new int[(longestName + 1) * width];
+            this.matches = new PriorityQueue<>(limit + 1, RANKING.reversed());
+            for (int j = 0; j < width; j++) {
+                rows[j] = j;
+            }
+        }
+
+        /** Extends the path at {@code node}, of length {@code depth}, by each child edge in turn. */
+        void visitChildren(int node, int depth) {
+            for (int child = firstChildren[node]; child >= 0; child = nextSiblings[child]) {
+                if (bestCounts[child] > 0) {
+                    visit(child, depth);
+                }
+            }
+        }
+
+        private void visit(int node, int depth) {
+            int start = labelStarts[node];
+            int end = start + labelLengths[node];
+            for (int at = start; at < end; at++) {
+                if (nextRow(depth++, labels[at]) > bound()) {
+                    return;
+                }
+            }
+            int distance = rows[depth * width + query.length];
+            if (bookCounts[node] > 0 && distance <= bound()) {
+                offer(new AuthorMatch(StringDictionary.AUTHORS.get(valueIds[node]), distance, bookCounts[node]));
+            }
+            visitChildren(node, depth);
+        }
+
+        /** Fills the row after {@code depth} for the next path character and returns its smallest cell. */
+        private int nextRow(int depth, char c) {
+            int previous = depth * width;
+            int current = previous + width;
+            rows[current] = depth + 1;
+            int smallest = depth + 1;
+            for (int j = 1; j < width; j++) {
+                int cell = Math.min(Math.min(rows[previous + j], rows[current + j - 1]) + 1,
+                        rows[previous + j - 1] + (query[j - 1] == c ? 0 : 1));
+                rows[current + j] = cell;
+                smallest = Math.min(smallest, cell);
+            }
+            return smallest;
+        }
+
+        /** Largest distance that can still make the result. */
+        private int bound() {
+            return matches.size() < limit ? maxDistance : matches.peek().distance();
+        }
+
+        private void offer(AuthorMatch match) {
+            matches.add(match);
+            if (matches.size() > limit) {
+                matches.poll();
+            }
+        }
+    }
+
+    /** Packs a queue entry so that higher counts, then lower node numbers, compare greater. */
+    private static long entry(int count, int node, int flag) {
+        return (long) count << 32 | (Integer.MAX_VALUE - (node << 1 | flag));
+    }
+
+    private static int entryItem(long entry) {
+        return Integer.MAX_VALUE - (int) entry;
+    }
+
+    private static long[] ensureRoom(Completions out, long[] queue, int queued) {
+        if (queued == queue.length) {
+            queue = Arrays.copyOf(queue, queue.length * 2);
+            out.queue = queue;
+        }
+        return queue;
+    }
+
+    private static void siftUp(long[] heap, int i) {
+        long value = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] >= value) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = value;
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        if (size == 0) {
+            return;
+        }
+        long value = heap[0];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1] > heap[child]) {
+                child++;
+            }
+            if (heap[child] <= value) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = value;
+    }
+}
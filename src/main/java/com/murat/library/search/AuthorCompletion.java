@@ -0,0 +1,10 @@
+package com.murat.library.search;
+
+/**
+ * An author name suggested for a typed prefix.
+ *
+ * @param author    the name, spelled as it was first catalogued
+ * @param bookCount the number of catalogued books by the author, ignoring the case of the name
+ */
+public record AuthorCompletion(String author, int bookCount) {
+}
@@ -0,0 +1,11 @@
+package com.murat.library.search;
+
+/**
+ * A catalogued author whose name is close to a looked-up name.
+ *
+ * @param author    the name, spelled as it was first catalogued
+ * @param distance  the number of characters to insert, delete or replace to turn the looked-up name into this one
+ * @param bookCount the number of catalogued books by the author, ignoring the case of the name
+ */
+public record AuthorMatch(String author, int distance, int bookCount) {
+}
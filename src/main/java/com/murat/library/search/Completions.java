@@ -0,0 +1,90 @@
+package com.murat.library.search;
+import java.util.Arrays;
+
+/**
+ * Reusable holder for the results of
+ * {@link AuthorCompleter#complete(CharSequence, int, Completions)}.
+ * <p>
+ * It also carries the working memory of the lookup, so a holder that is kept
+ * and passed to every lookup makes completion allocation-free once its
+ * arrays have grown to fit. A holder is not thread-safe; use one per thread.
+ */
+public final class Completions {
+
+    private String[] authors;
+    private int[] bookCounts;
+    private int size;
+
+    /** Best-first queue of the lookup; see {@link AuthorCompleter}. */
+    long[] queue = new long[64];
+
+    /**
+     * Creates a holder for up to ten completions, growing when asked for more.
+     */
+    public Completions() {
+        this(10);
+    }
+
+    /**
+     * Creates a holder.
+     *
+     * @param capacity the number of completions to make room for
+     */
+    public Completions(int capacity) {
+        authors = new String[Math.max(1, capacity)];
+        bookCounts = new int[authors.length];
+    }
+
+    /**
+     * Returns the number of completions of the last lookup.
+     *
+     * @return the number of completions
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a completed author name.
+     *
+     * @param index the rank of the completion, from 0
+     * @return the name, spelled as it was first catalogued
+     * @throws IndexOutOfBoundsException if the index is not below {@link #size()}
+     */
+    public String author(int index) {
+        return authors[checkIndex(index)];
+    }
+
+    /**
+     * Returns the number of catalogued books by a completed author.
+     *
+     * @param index the rank of the completion, from 0
+     * @return the book count
+     * @throws IndexOutOfBoundsException if the index is not below {@link #size()}
+     */
+    public int bookCount(int index) {
+        return bookCounts[checkIndex(index)];
+    }
+
+    void clear(int limit) {
+        if (limit > authors.length) {
+            authors = new String[limit];
+            bookCounts = new int[limit];
+        }
+        Arrays.fill(authors, 0, size, null);
+        size = 0;
+    }
+
+    void add(String author, int bookCount) {
+        authors[size] = author;
+        bookCounts[size] = bookCount;
+        size++;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Completion " + index + " of " + size);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,173 @@
+package com.murat.library.search;
+import java.util.Arrays;
+
+/**
+ * Ascending list of document numbers, stored as variable-length deltas.
+ * <p>
+ * Each number is written as its distance from the previous one in 7-bit
+ * groups, low group first, with the high bit of a byte marking that another
+ * group follows. Dense lists thus cost about one byte per document. Every
+ * {@link #SKIP_INTERVAL}th entry is also recorded with its byte offset, so a
+ * {@link Cursor} can jump close to a target instead of decoding everything
+ * before it.
+ * <p>
+ * Not thread-safe.
+ */
+final class CompressedPostings {
+
+    /** Entries between two skip points. */
+    static final int SKIP_INTERVAL = 64;
+
+    private byte[] bytes = new byte[4];
+    private int length;
+    private int size;
+    private int last = -1;
+
+    /** Document number of every {@link #SKIP_INTERVAL}th entry, starting with the first. */
+    private int[] skipDocuments = new int[1];
+    /** Byte offset just after each skip entry. */
+    private int[] skipOffsets = new int[1];
+
+    /**
+     * Appends a document number.
+     *
+     * @param document the number, greater than every number added before
+     */
+    void add(int document) {
+        if (size % SKIP_INTERVAL == 0) {
+            int skip = size / SKIP_INTERVAL;
+            if (skip == skipDocuments.length) {
+                skipDocuments = Arrays.copyOf(skipDocuments, skip * 2);
+                skipOffsets = Arrays.copyOf(skipOffsets, skip * 2);
+            }
+            skipDocuments[skip] = document;
+            writeDelta(document - last);
+            skipOffsets[skip] = length;
+        } else {
+            writeDelta(document - last);
+        }
+        last = document;
+        size++;
+    }
+
+    /**
+     * Returns the number of documents.
+     *
+     * @return the list length
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the bytes used by the encoded list and its skip points.
+     *
+     * @return the memory in use, excluding unused capacity and object headers
+     */
+    long memoryBytes() {
+        return length + 8L * ((size + SKIP_INTERVAL - 1) / SKIP_INTERVAL);
+    }
+
+    /**
+     * Returns a new list of the documents that have a new number, renumbered.
+     *
+     * @param renumbered the new number of each document, or -1 to drop it;
+     *                   must keep the order of the documents it keeps
+     * @return the renumbered list, possibly empty
+     */
+    CompressedPostings renumber(int[] renumbered) {
+        CompressedPostings result = new CompressedPostings();
+        Cursor cursor = cursor();
+        for (int document = cursor.next(); document != Cursor.END; document = cursor.next()) {
+            if (renumbered[document] >= 0) {
+                result.add(renumbered[document]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a cursor positioned before the first document.
+     *
+     * @return a new cursor
+     */
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    private void writeDelta(int delta) {
+        if (length + 5 > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(length + 5, bytes.length + (bytes.length >> 1)));
+        }
+        while ((delta & ~0x7F) != 0) {
+            bytes[length++] = (byte) ((delta & 0x7F) | 0x80);
+            delta >>>= 7;
+        }
+        bytes[length++] = (byte) delta;
+    }
+
+    /** Forward-only reader of the list. */
+    final class Cursor {
+        /** Returned once the list is exhausted; greater than every document number. */
+        static final int END = Integer.MAX_VALUE;
+
+        private int offset;
+        private int index;
+        private int document = -1;
+
+        /**
+         * Moves to the next document.
+         *
+         * @return the document number, or {@link #END}
+         */
+        int next() {
+            if (index == size) {
+                document = END;
+                return END;
+            }
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[offset++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            index++;
+            document += delta;
+            return document;
+        }
+
+        /**
+         * Moves to the first document at or after a target, unless the cursor is already there.
+         *
+         * @param target the document number to reach
+         * @return the document number, or {@link #END}
+         */
+        int advance(int target) {
+            if (document >= target) {
+                return document;
+            }
+            // Jump to the last skip point before the target, if it lies ahead.
+            int high = (size - 1) / SKIP_INTERVAL;
+            int low = Math.min(index / SKIP_INTERVAL, high);
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (skipDocuments[middle] < target) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            if (low * SKIP_INTERVAL + 1 > index && skipDocuments[low] < target) {
+                index = low * SKIP_INTERVAL + 1;
+                offset = skipOffsets[low];
+                document = skipDocuments[low];
+            }
+            while (document < target) {
+                next();
+            }
+            return document;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.murat.library.search;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A case-insensitive SQL {@code LIKE} pattern.
+ * <p>
+ * {@code %} matches any run of characters, including none, and {@code _}
+ * matches exactly one character. A backslash makes the next character
+ * literal, so {@code \%} matches a percent sign. Both the pattern and the
+ * matched text are folded with {@link Tokenizer#fold(String)}.
+ */
+final class LikePattern {
+
+    private static final byte LITERAL = 0;
+    private static final byte ONE = 1;
+    private static final byte ANY = 2;
+
+    private final char[] chars;
+    private final byte[] kinds;
+    private final List<String> literals;
+
+    private LikePattern(char[] chars, byte[] kinds, List<String> literals) {
+        this.chars = chars;
+        this.kinds = kinds;
+        this.literals = literals;
+    }
+
+    /**
+     * Parses a pattern.
+     *
+     * @param pattern the pattern
+     * @return the compiled pattern
+     * @throws IllegalArgumentException if the pattern ends with a lone backslash
+     */
+    static LikePattern compile(String pattern) {
+        StringBuilder chars = new StringBuilder(pattern.length());
+        StringBuilder kinds = new StringBuilder(pattern.length());
+        List<String> literals = new ArrayList<>();
+        StringBuilder run = new StringBuilder();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\\') {
+                if (++i == pattern.length()) {
+                    throw new IllegalArgumentException("Pattern cannot end with an escape character");
+                }
+                run.append(pattern.charAt(i));
+            } else if (c == '%' || c == '_') {
+                flush(run, chars, kinds, literals);
+                chars.append(c);
+                kinds.append((char) (c == '%' ? ANY : ONE));
+            } else {
+                run.append(c);
+            }
+        }
+        flush(run, chars, kinds, literals);
+        byte[] kindBytes = new byte[kinds.length()];
+        for (int i = 0; i < kindBytes.length; i++) {
+            kindBytes[i] = (byte) kinds.charAt(i);
+        }
+        return new LikePattern(chars.toString().toCharArray(), kindBytes, literals);
+    }
+
+    /**
+     * Returns a pattern that matches texts containing the given text, with no wildcards.
+     *
+     * @param text the text to look for
+     * @return the pattern {@code %text%}
+     */
+    static LikePattern containing(String text) {
+        StringBuilder pattern = new StringBuilder(text.length() + 8).append('%');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '%' || c == '_' || c == '\\') {
+                pattern.append('\\');
+            }
+            pattern.append(c);
+        }
+        return compile(pattern.append('%').toString());
+    }
+
+    /**
+     * Returns the folded literal runs of the pattern, i.e. the text between wildcards.
+     * Every text the pattern matches contains each of them.
+     *
+     * @return the literal runs, in order
+     */
+    List<String> literals() {
+        return literals;
+    }
+
+    /**
+     * Checks whether a whole text matches the pattern.
+     *
+     * @param text the text, in any case
+     * @return true if it matches
+     */
+    boolean matches(String text) {
+        return matchesFolded(Tokenizer.fold(text));
+    }
+
+    private boolean matchesFolded(String text) {
+        int t = 0;
+        int p = 0;
+        int anyAt = -1;
+        int resumeAt = -1;
+        while (t < text.length()) {
+            if (p < chars.length && (kinds[p] == ONE || (kinds[p] == LITERAL && chars[p] == text.charAt(t)))) {
+                t++;
+                p++;
+            } else if (p < chars.length && kinds[p] == ANY) {
+                // Let the wildcard match nothing first and widen it on a mismatch.
+                anyAt = p++;
+                resumeAt = t;
+            } else if (anyAt >= 0) {
+                p = anyAt + 1;
+                t = ++resumeAt;
+            } else {
+                return false;
+            }
+        }
+        while (p < chars.length && kinds[p] == ANY) {
+            p++;
+        }
+        return p == chars.length;
+    }
+
+    private static void flush(StringBuilder run, StringBuilder chars, StringBuilder kinds, List<String> literals) {
+        if (run.length() == 0) {
+            return;
+        }
+        String folded = Tokenizer.fold(run.toString());
+        literals.add(folded);
+        chars.append(folded);
+        for (int i = 0; i < folded.length(); i++) {
+            kinds.append((char) LITERAL);
+        }
+        run.setLength(0);
+    }
+}
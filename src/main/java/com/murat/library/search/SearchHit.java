@@ -0,0 +1,12 @@
+package com.murat.library.search;
+import com.murat.library.Book;
+
+/**
+ * A book found by a ranked search, with its relevance score.
+ *
+ * @param book  the book
+ * @param score the score; higher is more relevant, and scores are only
+ *              comparable within one search
+ */
+public record SearchHit(Book book, double score) {
+}
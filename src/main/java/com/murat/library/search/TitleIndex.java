@@ -0,0 +1,689 @@
+package com.murat.library.search;
+import com.murat.library.Book;
+import com.murat.library.BookField;
+import com.murat.library.CatalogListener;
+import com.murat.library.LibraryManager;
+import com.murat.library.utils.LongIntHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index over the words of book titles, ranked with Okapi BM25.
+ * <p>
+ * Every title is split into lower-cased words (letters and digits). Each
+ * distinct word has a posting list of the documents containing it, in the
+ * order they were indexed, with the word's frequency in the title packed into
+ * the low bits of each {@code int} entry. A search scores the documents that
+ * contain any of its words by
+ * {@code idf * tf * (k1 + 1) / (tf + k1 * (1 - b + b * length / averageLength))}
+ * summed over the words, with {@code k1 = 1.2} and {@code b = 0.75}.
+ * <p>
+ * Only the best {@code limit} documents are kept, and once that many are
+ * found the lowest of their scores lets the search skip work (MaxScore with
+ * block bounds): words whose best possible contribution cannot lift a document
+ * above that score are only looked up for documents found through the other
+ * words, and runs of 64 postings whose bound cannot reach it are jumped over
+ * without scoring. The score falls as {@code 1 / tf} and {@code length / tf}
+ * grow, so the bound of a run is taken from its highest frequency and its
+ * lowest ratio of title length to frequency; for a run of equal postings it is
+ * their exact score. A query therefore touches only a small part of long
+ * posting lists for common words.
+ * <p>
+ * The index is attached to a {@link LibraryManager} as a {@link CatalogListener}
+ * and follows its additions, removals and title changes. Removed documents
+ * stay in the posting lists, marked by their length, until they make up half
+ * of the index, when the lists are rebuilt without them. Reads and writes are
+ * guarded by a read-write lock.
+ */
+public final class TitleIndex implements CatalogListener {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /** Low bits of a posting that hold the word frequency, capped at {@link #MAX_TF}. */
+    private static final int TF_BITS = 4;
+    private static final int MAX_TF = (1 << TF_BITS) - 1;
+
+    /** Largest document number that fits next to the frequency. */
+    private static final int MAX_DOCS = Integer.MAX_VALUE >>> TF_BITS;
+
+    /** Largest title length, in words, that fits in a block bound; longer titles count as this long. */
+    private static final int MAX_LENGTH = (1 << 24) - 1;
+
+    /** Postings per block bound, as a power of two. */
+    private static final int BLOCK_SHIFT = 6;
+
+    /** Length stored for a removed document. */
+    private static final int REMOVED = -1;
+
+    /** Removed documents tolerated before they are compacted away, whatever the index size. */
+    private static final int MIN_REMOVED_TO_COMPACT = 1024;
+
+    private final LibraryManager manager;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Term number of each word. */
+    private final Map<String, Integer> termIds = new HashMap<>();
+    /** Postings of each term: document number shifted left by {@link #TF_BITS}, plus frequency. */
+    private int[][] postings = new int[1024][];
+    private int[] postingCounts = new int[1024];
+    /**
+     * Bound of each block of each term: the length and frequency of the posting
+     * with the lowest length-to-frequency ratio, and the highest frequency,
+     * packed as {@code length << 8 | frequency << 4 | highest}.
+     */
+    private int[][] blocks = new int[1024][];
+    /** Number of live documents containing each term. */
+    private int[] documentFrequencies = new int[1024];
+    private int terms;
+
+    /** Library code id of each document. */
+    private long[] documentCodes = new long[1024];
+    /** Number of words in each document's title, or {@link #REMOVED}. */
+    private int[] documentLengths = new int[1024];
+    private int documents;
+    private int liveDocuments;
+    private long totalLength;
+    private final LongIntHashMap documentsByCode = new LongIntHashMap();
+
+    private TitleIndex(LibraryManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Indexes the titles of a manager's catalog and keeps the index up to date
+     * with later changes. Changes to a book are held back until it has been
+     * read, so every book is indexed exactly once and removed books never come
+     * back.
+     *
+     * @param manager the manager whose catalog to index
+     * @return the index
+     */
+    public static TitleIndex attach(LibraryManager manager) {
+        TitleIndex index = new TitleIndex(manager);
+        manager.addListenerWithReplay(index);
+        return index;
+    }
+
+    /**
+     * Stops following the manager's changes.
+     */
+    public void detach() {
+        manager.removeListener(this);
+    }
+
+    /**
+     * Returns the number of indexed titles.
+     *
+     * @return the number of books in the index
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocuments;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the books whose titles best match the words of a query.
+     * A book matches if its title contains at least one of the words; books
+     * with equal scores are returned in the order they were indexed.
+     *
+     * @param query the words to look for, in any order and case
+     * @param limit the maximum number of books to return
+     * @return the best matches, highest score first; empty if no title contains any of the words
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public List<SearchHit> search(String query, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Result limit must be positive");
+        }
+        List<String> words = distinct(Tokenizer.words(query));
+        long[] codes;
+        double[] scores;
+        lock.readLock().lock();
+        try {
+            TopScores top = new TopScores(Math.min(limit, Math.max(1, liveDocuments)));
+            rank(words, top);
+            codes = new long[top.size];
+            scores = new double[top.size];
+            top.drainDescending(documentCodes, codes, scores);
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<SearchHit> hits = new ArrayList<>(codes.length);
+        for (int i = 0; i < codes.length; i++) {
+            double score = scores[i];
+            manager.findBookById(codes[i])
+                    .ifPresent(book -> hits.add(new SearchHit(book, score)));
+        }
+        return hits;
+    }
+
+    /**
+     * Finds the books whose titles consist of the same words as a given title,
+     * in any case, as candidates for an exact title lookup. Only the posting
+     * list of the rarest of the words is read, and only titles with as many
+     * words are kept.
+     *
+     * @param title the title
+     * @return the library code ids of the candidates, in the order they were
+     *         indexed, or null if the title has no words to look up
+     */
+    public long[] candidatesFor(String title) {
+        List<String> words = Tokenizer.words(title);
+        if (words.isEmpty()) {
+            return null;
+        }
+        int length = Math.min(words.size(), MAX_LENGTH);
+        lock.readLock().lock();
+        try {
+            int rarest = -1;
+            for (String word : distinct(words)) {
+                Integer term = termIds.get(word);
+                if (term == null || documentFrequencies[term] == 0) {
+                    return new long[0];
+                }
+                if (rarest < 0 || documentFrequencies[term] < documentFrequencies[rarest]) {
+                    rarest = term;
+                }
+            }
+            int[] list = postings[rarest];
+            long[] codes = new long[documentFrequencies[rarest]];
+            int found = 0;
+            for (int i = 0; i < postingCounts[rarest]; i++) {
+                int document = list[i] >>> TF_BITS;
+                if (documentLengths[document] == length) {
+                    codes[found++] = documentCodes[document];
+                }
+            }
+            return Arrays.copyOf(codes, found);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void bookAdded(Book book) {
+        lock.writeLock().lock();
+        try {
+            if (documentsByCode.get(book.getCodeId()) < 0) {
+                insert(book.getCodeId(), book.getTitle());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void bookRemoved(Book book) {
+        lock.writeLock().lock();
+        try {
+            delete(book.getCodeId(), book.getTitle());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void bookChanged(Book book, BookField field, Object previousValue) {
+        if (field != BookField.TITLE) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            delete(book.getCodeId(), (String) previousValue);
+            insert(book.getCodeId(), book.getTitle());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Scores the documents containing any of the words into {@code top}. Called under the read lock. */
+    private void rank(List<String> words, TopScores top) {
+        if (liveDocuments == 0) {
+            return;
+        }
+        double averageLength = Math.max(1.0, (double) totalLength / liveDocuments);
+        List<Cursor> found = new ArrayList<>(words.size());
+        for (String word : words) {
+            Integer term = termIds.get(word);
+            if (term != null && documentFrequencies[term] > 0) {
+                found.add(new Cursor(term, liveDocuments, averageLength));
+            }
+        }
+        if (found.isEmpty()) {
+            return;
+        }
+        // Cheapest words first: the leading ones become optional as the threshold rises.
+        Cursor[] cursors = found.toArray(new Cursor[0]);
+        Arrays.sort(cursors, (a, b) -> Double.compare(a.bound, b.bound));
+        int count = cursors.length;
+        double[] boundUpTo = new double[count];
+        for (int i = 0; i < count; i++) {
+            boundUpTo[i] = cursors[i].bound + (i > 0 ? boundUpTo[i - 1] : 0);
+        }
+
+        double[] optionalUpTo = new double[count];
+        double threshold = 0;
+        int firstRequired = 0;
+        while (firstRequired < count) {
+            int document = Integer.MAX_VALUE;
+            for (int i = firstRequired; i < count; i++) {
+                document = Math.min(document, cursors[i].document());
+            }
+            if (document == Integer.MAX_VALUE) {
+                break;
+            }
+            if (top.isFull()) {
+                // Skip the blocks under every required cursor at once if even their bounds fall short.
+                double blockBound = firstRequired > 0 ? boundUpTo[firstRequired - 1] : 0;
+                int blockEnd = Integer.MAX_VALUE;
+                for (int i = firstRequired; i < count; i++) {
+                    if (cursors[i].hasNext()) {
+                        blockBound += cursors[i].blockBound();
+                        blockEnd = Math.min(blockEnd, cursors[i].blockLastDocument());
+                    }
+                }
+                if (blockBound <= threshold) {
+                    for (int i = firstRequired; i < count; i++) {
+                        cursors[i].advance(blockEnd + 1);
+                    }
+                    continue;
+                }
+            }
+
+            int length = documentLengths[document];
+            double score = 0;
+            for (int i = firstRequired; i < count; i++) {
+                Cursor cursor = cursors[i];
+                if (cursor.document() == document) {
+                    if (length != REMOVED) {
+                        score += cursor.score(length);
+                    }
+                    cursor.next();
+                }
+            }
+            if (length == REMOVED) {
+                continue;
+            }
+            // The title's length bounds what each optional word can add before it is looked up.
+            double optionalBound = 0;
+            for (int i = 0; i < firstRequired; i++) {
+                optionalBound += cursors[i].bound(length);
+                optionalUpTo[i] = optionalBound;
+            }
+            for (int i = firstRequired - 1; i >= 0 && score + optionalUpTo[i] > threshold; i--) {
+                Cursor cursor = cursors[i];
+                cursor.advance(document);
+                if (cursor.document() == document) {
+                    score += cursor.score(length);
+                }
+            }
+            if (top.offer(score, document)) {
+                threshold = top.lowest();
+                while (firstRequired < count && boundUpTo[firstRequired] <= threshold) {
+                    firstRequired++;
+                }
+            }
+        }
+    }
+
+    /** Adds a document. Called under the write lock. */
+    private void insert(long codeId, String title) {
+        List<String> words = Tokenizer.words(title);
+        if (documents == MAX_DOCS) {
+            compact();
+            if (documents == MAX_DOCS) {
+                throw new IllegalStateException("Title index is full");
+            }
+        }
+        if (documents == documentCodes.length) {
+            int capacity = (int) Math.min(MAX_DOCS, documents * 2L);
+            documentCodes = Arrays.copyOf(documentCodes, capacity);
+            documentLengths = Arrays.copyOf(documentLengths, capacity);
+        }
+        int document = documents++;
+        int length = Math.min(words.size(), MAX_LENGTH);
+        documentCodes[document] = codeId;
+        documentLengths[document] = length;
+        documentsByCode.put(codeId, document);
+        liveDocuments++;
+        totalLength += length;
+
+        Collections.sort(words);
+        for (int i = 0; i < words.size(); ) {
+            String word = words.get(i);
+            int frequency = 1;
+            while (i + frequency < words.size() && words.get(i + frequency).equals(word)) {
+                frequency++;
+            }
+            i += frequency;
+            Integer term = termIds.get(word);
+            if (term == null) {
+                term = newTerm();
+                termIds.put(word, term);
+            }
+            appendPosting(term, document, Math.min(frequency, MAX_TF), length);
+            documentFrequencies[term]++;
+        }
+    }
+
+    /** Marks a document removed. Called under the write lock. */
+    private void delete(long codeId, String title) {
+        int document = documentsByCode.get(codeId);
+        if (document < 0) {
+            return;
+        }
+        documentsByCode.remove(codeId);
+        liveDocuments--;
+        totalLength -= documentLengths[document];
+        documentLengths[document] = REMOVED;
+        for (String word : distinct(Tokenizer.words(title))) {
+            Integer term = termIds.get(word);
+            if (term != null && documentFrequencies[term] > 0) {
+                documentFrequencies[term]--;
+            }
+        }
+        int removed = documents - liveDocuments;
+        if (removed > MIN_REMOVED_TO_COMPACT && removed > liveDocuments) {
+            compact();
+        }
+    }
+
+    private int newTerm() {
+        if (terms == postings.length) {
+            int capacity = terms * 2;
+            postings = Arrays.copyOf(postings, capacity);
+            postingCounts = Arrays.copyOf(postingCounts, capacity);
+            blocks = Arrays.copyOf(blocks, capacity);
+            documentFrequencies = Arrays.copyOf(documentFrequencies, capacity);
+        }
+        int term = terms++;
+        postings[term] = new int[2];
+        postingCounts[term] = 0;
+        blocks[term] = new int[1];
+        documentFrequencies[term] = 0;
+        return term;
+    }
+
+    private void appendPosting(int term, int document, int frequency, int length) {
+        int count = postingCounts[term];
+        int[] list = postings[term];
+        if (count == list.length) {
+            list = Arrays.copyOf(list, count + (count >> 1) + 2);
+            postings[term] = list;
+        }
+        list[count] = document << TF_BITS | frequency;
+        postingCounts[term] = count + 1;
+
+        int block = count >> BLOCK_SHIFT;
+        int[] bounds = blocks[term];
+        if (block == bounds.length) {
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            blocks[term] = bounds;
+        }
+        if ((count & ((1 << BLOCK_SHIFT) - 1)) == 0) {
+            bounds[block] = length << 8 | frequency << TF_BITS | frequency;
+        } else {
+            int bound = bounds[block];
+            int boundLength = bound >>> 8;
+            int boundFrequency = (bound >>> TF_BITS) & MAX_TF;
+            if ((long) length * boundFrequency < (long) boundLength * frequency) {
+                boundLength = length;
+                boundFrequency = frequency;
+            }
+            bounds[block] = boundLength << 8 | boundFrequency << TF_BITS | Math.max(bound & MAX_TF, frequency);
+        }
+    }
+
+    /** Renumbers the live documents densely and rebuilds the posting lists without the removed ones. */
+    private void compact() {
+        int[] renumbered = new int[documents];
+        int live = 0;
+        for (int document = 0; document < documents; document++) {
+            if (documentLengths[document] == REMOVED) {
+                renumbered[document] = REMOVED;
+            } else {
+                renumbered[document] = live;
+                documentCodes[live] = documentCodes[document];
+                documentLengths[live] = documentLengths[document];
+                live++;
+            }
+        }
+        documents = live;
+        documentsByCode.clear();
+        for (int document = 0; document < live; document++) {
+            documentsByCode.put(documentCodes[document], document);
+        }
+
+        int[][] oldPostings = postings;
+        int[] oldCounts = postingCounts;
+        int[] oldFrequencies = documentFrequencies;
+        int capacity = Math.max(1024, Integer.highestOneBit(Math.max(1, terms)) * 2);
+        postings = new int[capacity][];
+        postingCounts = new int[capacity];
+        blocks = new int[capacity][];
+        documentFrequencies = new int[capacity];
+        terms = 0;
+        for (Iterator<Map.Entry<String, Integer>> it = termIds.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Integer> entry = it.next();
+            int oldTerm = entry.getValue();
+            if (oldFrequencies[oldTerm] == 0) {
+                it.remove();
+                continue;
+            }
+            int term = newTerm();
+            entry.setValue(term);
+            int[] list = oldPostings[oldTerm];
+            for (int i = 0; i < oldCounts[oldTerm]; i++) {
+                int document = renumbered[list[i] >>> TF_BITS];
+                if (document != REMOVED) {
+                    appendPosting(term, document, list[i] & MAX_TF, documentLengths[document]);
+                }
+            }
+            documentFrequencies[term] = oldFrequencies[oldTerm];
+        }
+    }
+
+    private static List<String> distinct(List<String> words) {
+        return words.size() < 2 ? words : new ArrayList<>(new LinkedHashSet<>(words));
+    }
+
+    /**
+     * BM25 score of one word, {@code idf * (k1 + 1) / (1 + k1 * (1 - b) / tf + lengthWeight * length / tf)}
+     * with {@code lengthWeight = k1 * b / averageLength}. The two frequencies are the same
+     * for a posting; for a block bound they come from different postings, and each
+     * division only grows the result as its frequency grows or its length shrinks.
+     */
+    private static double score(double idf, int frequency, int length, int lengthFrequency, double lengthWeight) {
+        return idf * (K1 + 1) / (1 + K1 * (1 - B) / frequency + lengthWeight * ((double) length / lengthFrequency));
+    }
+
+    /** Position in the posting list of one query word. */
+    private final class Cursor {
+        private final int[] list;
+        private final int end;
+        private final int[] bounds;
+        private final double idf;
+        private final double lengthWeight;
+        /** Highest score the word can add to any document. */
+        private final double bound;
+        /** Highest frequency of the word in any title. */
+        private final int highestFrequency;
+        private int position;
+
+        Cursor(int term, int liveDocuments, double averageLength) {
+            this.list = postings[term];
+            this.end = postingCounts[term];
+            this.bounds = blocks[term];
+            this.lengthWeight = K1 * B / averageLength;
+            int frequency = documentFrequencies[term];
+            this.idf = Math.log(1 + (liveDocuments - frequency + 0.5) / (frequency + 0.5));
+            double highest = 0;
+            int highestFrequency = 1;
+            for (int block = 0; block <= (end - 1) >> BLOCK_SHIFT; block++) {
+                highest = Math.max(highest, boundOf(bounds[block]));
+                highestFrequency = Math.max(highestFrequency, bounds[block] & MAX_TF);
+            }
+            this.bound = highest;
+            this.highestFrequency = highestFrequency;
+        }
+
+        boolean hasNext() {
+            return position < end;
+        }
+
+        /** The current document, or {@link Integer#MAX_VALUE} past the end. */
+        int document() {
+            return position < end ? list[position] >>> TF_BITS : Integer.MAX_VALUE;
+        }
+
+        double score(int length) {
+            int frequency = list[position] & MAX_TF;
+            return TitleIndex.score(idf, frequency, length, frequency, lengthWeight);
+        }
+
+        void next() {
+            position++;
+        }
+
+        /** Highest score the word can add to a document with a title of the given length. */
+        double bound(int length) {
+            return TitleIndex.score(idf, highestFrequency, length, highestFrequency, lengthWeight);
+        }
+
+        /** Highest score the word can add to a document in the current block. */
+        double blockBound() {
+            return boundOf(bounds[position >> BLOCK_SHIFT]);
+        }
+
+        int blockLastDocument() {
+            int last = Math.min(((position >> BLOCK_SHIFT) + 1) << BLOCK_SHIFT, end) - 1;
+            return list[last] >>> TF_BITS;
+        }
+
+        /** Moves to the first document at or after {@code target}, galloping then bisecting. */
+        void advance(int target) {
+            if (position >= end || list[position] >>> TF_BITS >= target) {
+                return;
+            }
+            int low = position;
+            int step = 1;
+            int high = low + step;
+            while (high < end && list[high] >>> TF_BITS < target) {
+                low = high;
+                step <<= 1;
+                high = low + step;
+            }
+            high = Math.min(high, end);
+            // list[low] is before target; the answer lies in (low, high].
+            while (low + 1 < high) {
+                int middle = (low + high) >>> 1;
+                if (list[middle] >>> TF_BITS < target) {
+                    low = middle;
+                } else {
+                    high = middle;
+                }
+            }
+            position = high;
+        }
+
+        private double boundOf(int packed) {
+            return TitleIndex.score(idf, packed & MAX_TF, packed >>> 8, (packed >>> TF_BITS) & MAX_TF, lengthWeight);
+        }
+    }
+
+    /** Bounded min-heap of the best scores; on equal scores the earlier document ranks higher. */
+    private static final class TopScores {
+        private final double[] scores;
+        private final int[] documents;
+        private int size;
+
+        TopScores(int capacity) {
+            scores = new double[capacity];
+            documents = new int[capacity];
+        }
+
+        boolean isFull() {
+            return size == scores.length;
+        }
+
+        double lowest() {
+            return scores[0];
+        }
+
+        /**
+         * Keeps a document if it ranks among the best so far.
+         *
+         * @return true if the heap is full after the offer and its lowest score may have changed
+         */
+        boolean offer(double score, int document) {
+            if (size < scores.length) {
+                int i = size++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (!lower(score, document, scores[parent], documents[parent])) {
+                        break;
+                    }
+                    scores[i] = scores[parent];
+                    documents[i] = documents[parent];
+                    i = parent;
+                }
+                scores[i] = score;
+                documents[i] = document;
+                return isFull();
+            }
+            if (score <= scores[0]) {
+                return false;
+            }
+            siftDown(score, document, size);
+            return true;
+        }
+
+        /** Empties the heap into the output arrays, best first, translating documents to codes. */
+        void drainDescending(long[] codes, long[] outCodes, double[] outScores) {
+            for (int n = size; n > 0; n--) {
+                outCodes[n - 1] = codes[documents[0]];
+                outScores[n - 1] = scores[0];
+                siftDown(scores[n - 1], documents[n - 1], n - 1);
+            }
+            size = 0;
+        }
+
+        private void siftDown(double score, int document, int heapSize) {
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= heapSize) {
+                    break;
+                }
+                if (child + 1 < heapSize && lower(scores[child + 1], documents[child + 1], scores[child], documents[child])) {
+                    child++;
+                }
+                if (!lower(scores[child], documents[child], score, document)) {
+                    break;
+                }
+                scores[i] = scores[child];
+                documents[i] = documents[child];
+                i = child;
+            }
+            scores[i] = score;
+            documents[i] = document;
+        }
+
+        private static boolean lower(double score, int document, double otherScore, int otherDocument) {
+            return score < otherScore || (score == otherScore && document > otherDocument);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.murat.library.search;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits text into lower-cased words for the search indexes.
+ * <p>
+ * A word is a maximal run of letters and digits; everything else separates
+ * words. Case is folded with {@link Locale#ROOT}, so indexing does not depend
+ * on the default locale.
+ */
+final class Tokenizer {
+
+    private Tokenizer() {
+        // Utility class, no instantiation
+    }
+
+    /**
+     * Returns the words of a text in order, including repeats.
+     *
+     * @param text the text, or null
+     * @return the lower-cased words, empty if there are none
+     */
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        int start = -1;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            if (Character.isLetterOrDigit(codePoint)) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                words.add(fold(text.substring(start, i)));
+                start = -1;
+            }
+            i += Character.charCount(codePoint);
+        }
+        if (start >= 0) {
+            words.add(fold(text.substring(start)));
+        }
+        return words;
+    }
+
+    /**
+     * Folds the case of a text the way the indexes do.
+     *
+     * @param text the text
+     * @return the lower-cased text
+     */
+    static String fold(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+}
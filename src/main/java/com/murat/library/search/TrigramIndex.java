@@ -0,0 +1,487 @@
+package com.murat.library.search;
+import com.murat.library.Book;
+import com.murat.library.BookField;
+import com.murat.library.BookQuery;
+import com.murat.library.CatalogListener;
+import com.murat.library.LibraryManager;
+import com.murat.library.utils.LongIntHashMap;
+import com.murat.library.utils.StringDictionary;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trigram index over book titles and author names for substring and
+ * {@code LIKE} searches.
+ * <p>
+ * Every run of three consecutive characters of a folded (lower-cased) text
+ * is a trigram, and each trigram has a {@link CompressedPostings} list of the
+ * texts containing it. A search takes the trigrams of the literal parts of its
+ * pattern, intersects their lists starting with the shortest one, and checks
+ * each remaining candidate against the whole pattern, since sharing all
+ * trigrams does not guarantee a match. Patterns without a literal part of
+ * three characters cannot be narrowed and are checked against every title,
+ * in catalog order, or every author name.
+ * <p>
+ * Titles are indexed per book. Authors are indexed once per distinct name,
+ * ignoring case, together with the number of catalogued books by it; a name
+ * whose count drops to zero stays in the index but is no longer found. Matching
+ * names are then resolved to books through {@link LibraryManager#query(BookQuery)}.
+ * <p>
+ * The index is attached to a {@link LibraryManager} as a {@link CatalogListener}
+ * and follows its additions, removals and title and author changes. Removed
+ * books stay in the title lists until they make up half of the index, when
+ * the lists are rebuilt without them. Reads and writes are guarded by a
+ * read-write lock.
+ */
+public final class TrigramIndex implements CatalogListener {
+
+    /** Removed books tolerated before they are compacted away, whatever the index size. */
+    private static final int MIN_REMOVED_TO_COMPACT = 1024;
+
+    private final LibraryManager manager;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Texts titles = new Texts();
+    /** Library code id of each title document, or 0 once the book is removed. */
+    private long[] documentCodes = new long[1024];
+    private int liveDocuments;
+    private final LongIntHashMap documentsByCode = new LongIntHashMap();
+
+    private final Texts authors = new Texts();
+    /** Id in {@link StringDictionary#AUTHORS} of the spelling each author document was indexed with. */
+    private int[] authorValueIds = new int[1024];
+    /** Number of catalogued books by each author document. */
+    private int[] authorBooks = new int[1024];
+    /** Author document of each folded id of {@link StringDictionary#AUTHORS}, or -1. */
+    private int[] authorsByFoldedId = new int[0];
+
+    private TrigramIndex(LibraryManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Indexes the titles and authors of a manager's catalog and keeps the index
+     * up to date with later changes. Changes to a book are held back until it
+     * has been read, so every book is indexed exactly once and removed books
+     * never come back.
+     *
+     * @param manager the manager whose catalog to index
+     * @return the index
+     */
+    public static TrigramIndex attach(LibraryManager manager) {
+        TrigramIndex index = new TrigramIndex(manager);
+        manager.addListenerWithReplay(index);
+        return index;
+    }
+
+    /**
+     * Stops following the manager's changes.
+     */
+    public void detach() {
+        manager.removeListener(this);
+    }
+
+    /**
+     * Finds books whose title or author contains a text, ignoring case.
+     *
+     * @param field {@link BookField#TITLE} or {@link BookField#AUTHOR}
+     * @param text  the text to look for; wildcard characters are matched literally
+     * @param limit the maximum number of books to return
+     * @return the matching books, in catalog order for titles and grouped by author for authors
+     * @throws IllegalArgumentException if the field cannot be searched or the limit is not positive
+     */
+    public List<Book> contains(BookField field, String text, int limit) {
+        return find(field, LikePattern.containing(text), limit);
+    }
+
+    /**
+     * Finds books whose title or author matches a {@code LIKE} pattern, ignoring case.
+     * {@code %} stands for any run of characters and {@code _} for one character;
+     * a backslash makes the next character literal.
+     *
+     * @param field   {@link BookField#TITLE} or {@link BookField#AUTHOR}
+     * @param pattern the pattern the whole title or name must match
+     * @param limit   the maximum number of books to return
+     * @return the matching books, in catalog order for titles and grouped by author for authors
+     * @throws IllegalArgumentException if the field cannot be searched, the pattern
+     *                                  ends with a lone backslash or the limit is not positive
+     */
+    public List<Book> like(BookField field, String pattern, int limit) {
+        return find(field, LikePattern.compile(pattern), limit);
+    }
+
+    /**
+     * Returns the memory taken by the posting lists of both fields.
+     *
+     * @return the encoded size in bytes
+     */
+    public long postingBytes() {
+        lock.readLock().lock();
+        try {
+            return titles.memoryBytes() + authors.memoryBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void bookAdded(Book book) {
+        lock.writeLock().lock();
+        try {
+            if (documentsByCode.get(book.getCodeId()) < 0) {
+                insertTitle(book.getCodeId(), book.getTitle());
+                countAuthor(book.getAuthorId(), book.getAuthor(), 1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void bookRemoved(Book book) {
+        lock.writeLock().lock();
+        try {
+            if (deleteTitle(book.getCodeId())) {
+                countAuthor(book.getAuthorId(), book.getAuthor(), -1);
+                compactIfSparse();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void bookChanged(Book book, BookField field, Object previousValue) {
+        if (field != BookField.TITLE && field != BookField.AUTHOR) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (documentsByCode.get(book.getCodeId()) < 0) {
+                return;
+            }
+            if (field == BookField.TITLE) {
+                deleteTitle(book.getCodeId());
+                insertTitle(book.getCodeId(), book.getTitle());
+                compactIfSparse();
+            } else {
+                String previous = (String) previousValue;
+                countAuthor(StringDictionary.AUTHORS.lookupFolded(previous), previous, -1);
+                countAuthor(book.getAuthorId(), book.getAuthor(), 1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<Book> find(BookField field, LikePattern pattern, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Result limit must be positive");
+        }
+        return switch (field) {
+            case TITLE -> findTitles(pattern, limit);
+            case AUTHOR -> findAuthors(pattern, limit);
+            default -> throw new IllegalArgumentException("Only titles and authors can be searched by substring");
+        };
+    }
+
+    private List<Book> findTitles(LikePattern pattern, int limit) {
+        long[] trigrams = trigrams(pattern.literals());
+        if (trigrams.length == 0) {
+            // Nothing to narrow by: reading the catalog in order beats fetching each book by code.
+            return manager.query(BookQuery.all())
+                    .filter(book -> pattern.matches(book.getTitle()))
+                    .limit(limit)
+                    .toList();
+        }
+        List<Book> books = new ArrayList<>(Math.min(limit, 256));
+        lock.readLock().lock();
+        try {
+            Iterator<Integer> candidates = titles.candidates(trigrams);
+            while (books.size() < limit && candidates.hasNext()) {
+                long code = documentCodes[candidates.next()];
+                if (code == 0) {
+                    continue;
+                }
+                Optional<Book> book = manager.findBookById(code);
+                if (book.isPresent() && pattern.matches(book.get().getTitle())) {
+                    books.add(book.get());
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return books;
+    }
+
+    private List<Book> findAuthors(LikePattern pattern, int limit) {
+        List<String> names = new ArrayList<>();
+        long[] trigrams = trigrams(pattern.literals());
+        lock.readLock().lock();
+        try {
+            Iterator<Integer> candidates = authors.candidates(trigrams);
+            long found = 0;
+            // The book counts tell when the names found so far cover the limit.
+            while (found < limit && candidates.hasNext()) {
+                int author = candidates.next();
+                String name = StringDictionary.AUTHORS.get(authorValueIds[author]);
+                if (authorBooks[author] > 0 && pattern.matches(name)) {
+                    names.add(name);
+                    found += authorBooks[author];
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Book> books = new ArrayList<>(Math.min(limit, 256));
+        for (String name : names) {
+            Iterator<Book> byAuthor = manager.query(BookQuery.byAuthor(name)).iterator();
+            while (books.size() < limit && byAuthor.hasNext()) {
+                books.add(byAuthor.next());
+            }
+            if (books.size() == limit) {
+                break;
+            }
+        }
+        return books;
+    }
+
+    /** Adds a title document. Called under the write lock. */
+    private void insertTitle(long codeId, String title) {
+        int document = titles.add(title);
+        if (document == documentCodes.length) {
+            documentCodes = Arrays.copyOf(documentCodes, document * 2);
+        }
+        documentCodes[document] = codeId;
+        documentsByCode.put(codeId, document);
+        liveDocuments++;
+    }
+
+    /** Marks a title document removed. Called under the write lock. */
+    private boolean deleteTitle(long codeId) {
+        int document = documentsByCode.get(codeId);
+        if (document < 0) {
+            return false;
+        }
+        documentsByCode.remove(codeId);
+        documentCodes[document] = 0;
+        liveDocuments--;
+        return true;
+    }
+
+    /** Adjusts the book count of an author, indexing the name when it is first seen. Called under the write lock. */
+    private void countAuthor(int foldedId, String name, int delta) {
+        if (foldedId < 0) {
+            return;
+        }
+        if (foldedId >= authorsByFoldedId.length) {
+            int oldLength = authorsByFoldedId.length;
+            authorsByFoldedId = Arrays.copyOf(authorsByFoldedId, Math.max(foldedId + 1, oldLength * 2));
+            Arrays.fill(authorsByFoldedId, oldLength, authorsByFoldedId.length, -1);
+        }
+        int author = authorsByFoldedId[foldedId];
+        if (author < 0) {
+            author = authors.add(name);
+            if (author == authorValueIds.length) {
+                authorValueIds = Arrays.copyOf(authorValueIds, author * 2);
+                authorBooks = Arrays.copyOf(authorBooks, author * 2);
+            }
+            authorValueIds[author] = StringDictionary.AUTHORS.intern(name);
+            authorsByFoldedId[foldedId] = author;
+        }
+        authorBooks[author] = Math.max(0, authorBooks[author] + delta);
+    }
+
+    /** Renumbers the live title documents densely once removed ones make up half of the index. */
+    private void compactIfSparse() {
+        int removed = titles.size() - liveDocuments;
+        if (removed <= MIN_REMOVED_TO_COMPACT || removed <= liveDocuments) {
+            return;
+        }
+        int[] renumbered = new int[titles.size()];
+        int live = 0;
+        for (int document = 0; document < titles.size(); document++) {
+            if (documentCodes[document] == 0) {
+                renumbered[document] = -1;
+            } else {
+                renumbered[document] = live;
+                documentCodes[live] = documentCodes[document];
+                documentsByCode.put(documentCodes[live], live);
+                live++;
+            }
+        }
+        titles.renumber(renumbered, live);
+    }
+
+    /** Returns the distinct trigrams of the folded texts, sorted. */
+    private static long[] trigrams(List<String> folded) {
+        int count = 0;
+        for (String text : folded) {
+            count += Math.max(0, text.length() - 2);
+        }
+        long[] keys = new long[count];
+        int size = 0;
+        for (String text : folded) {
+            size = appendTrigrams(text, keys, size);
+        }
+        return distinct(keys, size);
+    }
+
+    private static int appendTrigrams(String folded, long[] keys, int size) {
+        for (int i = 0; i + 3 <= folded.length(); i++) {
+            // The high bit keeps the key from ever being 0, which the hash map reserves.
+            keys[size++] = 1L << 48 | (long) folded.charAt(i) << 32 | (long) folded.charAt(i + 1) << 16 | folded.charAt(i + 2);
+        }
+        return size;
+    }
+
+    private static long[] distinct(long[] keys, int size) {
+        Arrays.sort(keys, 0, size);
+        int unique = 0;
+        for (int i = 0; i < size; i++) {
+            if (unique == 0 || keys[unique - 1] != keys[i]) {
+                keys[unique++] = keys[i];
+            }
+        }
+        return Arrays.copyOf(keys, unique);
+    }
+
+    /** The trigram lists of one field over documents numbered in the order they were added. */
+    private static final class Texts {
+        private final LongIntHashMap trigramIds = new LongIntHashMap();
+        private CompressedPostings[] postings = new CompressedPostings[1024];
+        private int trigrams;
+        private int documents;
+        private long[] scratch = new long[64];
+
+        int size() {
+            return documents;
+        }
+
+        /** Indexes a text as the next document and returns its number. */
+        int add(String text) {
+            String folded = Tokenizer.fold(text);
+            if (scratch.length < folded.length()) {
+                scratch = new long[folded.length()];
+            }
+            int document = documents++;
+            long[] keys = distinct(scratch, appendTrigrams(folded, scratch, 0));
+            for (long key : keys) {
+                int trigram = trigramIds.get(key);
+                if (trigram < 0) {
+                    if (trigrams == postings.length) {
+                        postings = Arrays.copyOf(postings, trigrams * 2);
+                    }
+                    trigram = trigrams++;
+                    postings[trigram] = new CompressedPostings();
+                    trigramIds.put(key, trigram);
+                }
+                postings[trigram].add(document);
+            }
+            return document;
+        }
+
+        /**
+         * Returns the documents that contain all the trigrams, in ascending order,
+         * or every document if there are none. Must be consumed under the read lock.
+         */
+        Iterator<Integer> candidates(long[] keys) {
+            if (keys.length == 0) {
+                return new Iterator<>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < documents;
+                    }
+
+                    @Override
+                    public Integer next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return next++;
+                    }
+                };
+            }
+            CompressedPostings[] lists = new CompressedPostings[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                int trigram = trigramIds.get(keys[i]);
+                if (trigram < 0) {
+                    return List.<Integer>of().iterator();
+                }
+                lists[i] = postings[trigram];
+            }
+            Arrays.sort(lists, Comparator.comparingInt(CompressedPostings::size));
+            CompressedPostings.Cursor[] cursors = new CompressedPostings.Cursor[lists.length];
+            for (int i = 0; i < lists.length; i++) {
+                cursors[i] = lists[i].cursor();
+            }
+            return new Intersection(cursors);
+        }
+
+        /** Rebuilds every list with the documents renumbered, dropping those mapped to -1. */
+        void renumber(int[] renumbered, int live) {
+            for (int trigram = 0; trigram < trigrams; trigram++) {
+                postings[trigram] = postings[trigram].renumber(renumbered);
+            }
+            documents = live;
+        }
+
+        long memoryBytes() {
+            long bytes = 0;
+            for (int trigram = 0; trigram < trigrams; trigram++) {
+                bytes += postings[trigram].memoryBytes();
+            }
+            return bytes;
+        }
+    }
+
+    /** Leapfrog intersection of posting cursors, shortest list first. */
+    private static final class Intersection implements Iterator<Integer> {
+        private final CompressedPostings.Cursor[] cursors;
+        private int next;
+
+        Intersection(CompressedPostings.Cursor[] cursors) {
+            this.cursors = cursors;
+            this.next = align(cursors[0].next());
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != CompressedPostings.Cursor.END;
+        }
+
+        @Override
+        public Integer next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int current = next;
+            next = align(cursors[0].next());
+            return current;
+        }
+
+        /** Moves all cursors to the first document at or after {@code document} that every list contains. */
+        private int align(int document) {
+            int i = 1;
+            while (document != CompressedPostings.Cursor.END && i < cursors.length) {
+                int found = cursors[i].advance(document);
+                if (found == document) {
+                    i++;
+                } else {
+                    document = cursors[0].advance(found);
+                    i = 1;
+                }
+            }
+            return document;
+        }
+    }
+}
@@ -1,4 +1,5 @@
 package com.murat.library.utils;
+import com.murat.library.events.ValidationFailureEvent;
 import java.time.LocalDate;
 
 public class AuthorUtils {
@@ -10,21 +11,14 @@ public class AuthorUtils {
      * @return the validated year of birth, or 0 if invalid
      */
     public static int validateBirthYear(int year){
-        int currentYear = LocalDate.now().getYear();
-        try{
-            if(year > currentYear){
-                throw new Exception("Birth year cannot be in the future. Current year is " + currentYear + ", you entered: " + year);    
-        }if(year < 0){
-            throw new Exception("Birth year cannot be negative. You entered: " + year);
+        if(!isValidBirthYear(year, LocalDate.now().getYear())){
+            ValidationFailureEvent.emit("Year of birth", year, "Invalid year of birth");
+            System.out.println("Invalid year of birth");
+            return 0;
         }
         return year;
-    }catch(Exception e){
-        System.out.println("Invalid year of birth");
-        return 0;
     }
 
-}
-
     /**
      * Validates the death year of an author.
      *
@@ -33,21 +27,67 @@ public class AuthorUtils {
      * @return the validated year of death, or -1 if the author is still alive
      */
     public static int validateDeathYear(int birthYear ,int deathYear){
-        int currentYear = LocalDate.now().getYear();
-        try{
-        if(deathYear == -1){
-                return -1;
-        }
-        if(deathYear > currentYear){
-            throw new Exception("Death year cannot be in the future. Current year is " + currentYear + ", you entered: " + deathYear);
-        }if(deathYear <= birthYear){
-            throw new Exception("Death year cannot be before birth year. Birth year is " + birthYear + ", you entered: " + deathYear);
+        if(!isValidDeathYear(birthYear, deathYear, LocalDate.now().getYear())){
+            ValidationFailureEvent.emit("Year of death", deathYear, "Invalid year of death");
+            System.out.println("Invalid year of death");
+            return 0;
         }
         return deathYear;
-    }catch(Exception e){
-        System.out.println("Invalid year of death");
-        return 0;
     }
 
+    /**
+     * Checks a birth year without printing anything.
+     *
+     * @param year        the year of birth
+     * @param currentYear the current year
+     * @return true if the year is neither negative nor in the future
+     */
+    public static boolean isValidBirthYear(int year, int currentYear){
+        return year >= 0 && year <= currentYear;
+    }
+
+    /**
+     * Checks a death year without printing anything.
+     *
+     * @param birthYear   the year of birth
+     * @param deathYear   the year of death, or -1 if the author is still alive
+     * @param currentYear the current year
+     * @return true if the author is alive, or died after the birth year and not in the future
+     */
+    public static boolean isValidDeathYear(int birthYear, int deathYear, int currentYear){
+        return deathYear == -1 || (deathYear > birthYear && deathYear <= currentYear);
+    }
+
+    /**
+     * Checks a birth year without printing or throwing.
+     *
+     * @param year        the year of birth
+     * @param currentYear the current year
+     * @return the error message, or null if the year is valid
+     */
+    public static String birthYearError(int year, int currentYear){
+        if(!isValidBirthYear(year, currentYear)){
+            String message = "Invalid year of birth: " + year;
+            ValidationFailureEvent.emit("Year of birth", year, message);
+            return message;
+        }
+        return null;
+    }
+
+    /**
+     * Checks a death year without printing or throwing.
+     *
+     * @param birthYear   the year of birth
+     * @param deathYear   the year of death, or -1 if the author is still alive
+     * @param currentYear the current year
+     * @return the error message, or null if the year is valid
+     */
+    public static String deathYearError(int birthYear, int deathYear, int currentYear){
+        if(!isValidDeathYear(birthYear, deathYear, currentYear)){
+            String message = "Invalid year of death: " + deathYear;
+            ValidationFailureEvent.emit("Year of death", deathYear, message);
+            return message;
+        }
+        return null;
     }
-}
\ No newline at end of file
+}
@@ -1,4 +1,5 @@
 package com.murat.library.utils;
+import com.murat.library.events.ValidationFailureEvent;
 
 public class BookUtils {
     private BookUtils(){
@@ -13,8 +14,9 @@ public class BookUtils {
      * @throws IllegalArgumentException if the input is null or blank
      */
     public static String validateBasicText(String input, String fieldName){
-        if(input == null || input.trim().isEmpty()){
-            throw new IllegalArgumentException(fieldName + " cannot be empty");
+        String error = basicTextError(input, fieldName);
+        if(error != null){
+            throw new IllegalArgumentException(error);
         }
         return input.trim();
     }
@@ -27,11 +29,9 @@ public class BookUtils {
      * @throws IllegalArgumentException if input is null, blank, or contains digits
      */
     public static String validateNameText(String input, String fieldName){
-        if(input == null || input.trim().isEmpty()){
-            throw new IllegalArgumentException(fieldName + " cannot be empty");
-        }
-        if(input.matches(".*\\d.*")){
-            throw new IllegalArgumentException(fieldName + " cannot contain numbers.");
+        String error = nameTextError(input, fieldName);
+        if(error != null){
+            throw new IllegalArgumentException(error);
         }
         return input.trim();
     }
@@ -43,8 +43,9 @@ public class BookUtils {
      * @throws IllegalArgumentException if page count is zero, negative, or unrealistically high
      */
     public static int validatePageCount(int pageCount){
-        if(pageCount <= 0 || pageCount >10000){
-            throw new IllegalArgumentException("Page count must be between 1 and 10,000.");
+        String error = pageCountError(pageCount);
+        if(error != null){
+            throw new IllegalArgumentException(error);
         }
         return pageCount;
     }
@@ -56,9 +57,89 @@ public class BookUtils {
      * @throws IllegalArgumentException if level is not in the 1–10 range
      */
     public static int validateLevel1to10(int level){
-        if(level < 1 || level > 10){
-            throw new IllegalArgumentException("Level must be between 1 and 10");
+        String error = levelError(level);
+        if(error != null){
+            throw new IllegalArgumentException(error);
         }
         return level;
     }
+    /**
+     * Checks that the input is not null or blank, without throwing.
+     *
+     * @param input     the input string to check
+     * @param fieldName the name of the field (used in the error message)
+     * @return the error message, or null if the input is valid
+     */
+    public static String basicTextError(String input, String fieldName){
+        if(input == null || input.trim().isEmpty()){
+            String message = fieldName + " cannot be empty";
+            ValidationFailureEvent.emit(fieldName, input, message);
+            return message;
+        }
+        return null;
+    }
+    /**
+     * Checks that the input is not null, not blank, and does not contain any digits, without throwing.
+     *
+     * @param input     the input string to check
+     * @param fieldName the name of the field (used in the error message)
+     * @return the error message, or null if the input is valid
+     */
+    public static String nameTextError(String input, String fieldName){
+        if(input == null || input.trim().isEmpty()){
+            String message = fieldName + " cannot be empty";
+            ValidationFailureEvent.emit(fieldName, input, message);
+            return message;
+        }
+        if(containsDigit(input)){
+            String message = fieldName + " cannot contain numbers.";
+            ValidationFailureEvent.emit(fieldName, input, message);
+            return message;
+        }
+        return null;
+    }
+    /**
+     * Checks that the page count is between 1 and 10,000, without throwing.
+     *
+     * @param pageCount the number of pages
+     * @return the error message, or null if the page count is valid
+     */
+    public static String pageCountError(int pageCount){
+        if(pageCount <= 0 || pageCount > 10000){
+            String message = "Page count must be between 1 and 10,000.";
+            ValidationFailureEvent.emit("Page count", pageCount, message);
+            return message;
+        }
+        return null;
+    }
+    /**
+     * Checks that a level is in the 1–10 range, without throwing.
+     *
+     * @param level the level to check
+     * @return the error message, or null if the level is valid
+     */
+    public static String levelError(int level){
+        if(level < 1 || level > 10){
+            String message = "Level must be between 1 and 10";
+            ValidationFailureEvent.emit("Level", level, message);
+            return message;
+        }
+        return null;
+    }
+    /**
+     * Tells whether the input contains an ASCII digit, like the regex {@code \d}
+     * but without compiling a pattern on every call.
+     *
+     * @param input the input string
+     * @return true if any character is between '0' and '9'
+     */
+    public static boolean containsDigit(String input){
+        for(int i = 0; i < input.length(); i++){
+            char c = input.charAt(i);
+            if(c >= '0' && c <= '9'){
+                return true;
+            }
+        }
+        return false;
+    }
 }
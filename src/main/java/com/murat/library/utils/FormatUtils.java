@@ -0,0 +1,52 @@
+package com.murat.library.utils;
+import java.time.LocalDate;
+
+/**
+ * Appends values to a {@link StringBuilder} without creating intermediate strings.
+ */
+public final class FormatUtils {
+
+    private FormatUtils() {
+        // Utility class, no instantiation
+    }
+
+    /**
+     * Appends a date in the {@code yyyy-MM-dd} form of {@link LocalDate#toString()},
+     * or {@code null} if there is no date.
+     *
+     * @param out  the builder to append to
+     * @param date the date, or null
+     */
+    public static void appendDate(StringBuilder out, LocalDate date) {
+        if (date == null) {
+            out.append("null");
+            return;
+        }
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            out.append(date);
+            return;
+        }
+        appendPadded(out, year, 4);
+        out.append('-');
+        appendPadded(out, date.getMonthValue(), 2);
+        out.append('-');
+        appendPadded(out, date.getDayOfMonth(), 2);
+    }
+
+    /**
+     * Appends a non-negative number, left-padded with zeros to the given width.
+     *
+     * @param out   the builder to append to
+     * @param value the number
+     * @param width the minimum number of digits
+     */
+    public static void appendPadded(StringBuilder out, long value, int width) {
+        for (long limit = 10; width > 1; width--, limit *= 10) {
+            if (value < limit) {
+                out.append('0');
+            }
+        }
+        out.append(value);
+    }
+}
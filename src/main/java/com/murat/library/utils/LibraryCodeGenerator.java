@@ -0,0 +1,229 @@
+package com.murat.library.utils;
+import com.murat.library.events.CodeGenerationEvent;
+import com.murat.library.genres.Genre;
+import java.security.SecureRandom;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Central generator for the unique library codes of all genres.
+ * <p>
+ * A code is a compact 64-bit id with the following layout (high to low bits):
+ * <pre>
+ *  1 bit   always 0
+ *  3 bits  genre tag ({@link Genre#getTag()})
+ * 40 bits  milliseconds since 2024-01-01T00:00Z (about 34 years)
+ *  8 bits  node id, unique per process
+ * 12 bits  sequence within the millisecond
+ * </pre>
+ * Ids are produced with a single lock-free compare-and-set. When more than
+ * 4096 ids are requested within one millisecond, the sequence carries into
+ * the timestamp, borrowing the next millisecond instead of waiting for it,
+ * so ids never repeat within a process. Distinct processes stay distinct
+ * through the node id, read from the {@code library.nodeId} system property
+ * (0–255). Without it the node id is drawn at random: process ids are no
+ * substitute, since containers commonly all run as the same pid, but eight
+ * random bits still let two processes collide one time in 256, so
+ * deployments running several processes against shared storage must give
+ * each its own {@code library.nodeId}.
+ * <p>
+ * The human-readable {@code BK-<prefix><yyyyMMddHHmmssSSS>-<node>-<sequence>}
+ * form is only built by {@link #render(long)} when it is asked for.
+ */
+public final class LibraryCodeGenerator {
+
+    /** 2024-01-01T00:00:00Z in epoch milliseconds. */
+    private static final long EPOCH_MILLIS = 1_704_067_200_000L;
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final int NODE_BITS = 8;
+    private static final int TIMESTAMP_BITS = 40;
+    private static final int NODE_SHIFT = SEQUENCE_BITS;
+    private static final int TIMESTAMP_SHIFT = SEQUENCE_BITS + NODE_BITS;
+    private static final int GENRE_SHIFT = TIMESTAMP_SHIFT + TIMESTAMP_BITS;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final long NODE_MASK = (1L << NODE_BITS) - 1;
+    private static final long TIMESTAMP_MASK = (1L << TIMESTAMP_BITS) - 1;
+
+    /** Node id of this process. */
+    private static final long NODE_ID = resolveNodeId();
+
+    /** Last issued (timestamp << SEQUENCE_BITS | sequence). */
+    private static final AtomicLong lastStamp = new AtomicLong();
+
+    private LibraryCodeGenerator() {
+        // Utility class, no instantiation
+    }
+
+    /**
+     * Generates a new unique code id for a book of the given genre.
+     *
+     * @param genre the genre of the book
+     * @return a positive, unique 64-bit code id
+     */
+    public static long nextId(Genre genre) {
+        CodeGenerationEvent event = CodeGenerationEvent.start();
+        long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long previous;
+        long next;
+        int retries = -1;
+        do {
+            retries++;
+            previous = lastStamp.get();
+            next = Math.max(now, previous + 1);
+        } while (!lastStamp.compareAndSet(previous, next));
+
+        long timestamp = (next >>> SEQUENCE_BITS) & TIMESTAMP_MASK;
+        long id = ((long) genre.getTag() << GENRE_SHIFT)
+                | (timestamp << TIMESTAMP_SHIFT)
+                | (NODE_ID << NODE_SHIFT)
+                | (next & SEQUENCE_MASK);
+        event.finish(genre, id, retries);
+        return id;
+    }
+
+    /**
+     * Returns the genre packed into a code id.
+     *
+     * @param id the code id
+     * @return the genre, or null if the id carries no valid genre
+     */
+    public static Genre genreOf(long id) {
+        return Genre.fromTag((int) (id >>> GENRE_SHIFT));
+    }
+
+    /**
+     * Renders a code id in its human-readable form,
+     * e.g. {@code BK-B20250515143022123-017-42}.
+     *
+     * @param id the code id
+     * @return the library code string
+     * @throws IllegalArgumentException if the id carries no valid genre
+     */
+    public static String render(long id) {
+        StringBuilder code = new StringBuilder(32);
+        render(id, code);
+        return code.toString();
+    }
+
+    /**
+     * Appends the human-readable form of a code id, without creating a string for it.
+     *
+     * @param id   the code id
+     * @param code the builder to append to
+     * @throws IllegalArgumentException if the id carries no valid genre
+     */
+    public static void render(long id, StringBuilder code) {
+        Genre genre = genreOf(id);
+        if (genre == null) {
+            throw new IllegalArgumentException("Invalid library code id: " + id);
+        }
+        long millis = EPOCH_MILLIS + ((id >>> TIMESTAMP_SHIFT) & TIMESTAMP_MASK);
+        LocalDateTime time = LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000),
+                Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC);
+
+        code.append("BK-").append(genre.getCodePrefix());
+        FormatUtils.appendPadded(code, time.getYear(), 4);
+        FormatUtils.appendPadded(code, time.getMonthValue(), 2);
+        FormatUtils.appendPadded(code, time.getDayOfMonth(), 2);
+        FormatUtils.appendPadded(code, time.getHour(), 2);
+        FormatUtils.appendPadded(code, time.getMinute(), 2);
+        FormatUtils.appendPadded(code, time.getSecond(), 2);
+        FormatUtils.appendPadded(code, Math.floorMod(millis, 1000), 3);
+        code.append('-');
+        FormatUtils.appendPadded(code, (id >>> NODE_SHIFT) & NODE_MASK, 3);
+        code.append('-').append(id & SEQUENCE_MASK);
+    }
+
+    /**
+     * Parses a rendered library code back into its id (case-insensitive).
+     *
+     * @param code the library code string
+     * @return the code id, or 0 if the string is not a valid library code
+     */
+    public static long parse(String code) {
+        if (code == null) {
+            return 0;
+        }
+        String text = code.trim();
+        if (text.length() < 3 || !text.regionMatches(true, 0, "BK-", 0, 3)) {
+            return 0;
+        }
+        int position = 3;
+        while (position < text.length() && Character.isLetter(text.charAt(position))) {
+            position++;
+        }
+        Genre genre = Genre.fromCodePrefix(text.substring(3, position));
+        int firstDash = text.indexOf('-', position);
+        int secondDash = firstDash < 0 ? -1 : text.indexOf('-', firstDash + 1);
+        if (genre == null || firstDash != position + 17 || secondDash < 0) {
+            return 0;
+        }
+        long year = digits(text, position, position + 4);
+        long month = digits(text, position + 4, position + 6);
+        long day = digits(text, position + 6, position + 8);
+        long hour = digits(text, position + 8, position + 10);
+        long minute = digits(text, position + 10, position + 12);
+        long second = digits(text, position + 12, position + 14);
+        long milli = digits(text, position + 14, firstDash);
+        long node = digits(text, firstDash + 1, secondDash);
+        long sequence = digits(text, secondDash + 1, text.length());
+        if ((year | month | day | hour | minute | second | milli | node | sequence) < 0
+                || node > NODE_MASK || sequence > SEQUENCE_MASK) {
+            return 0;
+        }
+        long timestamp;
+        try {
+            timestamp = LocalDateTime.of((int) year, (int) month, (int) day, (int) hour, (int) minute, (int) second)
+                    .toEpochSecond(ZoneOffset.UTC) * 1000 + milli - EPOCH_MILLIS;
+        } catch (DateTimeException e) {
+            return 0;
+        }
+        if (timestamp < 0 || timestamp > TIMESTAMP_MASK) {
+            return 0;
+        }
+        return ((long) genre.getTag() << GENRE_SHIFT)
+                | (timestamp << TIMESTAMP_SHIFT)
+                | (node << NODE_SHIFT)
+                | sequence;
+    }
+
+    /**
+     * Parses the decimal digits in {@code text[from, to)}.
+     *
+     * @return the value, or -1 if the range is empty, too long or contains a non-digit
+     */
+    private static long digits(String text, int from, int to) {
+        if (from >= to || to - from > 9) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+
+    private static long resolveNodeId() {
+        String configured = System.getProperty("library.nodeId");
+        if (configured != null) {
+            try {
+                long node = Long.parseLong(configured.trim());
+                if (node >= 0 && node <= NODE_MASK) {
+                    return node;
+                }
+            } catch (NumberFormatException e) {
+                // fall through to a random node id
+            }
+            System.err.println("Ignoring invalid library.nodeId '" + configured + "', expected 0-" + NODE_MASK);
+        }
+        return new SecureRandom().nextInt(1 << NODE_BITS);
+    }
+}
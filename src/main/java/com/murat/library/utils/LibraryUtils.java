@@ -1,15 +1,41 @@
 package com.murat.library.utils;
 import com.murat.library.Book;
+import com.murat.library.BookField;
+import com.murat.library.BookPage;
+import com.murat.library.BookQuery;
 import com.murat.library.LibraryManager;
+import com.murat.library.circulation.Loan;
+import com.murat.library.metrics.CatalogMetrics;
+import com.murat.library.render.BookRenderer;
+import com.murat.library.search.AuthorCompleter;
+import com.murat.library.search.AuthorCompletion;
+import com.murat.library.search.AuthorMatch;
+import com.murat.library.search.SearchHit;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 import java.util.Scanner;
+import java.util.stream.Stream;
 /**
  * Utility class for library-related helper methods.
  * Contains reusable static methods for interacting with the LibraryManager.
+ * <p>
+ * The printing methods are console consumers of {@link LibraryManager#query(BookQuery)}:
+ * they print books as the query finds them and never hold the whole result.
  */
 public class LibraryUtils {
 
+    /** Number of books {@link #printPages} shows at a time. */
+    public static final int PAGE_SIZE = 20;
+
+    /** Number of author names suggested when an author has no books. */
+    private static final int SUGGESTION_COUNT = 5;
+
     private LibraryUtils(){
 
     }
@@ -24,15 +50,13 @@ public class LibraryUtils {
      */
     public static void findBookByCode(LibraryManager manager,String libraryCode){
         libraryCode = BookUtils.validateBasicText(libraryCode,"Library Code");
-        for(Book book : manager.getCatalog()){
-            if(book.getLibraryCode().equals(libraryCode)){
-                System.out.println("Book found:");
-                System.out.println(book);
-                return;
-            }
+        Optional<Book> book = manager.findBookByCode(libraryCode);
+        if(book.isPresent()){
+            System.out.println("Book found:");
+            System.out.println(book.get());
+        }else{
+            System.out.println("Book not found.");
         }
-        System.out.println("Book not found.");
-
     }
 
     /**
@@ -46,40 +70,55 @@ public class LibraryUtils {
      */
     public static void filterByCategory(LibraryManager manager , String category){
         category = BookUtils.validateNameText(category,"Category");
-        boolean anyMatch = false;
-        for(Book book : manager.getCatalog()){
-            if(book.getCategory().equalsIgnoreCase(category)){
-                if (!anyMatch) {
-                    anyMatch = true;
-                }
-                System.out.println(book);
-            }
-        }
-        if(!anyMatch){
-            System.out.println("No books found in category '" + category + "'.");
-        }
+        long start = CatalogMetrics.start();
+        long printed = printAll(manager.query(BookQuery.byCategory(category)), null,
+                "No books found in category '" + category + "'.");
+        CatalogMetrics.CONSOLE_FILTER_BY_CATEGORY.record(start, printed);
     }
     /**
      * Filters the catalog by author name and prints matching books.
-     * If no books are found, a message is displayed.
+     * If no books are found, a message is displayed together with the
+     * catalogued authors whose names start with the given text.
      *
      * @param manager the LibraryManager instance containing the book catalog
      * @param author  the author's name to filter by (case-insensitive)
      */
     public static void filterByAuthor(LibraryManager manager , String author){
         author = BookUtils.validateNameText(author,"Author");
-        boolean anyMatch = false;
-        for(Book book : manager.getCatalog()){
-            if (book.getAuthor().equalsIgnoreCase( author )){
-                if(!anyMatch){
-                    System.out.println("Books by author '" + author + "':");
-                    anyMatch = true;
-                }
-                System.out.println(book);
+        long start = CatalogMetrics.start();
+        long printed = printAll(manager.query(BookQuery.byAuthor(author)), "Books by author '" + author + "':",
+                "No books found for author '" + author + '.');
+        CatalogMetrics.CONSOLE_FILTER_BY_AUTHOR.record(start, printed);
+        if(printed == 0){
+            suggestAuthors(manager, author);
+        }
+    }
+
+    /**
+     * Prints up to {@value #SUGGESTION_COUNT} catalogued authors whose names
+     * start with the given text, most books first, as suggestions for a search
+     * that found nothing. If no name starts with it, the text is taken as a
+     * misspelling and the closest names are suggested instead. Prints nothing
+     * if there are none.
+     *
+     * @param manager the LibraryManager instance
+     * @param author  the typed author name or its beginning (case-insensitive)
+     */
+    public static void suggestAuthors(LibraryManager manager, String author){
+        List<AuthorCompletion> suggestions = manager.completeAuthors(author, SUGGESTION_COUNT);
+        if(!suggestions.isEmpty()){
+            System.out.println("Did you mean:");
+            for(AuthorCompletion suggestion : suggestions){
+                System.out.println("  " + suggestion.author() + " (" + suggestion.bookCount() + " books)");
             }
+            return;
         }
-        if(!anyMatch){
-            System.out.println("No books found for author '" + author + '.');
+        List<AuthorMatch> matches = manager.findSimilarAuthors(author, AuthorCompleter.MAX_DISTANCE, SUGGESTION_COUNT);
+        if(!matches.isEmpty()){
+            System.out.println("Did you mean:");
+            for(AuthorMatch match : matches){
+                System.out.println("  " + match.author() + " (" + match.bookCount() + " books)");
+            }
         }
     }
 
@@ -97,123 +136,289 @@ public class LibraryUtils {
         author = BookUtils.validateNameText(author,"Author");
         category = BookUtils.validateNameText(category,"Category");
         BookUtils.validatePageCount(maxPageCount);
-        boolean anyMatch = false;
-        for(Book book : manager.getCatalog()){
-            boolean authorMatch = book.getAuthor().equalsIgnoreCase(author);
-            boolean categoryMatch = book.getCategory().equalsIgnoreCase(category);
-            boolean pageMatch = book.getPageCount() <= maxPageCount;
-            if(authorMatch && categoryMatch && pageMatch ){
-                if(!anyMatch){
-                    System.out.println("Matching books:");
-                    anyMatch = true;
-                }
-                System.out.println(book);
+        long start = CatalogMetrics.start();
+        long printed = printAll(manager.query(BookQuery.search(author, category, maxPageCount)), "Matching books:",
+                "No books matched the given criteria.");
+        CatalogMetrics.CONSOLE_ADVANCED_SEARCH.record(start, printed);
+    }
+
+    /**
+     * Searches titles by their words and prints the best {@link #PAGE_SIZE}
+     * matches, most relevant first.
+     *
+     * @param manager the LibraryManager instance
+     * @param words   the words to look for in titles (case-insensitive)
+     */
+    public static void searchByTitle(LibraryManager manager, String words){
+        words = BookUtils.validateBasicText(words,"Title");
+        List<SearchHit> hits = manager.searchTitles(words, PAGE_SIZE);
+        printAll(hits.stream().map(SearchHit::book), "Best matches for '" + words + "':",
+                "No titles contain '" + words + "'.");
+    }
+
+    /**
+     * Finds books by part of their title or author and prints the first
+     * {@link #PAGE_SIZE} of them. Text containing {@code %} or {@code _} is
+     * treated as a {@code LIKE} pattern for the whole value; any other text may
+     * appear anywhere in it.
+     *
+     * @param manager the LibraryManager instance
+     * @param field   {@link BookField#TITLE} or {@link BookField#AUTHOR}
+     * @param text    the text or pattern to look for (case-insensitive)
+     */
+    public static void findByPart(LibraryManager manager, BookField field, String text){
+        text = BookUtils.validateBasicText(text, field == BookField.TITLE ? "Title" : "Author");
+        boolean pattern = text.indexOf('%') >= 0 || text.indexOf('_') >= 0;
+        List<Book> books = pattern
+                ? manager.findBooksLike(field, text, PAGE_SIZE)
+                : manager.findBooksContaining(field, text, PAGE_SIZE);
+        printAll(books.stream(), "Books matching '" + text + "':", "No books match '" + text + "'.");
+    }
+
+    /**
+     * Prints the books whose return date has passed, longest overdue first.
+     *
+     * @param manager the LibraryManager instance
+     * @param today   the current day
+     */
+    public static void listOverdue(LibraryManager manager, LocalDate today){
+        printAll(manager.findOverdueBooks(today).stream(), "Books overdue on " + today + ":",
+                "No books are overdue.");
+    }
+
+    /**
+     * Checks a book out to a patron and prints the outcome. Invalid input is
+     * reported instead of thrown.
+     *
+     * @param manager     the LibraryManager instance
+     * @param libraryCode the library code of the book
+     * @param patron      the borrowing patron
+     * @param dueDate     the due date as yyyy-MM-dd
+     */
+    public static void checkout(LibraryManager manager, String libraryCode, String patron, String dueDate){
+        try{
+            if(manager.checkout(libraryCode.trim(), patron, LocalDate.parse(dueDate.trim()))){
+                System.out.println("Book checked out to " + patron.trim() + " until " + dueDate.trim() + ".");
+            }else{
+                System.out.println("The book is already checked out.");
             }
+        }catch(DateTimeParseException e){
+            System.out.println("You can enter the date as yyyy-MM-dd.");
+        }catch(IllegalArgumentException e){
+            System.out.println("Error checking out book: " + e.getMessage());
         }
-        if(!anyMatch){
-            System.out.println("No books matched the given criteria.");
+    }
+
+    /**
+     * Checks a book back in and prints the loan that ended. Invalid input is
+     * reported instead of thrown.
+     *
+     * @param manager     the LibraryManager instance
+     * @param libraryCode the library code of the book
+     */
+    public static void checkin(LibraryManager manager, String libraryCode){
+        try{
+            Optional<Loan> loan = manager.checkin(libraryCode.trim());
+            if(loan.isEmpty()){
+                System.out.println("The book is not checked out.");
+            }else if(loan.get().patron() == null){
+                System.out.println("Book checked in.");
+            }else{
+                System.out.println("Book checked in from " + loan.get().patron() + ".");
+            }
+        }catch(IllegalArgumentException e){
+            System.out.println("Error checking in book: " + e.getMessage());
         }
     }
-    public static void updateBookByCode(LibraryManager manager ,String libraryCode){
-        Scanner scan = new Scanner(System.in);
-        boolean exit = false;
-        boolean found = false;
-            for (Book book : manager.getCatalog()) {
-                if (book.getLibraryCode().equals(libraryCode)) {
-                    found = true;
-                    while (!exit) {
-                    System.out.println("Make your choice");
-                    System.out.println("1 --> New title");
-                    System.out.println("2 --> New author");
-                    System.out.println("3 --> New category");
-                    System.out.println("4 --> New page count");
-                    System.out.println("5 --> New borrowed date");
-                    System.out.println("6 --> New return date");
-                    System.out.println("7 --> Exit");
-                    int choose = scan.nextInt();
-                    scan.nextLine();
-                    switch (choose) {
-                        case 1 -> {
-                            System.out.println("Enter new title");
-                            String newTitle = scan.nextLine();
-                            try {
-                                book.setTitle(BookUtils.validateBasicText(newTitle, "Title"));
-                                System.out.println("Title updated.");
-                            }catch(IllegalArgumentException e){
-                                System.out.println(e.getMessage());
-                            }
-
-                        }
-                        case 2 -> {
-                            System.out.println("Enter new author");
-                            String newAuthor = scan.nextLine();
-                            try {
-                                book.setAuthor(BookUtils.validateNameText(newAuthor, "Author"));
-                                System.out.println("Author updated.");
-                            }catch(IllegalArgumentException e){
-                                System.out.println(e.getMessage());
-                            }
-                        }
-                        case 3 -> {
-                            System.out.println("Enter new category");
-                            String newCategory = scan.nextLine();
-                            try {
-                                book.setCategory(BookUtils.validateNameText(newCategory, "Category"));
-                                System.out.println("Category updated.");
-                            }catch(IllegalArgumentException e){
-                                System.out.println(e.getMessage());
-                            }
-                        }
-                        case 4 -> {
-                            System.out.println("Enter new Page count");
-                            int newPageCount = scan.nextInt();
-                            scan.nextLine();
-                            try {
-                                book.setPageCount(BookUtils.validatePageCount(newPageCount));
-                                System.out.println("Page count updated.");
-                            }catch(IllegalArgumentException e){
-                                System.out.println(e.getMessage());
-                            }
-                        }
-                        case 5 -> {
-                            System.out.println("Enter new borrowed date");
-                            String borrowedDate = scan.nextLine();
-                            LocalDate newBorrowedDate;
-                            try {
-                                newBorrowedDate = LocalDate.parse(borrowedDate);
-                                book.setBorrowedDate(newBorrowedDate);
-                                System.out.println("Borrowed date updated.");
-                            } catch (DateTimeParseException e) {
-                                System.out.println("You can enter the date as yyyy-MM-dd.");
-                            }
-                            break;
-                        }
-                        case 6 -> {
-                            System.out.println("Enter new return date");
-                            String returnDate = scan.nextLine();
-                            LocalDate newReturnDate;
-                            try {
-                                newReturnDate = LocalDate.parse(returnDate);
-                                book.setReturnDate(newReturnDate);
-                                System.out.println("Return date updated.");
-                            } catch (DateTimeParseException e) {
-                                System.out.println("You can enter the date as yyyy-MM-dd.");
-                            }
-                            break;
-                        }
-                        case 7 ->{
-                            exit = true;
-                        }
-                    }
 
-                }
-                    break;
+    /**
+     * Prints the books that match a query a page of {@link #PAGE_SIZE} at a time.
+     * After each full page the user can press Enter for the next one or type
+     * {@code q} to stop; later pages continue from the token of the previous one.
+     *
+     * @param scanner      the console input
+     * @param manager      the LibraryManager instance
+     * @param query        the query to run
+     * @param header       printed before the first book, or null
+     * @param emptyMessage printed if no book matches
+     * @return true if at least one book matched
+     */
+    public static boolean printPages(Scanner scanner, LibraryManager manager, BookQuery query,
+                                     String header, String emptyMessage){
+        BookPage page = manager.queryPage(query, null, PAGE_SIZE);
+        if(page.books().isEmpty()){
+            System.out.println(emptyMessage);
+            return false;
+        }
+        if(header != null){
+            System.out.println(header);
+        }
+        BookRenderer renderer = BookRenderer.console();
+        while(true){
+            render(renderer, page.books().iterator());
+            if(!page.hasMore()){
+                return true;
             }
+            System.out.println("Press Enter to show more books, or type q to stop.");
+            if(scanner.nextLine().trim().equalsIgnoreCase("q")){
+                return true;
+            }
+            page = manager.queryPage(query, page.continuationToken(), PAGE_SIZE);
+        }
+    }
 
+    /** @return the number of books printed */
+    private static long printAll(Stream<Book> books, String header, String emptyMessage){
+        Iterator<Book> iterator = books.iterator();
+        if(!iterator.hasNext()){
+            System.out.println(emptyMessage);
+            return 0;
         }
-        if(!found){
+        if(header != null){
+            System.out.println(header);
+        }
+        return render(BookRenderer.console(), iterator);
+    }
+
+    private static long render(BookRenderer renderer, Iterator<Book> books){
+        try{
+            long count = renderer.renderAll(books);
+            renderer.flush();
+            return count;
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+    /**
+     * Interactively updates the fields of the book with the given library code.
+     * The book is located through the manager's code index; if it does not exist,
+     * a message is printed and nothing is changed.
+     *
+     * @param scanner     the console input, shared with the caller so that no input is lost
+     * @param manager     the LibraryManager instance containing the book catalog
+     * @param libraryCode the code of the book to update (case-insensitive)
+     */
+    public static void updateBookByCode(Scanner scanner, LibraryManager manager ,String libraryCode){
+        Optional<Book> found = manager.findBookByCode(libraryCode);
+        if(found.isEmpty()){
             System.out.println("No book found with library code '" + libraryCode + "'.");
+            return;
         }
+        Book book = found.get();
+        boolean exit = false;
+        while (!exit) {
+            System.out.println("Make your choice");
+            System.out.println("1 --> New title");
+            System.out.println("2 --> New author");
+            System.out.println("3 --> New category");
+            System.out.println("4 --> New page count");
+            System.out.println("5 --> New borrowed date");
+            System.out.println("6 --> New return date");
+            System.out.println("7 --> Exit");
+            BookField field;
+            switch (scanner.nextLine().trim()) {
+                case "1" -> field = BookField.TITLE;
+                case "2" -> field = BookField.AUTHOR;
+                case "3" -> field = BookField.CATEGORY;
+                case "4" -> field = BookField.PAGE_COUNT;
+                case "5" -> field = BookField.BORROWED_DATE;
+                case "6" -> field = BookField.RETURN_DATE;
+                case "7" -> {
+                    exit = true;
+                    continue;
+                }
+                default -> {
+                    System.out.println("Invalid choice. Please try again.");
+                    continue;
+                }
+            }
+            System.out.println("Enter new " + fieldLabel(field).toLowerCase(Locale.ROOT));
+            try {
+                updateField(book, field, scanner.nextLine());
+                System.out.println(fieldLabel(field) + " updated.");
+            }catch(DateTimeParseException e){
+                System.out.println("You can enter the date as yyyy-MM-dd.");
+            }catch(IllegalArgumentException e){
+                System.out.println(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Validates a new value for one of the common fields of a book and sets it.
+     * Used by the interactive update and by batch commands.
+     *
+     * @param book  the book to change
+     * @param field {@link BookField#TITLE}, {@link BookField#AUTHOR}, {@link BookField#CATEGORY},
+     *              {@link BookField#PAGE_COUNT}, {@link BookField#BORROWED_DATE} or {@link BookField#RETURN_DATE}
+     * @param value the new value as text; dates as yyyy-MM-dd, or blank or {@code null} to clear them
+     * @throws IllegalArgumentException if the value is invalid or the field cannot be set this way
+     * @throws DateTimeParseException   if a date is not in the yyyy-MM-dd format
+     */
+    public static void updateField(Book book, BookField field, String value){
+        switch (field) {
+            case TITLE -> book.setTitle(BookUtils.validateBasicText(value, "Title"));
+            case AUTHOR -> book.setAuthor(BookUtils.validateNameText(value, "Author"));
+            case CATEGORY -> book.setCategory(BookUtils.validateNameText(value, "Category"));
+            case PAGE_COUNT -> book.setPageCount(BookUtils.validatePageCount(Integer.parseInt(value.trim())));
+            case BORROWED_DATE -> {
+                LocalDate date = parseOptionalDate(value);
+                if (date != null && date.isAfter(LocalDate.now())) {
+                    throw new IllegalArgumentException("Borrowed date cannot be in the future");
+                }
+                book.setBorrowedDate(date);
+            }
+            case RETURN_DATE -> {
+                LocalDate date = parseOptionalDate(value);
+                if (date != null && date.isBefore(LocalDate.now())) {
+                    throw new IllegalArgumentException("Return date cannot be in the past");
+                }
+                if (date != null && book.getBorrowedDate() != null && date.isBefore(book.getBorrowedDate())) {
+                    throw new IllegalArgumentException("Return date cannot be before borrowed date");
+                }
+                book.setReturnDate(date);
+            }
+            default -> throw new IllegalArgumentException("Field cannot be updated: " + field);
+        }
+    }
+
+    /**
+     * Returns the field that {@link #updateField(Book, BookField, String)} sets
+     * for a column name of the importers, such as {@code pageCount}.
+     *
+     * @param name the column name
+     * @return the field
+     * @throws IllegalArgumentException if the column cannot be updated
+     */
+    public static BookField updatableField(String name){
+        return switch (name) {
+            case "title" -> BookField.TITLE;
+            case "author" -> BookField.AUTHOR;
+            case "category" -> BookField.CATEGORY;
+            case "pageCount" -> BookField.PAGE_COUNT;
+            case "borrowedDate" -> BookField.BORROWED_DATE;
+            case "returnDate" -> BookField.RETURN_DATE;
+            default -> throw new IllegalArgumentException("Unknown field: " + name);
+        };
+    }
+
+    private static LocalDate parseOptionalDate(String value){
+        if (value == null || value.isBlank() || value.trim().equalsIgnoreCase("null")) {
+            return null;
+        }
+        return LocalDate.parse(value.trim());
+    }
+
+    private static String fieldLabel(BookField field){
+        return switch (field) {
+            case TITLE -> "Title";
+            case AUTHOR -> "Author";
+            case CATEGORY -> "Category";
+            case PAGE_COUNT -> "Page count";
+            case BORROWED_DATE -> "Borrowed date";
+            case RETURN_DATE -> "Return date";
+            case DETAILS -> "Details";
+        };
     }
 
 }
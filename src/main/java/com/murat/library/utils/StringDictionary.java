@@ -0,0 +1,124 @@
+package com.murat.library.utils;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns dense integer ids to distinct strings and canonicalizes them.
+ * <p>
+ * Every distinct value gets its own id, so the original spelling can be
+ * restored, and {@link #get(int)} always returns the same {@code String}
+ * instance for it, so repeated values share one copy on the heap. Values that
+ * differ only in case additionally share a <em>folded id</em>, which lets
+ * case-insensitive equality be checked with an {@code int} comparison.
+ * Ids are never reused or removed.
+ * <p>
+ * Thread-safe. Lookups of known values are lock-free; adding a new value
+ * takes the dictionary's lock.
+ */
+public class StringDictionary {
+
+    /** Shared dictionary of author names, used by every {@link com.murat.library.Book}. */
+    public static final StringDictionary AUTHORS = new StringDictionary();
+
+    /** Shared dictionary of categories, used by every {@link com.murat.library.Book}. */
+    public static final StringDictionary CATEGORIES = new StringDictionary();
+
+    /** Id of each distinct value. */
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+    /** Folded id of each distinct lower-cased value; written under the lock. */
+    private final Map<String, Integer> foldedIds = new ConcurrentHashMap<>();
+
+    /** Values by id; replaced, never shrunk, under the lock. */
+    private volatile String[] values = new String[16];
+
+    /** Folded id by id; replaced, never shrunk, under the lock. */
+    private volatile int[] folded = new int[16];
+
+    private volatile int size;
+
+    /**
+     * Returns the id of a value, assigning a new one if the value is unknown.
+     *
+     * @param value the value to encode, not null
+     * @return the id of the value
+     */
+    public int intern(String value) {
+        Integer id = ids.get(value);
+        return id != null ? id : add(value);
+    }
+
+    /**
+     * Returns the canonical instance of a value, adding it if it is unknown.
+     *
+     * @param value the value to canonicalize, not null
+     * @return an equal string shared by all callers
+     */
+    public String canonical(String value) {
+        return get(intern(value));
+    }
+
+    /**
+     * Returns the value for an id.
+     *
+     * @param id an id returned by {@link #intern(String)}
+     * @return the value
+     */
+    public String get(int id) {
+        return values[id];
+    }
+
+    /**
+     * Returns the folded id shared by all values equal to this one ignoring case.
+     *
+     * @param id an id returned by {@link #intern(String)}
+     * @return the folded id
+     */
+    public int foldedId(int id) {
+        return folded[id];
+    }
+
+    /**
+     * Looks up the folded id of a value without adding it.
+     *
+     * @param value the value to look up
+     * @return the folded id, or -1 if no value equal to it ignoring case is known
+     */
+    public int lookupFolded(String value) {
+        Integer id = ids.get(value);
+        if (id != null) {
+            return folded[id];
+        }
+        Integer foldedId = foldedIds.get(value.toLowerCase(Locale.ROOT));
+        return foldedId == null ? -1 : foldedId;
+    }
+
+    /**
+     * Returns the number of distinct values.
+     *
+     * @return the dictionary size
+     */
+    public int size() {
+        return size;
+    }
+
+    private synchronized int add(String value) {
+        Integer existing = ids.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        int newId = size;
+        if (newId == values.length) {
+            values = Arrays.copyOf(values, newId * 2);
+            folded = Arrays.copyOf(folded, newId * 2);
+        }
+        values[newId] = value;
+        folded[newId] = foldedIds.computeIfAbsent(value.toLowerCase(Locale.ROOT), k -> foldedIds.size());
+        size = newId + 1;
+        // Publishing the id last makes the array writes above visible to lock-free readers.
+        ids.put(value, newId);
+        return newId;
+    }
+}
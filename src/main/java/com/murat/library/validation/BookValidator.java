@@ -0,0 +1,173 @@
+package com.murat.library.validation;
+import com.murat.library.BookRecord;
+import com.murat.library.BookRecord.Slot;
+import com.murat.library.genres.Genre;
+import com.murat.library.utils.AuthorUtils;
+import com.murat.library.utils.BookUtils;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Validates {@link BookRecord}s without throwing, collecting every failed rule in one pass.
+ * <p>
+ * The rules are the ones the book classes enforce, built once per genre when
+ * this class is loaded; they report the same messages as {@link BookUtils}. A
+ * validator is bound to one "today", so a whole batch is checked against the
+ * same date without asking the clock for each record.
+ * <p>
+ * Loan dates are checked for consistency only: the borrowed date must not lie in
+ * the future and the return date must not precede it. That a new due date lies
+ * in the future is left to {@link com.murat.library.Book#setReturnDate(LocalDate)},
+ * since restored and imported loans may well be overdue.
+ * <p>
+ * Instances are immutable and thread-safe.
+ */
+public final class BookValidator {
+
+    /** A precompiled check of one field. */
+    @FunctionalInterface
+    private interface Rule {
+        /**
+         * Checks a record.
+         *
+         * @return the error, or null if the record passes
+         */
+        ValidationError check(BookRecord record, BookValidator context);
+    }
+
+    private static final Rule[] COMMON_RULES = {
+            (record, context) -> error("title", BookUtils.basicTextError(record.title(), "Title")),
+            (record, context) -> error("author", BookUtils.nameTextError(record.author(), "Author")),
+            (record, context) -> error("pageCount", BookUtils.pageCountError(record.pageCount())),
+            (record, context) -> error("category", BookUtils.nameTextError(record.category(), "Category")),
+            (record, context) -> record.borrowedDate() != null && record.borrowedDate().isAfter(context.today)
+                    ? new ValidationError("borrowedDate", "Borrowed date cannot be in the future") : null,
+            (record, context) -> record.returnDate() != null && record.borrowedDate() != null
+                    && record.returnDate().isBefore(record.borrowedDate())
+                    ? new ValidationError("returnDate", "Return date cannot be before borrowed date") : null,
+    };
+
+    private static final Map<Genre, Rule[]> GENRE_RULES = new EnumMap<>(Genre.class);
+
+    static {
+        for (Genre genre : Genre.values()) {
+            GENRE_RULES.put(genre, switch (genre) {
+                case BIOGRAPHY -> new Rule[] {
+                        nameText(Slot.TEXT1, "subjectName", "Subject Name"),
+                        (record, context) -> error("birthYear", AuthorUtils.birthYearError(record.number1(), context.currentYear)),
+                        (record, context) -> error("deathYear",
+                                AuthorUtils.deathYearError(record.number1(), record.number2(), context.currentYear)),
+                };
+                case DETECTIVE -> new Rule[] {nameText(Slot.TEXT1, "subGenre", "Sub-genre"), level(Slot.NUMBER1, "mysteryLevel")};
+                case FANTASY -> new Rule[] {nameText(Slot.TEXT1, "subGenre", "Sub-genre"), level(Slot.NUMBER1, "fantasyLevel")};
+                case HISTORICAL -> new Rule[] {basicText(Slot.TEXT1, "eraStartYear", "Start Year"), basicText(Slot.TEXT2, "region", "Region")};
+                case HORROR -> new Rule[] {nameText(Slot.TEXT1, "subGenre", "Sub-genre"), level(Slot.NUMBER1, "scareLevel")};
+                case SCIENCE_FICTION -> new Rule[] {nameText(Slot.TEXT1, "subGenre", "Sub-genre"), level(Slot.NUMBER1, "scientificLevel")};
+                case ROMANCE -> new Rule[] {nameText(Slot.TEXT1, "subGenre", "Sub-genre"), level(Slot.NUMBER1, "romanticLevel")};
+            });
+        }
+    }
+
+    private final LocalDate today;
+    private final int currentYear;
+
+    private BookValidator(LocalDate today) {
+        this.today = today;
+        this.currentYear = today.getYear();
+    }
+
+    /**
+     * Creates a validator for the current date.
+     *
+     * @return the validator
+     */
+    public static BookValidator forToday() {
+        return new BookValidator(LocalDate.now());
+    }
+
+    /**
+     * Creates a validator for a fixed date.
+     *
+     * @param today the date that loan dates and years are checked against
+     * @return the validator
+     */
+    public static BookValidator forDate(LocalDate today) {
+        return new BookValidator(today);
+    }
+
+    /**
+     * Returns the date this validator checks against.
+     *
+     * @return the cached "today"
+     */
+    public LocalDate getToday() {
+        return today;
+    }
+
+    /**
+     * Validates one record against the common rules and the rules of its genre.
+     * The library code is not checked.
+     *
+     * @param record the record to validate
+     * @return every failed rule; the shared valid result if there are none
+     */
+    public ValidationResult validate(BookRecord record) {
+        List<ValidationError> errors = null;
+        errors = apply(COMMON_RULES, record, errors);
+        if (record.genre() == null) {
+            errors = add(errors, new ValidationError("genre", "Genre cannot be empty"));
+        } else {
+            errors = apply(GENRE_RULES.get(record.genre()), record, errors);
+        }
+        return errors == null ? ValidationResult.valid() : ValidationResult.of(errors);
+    }
+
+    /**
+     * Validates a batch of records against this validator's "today".
+     *
+     * @param records the records to validate
+     * @return one result per record, in the same order
+     */
+    public List<ValidationResult> validateAll(List<BookRecord> records) {
+        List<ValidationResult> results = new ArrayList<>(records.size());
+        for (BookRecord record : records) {
+            results.add(validate(record));
+        }
+        return results;
+    }
+
+    private List<ValidationError> apply(Rule[] rules, BookRecord record, List<ValidationError> errors) {
+        for (Rule rule : rules) {
+            ValidationError error = rule.check(record, this);
+            if (error != null) {
+                errors = add(errors, error);
+            }
+        }
+        return errors;
+    }
+
+    private static List<ValidationError> add(List<ValidationError> errors, ValidationError error) {
+        List<ValidationError> target = errors == null ? new ArrayList<>(4) : errors;
+        target.add(error);
+        return target;
+    }
+
+    private static ValidationError error(String field, String message) {
+        return message == null ? null : new ValidationError(field, message);
+    }
+
+    private static Rule basicText(Slot slot, String field, String label) {
+        return (record, context) -> error(field, BookUtils.basicTextError(record.text(slot), label));
+    }
+
+    private static Rule nameText(Slot slot, String field, String label) {
+        return (record, context) -> error(field, BookUtils.nameTextError(record.text(slot), label));
+    }
+
+    private static Rule level(Slot slot, String field) {
+        return (record, context) -> error(field, BookUtils.levelError(record.number(slot)));
+    }
+}
@@ -0,0 +1,12 @@
+package com.murat.library.validation;
+
+/**
+ * One failed validation rule.
+ *
+ * @param field   the property name of the invalid field, e.g. {@code pageCount} or
+ *                {@code scareLevel} (see {@link com.murat.library.genres.DetailField#name()})
+ * @param message the explanation, in the same wording as the exceptions of
+ *                {@link com.murat.library.utils.BookUtils}
+ */
+public record ValidationError(String field, String message) {
+}
@@ -0,0 +1,65 @@
+package com.murat.library.validation;
+import java.util.List;
+
+/**
+ * The outcome of validating one record: every rule it failed, in rule order.
+ *
+ * @param errors the failed rules; empty if the record is valid
+ */
+public record ValidationResult(List<ValidationError> errors) {
+
+    private static final ValidationResult VALID = new ValidationResult(List.of());
+
+    /**
+     * Creates a result.
+     *
+     * @param errors the failed rules; copied
+     */
+    public ValidationResult {
+        errors = List.copyOf(errors);
+    }
+
+    /**
+     * Returns the shared result for a valid record.
+     *
+     * @return a result without errors
+     */
+    public static ValidationResult valid() {
+        return VALID;
+    }
+
+    /**
+     * Creates a result from the errors found, reusing the shared valid result when there are none.
+     *
+     * @param errors the failed rules
+     * @return the result
+     */
+    public static ValidationResult of(List<ValidationError> errors) {
+        return errors.isEmpty() ? VALID : new ValidationResult(errors);
+    }
+
+    /**
+     * Tells whether every rule passed.
+     *
+     * @return true if there are no errors
+     */
+    public boolean isValid() {
+        return errors.isEmpty();
+    }
+
+    /**
+     * Joins all error messages.
+     *
+     * @return the messages separated by "; ", or an empty string if valid
+     */
+    public String message() {
+        StringBuilder message = new StringBuilder();
+        for (ValidationError error : errors) {
+            if (message.length() > 0) {
+                message.append("; ");
+            }
+            message.append(error.message());
+        }
+        return message.toString();
+    }
+}
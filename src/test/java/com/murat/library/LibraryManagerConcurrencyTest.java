@@ -0,0 +1,245 @@
+package com.murat.library;
+import com.murat.library.genres.DetectiveBook;
+import com.murat.library.genres.Genre;
+import com.murat.library.search.AuthorCompletion;
+import com.murat.library.search.SearchHit;
+import com.murat.library.utils.LibraryCodeGenerator;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stress tests for code generation, {@link LibraryManager#addBook} and mixed
+ * reads and writes when many threads work on the same catalog at once.
+ */
+class LibraryManagerConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int PER_THREAD = 5_000;
+    private static final String[] AUTHORS = {"Agatha Christie", "Arthur Doyle", "Dorothy Sayers", "Raymond Chandler"};
+    private static final int READERS = 32;
+    private static final int BOOKS = 2_000;
+
+    @Test
+    void nextIdNeverHandsOutTheSameIdTwice() throws Exception {
+        List<List<Long>> perThread = ThreadRace.run(THREADS, thread -> {
+            List<Long> ids = new ArrayList<>(PER_THREAD);
+            for (int i = 0; i < PER_THREAD; i++) {
+                ids.add(LibraryCodeGenerator.nextId(Genre.values()[i % Genre.values().length]));
+            }
+            return ids;
+        });
+
+        Set<Long> seen = new HashSet<>();
+        for (List<Long> ids : perThread) {
+            for (long id : ids) {
+                assertTrue(seen.add(id), "duplicate id " + LibraryCodeGenerator.render(id));
+            }
+        }
+        assertEquals(THREADS * PER_THREAD, seen.size());
+    }
+
+    @Test
+    void concurrentAddBookLosesNothing() throws Exception {
+        LibraryManager manager = new LibraryManager();
+        List<List<Book>> perThread = ThreadRace.run(THREADS, thread -> {
+            List<Book> added = new ArrayList<>(PER_THREAD);
+            for (int i = 0; i < PER_THREAD; i++) {
+                Book book = new DetectiveBook("Case " + thread + "-" + i, AUTHORS[i % AUTHORS.length], 100 + i % 400,
+                        "Mystery", null, null, 1 + i % 10, "Noir");
+                manager.addBook(book);
+                added.add(book);
+            }
+            return added;
+        });
+
+        int total = THREADS * PER_THREAD;
+        Set<String> codes = new HashSet<>();
+        for (List<Book> added : perThread) {
+            for (Book book : added) {
+                assertTrue(codes.add(book.getLibraryCode()), "duplicate code " + book.getLibraryCode());
+                assertTrue(manager.findBookByCode(book.getLibraryCode()).isPresent(),
+                        "lost book " + book.getLibraryCode());
+            }
+        }
+        assertEquals(total, codes.size());
+        assertEquals(total, manager.getCatalog().size());
+        for (String author : AUTHORS) {
+            assertEquals(total / AUTHORS.length, manager.findBooksByAuthor(author).size(), author);
+        }
+        assertEquals(total, manager.findBooksByCategory("Mystery").size());
+    }
+
+    @Test
+    void readHeavyMixSeesConsistentCatalog() throws Exception {
+        LibraryManager manager = new LibraryManager();
+        List<Book> books = addBooks(manager, BOOKS);
+        ThreadRace.run(READERS, thread -> {
+            Random random = new Random(thread);
+            for (int op = 0; op < 20_000; op++) {
+                Book book = books.get(random.nextInt(books.size()));
+                switch (random.nextInt(20)) {
+                    case 0 -> book.setAuthor(AUTHORS[random.nextInt(AUTHORS.length)]);
+                    case 1 -> book.setPageCount(100 + random.nextInt(400));
+                    case 2, 3, 4, 5 -> {
+                        List<Book> snapshot = manager.getCatalog();
+                        int size = snapshot.size();
+                        int seen = 0;
+                        for (Book listed : snapshot) {
+                            assertNotNull(listed.getLibraryCode());
+                            seen++;
+                        }
+                        assertEquals(size, seen);
+                    }
+                    case 6, 7, 8, 9, 10 -> assertTrue(manager.findBooksByAuthor(AUTHORS[op % AUTHORS.length]).size() <= BOOKS);
+                    default -> assertTrue(manager.findBookByCode(book.getLibraryCode()).isPresent());
+                }
+            }
+            return null;
+        });
+
+        assertIndexesMatch(manager, books);
+    }
+
+    @Test
+    void indexesAttachedDuringWritesMatchTheCatalog() throws Exception {
+        LibraryManager manager = new LibraryManager();
+        List<Book> books = addBooks(manager, BOOKS);
+        ThreadRace.run(THREADS, thread -> {
+            if (thread == 0) {
+                manager.searchTitles("alpha", 1);
+                manager.completeAuthors("a", 1);
+                return null;
+            }
+            Random random = new Random(thread);
+            for (int op = 0; op < 5_000; op++) {
+                Book book = books.get(random.nextInt(books.size()));
+                if (random.nextBoolean()) {
+                    book.setTitle((random.nextBoolean() ? "Alpha " : "Beta ") + book.getCodeId());
+                } else {
+                    book.setAuthor(AUTHORS[random.nextInt(AUTHORS.length)]);
+                }
+            }
+            return null;
+        });
+
+        Set<Book> alpha = new HashSet<>();
+        for (SearchHit hit : manager.searchTitles("alpha", BOOKS)) {
+            alpha.add(hit.book());
+        }
+        for (Book book : books) {
+            assertEquals(book.getTitle().startsWith("Alpha"), alpha.contains(book), book.getTitle());
+        }
+        assertIndexesMatch(manager, books);
+    }
+
+    @Test
+    void writersProceedWhileAListenerIsReplayed() throws Exception {
+        LibraryManager manager = new LibraryManager();
+        List<Book> books = addBooks(manager, BOOKS);
+        CountDownLatch replaying = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(1);
+        AtomicInteger stalled = new AtomicInteger(-1);
+        Map<Long, String> titles = new ConcurrentHashMap<>();
+        CatalogListener mirror = new CatalogListener() {
+            @Override
+            public void bookAdded(Book book) {
+                if (titles.put(book.getCodeId(), book.getTitle()) != null) {
+                    throw new AssertionError("reported twice: " + book.getLibraryCode());
+                }
+                if (titles.size() == BOOKS / 2) {
+                    stalled.set(manager.stripeOf(book.getCodeId()));
+                    replaying.countDown();
+                    await(written);
+                }
+            }
+
+            @Override
+            public void bookRemoved(Book book) {
+                assertNotNull(titles.remove(book.getCodeId()), book.getLibraryCode());
+            }
+
+            @Override
+            public void bookChanged(Book book, BookField field, Object previousValue) {
+                if (field == BookField.TITLE) {
+                    assertEquals(previousValue, titles.put(book.getCodeId(), book.getTitle()));
+                }
+            }
+        };
+        Thread replay = new Thread(() -> manager.addListenerWithReplay(mirror));
+        replay.start();
+        assertTrue(replaying.await(60, TimeUnit.SECONDS));
+
+        // The replay is stalled half way, holding the stripe of one book; writes to the others go through.
+        for (Book book : books) {
+            if (manager.stripeOf(book.getCodeId()) == stalled.get()) {
+                continue;
+            }
+            if (book.getCodeId() % 3 == 0) {
+                book.setTitle("Gamma " + book.getCodeId());
+            } else if (book.getCodeId() % 3 == 1) {
+                assertTrue(manager.removeBook(book.getLibraryCode()));
+            }
+        }
+        for (int i = 0; i < 100; i++) {
+            Book book = new DetectiveBook("Delta " + i, AUTHORS[0], 100, "Mystery", null, null, 1, "Noir");
+            if (manager.stripeOf(book.getCodeId()) != stalled.get()) {
+                manager.addBook(book);
+            }
+        }
+        written.countDown();
+        replay.join(60_000);
+
+        Map<Long, String> expected = new HashMap<>();
+        for (Book book : manager.getCatalog()) {
+            expected.put(book.getCodeId(), book.getTitle());
+        }
+        assertEquals(expected, titles);
+        Book retitled = manager.getCatalog().stream()
+                .filter(book -> book.getTitle().startsWith("Gamma")).findFirst().orElseThrow();
+        assertEquals(retitled, manager.findBookByTitle(retitled.getTitle().toUpperCase()));
+        assertNull(manager.findBookByTitle("Gamma"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(60, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static List<Book> addBooks(LibraryManager manager, int count) {
+        List<Book> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Book book = new DetectiveBook("Alpha " + i, AUTHORS[i % AUTHORS.length], 100 + i % 400,
+                    "Mystery", null, null, 1 + i % 10, "Noir");
+            manager.addBook(book);
+            books.add(book);
+        }
+        return books;
+    }
+
+    /** Checks the author index and the author completions against the books themselves. */
+    private static void assertIndexesMatch(LibraryManager manager, List<Book> books) {
+        for (String author : AUTHORS) {
+            long expected = books.stream().filter(book -> book.getAuthor().equals(author)).count();
+            assertEquals(expected, manager.findBooksByAuthor(author).size(), author);
+            List<AuthorCompletion> completions = manager.completeAuthors(author, 1);
+            assertEquals(List.of(new AuthorCompletion(author, (int) expected)), completions, author);
+        }
+    }
+}
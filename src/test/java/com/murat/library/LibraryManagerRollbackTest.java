@@ -0,0 +1,140 @@
+package com.murat.library;
+import com.murat.library.genres.DetectiveBook;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a change a listener refuses, as a failing write-ahead log does,
+ * is undone everywhere.
+ */
+class LibraryManagerRollbackTest {
+
+    /** Records every notification as text. */
+    private final List<String> seen = new ArrayList<>();
+    private final RuntimeException refusal = new IllegalStateException("log is down");
+    private boolean refusing;
+
+    private final CatalogListener recorder = new CatalogListener() {
+        @Override
+        public void bookAdded(Book book) {
+            seen.add("added " + book.getTitle());
+        }
+
+        @Override
+        public void bookRemoved(Book book) {
+            seen.add("removed " + book.getTitle());
+        }
+
+        @Override
+        public void bookChanged(Book book, BookField field, Object previousValue) {
+            seen.add(field + " " + previousValue + " -> " + book.getTitle() + "/" + book.getPageCount());
+        }
+    };
+
+    private final CatalogListener refuser = new CatalogListener() {
+        @Override
+        public void bookAdded(Book book) {
+            refuse();
+        }
+
+        @Override
+        public void bookRemoved(Book book) {
+            refuse();
+        }
+
+        @Override
+        public void bookChanged(Book book, BookField field, Object previousValue) {
+            refuse();
+        }
+    };
+
+    private Book book;
+
+    @BeforeEach
+    void createBook() {
+        book = new DetectiveBook("The Hollow Man", "John Carr", 240, "Mystery", null, null, 7, "Locked Room");
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageMode.class)
+    void refusedAddLeavesNoBook(StorageMode mode) {
+        LibraryManager manager = managerWithListeners(mode);
+        refusing = true;
+
+        assertSame(refusal, assertThrows(IllegalStateException.class, () -> manager.addBook(book)));
+
+        assertTrue(manager.findBookByCode(book.getLibraryCode()).isEmpty());
+        assertTrue(manager.findBooksByAuthor("John Carr").isEmpty());
+        assertEquals(List.of("added The Hollow Man", "removed The Hollow Man"), seen);
+        book.setTitle("Not Catalogued");
+        assertEquals(2, seen.size());
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageMode.class)
+    void refusedRemoveKeepsTheBook(StorageMode mode) {
+        LibraryManager manager = managerWithListeners(mode);
+        manager.addBook(book);
+        refusing = true;
+
+        assertThrows(IllegalStateException.class, () -> manager.removeBook(book.getLibraryCode()));
+
+        assertTrue(manager.findBookByCode(book.getLibraryCode()).isPresent());
+        assertEquals(1, manager.findBooksByAuthor("John Carr").size());
+        assertEquals(List.of("added The Hollow Man", "removed The Hollow Man", "added The Hollow Man"), seen);
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageMode.class)
+    void refusedSetterRestoresTheField(StorageMode mode) {
+        LibraryManager manager = managerWithListeners(mode);
+        manager.addBook(book);
+        Book catalogued = manager.findBookByCode(book.getLibraryCode()).orElseThrow();
+        refusing = true;
+
+        assertThrows(IllegalStateException.class, () -> catalogued.setPageCount(300));
+        assertThrows(IllegalStateException.class, () -> ((DetectiveBook) catalogued).setMysteryLevel(9));
+
+        Book reloaded = manager.findBookByCode(book.getLibraryCode()).orElseThrow();
+        assertEquals(240, catalogued.getPageCount());
+        assertEquals(240, reloaded.getPageCount());
+        assertEquals(7, ((DetectiveBook) reloaded).getMysteryLevel());
+        assertEquals(1, manager.advancedSearch("John Carr", "Mystery", 250).size());
+        assertEquals(List.of("added The Hollow Man",
+                "PAGE_COUNT 240 -> The Hollow Man/300", "PAGE_COUNT 300 -> The Hollow Man/240",
+                "DETAILS null -> The Hollow Man/240", "DETAILS null -> The Hollow Man/240"), seen);
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageMode.class)
+    void acceptedChangesStillReachEveryListener(StorageMode mode) {
+        LibraryManager manager = managerWithListeners(mode);
+        manager.addBook(book);
+        manager.findBookByCode(book.getLibraryCode()).orElseThrow().setTitle("The Three Coffins");
+
+        assertFalse(manager.findBookByCode(book.getLibraryCode()).isEmpty());
+        assertEquals("The Three Coffins", manager.findBookByCode(book.getLibraryCode()).orElseThrow().getTitle());
+        assertEquals(List.of("added The Hollow Man", "TITLE The Hollow Man -> The Three Coffins/240"), seen);
+    }
+
+    private LibraryManager managerWithListeners(StorageMode mode) {
+        LibraryManager manager = new LibraryManager(mode);
+        manager.addListener(recorder);
+        manager.addListener(refuser);
+        return manager;
+    }
+
+    private void refuse() {
+        if (refusing) {
+            throw refusal;
+        }
+    }
+}
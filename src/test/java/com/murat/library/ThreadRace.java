@@ -0,0 +1,62 @@
+package com.murat.library;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts a number of threads at the same moment, so that their work overlaps
+ * as much as possible, and collects what each of them returns.
+ */
+public final class ThreadRace {
+
+    /** One thread's share of the work, told which thread it is. */
+    @FunctionalInterface
+    public interface Work<T> {
+        T run(int thread) throws Exception;
+    }
+
+    private ThreadRace() {
+    }
+
+    /**
+     * Runs {@code work} on {@code threads} new threads, released together once
+     * all of them are ready, and waits for them to finish.
+     *
+     * @param threads the number of threads
+     * @param work    the work of each thread
+     * @return the results, in thread order
+     * @throws Exception the first failure of any thread, or a timeout after a minute
+     */
+    public static <T> List<T> run(int threads, Work<T> work) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch ready = new CountDownLatch(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<T>> futures = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    ready.countDown();
+                    start.await();
+                    return work.run(thread);
+                }));
+            }
+            ready.await();
+            start.countDown();
+            List<T> results = new ArrayList<>(threads);
+            for (Future<T> future : futures) {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+            if (!pool.awaitTermination(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Race threads did not stop");
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.murat.library.batch;
+import com.murat.library.Book;
+import com.murat.library.LibraryManager;
+import com.murat.library.genres.DetectiveBook;
+import com.murat.library.genres.Genre;
+import com.murat.library.utils.LibraryCodeGenerator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs batch scripts through a {@link BatchRunner} and checks the catalog,
+ * the output and the reported failures.
+ */
+class BatchRunnerTest {
+
+    private final LibraryManager manager = new LibraryManager();
+    private final StringWriter out = new StringWriter();
+    private final StringWriter errors = new StringWriter();
+
+    @Test
+    void commandsChangeAndPrintTheCatalog() throws IOException {
+        String first = newCode();
+        String second = newCode();
+        BatchReport report = run(
+                "# Two books, one retitled, one removed",
+                "add genre=Detective title=\"The Hollow Man\" author=\"John Carr\" pageCount=240 category=Mystery"
+                        + " subGenre=\"Locked Room\" mysteryLevel=7 libraryCode=" + first,
+                "",
+                "ADD genre=detective title=Tied author=\"Ann Cleeves\" pageCount=300 category=Crime"
+                        + " subGenre=Procedural mysteryLevel=5 libraryCode=" + second,
+                "update " + second + " title=\"Tied Up\" pageCount=320",
+                "find " + second,
+                "filter author=\"john carr\" maxPages=250",
+                "remove " + first);
+
+        assertEquals(new BatchReport(6, 0, 2, report.elapsedNanos()), report);
+        assertEquals("", errors.toString());
+        Book tied = manager.findBookByCode(second).orElseThrow();
+        assertEquals("Tied Up", tied.getTitle());
+        assertEquals(320, tied.getPageCount());
+        assertFalse(manager.findBookByCode(first).isPresent());
+        List<String> lines = out.toString().lines().collect(Collectors.toList());
+        assertEquals("added " + first, lines.get(0));
+        assertEquals("added " + second, lines.get(1));
+        assertEquals("updated " + second, lines.get(2));
+        assertEquals(text(tied), lines.get(3));
+        assertTrue(lines.get(4).contains("The Hollow Man"), lines.get(4));
+        assertEquals("removed " + first, lines.get(5));
+        assertEquals(6, lines.size());
+    }
+
+    @Test
+    void failedCommandsAreReportedAndTheRunGoesOn() throws IOException {
+        Book book = new DetectiveBook("The Hollow Man", "John Carr", 240, "Mystery", null, null, 7, "Locked Room");
+        manager.addBook(book);
+        String code = book.getLibraryCode();
+        BatchReport report = run(
+                "shelve " + code,
+                "add genre=Detective title=Untitled author=\"John Carr\" pageCount=many category=Mystery"
+                        + " subGenre=Noir mysteryLevel=3",
+                "remove " + newCode(),
+                "update " + code + " title=\"Retitled\" pageCount=-5",
+                "find \"" + code,
+                "filter shelf=top",
+                "find " + code);
+
+        assertEquals(7, report.commandsRead());
+        assertEquals(6, report.commandsFailed());
+        assertEquals(1, report.booksWritten());
+        List<String> failures = errors.toString().lines().collect(Collectors.toList());
+        assertEquals(6, failures.size());
+        for (int i = 0; i < failures.size(); i++) {
+            assertTrue(failures.get(i).startsWith("line " + (i + 1) + ": "), failures.get(i));
+        }
+        assertTrue(failures.get(0).contains("Unknown command: shelve"), failures.get(0));
+        assertTrue(failures.get(1).contains("pageCount"), failures.get(1));
+        // An update keeps the fields it set before the invalid one.
+        assertEquals("Retitled", book.getTitle());
+        assertEquals(240, book.getPageCount());
+        assertEquals(List.of(text(book)), out.toString().lines().collect(Collectors.toList()));
+        assertEquals(1, manager.getCatalog().size());
+    }
+
+    private BatchReport run(String... lines) throws IOException {
+        return new BatchRunner(manager).run(new BufferedReader(new StringReader(String.join("\n", lines))), out, errors);
+    }
+
+    private static String newCode() {
+        return LibraryCodeGenerator.render(LibraryCodeGenerator.nextId(Genre.DETECTIVE));
+    }
+
+    private static String text(Book book) {
+        StringBuilder text = new StringBuilder();
+        book.appendTo(text);
+        return text.toString();
+    }
+}
@@ -0,0 +1,97 @@
+package com.murat.library.circulation;
+import com.murat.library.Book;
+import com.murat.library.LibraryManager;
+import com.murat.library.StorageMode;
+import com.murat.library.ThreadRace;
+import com.murat.library.genres.DetectiveBook;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Races thousands of patrons for the same copies and checks that no copy is
+ * ever lent to two of them.
+ */
+class CirculationServiceTest {
+
+    private static final int PATRONS = 2_000;
+    private static final int TITLES = 50;
+
+    @ParameterizedTest
+    @EnumSource(StorageMode.class)
+    void concurrentCheckoutHasExactlyOneWinner(StorageMode mode) throws Exception {
+        LibraryManager manager = new LibraryManager(mode);
+        String code = addBooks(manager, 1).get(0);
+        CirculationService circulation = CirculationService.attach(manager);
+        LocalDate due = LocalDate.now().plusDays(14);
+
+        for (int round = 0; round < 5; round++) {
+            List<Boolean> attempts = ThreadRace.run(PATRONS,
+                    patron -> circulation.checkout(code, "Patron " + patron, due));
+
+            assertEquals(1, attempts.stream().filter(won -> won).count(), "round " + round);
+            Optional<Loan> loan = circulation.findLoan(code);
+            assertTrue(loan.isPresent(), "round " + round);
+            assertEquals("Patron " + attempts.indexOf(true), loan.get().patron(), "round " + round);
+            assertEquals(due, manager.findBookByCode(code).orElseThrow().getReturnDate(), "round " + round);
+            assertEquals(loan, circulation.checkin(code), "round " + round);
+            assertTrue(circulation.findLoan(code).isEmpty(), "round " + round);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageMode.class)
+    void popularTitlesAreNeverLentTwice(StorageMode mode) throws Exception {
+        LibraryManager manager = new LibraryManager(mode);
+        List<String> codes = addBooks(manager, TITLES);
+        CirculationService circulation = CirculationService.attach(manager);
+        LocalDate due = LocalDate.now().plusDays(14);
+        AtomicInteger[] holders = new AtomicInteger[TITLES];
+        for (int title = 0; title < TITLES; title++) {
+            holders[title] = new AtomicInteger();
+        }
+
+        List<Integer> loans = ThreadRace.run(PATRONS, patron -> {
+            Random random = new Random(patron);
+            String name = "Patron " + patron;
+            int borrowed = 0;
+            for (int attempt = 0; attempt < 20; attempt++) {
+                // Low titles are asked for far more often than high ones.
+                int title = random.nextInt(random.nextInt(TITLES) + 1);
+                String code = codes.get(title);
+                if (circulation.checkout(code, name, due)) {
+                    assertEquals(1, holders[title].incrementAndGet(), code);
+                    assertEquals(name, circulation.findLoan(code).orElseThrow().patron());
+                    holders[title].decrementAndGet();
+                    assertEquals(name, circulation.checkin(code).orElseThrow().patron());
+                    borrowed++;
+                }
+            }
+            return borrowed;
+        });
+
+        assertTrue(loans.stream().mapToInt(Integer::intValue).sum() >= TITLES);
+        for (String code : codes) {
+            assertTrue(circulation.findLoan(code).isEmpty(), code);
+            assertNull(manager.findBookByCode(code).orElseThrow().getReturnDate(), code);
+        }
+    }
+
+    private static List<String> addBooks(LibraryManager manager, int count) {
+        List<String> codes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Book book = new DetectiveBook("The Hollow Man " + i, "John Carr", 240, "Mystery", null, null, 7, "Locked Room");
+            manager.addBook(book);
+            codes.add(book.getLibraryCode());
+        }
+        return codes;
+    }
+}
@@ -0,0 +1,164 @@
+package com.murat.library.circulation;
+import com.murat.library.Book;
+import com.murat.library.BookRecord;
+import com.murat.library.LibraryManager;
+import com.murat.library.generator.CatalogGenerator;
+import com.murat.library.genres.Genre;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the {@link DueDateIndex} against the return dates of the catalog
+ * itself, and the {@link OverdueSweeper} against a clock the test moves.
+ */
+class DueDateIndexTest {
+
+    private static final int BOOKS = 5000;
+    private static final LocalDate TODAY = LocalDate.of(2024, 3, 1);
+
+    private LibraryManager manager;
+
+    @BeforeEach
+    void createCatalog() {
+        manager = new LibraryManager();
+        new CatalogGenerator(12, 500, TODAY).addTo(manager, BOOKS);
+    }
+
+    @Test
+    void lookupsMatchTheReturnDates() {
+        for (int offset = -30; offset <= 30; offset += 3) {
+            LocalDate day = TODAY.plusDays(offset);
+            assertDueBetween(null, day, manager.findOverdueBooks(day));
+            assertDueBetween(day, day.plusDays(4), manager.findBooksDueBetween(day, day.plusDays(4)));
+        }
+        assertTrue(manager.findBooksDueBetween(TODAY, TODAY).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> manager.findBooksDueBetween(TODAY, TODAY.minusDays(1)));
+    }
+
+    @Test
+    void lookupsFollowLoansAndRemovals() {
+        manager.findOverdueBooks(TODAY);
+        LocalDate due = LocalDate.now().plusDays(10);
+        List<Book> books = manager.getCatalog();
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            if (i % 5 == 0) {
+                manager.removeBook(book.getLibraryCode());
+            } else if (i % 5 == 1 && book.getReturnDate() != null) {
+                assertTrue(manager.checkin(book.getLibraryCode()).isPresent());
+            } else if (i % 5 == 2 && book.getReturnDate() == null) {
+                assertTrue(manager.checkout(book.getLibraryCode(), "Patron " + i, due.plusDays(i % 7)));
+            }
+        }
+
+        assertDueBetween(null, TODAY, manager.findOverdueBooks(TODAY));
+        assertDueBetween(due, due.plusDays(7), manager.findBooksDueBetween(due, due.plusDays(7)));
+        assertDueBetween(null, due.plusDays(30), manager.findOverdueBooks(due.plusDays(30)));
+    }
+
+    @Test
+    void sweeperReportsEachOverdueBookOnce() throws InterruptedException {
+        LibraryManager library = new LibraryManager();
+        for (int day = 1; day <= 10; day++) {
+            for (int copy = 0; copy < day; copy++) {
+                library.addBook(lentUntil(TODAY.plusDays(day)));
+            }
+        }
+        MovableClock clock = new MovableClock(TODAY.plusDays(3));
+        BlockingQueue<Book> reported = new LinkedBlockingQueue<>();
+
+        try (OverdueSweeper sweeper = OverdueSweeper.start(DueDateIndex.attach(library), reported::add, clock)) {
+            // The first sweep runs at start and reports the books due before the third day.
+            List<Book> first = take(reported, 1 + 2);
+            assertEquals(List.of(1, 2, 2), first.stream().map(book -> book.getReturnDate().getDayOfMonth() - 1)
+                    .collect(Collectors.toList()));
+
+            clock.moveTo(TODAY.plusDays(6));
+            assertEquals(3 + 4 + 5, sweeper.sweep());
+            assertEquals(0, sweeper.sweep());
+            List<Book> second = take(reported, 3 + 4 + 5);
+            for (Book book : second) {
+                int day = book.getReturnDate().getDayOfMonth() - 1;
+                assertTrue(day >= 3 && day < 6, book.getReturnDate().toString());
+            }
+
+            clock.moveTo(TODAY.plusDays(30));
+            assertEquals(6 + 7 + 8 + 9 + 10, sweeper.sweep());
+        }
+        assertEquals(6 + 7 + 8 + 9 + 10, reported.size());
+    }
+
+    private void assertDueBetween(LocalDate from, LocalDate until, List<Book> found) {
+        Set<String> expected = manager.getCatalog().stream()
+                .filter(book -> book.getReturnDate() != null
+                        && (from == null || !book.getReturnDate().isBefore(from))
+                        && book.getReturnDate().isBefore(until))
+                .map(Book::getLibraryCode)
+                .collect(Collectors.toSet());
+        assertEquals(expected, found.stream().map(Book::getLibraryCode).collect(Collectors.toSet()), from + ".." + until);
+        assertEquals(expected.size(), found.size());
+        for (int i = 1; i < found.size(); i++) {
+            assertTrue(!found.get(i).getReturnDate().isBefore(found.get(i - 1).getReturnDate()), "earliest first");
+        }
+    }
+
+    /** @return a detached detective book lent until the given day, which may lie in the past */
+    private static Book lentUntil(LocalDate due) {
+        return new BookRecord(0, Genre.DETECTIVE, "Due " + due, "Alan Milne", 200, "Mystery",
+                due.minusWeeks(3), due, "Whodunit", null, 5, 0).restoreBook();
+    }
+
+    private static List<Book> take(BlockingQueue<Book> queue, int count) throws InterruptedException {
+        List<Book> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Book book = queue.poll(60, TimeUnit.SECONDS);
+            assertNotNull(book, "only " + i + " of " + count + " books reported");
+            books.add(book);
+        }
+        return books;
+    }
+
+    /** A UTC clock that stays on the day it was last moved to. */
+    private static final class MovableClock extends Clock {
+        private volatile Instant now;
+
+        MovableClock(LocalDate day) {
+            moveTo(day);
+        }
+
+        void moveTo(LocalDate day) {
+            now = day.atTime(12, 0).toInstant(ZoneOffset.UTC);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
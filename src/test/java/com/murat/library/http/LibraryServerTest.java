@@ -0,0 +1,158 @@
+package com.murat.library.http;
+import com.murat.library.Book;
+import com.murat.library.CatalogListener;
+import com.murat.library.LibraryManager;
+import com.murat.library.genres.DetectiveBook;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Talks to a running {@link LibraryServer} over HTTP and checks the answers
+ * and the catalog behind them.
+ */
+class LibraryServerTest {
+
+    private static final Pattern CODE = Pattern.compile("\"libraryCode\":\"([^\"]+)\"");
+    private static final Pattern NEXT = Pattern.compile("\"next\":(null|\"([^\"]*)\")");
+    private static final String HOLLOW_MAN = "{\"genre\":\"Detective\",\"title\":\"The Hollow Man\","
+            + "\"author\":\"John Carr\",\"pageCount\":240,\"category\":\"Mystery\","
+            + "\"subGenre\":\"Locked Room\",\"mysteryLevel\":7}";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private LibraryManager manager;
+    private LibraryServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        manager = new LibraryManager();
+        server = LibraryServer.start(manager, 0);
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+    }
+
+    @Test
+    void booksCanBeAddedFoundChangedAndRemoved() throws Exception {
+        HttpResponse<String> added = send("POST", "/books", HOLLOW_MAN);
+        assertEquals(201, added.statusCode(), added.body());
+        String code = code(added.body());
+        assertEquals("/books/" + code, added.headers().firstValue("Location").orElseThrow());
+        assertTrue(manager.findBookByCode(code).isPresent());
+
+        HttpResponse<String> found = send("GET", "/books/" + code, null);
+        assertEquals(200, found.statusCode());
+        assertTrue(found.body().contains("\"title\":\"The Hollow Man\""), found.body());
+        assertEquals("application/json; charset=utf-8", found.headers().firstValue("Content-Type").orElseThrow());
+
+        HttpResponse<String> changed = send("PATCH", "/books/" + code, "{\"title\":\"Zoë’s Hollow Man 東京\",\"pageCount\":250}");
+        assertEquals(200, changed.statusCode(), changed.body());
+        assertTrue(changed.body().contains("\"title\":\"Zoë’s Hollow Man 東京\""), changed.body());
+        Book book = manager.findBookByCode(code).orElseThrow();
+        assertEquals("Zoë’s Hollow Man 東京", book.getTitle());
+        assertEquals(250, book.getPageCount());
+
+        assertEquals(204, send("DELETE", "/books/" + code, null).statusCode());
+        assertEquals(404, send("GET", "/books/" + code, null).statusCode());
+        assertEquals(404, send("DELETE", "/books/" + code, null).statusCode());
+        assertEquals(0, manager.getCatalog().size());
+    }
+
+    @Test
+    void pagesWalkTheWholeFilter() throws Exception {
+        for (int i = 0; i < 25; i++) {
+            manager.addBook(new DetectiveBook("Case " + (char) ('A' + i), i % 2 == 0 ? "John Carr" : "Ann Cleeves",
+                    100 + i, "Mystery", null, null, 5, "Noir"));
+        }
+        Set<String> expected = manager.findBooksByAuthor("John Carr").stream()
+                .map(Book::getLibraryCode)
+                .collect(Collectors.toSet());
+
+        Set<String> seen = new HashSet<>();
+        String after = null;
+        int pages = 0;
+        do {
+            HttpResponse<String> page = send("GET", "/books?author=john%20carr&limit=5"
+                    + (after == null ? "" : "&after=" + after), null);
+            assertEquals(200, page.statusCode(), page.body());
+            Matcher codes = CODE.matcher(page.body());
+            while (codes.find()) {
+                assertTrue(seen.add(codes.group(1)), "listed twice: " + codes.group(1));
+            }
+            Matcher next = NEXT.matcher(page.body());
+            assertTrue(next.find(), page.body());
+            after = next.group(2);
+            pages++;
+        } while (after != null);
+
+        assertEquals(expected, seen);
+        assertEquals(3, pages);
+    }
+
+    @Test
+    void badRequestsAreRejectedWithTheirReason() throws Exception {
+        HttpResponse<String> invalid = send("POST", "/books", HOLLOW_MAN.replace("240", "-1"));
+        assertEquals(400, invalid.statusCode());
+        assertTrue(invalid.body().contains("\"field\":\"pageCount\""), invalid.body());
+
+        assertEquals(400, send("POST", "/books", "{\"genre\":").statusCode());
+        assertEquals(400, send("GET", "/books?limit=0", null).statusCode());
+        assertEquals(400, send("GET", "/books?after=garbage", null).statusCode());
+        assertEquals(404, send("GET", "/shelves", null).statusCode());
+        HttpResponse<String> notAllowed = send("PUT", "/books", "{}");
+        assertEquals(405, notAllowed.statusCode());
+        assertEquals("GET, POST", notAllowed.headers().firstValue("Allow").orElseThrow());
+
+        String code = code(send("POST", "/books", HOLLOW_MAN).body());
+        HttpResponse<String> badField = send("PATCH", "/books/" + code, "{\"shelf\":\"top\"}");
+        assertEquals(400, badField.statusCode());
+        assertTrue(badField.body().startsWith("{\"error\":"), badField.body());
+    }
+
+    @Test
+    void unexpectedFailuresAreAnsweredWith500() throws Exception {
+        CatalogListener refuser = new CatalogListener() {
+            @Override
+            public void bookAdded(Book book) {
+                throw new IllegalStateException("Disk full");
+            }
+        };
+        manager.addListener(refuser);
+
+        HttpResponse<String> failed = send("POST", "/books", HOLLOW_MAN);
+        assertEquals(500, failed.statusCode());
+        assertFalse(failed.body().contains("Disk full"), failed.body());
+        assertEquals(0, manager.getCatalog().size());
+
+        manager.removeListener(refuser);
+        assertEquals(201, send("POST", "/books", HOLLOW_MAN).statusCode());
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String code(String json) {
+        Matcher matcher = CODE.matcher(json);
+        assertTrue(matcher.find(), json);
+        return matcher.group(1);
+    }
+}
@@ -0,0 +1,120 @@
+package com.murat.library.importer;
+import com.murat.library.Book;
+import com.murat.library.BookRecord;
+import com.murat.library.LibraryManager;
+import com.murat.library.generator.CatalogGenerator;
+import com.murat.library.genres.DetectiveBook;
+import com.murat.library.genres.Genre;
+import com.murat.library.render.RenderFormat;
+import com.murat.library.utils.LibraryCodeGenerator;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Imports CSV and JSON feeds with {@link BulkImporter} and checks the books
+ * that arrive in the catalog and the rows that are reported as rejected.
+ */
+class BulkImporterTest {
+
+    private static final int BOOKS = 5000;
+    private static final String HEADER = "genre,title,author,pageCount,category,libraryCode,subGenre,mysteryLevel\n";
+
+    @Test
+    void jsonFeedImportsEveryBookWithItsCode() throws IOException {
+        LibraryManager original = new LibraryManager();
+        new CatalogGenerator(5).addTo(original, BOOKS);
+        String feed = listing(original);
+
+        LibraryManager imported = new LibraryManager();
+        StringWriter errors = new StringWriter();
+        ImportReport report = new BulkImporter(imported, 4).run(new JsonRowReader(new StringReader(feed)), errors);
+
+        assertEquals(BOOKS, report.rowsRead());
+        assertEquals(BOOKS, report.rowsImported());
+        assertEquals(0, report.rowsRejected());
+        assertEquals("", errors.toString());
+        assertEquals(sortedRecords(original), sortedRecords(imported));
+    }
+
+    @Test
+    void duplicateCodesAreReportedWithTheirRows() throws IOException {
+        LibraryManager original = new LibraryManager();
+        new CatalogGenerator(6).addTo(original, BOOKS);
+        String feed = listing(original);
+        String firstHalf = feed.lines().limit(BOOKS / 2).map(line -> line + "\n").collect(Collectors.joining());
+
+        LibraryManager imported = new LibraryManager();
+        BulkImporter importer = new BulkImporter(imported, 4);
+        importer.run(new JsonRowReader(new StringReader(firstHalf)), new StringWriter());
+        StringWriter errors = new StringWriter();
+        ImportReport report = importer.run(new JsonRowReader(new StringReader(feed)), errors);
+
+        assertEquals(BOOKS - BOOKS / 2, report.rowsImported());
+        assertEquals(BOOKS / 2, report.rowsRejected());
+        Set<Long> expected = LongStream.rangeClosed(1, BOOKS / 2).boxed().collect(Collectors.toSet());
+        assertEquals(expected, rejectedRows(errors));
+        assertTrue(errors.toString().lines().allMatch(line -> line.endsWith("already exists.")));
+        assertEquals(sortedRecords(original), sortedRecords(imported));
+    }
+
+    @Test
+    void csvRowsAreValidatedAndTrimmed() throws IOException {
+        String code = LibraryCodeGenerator.render(LibraryCodeGenerator.nextId(Genre.DETECTIVE));
+        String wrongGenre = LibraryCodeGenerator.render(LibraryCodeGenerator.nextId(Genre.HORROR));
+        String feed = HEADER
+                + "Detective,  The Hollow Man  ,John Carr,240,Mystery,,Locked Room,7\n"
+                + "detective,\"Murder, She Wrote\",Agatha Christie,300, Crime ," + code + ",Whodunit,5\n"
+                + "Detective,No Pages,John Carr,many,Mystery,,Locked Room,7\n"
+                + "Poetry,Leaves of Grass,Walt Whitman,200,Poems,,,\n"
+                + "Detective,Wrong Code,John Carr,240,Mystery," + wrongGenre + ",Locked Room,7\n"
+                + "Detective,Too Mysterious,John Carr,240,Mystery,,Locked Room,11\n";
+
+        LibraryManager manager = new LibraryManager();
+        StringWriter errors = new StringWriter();
+        ImportReport report = new BulkImporter(manager, 2).run(new CsvRowReader(new StringReader(feed)), errors);
+
+        assertEquals(6, report.rowsRead());
+        assertEquals(2, report.rowsImported());
+        assertEquals(4, report.rowsRejected());
+        assertEquals(Set.of(3L, 4L, 5L, 6L), rejectedRows(errors));
+
+        Book hollow = manager.findBookByTitle("The Hollow Man");
+        assertEquals("The Hollow Man", hollow.getTitle());
+        assertEquals(Genre.DETECTIVE, LibraryCodeGenerator.genreOf(hollow.getCodeId()));
+        DetectiveBook murder = (DetectiveBook) manager.findBookByCode(code).orElseThrow();
+        assertEquals("Murder, She Wrote", murder.getTitle());
+        assertEquals("Crime", murder.getCategory());
+        assertEquals(5, murder.getMysteryLevel());
+    }
+
+    private static String listing(LibraryManager manager) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        manager.listBooks(RenderFormat.JSON_LINES, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static List<BookRecord> sortedRecords(LibraryManager manager) {
+        return manager.getCatalog().stream()
+                .map(BookRecord::of)
+                .sorted(Comparator.comparingLong(BookRecord::codeId))
+                .collect(Collectors.toList());
+    }
+
+    private static Set<Long> rejectedRows(StringWriter errors) {
+        return errors.toString().lines()
+                .map(line -> Long.parseLong(line.substring(0, line.indexOf('\t'))))
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+}
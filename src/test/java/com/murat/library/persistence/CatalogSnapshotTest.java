@@ -0,0 +1,124 @@
+package com.murat.library.persistence;
+import com.murat.library.Book;
+import com.murat.library.BookRecord;
+import com.murat.library.LibraryManager;
+import com.murat.library.generator.CatalogGenerator;
+import com.murat.library.genres.DetectiveBook;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writes a catalog with {@link CatalogSnapshot}, loads it back and checks that
+ * the loaded manager answers every lookup the way the original does.
+ */
+class CatalogSnapshotTest {
+
+    private static final int BOOKS = 2000;
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+    private LibraryManager original;
+
+    @BeforeEach
+    void writeSnapshot() throws IOException {
+        file = directory.resolve("library.snap");
+        original = new LibraryManager();
+        new CatalogGenerator(11, 50, LocalDate.of(2024, 1, 1)).addTo(original, BOOKS);
+        CatalogSnapshot.write(file, original.getCatalog());
+    }
+
+    @Test
+    void loadedCatalogMatchesTheOriginal() throws IOException {
+        LibraryManager loaded = CatalogSnapshot.load(file);
+
+        assertEquals(records(original.getCatalog()), records(loaded.getCatalog()));
+        for (Book book : original.getCatalog()) {
+            String code = book.getLibraryCode();
+            assertEquals(BookRecord.of(book), BookRecord.of(loaded.findBookByCode(code).orElseThrow()));
+        }
+    }
+
+    @Test
+    void loadedCatalogAnswersIndexedLookups() throws IOException {
+        LibraryManager loaded = CatalogSnapshot.load(file);
+
+        for (Book book : original.getCatalog().subList(0, 50)) {
+            assertEquals(codes(original.findBooksByAuthor(book.getAuthor())),
+                    codes(loaded.findBooksByAuthor(book.getAuthor())));
+            assertEquals(codes(original.findBooksByCategory(book.getCategory())),
+                    codes(loaded.findBooksByCategory(book.getCategory())));
+            assertEquals(codes(original.advancedSearch(book.getAuthor(), book.getCategory(), 400)),
+                    codes(loaded.advancedSearch(book.getAuthor(), book.getCategory(), 400)));
+        }
+        assertTrue(loaded.findBooksByAuthor("Nobody Wrote This").isEmpty());
+    }
+
+    @Test
+    void changesStayInMemoryAndLeaveTheFileAlone() throws IOException {
+        byte[] before = Files.readAllBytes(file);
+        LibraryManager loaded = CatalogSnapshot.load(file);
+        List<Book> books = loaded.getCatalog();
+        Book retitled = books.get(0);
+        String author = retitled.getAuthor();
+        String removed = books.get(1).getLibraryCode();
+
+        retitled.setAuthor("Someone Else");
+        assertTrue(loaded.removeBook(removed));
+        DetectiveBook added = new DetectiveBook("The Hollow Man", "John Carr", 240, "Mystery", null, null, 7, "Locked Room");
+        loaded.addBook(added);
+
+        assertEquals(BOOKS, loaded.getCatalog().size());
+        assertFalse(loaded.findBookByCode(removed).isPresent());
+        assertTrue(loaded.findBookByCode(added.getLibraryCode()).isPresent());
+        assertTrue(codes(loaded.findBooksByAuthor("Someone Else")).contains(retitled.getLibraryCode()));
+        assertFalse(codes(loaded.findBooksByAuthor(author)).contains(retitled.getLibraryCode()));
+        assertArrayEquals(before, Files.readAllBytes(file));
+
+        LibraryManager reloaded = CatalogSnapshot.load(file);
+        assertEquals(records(original.getCatalog()), records(reloaded.getCatalog()));
+    }
+
+    @Test
+    void rewritingReplacesThePreviousSnapshot() throws IOException {
+        LibraryManager loaded = CatalogSnapshot.load(file);
+        loaded.getCatalog().get(0).setPageCount(999);
+        CatalogSnapshot.write(file, loaded.getCatalog());
+
+        assertEquals(records(loaded.getCatalog()), records(CatalogSnapshot.load(file).getCatalog()));
+        try (var entries = Files.list(directory)) {
+            assertEquals(List.of(file), entries.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void fileThatIsNotASnapshotIsRejected() throws IOException {
+        Path other = directory.resolve("notes.txt");
+        Files.writeString(other, "These are not the books you are looking for.\n".repeat(4));
+
+        assertThrows(IOException.class, () -> CatalogSnapshot.load(other));
+    }
+
+    private static List<BookRecord> records(List<Book> books) {
+        return books.stream().map(BookRecord::of).collect(Collectors.toList());
+    }
+
+    private static Set<String> codes(Collection<Book> books) {
+        return books.stream().map(Book::getLibraryCode).collect(Collectors.toSet());
+    }
+}
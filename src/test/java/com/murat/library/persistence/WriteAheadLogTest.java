@@ -0,0 +1,166 @@
+package com.murat.library.persistence;
+import com.murat.library.Book;
+import com.murat.library.BookRecord;
+import com.murat.library.LibraryManager;
+import com.murat.library.generator.CatalogGenerator;
+import com.murat.library.genres.DetectiveBook;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writes changes through a {@link WriteAheadLog}, damages the file the way a
+ * crash or a bad disk would, and checks what a restart recovers.
+ */
+class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+
+    @BeforeEach
+    void createPath() {
+        file = directory.resolve("library.wal");
+    }
+
+    @Test
+    void replayRestoresEveryKindOfChange() throws IOException {
+        LibraryManager manager = new LibraryManager();
+        try (WriteAheadLog log = WriteAheadLog.open(file, FsyncPolicy.ALWAYS, 100, manager)) {
+            new CatalogGenerator(7).addTo(manager, 50);
+            List<Book> books = manager.getCatalog();
+            books.get(0).setTitle("A Retitled Book");
+            books.get(1).setAuthor("Someone Else");
+            books.get(2).setPageCount(999);
+            manager.checkout(books.get(3).getLibraryCode(), "Patron", LocalDate.now().plusDays(7));
+            assertTrue(manager.removeBook(books.get(4).getLibraryCode()));
+            DetectiveBook detective = new DetectiveBook("The Hollow Man", "John Carr", 240, "Mystery", null, null, 7, "Locked Room");
+            manager.addBook(detective);
+            detective.setMysteryLevel(9);
+        }
+
+        assertEquals(records(manager), records(reopen()));
+    }
+
+    @Test
+    void tornLastRecordIsCutOff() throws IOException {
+        LibraryManager manager = new LibraryManager();
+        long intact;
+        try (WriteAheadLog log = WriteAheadLog.open(file, FsyncPolicy.ALWAYS, 100, manager)) {
+            new CatalogGenerator(7).addTo(manager, 20);
+            intact = Files.size(file);
+            new CatalogGenerator(8).addTo(manager, 1);
+        }
+        truncate(Files.size(file) - 5);
+
+        LibraryManager restored = reopen();
+
+        assertEquals(records(manager).subList(0, 20), records(restored));
+        assertEquals(intact, Files.size(file));
+    }
+
+    @Test
+    void logKeepsWorkingAfterATornTail() throws IOException {
+        LibraryManager manager = new LibraryManager();
+        try (WriteAheadLog log = WriteAheadLog.open(file, FsyncPolicy.ALWAYS, 100, manager)) {
+            new CatalogGenerator(7).addTo(manager, 10);
+        }
+        truncate(Files.size(file) - 3);
+        LibraryManager restored = new LibraryManager();
+        try (WriteAheadLog log = WriteAheadLog.open(file, FsyncPolicy.ALWAYS, 100, restored)) {
+            new CatalogGenerator(9).addTo(restored, 5);
+        }
+
+        assertEquals(records(restored), records(reopen()));
+        assertEquals(14, restored.getCatalog().size());
+    }
+
+    @Test
+    void damagedRecordBeforeTheLastOneIsRejected() throws IOException {
+        LibraryManager manager = new LibraryManager();
+        try (WriteAheadLog log = WriteAheadLog.open(file, FsyncPolicy.ALWAYS, 100, manager)) {
+            new CatalogGenerator(7).addTo(manager, 20);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0x55}), 20);
+        }
+        byte[] damaged = Files.readAllBytes(file);
+
+        IOException error = assertThrows(IOException.class, this::reopen);
+
+        assertTrue(error.getMessage().contains("followed by later records"), error.getMessage());
+        assertArrayEquals(damaged, Files.readAllBytes(file));
+    }
+
+    @Test
+    void zerosAfterTheLastRecordAreDiscarded() throws IOException {
+        LibraryManager manager = new LibraryManager();
+        try (WriteAheadLog log = WriteAheadLog.open(file, FsyncPolicy.ALWAYS, 100, manager)) {
+            new CatalogGenerator(7).addTo(manager, 20);
+        }
+        long intact = Files.size(file);
+        Files.write(file, new byte[4096], StandardOpenOption.APPEND);
+
+        assertEquals(records(manager), records(reopen()));
+        assertEquals(intact, Files.size(file));
+    }
+
+    @Test
+    void dataAfterAZeroLengthIsRejected() throws IOException {
+        LibraryManager manager = new LibraryManager();
+        try (WriteAheadLog log = WriteAheadLog.open(file, FsyncPolicy.ALWAYS, 100, manager)) {
+            new CatalogGenerator(7).addTo(manager, 5);
+        }
+        byte[] tail = new byte[64];
+        tail[40] = 1;
+        Files.write(file, tail, StandardOpenOption.APPEND);
+
+        assertThrows(IOException.class, this::reopen);
+    }
+
+    @Test
+    void checkpointEmptiesTheLogAndKeepsEveryBook() throws IOException {
+        Path snapshot = directory.resolve("library.snapshot");
+        LibraryManager manager = new LibraryManager();
+        try (WriteAheadLog log = WriteAheadLog.open(file, FsyncPolicy.INTERVAL, 10, manager)) {
+            new CatalogGenerator(7).addTo(manager, 30);
+            log.checkpoint(snapshot);
+            assertEquals(0, Files.size(file));
+            manager.getCatalog().get(0).setTitle("Changed After The Checkpoint");
+        }
+
+        LibraryManager restored = CatalogSnapshot.load(snapshot);
+        try (WriteAheadLog log = WriteAheadLog.open(file, FsyncPolicy.ALWAYS, 100, restored)) {
+            assertEquals(records(manager), records(restored));
+        }
+    }
+
+    private LibraryManager reopen() throws IOException {
+        LibraryManager manager = new LibraryManager();
+        WriteAheadLog.open(file, FsyncPolicy.ALWAYS, 100, manager).close();
+        return manager;
+    }
+
+    private void truncate(long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    private static List<BookRecord> records(LibraryManager manager) {
+        return manager.getCatalog().stream().map(BookRecord::of).toList();
+    }
+}
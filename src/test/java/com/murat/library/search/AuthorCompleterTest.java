@@ -0,0 +1,225 @@
+package com.murat.library.search;
+import com.murat.library.Book;
+import com.murat.library.LibraryManager;
+import com.murat.library.generator.CatalogGenerator;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks author completion and typo-tolerant author lookup, both answered by
+ * the {@link AuthorCompleter}, against author counts taken from the catalog
+ * itself.
+ */
+class AuthorCompleterTest {
+
+    private static final int BOOKS = 5000;
+
+    private LibraryManager manager;
+
+    @BeforeEach
+    void createCatalog() {
+        manager = new LibraryManager();
+        new CatalogGenerator(9, 2000, LocalDate.of(2024, 1, 1)).addTo(manager, BOOKS);
+    }
+
+    @Test
+    void completionsAreTheAuthorsWithTheMostBooks() {
+        Map<String, Integer> counts = counts();
+        for (String prefix : prefixes(counts)) {
+            for (int limit : new int[] {1, 5, 50}) {
+                assertCompletions(counts, prefix, manager.completeAuthors(prefix, limit), limit);
+            }
+        }
+    }
+
+    @Test
+    void reusedHolderGivesTheSameCompletions() {
+        Completions holder = new Completions();
+        for (String prefix : prefixes(counts())) {
+            List<AuthorCompletion> expected = manager.completeAuthors(prefix, 10);
+            int size = manager.completeAuthors(prefix, 10, holder);
+            assertEquals(expected.size(), size, prefix);
+            for (int i = 0; i < size; i++) {
+                assertEquals(expected.get(i), new AuthorCompletion(holder.author(i), holder.bookCount(i)), prefix);
+            }
+        }
+    }
+
+    @Test
+    void completionsFollowChangesAndRemovals() {
+        manager.completeAuthors("a", 1);
+        List<Book> books = manager.getCatalog();
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            if (i % 4 == 0) {
+                manager.removeBook(book.getLibraryCode());
+            } else if (i % 4 == 1) {
+                book.setAuthor("Quentin Blake");
+            }
+        }
+
+        Map<String, Integer> counts = counts();
+        for (String prefix : prefixes(counts)) {
+            assertCompletions(counts, prefix, manager.completeAuthors(prefix, 20), 20);
+        }
+        assertEquals(List.of(new AuthorCompletion("Quentin Blake", BOOKS / 4)), manager.completeAuthors("QUENTIN", 5));
+    }
+
+    @Test
+    void authorsWithoutBooksAreNotSuggested() {
+        Book book = manager.getCatalog().get(0);
+        book.setAuthor("Ursula Vernon");
+        assertEquals(1, manager.completeAuthors("ursula v", 5).size());
+
+        book.setAuthor("Ursula Le Guin");
+
+        assertEquals(List.of(new AuthorCompletion("Ursula Le Guin", 1)), manager.completeAuthors("ursula", 5));
+        assertTrue(manager.completeAuthors("ursula v", 5).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> manager.completeAuthors("u", 0));
+    }
+
+    @Test
+    void similarAuthorsAreThoseWithinTheDistance() {
+        Map<String, Integer> counts = counts();
+        Map<String, String> spellings = spellings();
+        List<String> names = new ArrayList<>(counts.keySet());
+        names.sort(null);
+        for (int i = 0; i < names.size(); i += Math.max(1, names.size() / 40)) {
+            String name = names.get(i);
+            List<String> queries = List.of(name, "  " + name.toUpperCase() + " ",
+                    name.substring(1), name.substring(0, 2) + "x" + name.substring(3),
+                    name.charAt(1) + name.substring(0, 1) + name.substring(2) + "e");
+            for (String query : queries) {
+                for (int distance = 0; distance <= AuthorCompleter.MAX_DISTANCE; distance++) {
+                    for (int limit : new int[] {1, 10, 500}) {
+                        assertEquals(similar(counts, spellings, query, distance, limit),
+                                manager.findSimilarAuthors(query, distance, limit), query + " within " + distance);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void similarAuthorsFollowChanges() {
+        Book book = manager.getCatalog().get(0);
+        manager.findSimilarAuthors("warm up", 1, 1);
+        book.setAuthor("Stephen Hawking");
+
+        assertEquals(List.of(new AuthorMatch("Stephen Hawking", 1, 1)), manager.findSimilarAuthors("Stephen Hawkins", 1, 5));
+        book.setAuthor("Carl Sagan");
+        assertTrue(manager.findSimilarAuthors("Stephen Hawkins", 2, 5).isEmpty());
+        assertEquals(List.of(new AuthorMatch("Carl Sagan", 0, 1)), manager.findSimilarAuthors("carl sagan", 0, 5));
+        assertThrows(IllegalArgumentException.class,
+                () -> manager.findSimilarAuthors("x", AuthorCompleter.MAX_DISTANCE + 1, 5));
+    }
+
+    /** @return the best matches found by comparing the query with every name */
+    private static List<AuthorMatch> similar(Map<String, Integer> counts, Map<String, String> spellings, String query,
+                                             int maxDistance, int limit) {
+        String folded = fold(query.trim());
+        return counts.entrySet().stream()
+                .map(entry -> new AuthorMatch(spellings.get(entry.getKey()), distance(folded, entry.getKey()),
+                        entry.getValue()))
+                .filter(match -> match.distance() <= maxDistance)
+                .sorted(Comparator.comparingInt(AuthorMatch::distance)
+                        .thenComparing(Comparator.comparingInt(AuthorMatch::bookCount).reversed())
+                        .thenComparing(AuthorMatch::author))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    private static int distance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int replace = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(replace, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    /** Checks completions against counts: best counts first, each with its true count and the prefix. */
+    private static void assertCompletions(Map<String, Integer> counts, String prefix,
+                                          List<AuthorCompletion> completions, int limit) {
+        String folded = fold(prefix);
+        List<Integer> expected = counts.entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith(folded))
+                .map(Map.Entry::getValue)
+                .sorted(Comparator.reverseOrder())
+                .limit(limit)
+                .collect(Collectors.toList());
+        List<Integer> found = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (AuthorCompletion completion : completions) {
+            String name = fold(completion.author());
+            assertTrue(name.startsWith(folded), prefix + " " + completion);
+            assertEquals(counts.get(name), completion.bookCount(), prefix + " " + completion);
+            assertTrue(names.add(name), "suggested twice: " + completion);
+            found.add(completion.bookCount());
+        }
+        assertEquals(expected, found, prefix);
+    }
+
+    /** @return the number of catalogued books of each author, by folded name */
+    private Map<String, Integer> counts() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Book book : manager.getCatalog()) {
+            counts.merge(fold(book.getAuthor()), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /** @return the first catalogued spelling of each author, by folded name */
+    private Map<String, String> spellings() {
+        Map<String, String> spellings = new HashMap<>();
+        for (Book book : manager.getCatalog()) {
+            spellings.putIfAbsent(fold(book.getAuthor()), book.getAuthor());
+        }
+        return spellings;
+    }
+
+    /** @return prefixes of a sample of the names, of every length, plus some that match nothing */
+    private static List<String> prefixes(Map<String, Integer> counts) {
+        List<String> names = new ArrayList<>(counts.keySet());
+        names.sort(null);
+        List<String> prefixes = new ArrayList<>(List.of("", "zzzz", "Q"));
+        for (int i = 0; i < names.size(); i += Math.max(1, names.size() / 25)) {
+            String name = names.get(i);
+            for (int length = 1; length <= name.length(); length += 3) {
+                prefixes.add(name.substring(0, length).toUpperCase());
+            }
+            prefixes.add(name);
+        }
+        return prefixes;
+    }
+
+    private static String fold(String name) {
+        StringBuilder folded = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            folded.append(Character.toLowerCase(name.charAt(i)));
+        }
+        return folded.toString();
+    }
+}
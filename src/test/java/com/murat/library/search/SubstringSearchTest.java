@@ -0,0 +1,134 @@
+package com.murat.library.search;
+import com.murat.library.Book;
+import com.murat.library.BookField;
+import com.murat.library.LibraryManager;
+import com.murat.library.generator.CatalogGenerator;
+import com.murat.library.genres.DetectiveBook;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks substring and {@code LIKE} search, answered by the
+ * {@link TrigramIndex}, against a scan of the catalog.
+ */
+class SubstringSearchTest {
+
+    private static final int BOOKS = 5000;
+    private static final List<String> TEXTS = List.of("the", "ar", "o", "ing of", "ELIZ", "son", "xyzzy", "a b");
+    private static final List<String> PATTERNS = List.of("the %", "%s", "%an_%", "_a%", "%of the%", "j% %", "%", "____");
+
+    private LibraryManager manager;
+
+    @BeforeEach
+    void createCatalog() {
+        manager = new LibraryManager();
+        new CatalogGenerator(4, 300, LocalDate.of(2024, 1, 1)).addTo(manager, BOOKS);
+    }
+
+    @Test
+    void containsFindsWhatAScanFinds() {
+        for (BookField field : List.of(BookField.TITLE, BookField.AUTHOR)) {
+            for (String text : TEXTS) {
+                String folded = text.toLowerCase(Locale.ROOT);
+                assertEquals(scan(field, value -> value.toLowerCase(Locale.ROOT).contains(folded)),
+                        codes(manager.findBooksContaining(field, text, BOOKS)), field + " " + text);
+            }
+        }
+    }
+
+    @Test
+    void likeFindsWhatAScanFinds() {
+        for (BookField field : List.of(BookField.TITLE, BookField.AUTHOR)) {
+            for (String pattern : PATTERNS) {
+                Pattern regex = toRegex(pattern);
+                assertEquals(scan(field, value -> regex.matcher(value).matches()),
+                        codes(manager.findBooksLike(field, pattern, BOOKS)), field + " " + pattern);
+            }
+        }
+    }
+
+    @Test
+    void wildcardsCanBeMatchedLiterally() {
+        Book percent = addDetective("Fifty Percent % Off");
+        addDetective("Fifty Percent Off");
+
+        assertEquals(List.of(percent), manager.findBooksContaining(BookField.TITLE, "% off", 10));
+        assertEquals(List.of(percent), manager.findBooksLike(BookField.TITLE, "%\\%%", 10));
+        assertThrows(IllegalArgumentException.class, () -> manager.findBooksLike(BookField.TITLE, "ends\\", 10));
+        assertThrows(IllegalArgumentException.class, () -> manager.findBooksContaining(BookField.CATEGORY, "x", 10));
+    }
+
+    @Test
+    void resultsStopAtTheLimit() {
+        assertEquals(7, manager.findBooksContaining(BookField.TITLE, "e", 7).size());
+        assertEquals(3, manager.findBooksLike(BookField.AUTHOR, "%", 3).size());
+    }
+
+    @Test
+    void searchFollowsChangesAndRemovals() {
+        manager.findBooksContaining(BookField.TITLE, "warm up", 1);
+        List<Book> books = manager.getCatalog();
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            if (i % 3 == 0) {
+                manager.removeBook(book.getLibraryCode());
+            } else if (i % 3 == 1) {
+                book.setTitle("Quixotic Voyage " + (char) ('a' + i % 26));
+                book.setAuthor("Zebulon Quill");
+            }
+        }
+
+        assertEquals(scan(BookField.TITLE, value -> value.contains("Quixotic")),
+                codes(manager.findBooksContaining(BookField.TITLE, "xotic vo", BOOKS)));
+        assertEquals(scan(BookField.AUTHOR, value -> value.equals("Zebulon Quill")),
+                codes(manager.findBooksLike(BookField.AUTHOR, "zebulon%", BOOKS)));
+        for (String text : TEXTS) {
+            String folded = text.toLowerCase(Locale.ROOT);
+            assertEquals(scan(BookField.TITLE, value -> value.toLowerCase(Locale.ROOT).contains(folded)),
+                    codes(manager.findBooksContaining(BookField.TITLE, text, BOOKS)), text);
+        }
+    }
+
+    private Set<String> scan(BookField field, Predicate<String> matches) {
+        Function<Book, String> value = field == BookField.TITLE ? Book::getTitle : Book::getAuthor;
+        return manager.getCatalog().stream()
+                .filter(book -> matches.test(value.apply(book)))
+                .map(Book::getLibraryCode)
+                .collect(Collectors.toSet());
+    }
+
+    private static Set<String> codes(List<Book> books) {
+        Set<String> codes = books.stream().map(Book::getLibraryCode).collect(Collectors.toSet());
+        assertEquals(books.size(), codes.size(), "a book was returned twice");
+        return codes;
+    }
+
+    /** Translates a LIKE pattern without escapes into a case-insensitive regular expression. */
+    private static Pattern toRegex(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        for (char c : pattern.toCharArray()) {
+            switch (c) {
+                case '%' -> regex.append(".*");
+                case '_' -> regex.append('.');
+                default -> regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.DOTALL);
+    }
+
+    private Book addDetective(String title) {
+        Book book = new DetectiveBook(title, "Alan Milne", 200, "Mystery", null, null, 5, "Whodunit");
+        manager.addBook(book);
+        return book;
+    }
+}
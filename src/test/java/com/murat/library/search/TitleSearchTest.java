@@ -0,0 +1,134 @@
+package com.murat.library.search;
+import com.murat.library.Book;
+import com.murat.library.LibraryManager;
+import com.murat.library.generator.CatalogGenerator;
+import com.murat.library.genres.DetectiveBook;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks ranked title search and exact title lookup, both answered by the
+ * {@link TitleIndex}, against the titles of the catalog itself.
+ */
+class TitleSearchTest {
+
+    private static final int BOOKS = 5000;
+
+    private LibraryManager manager;
+    private List<String> words;
+
+    @BeforeEach
+    void createCatalog() {
+        manager = new LibraryManager();
+        new CatalogGenerator(3).addTo(manager, BOOKS);
+        Set<String> distinct = new HashSet<>();
+        for (Book book : manager.getCatalog()) {
+            distinct.addAll(Tokenizer.words(book.getTitle()));
+        }
+        words = new ArrayList<>(distinct);
+        words.sort(null);
+    }
+
+    @Test
+    void searchFindsEveryTitleContainingAWord() {
+        for (int i = 0; i < words.size(); i += Math.max(1, words.size() / 40)) {
+            String word = words.get(i);
+            Set<Book> expected = manager.getCatalog().stream()
+                    .filter(book -> Tokenizer.words(book.getTitle()).contains(word))
+                    .collect(Collectors.toSet());
+            Set<Book> found = manager.searchTitles(word.toUpperCase(), BOOKS).stream()
+                    .map(SearchHit::book)
+                    .collect(Collectors.toSet());
+            assertEquals(expected, found, word);
+        }
+    }
+
+    @Test
+    void shortListsHoldTheBestScores() {
+        for (int i = 0; i + 2 < words.size(); i += Math.max(1, words.size() / 40)) {
+            String query = words.get(i) + " " + words.get(i + 1) + " " + words.get(words.size() - 1 - i);
+            List<SearchHit> all = manager.searchTitles(query, BOOKS);
+            for (int k = 1; k < all.size(); k++) {
+                assertTrue(all.get(k - 1).score() >= all.get(k).score(), query);
+            }
+            for (int limit : new int[] {1, 5, 20}) {
+                List<SearchHit> top = manager.searchTitles(query, limit);
+                assertEquals(Math.min(limit, all.size()), top.size(), query);
+                for (int k = 0; k < top.size(); k++) {
+                    assertEquals(all.get(k).score(), top.get(k).score(), 1e-9, query);
+                }
+            }
+        }
+    }
+
+    @Test
+    void shorterTitlesRankHigher() {
+        Book shortTitle = addDetective("Zephyr");
+        Book longTitle = addDetective("Zephyr and the Long Winter of the North");
+
+        List<SearchHit> hits = manager.searchTitles("zephyr", 10);
+
+        assertEquals(List.of(shortTitle, longTitle), hits.stream().map(SearchHit::book).collect(Collectors.toList()));
+    }
+
+    @Test
+    void searchFollowsChangesAndRemovals() {
+        manager.searchTitles("anything", 1);
+        List<Book> books = manager.getCatalog();
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            // Removing two thirds of the titles makes the index compact its posting lists.
+            if (i % 3 != 0) {
+                manager.removeBook(book.getLibraryCode());
+            } else if (i % 2 == 0) {
+                book.setTitle("Quokka Chronicles");
+            }
+        }
+
+        Set<Book> expected = manager.getCatalog().stream()
+                .filter(book -> book.getTitle().equals("Quokka Chronicles"))
+                .collect(Collectors.toSet());
+        Set<Book> found = manager.searchTitles("quokka", BOOKS).stream()
+                .map(SearchHit::book)
+                .collect(Collectors.toSet());
+        assertEquals(expected, found);
+        assertEquals((BOOKS + 5) / 6, found.size());
+        for (SearchHit hit : manager.searchTitles(words.get(0), BOOKS)) {
+            assertTrue(manager.findBookByCode(hit.book().getLibraryCode()).isPresent());
+        }
+    }
+
+    @Test
+    void findBookByTitleMatchesWholeTitlesIgnoringCase() {
+        Book shortTitle = addDetective("The Red House");
+        Book longTitle = addDetective("The Red House Mystery");
+
+        assertSame(shortTitle, manager.findBookByTitle("the red house"));
+        assertSame(longTitle, manager.findBookByTitle("THE RED HOUSE MYSTERY"));
+        assertNull(manager.findBookByTitle("Red House"));
+        assertNull(manager.findBookByTitle("House The Red"));
+        assertNull(manager.findBookByTitle("!?"));
+
+        longTitle.setTitle("The Green House");
+        assertNull(manager.findBookByTitle("The Red House Mystery"));
+        assertSame(longTitle, manager.findBookByTitle("the green house"));
+        for (Book book : manager.getCatalog().subList(0, 200)) {
+            assertEquals(book.getTitle().toLowerCase(), manager.findBookByTitle(book.getTitle()).getTitle().toLowerCase());
+        }
+    }
+
+    private Book addDetective(String title) {
+        Book book = new DetectiveBook(title, "Alan Milne", 200, "Mystery", null, null, 5, "Whodunit");
+        manager.addBook(book);
+        return book;
+    }
+}